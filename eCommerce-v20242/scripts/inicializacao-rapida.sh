@@ -0,0 +1,36 @@
+#!/bin/sh
+# Inicialização rápida: perfil "rapido" + código AOT do contexto Spring + arquivo AppCDS.
+#
+#   mvn package -Prapido -DskipTests               # compila e gera o código AOT
+#   ./scripts/inicializacao-rapida.sh treinar      # execução de treino (sobe, faz uma compra e sai): grava target/compra-cds.jsa
+#   ./scripts/inicializacao-rapida.sh executar     # sobe a aplicação usando AOT + CDS
+#
+# O AppCDS só arquiva classes carregadas de jars do classpath, e o classpath precisa ser o mesmo no treino e na
+# execução. Por isso a aplicação roda a partir do jar fino gerado pelo perfil + jars de target/classpath-execucao.txt,
+# e não do jar executável (-exec), que aninha as dependências.
+set -e
+cd "$(dirname "$0")/.."
+
+JAR=$(ls target/*.jar | grep -v -- '-exec\.jar$' | head -n 1)
+CLASSPATH="$JAR:$(cat target/classpath-execucao.txt)"
+ARQUIVO_CDS=target/compra-cds.jsa
+OPCOES="-Dspring.aot.enabled=true -XX:TieredStopAtLevel=1"
+
+case "$1" in
+	treinar)
+		shift
+		# O treino faz uma compra: o registro dela vai para um diário descartável em target/
+		exec java $OPCOES -XX:ArchiveClassesAtExit=$ARQUIVO_CDS -cp "$CLASSPATH" ecommerce.CompraApplication \
+			--spring.profiles.active=rapido --inicializacao.treino-cds=true \
+			--compras.diario.diretorio=target/treino-cds-diario "$@"
+		;;
+	executar)
+		shift
+		exec java $OPCOES -XX:SharedArchiveFile=$ARQUIVO_CDS -Xshare:auto -cp "$CLASSPATH" ecommerce.CompraApplication \
+			--spring.profiles.active=rapido "$@"
+		;;
+	*)
+		echo "uso: $0 treinar|executar [argumentos da aplicação]" >&2
+		exit 1
+		;;
+esac
@@ -0,0 +1,31 @@
+package ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import ecommerce.external.ExecutorComPrazo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.PagamentoComPrazo;
+
+/**
+ * Pool das chamadas a estoque e pagamento que precisam respeitar o prazo da requisição. O {@link IPagamentoExternal}
+ * injetado nos serviços é o gateway limitado pelo prazo; o gateway em si continua disponível pelo nome do bean.
+ */
+@Configuration
+public class ChamadasExternasConfig {
+
+	@Bean
+	ExecutorComPrazo executorChamadasExternas(@Value("${externo.chamadas.threads:64}") int threads) {
+		return new ExecutorComPrazo(threads);
+	}
+
+	@Bean
+	@Primary
+	PagamentoComPrazo pagamentoComPrazo(@Qualifier("pagamentoSimulado") IPagamentoExternal pagamento,
+			ExecutorComPrazo executorChamadasExternas) {
+		return new PagamentoComPrazo(pagamento, executorChamadasExternas);
+	}
+}
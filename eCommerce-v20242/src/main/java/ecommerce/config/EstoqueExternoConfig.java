@@ -0,0 +1,86 @@
+package ecommerce.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import ecommerce.external.EstoqueComCacheNegativo;
+import ecommerce.external.EspelhoEstoque;
+import ecommerce.external.EstoqueComHedging;
+import ecommerce.external.EstoqueComPrazo;
+import ecommerce.external.ExecutorComPrazo;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IFeedEstoque;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * O {@link IEstoqueExternal} injetado nos serviços é o cliente de estoque embrulhado, de fora para dentro, pelo cache
+ * negativo, pelo espelho local, pelo hedging e pelo limite de prazo; o cliente em si continua disponível pelo nome do
+ * bean.
+ */
+@Configuration
+public class EstoqueExternoConfig {
+
+	@Bean
+	EstoqueComPrazo estoqueComPrazo(@Qualifier("estoqueSimulado") IEstoqueExternal estoque,
+			ExecutorComPrazo executorChamadasExternas) {
+		return new EstoqueComPrazo(estoque, executorChamadasExternas);
+	}
+
+	@Bean
+	EstoqueComHedging estoqueComHedging(EstoqueComPrazo estoque,
+			@Value("${estoque.hedging.habilitado:true}") boolean habilitado,
+			@Value("${estoque.hedging.fracao-maxima:0.05}") double fracaoMaxima,
+			@Value("${estoque.hedging.atraso-minimo-ms:5}") long atrasoMinimoMs,
+			@Value("${estoque.hedging.threads:64}") int threads) {
+		return new EstoqueComHedging(estoque, habilitado, fracaoMaxima, atrasoMinimoMs, threads);
+	}
+
+	@Bean
+	EspelhoEstoque espelhoEstoque(EstoqueComHedging estoque, IFeedEstoque feed, MeterRegistry registry,
+			@Value("${estoque.espelho.habilitado:true}") boolean habilitado,
+			@Value("${estoque.espelho.defasagem-maxima-ms:500}") long defasagemMaximaMs) {
+		EspelhoEstoque espelho = new EspelhoEstoque(estoque, feed, habilitado, Duration.ofMillis(defasagemMaximaMs));
+		Gauge.builder("estoque.espelho.defasagem", espelho, EspelhoEstoque::getDefasagemMs)
+				.description("Tempo desde o último ponto do feed refletido no espelho")
+				.baseUnit("milliseconds")
+				.register(registry);
+		FunctionCounter.builder("estoque.espelho.consultas", espelho, EspelhoEstoque::getRespostasLocais)
+				.tag("origem", "local")
+				.register(registry);
+		FunctionCounter.builder("estoque.espelho.consultas", espelho, EspelhoEstoque::getConsultasPorDefasagem)
+				.tag("origem", "remota-defasagem")
+				.register(registry);
+		FunctionCounter.builder("estoque.espelho.consultas", espelho, EspelhoEstoque::getConsultasPorProdutoDesconhecido)
+				.tag("origem", "remota-produto-desconhecido")
+				.register(registry);
+		FunctionCounter.builder("estoque.espelho.lacunas", espelho, EspelhoEstoque::getLacunas)
+				.register(registry);
+		return espelho;
+	}
+
+	@Bean
+	@Primary
+	EstoqueComCacheNegativo estoqueComCacheNegativo(EspelhoEstoque estoque, MeterRegistry registry,
+			@Value("${estoque.cache-negativo.habilitado:true}") boolean habilitado,
+			@Value("${estoque.cache-negativo.ttl-ms:2000}") long ttlMs,
+			@Value("${estoque.cache-negativo.maximo-entradas:100000}") int maximoEntradas) {
+		EstoqueComCacheNegativo cache = new EstoqueComCacheNegativo(estoque, habilitado, Duration.ofMillis(ttlMs),
+				maximoEntradas);
+		FunctionCounter.builder("estoque.cache.negativo.acertos", cache, EstoqueComCacheNegativo::getAcertos)
+				.description("Consultas de disponibilidade recusadas pelo cache, sem chamada ao estoque")
+				.register(registry);
+		FunctionCounter.builder("estoque.cache.negativo.faltas", cache, EstoqueComCacheNegativo::getFaltas)
+				.description("Consultas de disponibilidade repassadas ao estoque")
+				.register(registry);
+		Gauge.builder("estoque.cache.negativo.tamanho", cache, EstoqueComCacheNegativo::getTamanho)
+				.register(registry);
+		return cache;
+	}
+}
@@ -0,0 +1,67 @@
+package ecommerce.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import ecommerce.entity.Cliente;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.service.AdmissaoPorTipoCliente;
+import ecommerce.service.CompraService;
+import ecommerce.service.ExecutorFinalizacao;
+import ecommerce.service.FinalizacaoAssincrona;
+import ecommerce.service.ShardsFinalizacao;
+import ecommerce.service.TravasFinalizacao;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Escolhe, por {@code compra.execucao.modo}, como {@code POST /finalizar} executa as finalizações. A escolha é feita
+ * em tempo de execução, então vale também com o código gerado pelo AOT. {@code POST /finalizar/async} usa o mesmo
+ * executor a partir dos consumidores da fila.
+ *
+ * O executor escolhido fica atrás de {@link AdmissaoPorTipoCliente} ({@code compra.admissao.*}).
+ */
+@Configuration
+public class ExecucaoFinalizacaoConfig {
+
+	@Bean
+	ExecutorFinalizacao executorFinalizacao(MeterRegistry registry, ClienteRepository clienteRepository,
+			@Value("${compra.execucao.modo:direto}") String modo,
+			@Value("${compra.travas.faixas:256}") int faixas,
+			@Value("${compra.travas.espera-ms:2000}") long esperaMs,
+			@Value("${compra.shards.quantidade:16}") int quantidadeShards,
+			@Value("${compra.shards.capacidade-fila:1024}") int capacidadeFila,
+			@Value("${compra.admissao.habilitado:true}") boolean admissaoHabilitada,
+			@Value("${compra.admissao.concorrencia:64}") int concorrencia,
+			@Value("${compra.admissao.pesos:1,3,6}") int[] pesos,
+			@Value("${compra.admissao.fracoes-concorrencia:0.5,0.75,1.0}") double[] fracoesConcorrencia,
+			@Value("${compra.admissao.capacidade-fila:256}") int capacidadeFilaAdmissao,
+			@Value("${compra.admissao.espera-maxima-ms:2000}") long esperaMaximaMs,
+			@Value("${compra.admissao.ttl-tipo-ms:300000}") long ttlTipoMs,
+			@Value("${compra.admissao.maximo-tipos-em-cache:100000}") int maximoTiposEmCache) {
+		ExecutorFinalizacao executor = switch (modo) {
+			case "direto" -> ExecutorFinalizacao.direto();
+			case "travas" -> new TravasFinalizacao(faixas, esperaMs);
+			case "shards" -> new ShardsFinalizacao(quantidadeShards, capacidadeFila, registry);
+			default -> throw new IllegalArgumentException("compra.execucao.modo desconhecido: " + modo);
+		};
+		return new AdmissaoPorTipoCliente(executor,
+				clienteId -> clienteRepository.findById(clienteId).map(Cliente::getTipo).orElse(null),
+				admissaoHabilitada, concorrencia, pesos, fracoesConcorrencia, capacidadeFilaAdmissao, esperaMaximaMs,
+				Duration.ofMillis(ttlTipoMs), maximoTiposEmCache, registry);
+	}
+
+	@Bean
+	FinalizacaoAssincrona finalizacaoAssincrona(CompraService compraService,
+			ExecutorFinalizacao executorFinalizacao, MeterRegistry registry,
+			@Value("${compra.async.capacidade:4096}") int capacidade,
+			@Value("${compra.async.consumidores:16}") int consumidores,
+			@Value("${compra.prazo-padrao-ms:10000}") long prazoMs,
+			@Value("${compra.async.retencao-ms:300000}") long retencaoMs,
+			@Value("${compra.async.maximo-tickets:100000}") int maximoTickets) {
+		return new FinalizacaoAssincrona(compraService, executorFinalizacao, capacidade, consumidores, prazoMs,
+				Duration.ofMillis(retencaoMs), maximoTickets, registry);
+	}
+}
@@ -0,0 +1,22 @@
+package ecommerce.config;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import ecommerce.controller.ConversorCompraBinario;
+
+/**
+ * Acrescenta o formato binário do checkout ao fim dos conversores: com {@code Accept: *}{@code /*} ou sem Accept a
+ * resposta continua em JSON.
+ */
+@Configuration
+public class FormatoBinarioConfig implements WebMvcConfigurer {
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new ConversorCompraBinario());
+	}
+}
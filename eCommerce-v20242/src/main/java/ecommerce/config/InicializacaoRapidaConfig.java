@@ -0,0 +1,91 @@
+package ecommerce.config;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import ecommerce.controller.CompraController;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CompraService;
+
+/**
+ * Perfil "rapido": inicialização preguiçosa de tudo, exceto o caminho do checkout, que precisa responder na
+ * primeira requisição sem pagar a criação dos beans.
+ */
+@Configuration
+@Profile("rapido")
+public class InicializacaoRapidaConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(InicializacaoRapidaConfig.class);
+
+	@Bean
+	static LazyInitializationExcludeFilter beansDoCheckout() {
+		return LazyInitializationExcludeFilter.forBeanTypes(CompraController.class, CompraService.class);
+	}
+
+	/**
+	 * Execução de treino do arquivo AppCDS: com {@code inicializacao.treino-cds=true} a aplicação faz uma compra pelo
+	 * HTTP assim que fica pronta e encerra, e a JVM grava as classes carregadas até ali (-XX:ArchiveClassesAtExit),
+	 * incluindo as do caminho do checkout. A propriedade é lida em tempo de execução porque, com AOT, condições sobre
+	 * beans são avaliadas no build.
+	 */
+	@Bean
+	ApplicationListener<ApplicationReadyEvent> encerrarAposTreinoCds(Environment environment) {
+		return evento -> {
+			if (environment.getProperty("inicializacao.treino-cds", Boolean.class, false)) {
+				try {
+					comprarParaTreino(evento.getApplicationContext());
+				} catch (IOException | RuntimeException e) {
+					log.warn("Treino do AppCDS: compra de treino falhou; o arquivo terá só as classes da subida", e);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				System.exit(SpringApplication.exit(evento.getApplicationContext()));
+			}
+		};
+	}
+
+	/** Grava cliente, produto e carrinho de treino e finaliza a compra por {@code POST /finalizar}. */
+	private static void comprarParaTreino(ApplicationContext contexto) throws IOException, InterruptedException {
+		Cliente cliente = contexto.getBean(ClienteRepository.class)
+				.save(new Cliente(null, "Treino CDS", "-", TipoCliente.BRONZE));
+		Produto produto = contexto.getBean(ProdutoRepository.class)
+				.save(new Produto(null, "Treino CDS", null, BigDecimal.ONE, 1, TipoProduto.LIVRO));
+		CarrinhoDeCompras carrinho = contexto.getBean(CarrinhoDeComprasRepository.class).save(
+				new CarrinhoDeCompras(null, cliente, List.of(new ItemCompra(null, produto, 1L)), LocalDate.now()));
+
+		int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+		HttpRequest compra = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/finalizar?carrinhoId="
+				+ carrinho.getId() + "&clienteId=" + cliente.getId())).timeout(Duration.ofSeconds(30))
+				.POST(HttpRequest.BodyPublishers.noBody()).build();
+		HttpResponse<String> resposta = HttpClient.newHttpClient().send(compra, HttpResponse.BodyHandlers.ofString());
+		log.info("Treino do AppCDS: POST /finalizar respondeu {}", resposta.statusCode());
+	}
+}
@@ -0,0 +1,40 @@
+package ecommerce.config;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ecommerce.service.IndiceProdutoCarrinhos;
+import ecommerce.service.PurgaCarrinhos;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Purga periódica dos carrinhos abandonados, desligada por padrão. {@code carrinhos.purga.habilitado} é lido do
+ * {@link Environment} a cada execução, então vale a mudança feita por qualquer fonte de propriedades recarregável,
+ * sem reiniciar.
+ */
+@Configuration
+@EnableScheduling
+public class PurgaCarrinhosConfig {
+
+	@Bean
+	PurgaCarrinhos purgaCarrinhos(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			IndiceProdutoCarrinhos indice, MeterRegistry registry, Environment environment,
+			@Value("${carrinhos.purga.idade-dias:30}") long idadeDias,
+			@Value("${carrinhos.purga.lote-minimo:100}") int loteMinimo,
+			@Value("${carrinhos.purga.lote-maximo:5000}") int loteMaximo,
+			@Value("${carrinhos.purga.latencia-alvo-ms:100}") long latenciaAlvoMs,
+			@Value("${carrinhos.purga.pausa-relativa:1.0}") double pausaRelativa) {
+		return new PurgaCarrinhos(jdbcTemplate, transactionManager, indice,
+				() -> environment.getProperty("carrinhos.purga.habilitado", Boolean.class, false),
+				Duration.ofDays(idadeDias), loteMinimo, loteMaximo, Duration.ofMillis(latenciaAlvoMs), pausaRelativa,
+				Clock.systemDefaultZone(), registry);
+	}
+}
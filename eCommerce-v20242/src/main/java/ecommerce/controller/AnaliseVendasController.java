@@ -0,0 +1,40 @@
+package ecommerce.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import ecommerce.dto.VendaProdutoDTO;
+import ecommerce.service.AnaliseVendasService;
+import ecommerce.service.AnaliseVendasService.Criterio;
+import ecommerce.service.AnaliseVendasService.Janela;
+
+@RestController
+@RequestMapping("/analise/vendas")
+public class AnaliseVendasController {
+
+	private static final int MAXIMO_RANKING = 1000;
+
+	private final AnaliseVendasService analiseVendasService;
+
+	@Autowired
+	public AnaliseVendasController(AnaliseVendasService analiseVendasService) {
+		this.analiseVendasService = analiseVendasService;
+	}
+
+	@GetMapping("/mais-vendidos")
+	public ResponseEntity<List<VendaProdutoDTO>> maisVendidos(@RequestParam(defaultValue = "UM_MINUTO") Janela janela,
+			@RequestParam(defaultValue = "UNIDADES") Criterio criterio, @RequestParam(defaultValue = "10") int n) {
+		if (n <= 0 || n > MAXIMO_RANKING) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(analiseVendasService.maisVendidos(janela, criterio, n));
+	}
+
+	@GetMapping("/produtos/{produtoId}")
+	public ResponseEntity<VendaProdutoDTO> vendasDoProduto(@PathVariable Long produtoId) {
+		return ResponseEntity.ok(analiseVendasService.vendasDoProduto(produtoId));
+	}
+}
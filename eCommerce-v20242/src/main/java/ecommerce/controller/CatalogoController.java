@@ -0,0 +1,116 @@
+package ecommerce.controller;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import ecommerce.dto.PrecoProdutoDTO;
+import ecommerce.dto.RelatorioImportacaoDTO;
+import ecommerce.dto.RelatorioImportacaoDTO.LinhaRejeitadaDTO;
+import ecommerce.dto.RelatorioReprecificacaoDTO;
+import ecommerce.dto.ResultadoBuscaDTO;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.BuscaProdutosService;
+import ecommerce.service.FormatoImportacao;
+import ecommerce.service.ImportacaoCatalogoService;
+import ecommerce.service.ListagemProdutosService;
+import ecommerce.service.ReprecificacaoCarrinhosService;
+import ecommerce.service.SnapshotCatalogo;
+
+@RestController
+@RequestMapping("/catalogo")
+public class CatalogoController {
+
+	private final ImportacaoCatalogoService importacaoService;
+	private final ReprecificacaoCarrinhosService reprecificacaoService;
+	private final BuscaProdutosService buscaService;
+	private final ListagemProdutosService listagemService;
+	private final SnapshotCatalogo snapshotCatalogo;
+
+	@Autowired
+	public CatalogoController(ImportacaoCatalogoService importacaoService,
+			ReprecificacaoCarrinhosService reprecificacaoService, BuscaProdutosService buscaService,
+			ListagemProdutosService listagemService, SnapshotCatalogo snapshotCatalogo) {
+		this.importacaoService = importacaoService;
+		this.reprecificacaoService = reprecificacaoService;
+		this.buscaService = buscaService;
+		this.listagemService = listagemService;
+		this.snapshotCatalogo = snapshotCatalogo;
+	}
+
+	/**
+	 * Produtos em ordem de tipo, preço e id, página a página: passe em {@code cursor} o {@code proximo} da resposta
+	 * anterior. Com {@code tipo}, só produtos daquele tipo.
+	 */
+	@GetMapping("/produtos")
+	public ResponseEntity<StreamingResponseBody> listar(@RequestParam(required = false) TipoProduto tipo,
+			@RequestParam(required = false) String cursor, @RequestParam(defaultValue = "50") int limite) {
+		try {
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+					.body(listagemService.listar(tipo, cursor, limite));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	/** Busca por nome e descrição (prefixos, sem acento), com filtros e contagens por tipo e faixa de preço. */
+	@GetMapping("/busca")
+	public ResponseEntity<ResultadoBuscaDTO> buscar(@RequestParam(required = false) String q,
+			@RequestParam(required = false) TipoProduto tipo, @RequestParam(required = false) Integer faixa,
+			@RequestParam(defaultValue = "20") int limite) {
+		try {
+			return ResponseEntity.ok(buscaService.buscar(q, tipo, faixa, limite));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	/** Preço, peso e tipo dos produtos, do snapshot do catálogo; ids inexistentes ficam fora da resposta. */
+	@GetMapping("/precos")
+	public ResponseEntity<List<PrecoProdutoDTO>> precos(@RequestParam List<Long> ids) {
+		try {
+			return ResponseEntity.ok(snapshotCatalogo.buscar(ids));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	@PostMapping(value = "/importacao", consumes = "text/csv")
+	public ResponseEntity<RelatorioImportacaoDTO> importarCsv(InputStream corpo) {
+		return importar(corpo, FormatoImportacao.CSV);
+	}
+
+	@PostMapping(value = "/importacao", consumes = "application/x-ndjson")
+	public ResponseEntity<RelatorioImportacaoDTO> importarJsonLinhas(InputStream corpo) {
+		return importar(corpo, FormatoImportacao.JSON_LINHAS);
+	}
+
+	/**
+	 * Recalcula o total estimado dos carrinhos abertos com os preços atuais, por exemplo após uma importação. Com
+	 * {@code produtoIds}, só os carrinhos que contêm algum desses produtos.
+	 */
+	@PostMapping("/reprecificacao")
+	public ResponseEntity<RelatorioReprecificacaoDTO> reprecificar(
+			@RequestParam(required = false) List<Long> produtoIds) {
+		if (produtoIds == null || produtoIds.isEmpty()) {
+			return ResponseEntity.ok(reprecificacaoService.reprecificar());
+		}
+		return ResponseEntity.ok(reprecificacaoService.reprecificarProdutos(produtoIds));
+	}
+
+	private ResponseEntity<RelatorioImportacaoDTO> importar(InputStream corpo, FormatoImportacao formato) {
+		try {
+			return ResponseEntity.ok(importacaoService.importar(corpo, formato));
+		} catch (IllegalArgumentException e) {
+			// Erro de formato do arquivo (ex.: cabeçalho CSV inválido): nada foi importado
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+					.body(new RelatorioImportacaoDTO(0, 0, 0, List.of(new LinhaRejeitadaDTO(1, e.getMessage())), 0));
+		}
+	}
+}
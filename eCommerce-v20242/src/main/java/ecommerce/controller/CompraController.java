@@ -1,31 +1,111 @@
 package ecommerce.controller;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import ecommerce.dto.CompraDTO;
+import ecommerce.dto.FormatoBinarioCompra;
+import ecommerce.dto.LoteCompraDTO;
+import ecommerce.dto.PedidoCompraDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+import ecommerce.dto.SituacaoCompraDTO;
 import ecommerce.service.CompraService;
+import ecommerce.service.ExecutorFinalizacao;
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.FinalizacaoAssincrona;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+import ecommerce.service.ResultadoCompra;
+import ecommerce.service.ResultadoCompra.Recusa;
 
 @RestController
 @RequestMapping("/")
 public class CompraController {
 
+	private static final int MAXIMO_LOTE = 1000;
+	private static final String PRAZO_INVALIDO = "Prazo deve ser positivo.";
+
 	private final CompraService compraService;
+	private final ExecutorFinalizacao executorFinalizacao;
+	private final FinalizacaoAssincrona finalizacaoAssincrona;
+	private final long prazoPadraoMs;
 
 	@Autowired
-	public CompraController(CompraService compraService) {
+	public CompraController(CompraService compraService, ExecutorFinalizacao executorFinalizacao,
+			FinalizacaoAssincrona finalizacaoAssincrona, @Value("${compra.prazo-padrao-ms:10000}") long prazoPadraoMs) {
 		this.compraService = compraService;
+		this.executorFinalizacao = executorFinalizacao;
+		this.finalizacaoAssincrona = finalizacaoAssincrona;
+		this.prazoPadraoMs = prazoPadraoMs;
 	}
 
 	@PostMapping("/finalizar")
-	public ResponseEntity<CompraDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId) {
+	public ResponseEntity<CompraDTO> finalizarCompra(@RequestParam Long carrinhoId, @RequestParam Long clienteId,
+			@RequestHeader(name = "X-Prazo-Ms", required = false) Long prazoMs) {
+		if (prazoMs != null && prazoMs <= 0) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CompraDTO(false, null, PRAZO_INVALIDO));
+		}
+		return finalizar(carrinhoId, clienteId, prazo(prazoMs));
+	}
+
+	/** Mesmo checkout, com o pedido no corpo em {@link FormatoBinarioCompra}, para chamadas internas. */
+	@PostMapping(value = "/finalizar", consumes = FormatoBinarioCompra.TIPO)
+	public ResponseEntity<CompraDTO> finalizarCompraBinaria(@RequestBody PedidoCompraDTO pedido,
+			@RequestHeader(name = "X-Prazo-Ms", required = false) Long prazoMs) {
+		return finalizarCompra(pedido.carrinhoId(), pedido.clienteId(), prazoMs);
+	}
+
+	/**
+	 * Vários checkouts numa requisição, em JSON ou binário, finalizados em ordem na thread da requisição com um
+	 * único prazo. Responde 200 com um resultado por pedido.
+	 */
+	@PostMapping(value = "/finalizar/lote", consumes = { MediaType.APPLICATION_JSON_VALUE, FormatoBinarioCompra.TIPO })
+	public ResponseEntity<ResultadoLoteDTO> finalizarLote(@RequestBody LoteCompraDTO lote,
+			@RequestHeader(name = "X-Prazo-Ms", required = false) Long prazoMs) {
+		if (lote.pedidos() == null || lote.pedidos().isEmpty() || lote.pedidos().size() > MAXIMO_LOTE
+				|| (prazoMs != null && prazoMs <= 0)) {
+			return ResponseEntity.badRequest().build();
+		}
+		Prazo prazo = prazo(prazoMs);
+		List<CompraDTO> resultados = new ArrayList<>(lote.pedidos().size());
+		for (PedidoCompraDTO pedido : lote.pedidos()) {
+			resultados.add(finalizar(pedido.carrinhoId(), pedido.clienteId(), prazo).getBody());
+		}
+		return ResponseEntity.ok(new ResultadoLoteDTO(resultados));
+	}
+
+	private Prazo prazo(Long prazoMs) {
+		// O prazo começa a contar na chegada, antes de esperar pela trava ou pelo shard do cliente
+		return Prazo.em(Duration.ofMillis(prazoMs != null ? prazoMs : prazoPadraoMs));
+	}
+
+	private ResponseEntity<CompraDTO> finalizar(Long carrinhoId, Long clienteId, Prazo prazo) {
+		if (carrinhoId == null || clienteId == null) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+					.body(new CompraDTO(false, null, "Carrinho e cliente são obrigatórios."));
+		}
 		try {
-			CompraDTO compraDTO = compraService.finalizarCompra(carrinhoId, clienteId);
-			return ResponseEntity.ok(compraDTO);
+			// Trava ou shard envolvem a transação inteira: o próximo do mesmo cliente só entra depois do commit.
+			// Com o prazo aplicado, admissão e trava não esperam além dele
+			ResultadoCompra resultado = prazo.aplicar(() -> executorFinalizacao.executar(clienteId,
+					() -> compraService.tentarFinalizarCompra(carrinhoId, clienteId, prazo)));
+			return ResponseEntity.status(status(resultado)).body(resultado.paraDTO());
 		} catch (IllegalArgumentException e) {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new CompraDTO(false, null, e.getMessage()));
+		} catch (PrazoEsgotadoException e) {
+			return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(new CompraDTO(false, null, e.getMessage()));
+		} catch (FilaFinalizacaoCheiaException e) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1")
+					.body(new CompraDTO(false, null, e.getMessage()));
 		} catch (IllegalStateException e) {
 			return ResponseEntity.status(HttpStatus.CONFLICT).body(new CompraDTO(false, null, e.getMessage()));
 		} catch (Exception e) {
@@ -33,4 +113,43 @@ public class CompraController {
 					.body(new CompraDTO(false, null, "Erro ao processar compra."));
 		}
 	}
+
+	/** Recusas de negócio chegam como resultado; exceções ficam para admissão, trava, shard e erros inesperados. */
+	static HttpStatus status(ResultadoCompra resultado) {
+		if (!(resultado instanceof Recusa recusa)) {
+			return HttpStatus.OK;
+		}
+		return switch (recusa.motivo()) {
+			case NAO_ENCONTRADO -> HttpStatus.BAD_REQUEST;
+			case PRAZO_ESGOTADO -> HttpStatus.GATEWAY_TIMEOUT;
+			case CARRINHO_INVALIDO, CARRINHO_EM_FINALIZACAO, FORA_DE_ESTOQUE, PAGAMENTO_NAO_AUTORIZADO,
+					FALHA_BAIXA_ESTOQUE -> HttpStatus.CONFLICT;
+		};
+	}
+
+	/** Aceita a finalização e responde 202 com o ticket; a situação fica em {@code GET /compras/{ticket}}. */
+	@PostMapping("/finalizar/async")
+	public ResponseEntity<SituacaoCompraDTO> finalizarCompraAssincrona(@RequestParam Long carrinhoId,
+			@RequestParam Long clienteId) {
+		try {
+			String ticket = finalizacaoAssincrona.enfileirar(carrinhoId, clienteId);
+			return ResponseEntity.accepted().location(URI.create("/compras/" + ticket))
+					.body(new SituacaoCompraDTO(ticket, SituacaoCompraDTO.Estado.NA_FILA, null));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(recusa(e));
+		} catch (FilaFinalizacaoCheiaException e) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(recusa(e));
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(recusa(e));
+		}
+	}
+
+	@GetMapping("/compras/{ticket}")
+	public ResponseEntity<SituacaoCompraDTO> situacaoCompra(@PathVariable String ticket) {
+		return ResponseEntity.of(finalizacaoAssincrona.situacao(ticket));
+	}
+
+	private static SituacaoCompraDTO recusa(RuntimeException e) {
+		return new SituacaoCompraDTO(null, SituacaoCompraDTO.Estado.RECUSADA, new CompraDTO(false, null, e.getMessage()));
+	}
 }
@@ -0,0 +1,144 @@
+package ecommerce.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.FormatoBinarioCompra;
+import ecommerce.dto.LoteCompraDTO;
+import ecommerce.dto.PedidoCompraDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+
+/**
+ * Lê e escreve os DTOs do checkout em {@link FormatoBinarioCompra}. Fica depois do JSON na lista de conversores do
+ * MVC, então só é usado quando Content-Type ou Accept pedem {@value FormatoBinarioCompra#TIPO}.
+ *
+ * Cada thread reaproveita o mesmo buffer para ler e escrever; corpos acima de {@link #MAXIMO_REUTILIZADO} usam um
+ * buffer só daquela mensagem.
+ */
+public class ConversorCompraBinario extends AbstractHttpMessageConverter<Object> {
+
+	public static final MediaType TIPO = MediaType.parseMediaType(FormatoBinarioCompra.TIPO);
+
+	private static final int MAXIMO_REUTILIZADO = 64 * 1024;
+	private static final int MAXIMO_CORPO = 4 * 1024 * 1024;
+
+	private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(4096));
+
+	public ConversorCompraBinario() {
+		super(TIPO);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return clazz == PedidoCompraDTO.class || clazz == LoteCompraDTO.class || clazz == CompraDTO.class
+				|| clazz == ResultadoLoteDTO.class;
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+		long tamanhoDeclarado = inputMessage.getHeaders().getContentLength();
+		if (tamanhoDeclarado > MAXIMO_CORPO) {
+			throw new HttpMessageNotReadableException("Corpo binário acima de " + MAXIMO_CORPO + " bytes.",
+					inputMessage);
+		}
+		ByteBuffer buffer = ler(inputMessage.getBody(), (int) tamanhoDeclarado, inputMessage);
+		try {
+			Object valor;
+			if (clazz == PedidoCompraDTO.class) {
+				valor = FormatoBinarioCompra.lerPedido(buffer);
+			} else if (clazz == LoteCompraDTO.class) {
+				valor = FormatoBinarioCompra.lerLote(buffer);
+			} else if (clazz == CompraDTO.class) {
+				valor = FormatoBinarioCompra.lerCompra(buffer);
+			} else {
+				valor = FormatoBinarioCompra.lerResultado(buffer);
+			}
+			if (buffer.hasRemaining()) {
+				throw new HttpMessageNotReadableException("Bytes sobrando no corpo binário.", inputMessage);
+			}
+			return valor;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new HttpMessageNotReadableException("Corpo binário truncado ou inválido.", e, inputMessage);
+		}
+	}
+
+	@Override
+	protected Long getContentLength(Object valor, MediaType contentType) {
+		return (long) tamanho(valor);
+	}
+
+	@Override
+	protected void writeInternal(Object valor, HttpOutputMessage outputMessage) throws IOException {
+		ByteBuffer buffer = buffer(tamanho(valor));
+		if (valor instanceof PedidoCompraDTO pedido) {
+			FormatoBinarioCompra.escrever(pedido, buffer);
+		} else if (valor instanceof LoteCompraDTO lote) {
+			FormatoBinarioCompra.escrever(lote, buffer);
+		} else if (valor instanceof CompraDTO compra) {
+			FormatoBinarioCompra.escrever(compra, buffer);
+		} else {
+			FormatoBinarioCompra.escrever((ResultadoLoteDTO) valor, buffer);
+		}
+		outputMessage.getBody().write(buffer.array(), 0, buffer.position());
+	}
+
+	private static int tamanho(Object valor) {
+		if (valor instanceof PedidoCompraDTO) {
+			return FormatoBinarioCompra.TAMANHO_PEDIDO;
+		}
+		if (valor instanceof LoteCompraDTO lote) {
+			return Integer.BYTES + lote.pedidos().size() * FormatoBinarioCompra.TAMANHO_PEDIDO;
+		}
+		if (valor instanceof CompraDTO compra) {
+			return FormatoBinarioCompra.tamanho(compra);
+		}
+		return FormatoBinarioCompra.tamanho((ResultadoLoteDTO) valor);
+	}
+
+	private static ByteBuffer ler(InputStream corpo, int tamanhoDeclarado, HttpInputMessage inputMessage)
+			throws IOException {
+		if (tamanhoDeclarado >= 0) {
+			ByteBuffer buffer = buffer(tamanhoDeclarado);
+			int lidos = corpo.readNBytes(buffer.array(), 0, tamanhoDeclarado);
+			return buffer.limit(lidos);
+		}
+		// Sem Content-Length (chunked): lê até o fim, crescendo o buffer
+		ByteBuffer buffer = buffer(4096);
+		int lidos;
+		while ((lidos = corpo.read(buffer.array(), buffer.position(), buffer.remaining())) >= 0) {
+			buffer.position(buffer.position() + lidos);
+			if (!buffer.hasRemaining()) {
+				if (buffer.capacity() >= MAXIMO_CORPO) {
+					throw new HttpMessageNotReadableException("Corpo binário acima de " + MAXIMO_CORPO + " bytes.",
+							inputMessage);
+				}
+				ByteBuffer maior = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAXIMO_CORPO));
+				maior.put(buffer.flip());
+				buffer = maior;
+			}
+		}
+		return buffer.flip();
+	}
+
+	/** Buffer da thread, limpo, com pelo menos {@code tamanho} bytes. */
+	private static ByteBuffer buffer(int tamanho) {
+		if (tamanho > MAXIMO_REUTILIZADO) {
+			return ByteBuffer.allocate(tamanho);
+		}
+		ByteBuffer buffer = BUFFER.get();
+		if (buffer.capacity() < tamanho) {
+			buffer = ByteBuffer.allocate(Integer.highestOneBit(tamanho - 1) << 1);
+			BUFFER.set(buffer);
+		}
+		return buffer.clear();
+	}
+}
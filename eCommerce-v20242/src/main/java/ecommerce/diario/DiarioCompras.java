@@ -0,0 +1,329 @@
+package ecommerce.diario;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ecommerce.entity.ItemCompra;
+import ecommerce.service.CompraFinalizadaEvent;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Diário local, somente-anexação, das compras finalizadas.
+ *
+ * Os registros são copiados para segmentos mapeados em memória ({@code diario-NNNNNNNNNN.seg}); quando um registro
+ * não cabe no segmento atual, um novo é criado. A durabilidade é feita por group commit: uma thread dedicada chama
+ * {@code force()} uma vez para todos os registros anexados desde a última gravação e só então completa os
+ * futures devolvidos por {@link #registrar}. A thread que registra nunca chama {@code force()}: ao rolar, o segmento
+ * cheio vai para a thread de gravação com os seus pendentes, e o cabeçalho do novo é gravado junto com os
+ * primeiros registros dele.
+ *
+ * Na abertura, o último segmento é varrido até o primeiro registro incompleto ou com CRC inválido (escrita
+ * interrompida por queda do processo); dali em diante o segmento é zerado e as novas escritas continuam nesse ponto.
+ */
+@Component
+@ConditionalOnProperty(name = "compras.diario.habilitado", havingValue = "true", matchIfMissing = true)
+public class DiarioCompras implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(DiarioCompras.class);
+
+	private static final String PREFIXO_SEGMENTO = "diario-";
+	private static final String SUFIXO_SEGMENTO = ".seg";
+
+	private final Path diretorio;
+	private final int tamanhoSegmento;
+	private final long intervaloGravacaoNanos;
+	private final long esperaMaximaMs;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition haPendentes = lock.newCondition();
+
+	// Protegidos por lock
+	private FileChannel canal;
+	private MappedByteBuffer segmento;
+	private long numeroSegmento;
+	private int inicioNaoGravado;
+	private List<CompletableFuture<Void>> pendentes = new ArrayList<>();
+	private List<SegmentoCheio> cheios = new ArrayList<>();
+	private boolean fechado;
+
+	private final Thread gravador;
+
+	public DiarioCompras(@Value("${compras.diario.diretorio:diario-compras}") Path diretorio,
+			@Value("${compras.diario.tamanho-segmento:67108864}") int tamanhoSegmento,
+			@Value("${compras.diario.intervalo-gravacao-us:1000}") long intervaloGravacaoMicros,
+			@Value("${compras.diario.espera-maxima-ms:0}") long esperaMaximaMs) {
+		if (tamanhoSegmento <= FormatoRegistro.TAMANHO_CABECALHO_SEGMENTO) {
+			throw new IllegalArgumentException("Tamanho de segmento inválido: " + tamanhoSegmento);
+		}
+		this.diretorio = diretorio;
+		this.tamanhoSegmento = tamanhoSegmento;
+		this.intervaloGravacaoNanos = TimeUnit.MICROSECONDS.toNanos(intervaloGravacaoMicros);
+		this.esperaMaximaMs = esperaMaximaMs;
+
+		try {
+			Files.createDirectories(diretorio);
+			recuperar();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Não foi possível abrir o diário de compras em " + diretorio, e);
+		}
+
+		this.gravador = new Thread(this::gravarEmGrupo, "diario-compras-gravador");
+		this.gravador.setDaemon(true);
+		this.gravador.start();
+	}
+
+	/**
+	 * Anexa o registro ao segmento atual. O future completa quando o registro estiver persistido em disco.
+	 */
+	public CompletableFuture<Void> registrar(RegistroCompra registro) {
+		int tamanho = FormatoRegistro.TAMANHO_CABECALHO_REGISTRO + FormatoRegistro.tamanhoPayload(registro);
+		if (tamanho > tamanhoSegmento - FormatoRegistro.TAMANHO_CABECALHO_SEGMENTO) {
+			throw new IllegalArgumentException("Registro de " + tamanho + " bytes não cabe em um segmento.");
+		}
+
+		CompletableFuture<Void> gravado = new CompletableFuture<>();
+		lock.lock();
+		try {
+			if (fechado) {
+				throw new IllegalStateException("Diário de compras fechado.");
+			}
+			if (segmento.remaining() < tamanho) {
+				rolarSegmento();
+			}
+			FormatoRegistro.escrever(registro, segmento);
+			pendentes.add(gravado);
+			haPendentes.signal();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao criar segmento do diário de compras.", e);
+		} finally {
+			lock.unlock();
+		}
+		return gravado;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCompraFinalizada(CompraFinalizadaEvent evento) {
+		// Depois do commit: a compra já foi paga e o estoque baixado; uma falha no diário é registrada em log
+		try {
+			CompletableFuture<Void> gravado = registrar(paraRegistro(evento));
+			if (esperaMaximaMs > 0) {
+				gravado.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException | ExecutionException | TimeoutException e) {
+			log.error("Falha ao registrar no diário a compra do carrinho {} (transação {})", evento.carrinhoId(),
+					evento.transacaoId(), e);
+		}
+	}
+
+	/** Leitor sequencial de todos os registros íntegros, do segmento mais antigo ao atual. */
+	public LeitorDiarioCompras abrirLeitor() {
+		try {
+			return new LeitorDiarioCompras(listarSegmentos(diretorio));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao listar segmentos do diário de compras.", e);
+		}
+	}
+
+	@PreDestroy
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			if (fechado) {
+				return;
+			}
+			fechado = true;
+			haPendentes.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			gravador.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			canal.close();
+		} catch (IOException e) {
+			log.warn("Erro ao fechar segmento do diário de compras", e);
+		}
+	}
+
+	static List<Path> listarSegmentos(Path diretorio) throws IOException {
+		try (Stream<Path> arquivos = Files.list(diretorio)) {
+			return arquivos.filter(p -> {
+				String nome = p.getFileName().toString();
+				return nome.startsWith(PREFIXO_SEGMENTO) && nome.endsWith(SUFIXO_SEGMENTO);
+			}).sorted().toList();
+		}
+	}
+
+	private static RegistroCompra paraRegistro(CompraFinalizadaEvent evento) {
+		List<RegistroCompra.Item> itens = new ArrayList<>(evento.itens().size());
+		for (ItemCompra item : evento.itens()) {
+			itens.add(new RegistroCompra.Item(item.getProduto().getId(), item.getQuantidade(),
+					centavos(item.getProduto().getPreco())));
+		}
+		return new RegistroCompra(evento.carrinhoId(), evento.clienteId(), evento.transacaoId(),
+				centavos(evento.custoTotal()), evento.instante().toEpochMilli(), itens);
+	}
+
+	private static long centavos(BigDecimal valor) {
+		return valor.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+	}
+
+	private void gravarEmGrupo() {
+		while (true) {
+			List<SegmentoCheio> anteriores;
+			List<CompletableFuture<Void>> lote;
+			MappedByteBuffer alvo;
+			int inicio;
+			int fim;
+			boolean encerrar;
+			lock.lock();
+			try {
+				while (pendentes.isEmpty() && cheios.isEmpty() && !fechado) {
+					haPendentes.awaitUninterruptibly();
+				}
+				// Janela curta para acumular mais registros no mesmo force()
+				long restante = intervaloGravacaoNanos;
+				while (restante > 0 && !fechado) {
+					restante = haPendentes.awaitNanos(restante);
+				}
+				encerrar = fechado;
+				anteriores = cheios;
+				cheios = new ArrayList<>();
+				lote = pendentes;
+				pendentes = new ArrayList<>();
+				alvo = segmento;
+				inicio = inicioNaoGravado;
+				fim = segmento.position();
+				inicioNaoGravado = fim;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				continue;
+			} finally {
+				lock.unlock();
+			}
+
+			// Segmentos cheios primeiro: os registros deles são anteriores aos do atual
+			for (SegmentoCheio cheio : anteriores) {
+				gravar(cheio.segmento(), cheio.inicio(), cheio.fim(), cheio.pendentes());
+				try {
+					cheio.canal().close();
+				} catch (IOException e) {
+					log.warn("Erro ao fechar segmento do diário de compras", e);
+				}
+			}
+			gravar(alvo, inicio, fim, lote);
+			if (encerrar) {
+				return;
+			}
+		}
+	}
+
+	private static void gravar(MappedByteBuffer alvo, int inicio, int fim, List<CompletableFuture<Void>> lote) {
+		try {
+			if (fim > inicio) {
+				alvo.force(inicio, fim - inicio);
+			}
+			lote.forEach(f -> f.complete(null));
+		} catch (RuntimeException e) {
+			lote.forEach(f -> f.completeExceptionally(e));
+		}
+	}
+
+	/** Chamado com o lock: entrega o segmento atual à thread de gravação e abre o próximo. */
+	private void rolarSegmento() throws IOException {
+		cheios.add(new SegmentoCheio(canal, segmento, inicioNaoGravado, segmento.position(), pendentes));
+		pendentes = new ArrayList<>();
+		abrirSegmento(numeroSegmento + 1, true);
+	}
+
+	private void recuperar() throws IOException {
+		List<Path> segmentos = listarSegmentos(diretorio);
+		if (segmentos.isEmpty()) {
+			abrirSegmento(0, true);
+			return;
+		}
+
+		Path ultimo = segmentos.get(segmentos.size() - 1);
+		String nome = ultimo.getFileName().toString();
+		abrirSegmento(Long.parseLong(nome.substring(PREFIXO_SEGMENTO.length(), nome.length() - SUFIXO_SEGMENTO.length())),
+				false);
+
+		long registros = 0;
+		while (FormatoRegistro.ler(segmento) != null) {
+			registros++;
+		}
+		int fimValido = segmento.position();
+		boolean truncado = false;
+		for (int i = fimValido; i < segmento.limit(); i++) {
+			if (segmento.get(i) != 0) {
+				segmento.put(i, (byte) 0);
+				truncado = true;
+			}
+		}
+		if (truncado) {
+			segmento.force();
+			log.warn("Diário de compras: registro incompleto descartado em {} após a posição {}", ultimo, fimValido);
+		}
+		inicioNaoGravado = fimValido;
+		log.info("Diário de compras aberto em {} ({} registros no segmento atual)", ultimo, registros);
+	}
+
+	private void abrirSegmento(long numero, boolean novo) throws IOException {
+		Path arquivo = diretorio.resolve(String.format("%s%010d%s", PREFIXO_SEGMENTO, numero, SUFIXO_SEGMENTO));
+		canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+		numeroSegmento = numero;
+
+		if (novo) {
+			// Sem force(): o cabeçalho vai para o disco com os primeiros registros, pela thread de gravação
+			segmento.putInt(FormatoRegistro.MAGICO).putInt(FormatoRegistro.VERSAO);
+			inicioNaoGravado = 0;
+			return;
+		}
+		int magico = segmento.getInt();
+		int versao = segmento.getInt();
+		if (magico == 0 && versao == 0) {
+			// Segmento criado numa rolagem e perdido numa queda antes de qualquer gravação
+			segmento.putInt(0, FormatoRegistro.MAGICO).putInt(4, FormatoRegistro.VERSAO);
+			segmento.force(0, FormatoRegistro.TAMANHO_CABECALHO_SEGMENTO);
+			log.warn("Diário de compras: cabeçalho ausente em {} regravado", arquivo);
+		} else if (magico != FormatoRegistro.MAGICO || versao != FormatoRegistro.VERSAO) {
+			throw new IOException("Segmento do diário de compras com cabeçalho inválido: " + arquivo);
+		}
+		inicioNaoGravado = segmento.position();
+	}
+
+	/** Segmento que deixou de receber registros e ainda não foi gravado nem fechado. */
+	private record SegmentoCheio(FileChannel canal, MappedByteBuffer segmento, int inicio, int fim,
+			List<CompletableFuture<Void>> pendentes) {
+	}
+}
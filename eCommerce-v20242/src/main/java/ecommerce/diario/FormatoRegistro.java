@@ -0,0 +1,108 @@
+package ecommerce.diario;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Layout binário dos segmentos do diário (big-endian).
+ *
+ * <pre>
+ * segmento: int MAGICO | int VERSAO | registro* | zeros
+ * registro: int tamanho | int crc32c(payload) | payload
+ * payload:  long carrinhoId | long clienteId | long transacaoId (SEM_TRANSACAO se nulo)
+ *           | long totalCentavos | long instanteEpochMs | int quantidadeItens
+ *           | (long produtoId | long quantidade | long precoUnitarioCentavos) * quantidadeItens
+ * </pre>
+ *
+ * Um tamanho zero marca o fim dos dados do segmento, já que o arquivo é criado preenchido com zeros.
+ */
+final class FormatoRegistro {
+
+	static final int MAGICO = 0x44435031; // "DCP1"
+	static final int VERSAO = 1;
+	static final int TAMANHO_CABECALHO_SEGMENTO = 8;
+	static final int TAMANHO_CABECALHO_REGISTRO = 8;
+
+	private static final int TAMANHO_FIXO_PAYLOAD = 5 * Long.BYTES + Integer.BYTES;
+	private static final int TAMANHO_ITEM = 3 * Long.BYTES;
+	private static final long SEM_TRANSACAO = Long.MIN_VALUE;
+
+	private FormatoRegistro() {
+	}
+
+	static int tamanhoPayload(RegistroCompra registro) {
+		return TAMANHO_FIXO_PAYLOAD + registro.itens().size() * TAMANHO_ITEM;
+	}
+
+	/** Escreve cabeçalho + payload na posição atual do buffer. */
+	static void escrever(RegistroCompra registro, ByteBuffer destino) {
+		int inicioPayload = destino.position() + TAMANHO_CABECALHO_REGISTRO;
+		int tamanho = tamanhoPayload(registro);
+
+		destino.position(inicioPayload);
+		destino.putLong(registro.carrinhoId());
+		destino.putLong(registro.clienteId());
+		destino.putLong(registro.transacaoId() == null ? SEM_TRANSACAO : registro.transacaoId());
+		destino.putLong(registro.totalCentavos());
+		destino.putLong(registro.instanteEpochMs());
+		destino.putInt(registro.itens().size());
+		for (RegistroCompra.Item item : registro.itens()) {
+			destino.putLong(item.produtoId());
+			destino.putLong(item.quantidade());
+			destino.putLong(item.precoUnitarioCentavos());
+		}
+		int fim = destino.position();
+
+		// O tamanho é escrito por último: um registro só passa a existir quando cabeçalho e CRC estão completos
+		destino.putInt(inicioPayload - TAMANHO_CABECALHO_REGISTRO + Integer.BYTES,
+				crc(destino, inicioPayload, tamanho));
+		destino.putInt(inicioPayload - TAMANHO_CABECALHO_REGISTRO, tamanho);
+		destino.position(fim);
+	}
+
+	/**
+	 * Lê o registro na posição atual. Retorna null (sem mover a posição) se não houver um registro íntegro ali:
+	 * fim dos dados, escrita interrompida ou conteúdo corrompido.
+	 */
+	static RegistroCompra ler(ByteBuffer origem) {
+		int inicio = origem.position();
+		if (origem.remaining() < TAMANHO_CABECALHO_REGISTRO) {
+			return null;
+		}
+		int tamanho = origem.getInt(inicio);
+		int crcGravado = origem.getInt(inicio + Integer.BYTES);
+		int inicioPayload = inicio + TAMANHO_CABECALHO_REGISTRO;
+		if (tamanho < TAMANHO_FIXO_PAYLOAD || tamanho > origem.limit() - inicioPayload
+				|| (tamanho - TAMANHO_FIXO_PAYLOAD) % TAMANHO_ITEM != 0
+				|| crc(origem, inicioPayload, tamanho) != crcGravado) {
+			return null;
+		}
+
+		ByteBuffer payload = origem.duplicate().position(inicioPayload);
+		long carrinhoId = payload.getLong();
+		long clienteId = payload.getLong();
+		long transacaoId = payload.getLong();
+		long totalCentavos = payload.getLong();
+		long instante = payload.getLong();
+		int quantidadeItens = payload.getInt();
+		if (quantidadeItens != (tamanho - TAMANHO_FIXO_PAYLOAD) / TAMANHO_ITEM) {
+			return null;
+		}
+		List<RegistroCompra.Item> itens = new ArrayList<>(quantidadeItens);
+		for (int i = 0; i < quantidadeItens; i++) {
+			itens.add(new RegistroCompra.Item(payload.getLong(), payload.getLong(), payload.getLong()));
+		}
+
+		origem.position(inicioPayload + tamanho);
+		return new RegistroCompra(carrinhoId, clienteId, transacaoId == SEM_TRANSACAO ? null : transacaoId,
+				totalCentavos, instante, List.copyOf(itens));
+	}
+
+	private static int crc(ByteBuffer buffer, int inicio, int tamanho) {
+		CRC32C crc = new CRC32C();
+		crc.update(buffer.duplicate().position(inicio).limit(inicio + tamanho));
+		return (int) crc.getValue();
+	}
+}
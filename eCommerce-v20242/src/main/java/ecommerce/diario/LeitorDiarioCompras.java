@@ -0,0 +1,72 @@
+package ecommerce.diario;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Percorre os registros do diário em ordem de gravação. Cada segmento é lido até o primeiro registro que não
+ * esteja íntegro (fim dos dados); registros anexados depois da abertura do leitor podem ou não ser vistos.
+ */
+public class LeitorDiarioCompras implements Iterator<RegistroCompra>, AutoCloseable {
+
+	private final Iterator<Path> segmentos;
+	private MappedByteBuffer atual;
+	private RegistroCompra proximo;
+
+	LeitorDiarioCompras(List<Path> segmentos) {
+		this.segmentos = segmentos.iterator();
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (proximo == null) {
+			if (atual != null) {
+				proximo = FormatoRegistro.ler(atual);
+				if (proximo != null) {
+					break;
+				}
+			}
+			if (!segmentos.hasNext()) {
+				atual = null;
+				return false;
+			}
+			atual = mapear(segmentos.next());
+		}
+		return true;
+	}
+
+	@Override
+	public RegistroCompra next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		RegistroCompra registro = proximo;
+		proximo = null;
+		return registro;
+	}
+
+	@Override
+	public void close() {
+		atual = null;
+	}
+
+	private static MappedByteBuffer mapear(Path segmento) {
+		try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+			if (buffer.limit() < FormatoRegistro.TAMANHO_CABECALHO_SEGMENTO || buffer.getInt() != FormatoRegistro.MAGICO
+					|| buffer.getInt() != FormatoRegistro.VERSAO) {
+				throw new IllegalStateException("Segmento do diário de compras com cabeçalho inválido: " + segmento);
+			}
+			return buffer;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao ler segmento do diário de compras " + segmento, e);
+		}
+	}
+}
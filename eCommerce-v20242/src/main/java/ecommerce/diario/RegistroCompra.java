@@ -0,0 +1,13 @@
+package ecommerce.diario;
+
+import java.util.List;
+
+/**
+ * Uma compra finalizada, como gravada no diário. Valores monetários em centavos; transacaoId pode ser nulo.
+ */
+public record RegistroCompra(long carrinhoId, long clienteId, Long transacaoId, long totalCentavos,
+		long instanteEpochMs, List<Item> itens) {
+
+	public record Item(long produtoId, long quantidade, long precoUnitarioCentavos) {
+	}
+}
@@ -0,0 +1,153 @@
+package ecommerce.dto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codificação binária (big-endian) de {@link PedidoCompraDTO}, {@link LoteCompraDTO}, {@link CompraDTO} e
+ * {@link ResultadoLoteDTO}, para chamadas internas a {@code /finalizar} com
+ * {@code Content-Type: application/vnd.ecommerce.compra}.
+ *
+ * <pre>
+ * pedido:    long carrinhoId | long clienteId
+ * lote:      int quantidade | pedido*
+ * compra:    byte flags (1 = sucesso, 2 = com transação) | long transacaoId (só com a flag 2)
+ *            | short tamanho (-1 = sem mensagem) | mensagem em UTF-8
+ * resultado: int quantidade | compra*
+ * </pre>
+ *
+ * Ids nulos não são representáveis: pedidos binários sempre trazem os dois ids.
+ */
+public final class FormatoBinarioCompra {
+
+	public static final String TIPO = "application/vnd.ecommerce.compra";
+
+	public static final int TAMANHO_PEDIDO = 2 * Long.BYTES;
+
+	private static final byte SUCESSO = 1;
+	private static final byte COM_TRANSACAO = 2;
+	private static final int MAXIMO_MENSAGENS_CODIFICADAS = 256;
+
+	// As mensagens vêm de um conjunto pequeno e fixo: codificar uma vez e copiar os bytes
+	private static final Map<String, byte[]> MENSAGENS = new ConcurrentHashMap<>();
+
+	private FormatoBinarioCompra() {
+	}
+
+	public static void escrever(PedidoCompraDTO pedido, ByteBuffer destino) {
+		destino.putLong(pedido.carrinhoId());
+		destino.putLong(pedido.clienteId());
+	}
+
+	public static PedidoCompraDTO lerPedido(ByteBuffer origem) {
+		return new PedidoCompraDTO(origem.getLong(), origem.getLong());
+	}
+
+	public static void escrever(LoteCompraDTO lote, ByteBuffer destino) {
+		destino.putInt(lote.pedidos().size());
+		for (PedidoCompraDTO pedido : lote.pedidos()) {
+			escrever(pedido, destino);
+		}
+	}
+
+	public static LoteCompraDTO lerLote(ByteBuffer origem) {
+		int quantidade = origem.getInt();
+		if (quantidade < 0 || (long) quantidade * TAMANHO_PEDIDO > origem.remaining()) {
+			throw new IllegalArgumentException("Lote com quantidade de pedidos inválida: " + quantidade);
+		}
+		List<PedidoCompraDTO> pedidos = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			pedidos.add(lerPedido(origem));
+		}
+		return new LoteCompraDTO(pedidos);
+	}
+
+	public static int tamanho(CompraDTO compra) {
+		byte[] mensagem = mensagem(compra.mensagem());
+		return 1 + (compra.transacaoPagamentoId() != null ? Long.BYTES : 0) + Short.BYTES
+				+ (mensagem != null ? mensagem.length : 0);
+	}
+
+	public static void escrever(CompraDTO compra, ByteBuffer destino) {
+		byte flags = 0;
+		if (Boolean.TRUE.equals(compra.sucesso())) {
+			flags |= SUCESSO;
+		}
+		if (compra.transacaoPagamentoId() != null) {
+			flags |= COM_TRANSACAO;
+		}
+		destino.put(flags);
+		if (compra.transacaoPagamentoId() != null) {
+			destino.putLong(compra.transacaoPagamentoId());
+		}
+		byte[] mensagem = mensagem(compra.mensagem());
+		if (mensagem == null) {
+			destino.putShort((short) -1);
+		} else {
+			destino.putShort((short) mensagem.length);
+			destino.put(mensagem);
+		}
+	}
+
+	public static CompraDTO lerCompra(ByteBuffer origem) {
+		byte flags = origem.get();
+		Long transacaoId = (flags & COM_TRANSACAO) != 0 ? origem.getLong() : null;
+		short tamanho = origem.getShort();
+		String mensagem = null;
+		if (tamanho >= 0) {
+			byte[] bytes = new byte[tamanho];
+			origem.get(bytes);
+			mensagem = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return new CompraDTO((flags & SUCESSO) != 0, transacaoId, mensagem);
+	}
+
+	public static int tamanho(ResultadoLoteDTO resultado) {
+		int tamanho = Integer.BYTES;
+		for (CompraDTO compra : resultado.resultados()) {
+			tamanho += tamanho(compra);
+		}
+		return tamanho;
+	}
+
+	public static void escrever(ResultadoLoteDTO resultado, ByteBuffer destino) {
+		destino.putInt(resultado.resultados().size());
+		for (CompraDTO compra : resultado.resultados()) {
+			escrever(compra, destino);
+		}
+	}
+
+	public static ResultadoLoteDTO lerResultado(ByteBuffer origem) {
+		int quantidade = origem.getInt();
+		if (quantidade < 0 || quantidade > origem.remaining()) {
+			throw new IllegalArgumentException("Resultado com quantidade inválida: " + quantidade);
+		}
+		List<CompraDTO> resultados = new ArrayList<>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			resultados.add(lerCompra(origem));
+		}
+		return new ResultadoLoteDTO(resultados);
+	}
+
+	private static byte[] mensagem(String mensagem) {
+		if (mensagem == null) {
+			return null;
+		}
+		byte[] bytes = MENSAGENS.get(mensagem);
+		if (bytes == null) {
+			bytes = mensagem.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > Short.MAX_VALUE) {
+				bytes = Arrays.copyOf(bytes, Short.MAX_VALUE);
+			}
+			if (MENSAGENS.size() < MAXIMO_MENSAGENS_CODIFICADAS) {
+				MENSAGENS.putIfAbsent(mensagem, bytes);
+			}
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,6 @@
+package ecommerce.dto;
+
+import java.util.List;
+
+public record LoteCompraDTO(List<PedidoCompraDTO> pedidos) {
+}
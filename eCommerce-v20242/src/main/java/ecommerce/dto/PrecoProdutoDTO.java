@@ -0,0 +1,9 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+import ecommerce.entity.TipoProduto;
+
+/** Colunas de um produto usadas na precificação, servidas pelo {@code SnapshotCatalogo}. */
+public record PrecoProdutoDTO(Long id, BigDecimal preco, Integer peso, TipoProduto tipo) {
+}
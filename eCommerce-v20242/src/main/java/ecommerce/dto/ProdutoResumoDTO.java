@@ -0,0 +1,9 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+
+import ecommerce.entity.TipoProduto;
+
+/** Produto em listagens e resultados de busca, sem descrição nem peso. */
+public record ProdutoResumoDTO(Long id, String nome, BigDecimal preco, TipoProduto tipo) {
+}
@@ -0,0 +1,10 @@
+package ecommerce.dto;
+
+import java.util.List;
+
+public record RelatorioImportacaoDTO(long linhasLidas, long produtosImportados, long linhasRejeitadas,
+		List<LinhaRejeitadaDTO> rejeicoes, long duracaoMs) {
+
+	public record LinhaRejeitadaDTO(long linha, String motivo) {
+	}
+}
@@ -0,0 +1,8 @@
+package ecommerce.dto;
+
+import java.time.LocalDate;
+
+/** Resultado de uma execução da purga de carrinhos abandonados (abertos com {@code data} anterior a {@code corte}). */
+public record RelatorioPurgaDTO(LocalDate corte, long carrinhos, long itens, int lotes, int tamanhoLoteFinal,
+		long latenciaMaximaMs, long duracaoMs) {
+}
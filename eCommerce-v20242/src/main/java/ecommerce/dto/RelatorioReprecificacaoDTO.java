@@ -0,0 +1,6 @@
+package ecommerce.dto;
+
+/** {@code ignorados}: carrinhos com produto sem preço ou peso, que ficaram com o total anterior. */
+public record RelatorioReprecificacaoDTO(long carrinhos, long itens, long atualizados, long ignorados,
+		long duracaoMs) {
+}
@@ -0,0 +1,15 @@
+package ecommerce.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import ecommerce.entity.TipoProduto;
+
+public record ResultadoBuscaDTO(int total, List<ProdutoResumoDTO> produtos, Map<TipoProduto, Integer> porTipo,
+		List<FaixaPrecoDTO> porFaixaPreco) {
+
+	/** Faixa {@code [de, ate)}; {@code ate} nulo na última. {@code faixa} é o valor a passar no filtro. */
+	public record FaixaPrecoDTO(int faixa, BigDecimal de, BigDecimal ate, int produtos) {
+	}
+}
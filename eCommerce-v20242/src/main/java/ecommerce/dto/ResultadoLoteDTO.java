@@ -0,0 +1,7 @@
+package ecommerce.dto;
+
+import java.util.List;
+
+/** Um {@link CompraDTO} por pedido do {@link LoteCompraDTO}, na mesma ordem. */
+public record ResultadoLoteDTO(List<CompraDTO> resultados) {
+}
@@ -0,0 +1,9 @@
+package ecommerce.dto;
+
+/** Situação de uma finalização assíncrona; {@code resultado} só é preenchido depois que ela termina. */
+public record SituacaoCompraDTO(String ticket, Estado estado, CompraDTO resultado) {
+
+	public enum Estado {
+		NA_FILA, PROCESSANDO, CONCLUIDA, RECUSADA, ERRO
+	}
+}
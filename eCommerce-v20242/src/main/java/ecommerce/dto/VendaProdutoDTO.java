@@ -0,0 +1,4 @@
+package ecommerce.dto;
+
+public record VendaProdutoDTO(Long produtoId, long unidades, long receitaCentavos) {
+}
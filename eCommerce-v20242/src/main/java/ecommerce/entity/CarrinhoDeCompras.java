@@ -1,23 +1,37 @@
 package ecommerce.entity;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import ecommerce.service.IndiceCarrinhoListener;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
+@EntityListeners(IndiceCarrinhoListener.class) // Mantém o índice produto -> carrinhos
+@Table(indexes = @Index(name = "idx_carrinho_status_data", columnList = "status, data")) // Purga dos abandonados
 public class CarrinhoDeCompras {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carrinho_seq")
+    @SequenceGenerator(name = "carrinho_seq", sequenceName = "carrinho_seq", allocationSize = 50) // Faixa de 50 ids por ida ao banco (pooled-lo)
     private Long id;
 
     @ManyToOne // Um cliente pode ter vários carrinhos
@@ -30,6 +44,18 @@ public class CarrinhoDeCompras {
 
     private LocalDate data;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatusCarrinho status = StatusCarrinho.ABERTO; // Transições feitas por update condicional no repositório
+
+    private Instant inicioFinalizacao; // Quando o carrinho passou a EM_FINALIZACAO; reserva velha pode ser retomada
+
+    @Version
+    private Long versao;
+
+    @Column(precision = 19, scale = 3)
+    private BigDecimal totalEstimado; // Total com os preços atuais, gravado pela reprecificação em massa
+
     public CarrinhoDeCompras() {}
 
     public CarrinhoDeCompras(Long id, Cliente cliente, List<ItemCompra> itens, LocalDate data) {
@@ -71,4 +97,28 @@ public class CarrinhoDeCompras {
     public void setData(LocalDate data) {
         this.data = data;
     }
+
+    public StatusCarrinho getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusCarrinho status) {
+        this.status = status;
+    }
+
+    public Instant getInicioFinalizacao() {
+        return inicioFinalizacao;
+    }
+
+    public Long getVersao() {
+        return versao;
+    }
+
+    public BigDecimal getTotalEstimado() {
+        return totalEstimado;
+    }
+
+    public void setTotalEstimado(BigDecimal totalEstimado) {
+        this.totalEstimado = totalEstimado;
+    }
 }
@@ -6,12 +6,14 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 
 @Entity
 public class ItemCompra {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_compra_seq")
+    @SequenceGenerator(name = "item_compra_seq", sequenceName = "item_compra_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne // Vários itens podem se referir ao mesmo produto
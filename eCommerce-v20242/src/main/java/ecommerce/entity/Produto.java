@@ -1,19 +1,34 @@
 package ecommerce.entity;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
+import org.hibernate.annotations.UpdateTimestamp;
+
+import ecommerce.service.IndiceBuscaListener;
+import ecommerce.service.ReprecificacaoListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@EntityListeners({ IndiceBuscaListener.class, ReprecificacaoListener.class }) // Busca em memória e carrinhos abertos
+@Table(indexes = {
+        @Index(name = "idx_produto_tipo_preco_id", columnList = "tipo, preco, id"), // Listagem paginada por chave
+        @Index(name = "idx_produto_atualizado_em", columnList = "atualizado_em") }) // Acompanhamento do snapshot
 public class Produto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produto_seq")
+    @SequenceGenerator(name = "produto_seq", sequenceName = "produto_seq", allocationSize = 50)
     private Long id;
 
     private String nome;
@@ -27,6 +42,10 @@ public class Produto {
     @Enumerated(EnumType.STRING)
     private TipoProduto tipo;
 
+    @UpdateTimestamp // Relógio da aplicação; a importação grava CURRENT_TIMESTAMP do banco
+    @Column(name = "atualizado_em")
+    private Instant atualizadoEm;
+
     public Produto() {}
 
     public Produto(Long id, String nome, String descricao, BigDecimal preco, Integer peso, TipoProduto tipo) {
@@ -86,4 +105,8 @@ public class Produto {
     public void setTipo(TipoProduto tipo) {
         this.tipo = tipo;
     }
+
+    public Instant getAtualizadoEm() {
+        return atualizadoEm;
+    }
 }
@@ -0,0 +1,5 @@
+package ecommerce.entity;
+
+public enum StatusCarrinho {
+	ABERTO, EM_FINALIZACAO, FINALIZADO
+}
@@ -0,0 +1,8 @@
+package ecommerce.external;
+
+/**
+ * Entrada do feed de alterações do estoque: a quantidade disponível de um produto passou a ser {@code quantidade}.
+ * {@code sequencia} cresce de um em um; um salto indica entradas perdidas.
+ */
+public record AlteracaoEstoque(long sequencia, long produtoId, long quantidade, long instanteMs) {
+}
@@ -0,0 +1,198 @@
+package ecommerce.external;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.util.MapaLongLong;
+
+/**
+ * Réplica local das quantidades do estoque, mantida por uma thread que consome o {@link IFeedEstoque}, para que
+ * {@link #verificarDisponibilidade} responda sem ida ao serviço remoto. {@link #darBaixa} continua remoto e é quem
+ * decide de fato.
+ *
+ * A consulta vai ao estoque remoto quando o espelho está defasado além de {@code defasagemMaxima} ou quando algum
+ * produto ainda não apareceu no feed. Um salto na sequência do feed descarta o espelho inteiro: os produtos voltam a
+ * ser consultados remotamente até receberem uma nova alteração.
+ */
+public class EspelhoEstoque implements IEstoqueExternal, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(EspelhoEstoque.class);
+
+	private static final long DESCONHECIDO = Long.MIN_VALUE;
+	private static final int LOTE_FEED = 1024;
+	private static final Duration ESPERA_FEED = Duration.ofMillis(100);
+
+	private final IEstoqueExternal estoque;
+	private final IFeedEstoque feed;
+	private final boolean habilitado;
+	private final long defasagemMaximaMs;
+	private final Clock clock;
+
+	private final MapaLongLong quantidades = new MapaLongLong(1024);
+	private final StampedLock trava = new StampedLock();
+	private long ultimaSequencia;
+	// Instante até o qual o espelho reflete o estoque; 0 até a primeira leitura do feed
+	private volatile long atualizadoAteMs;
+
+	private final LongAdder respostasLocais = new LongAdder();
+	private final LongAdder consultasPorDefasagem = new LongAdder();
+	private final LongAdder consultasPorProdutoDesconhecido = new LongAdder();
+	private final LongAdder lacunas = new LongAdder();
+
+	private final Thread consumidor;
+	private volatile boolean ativo = true;
+
+	public EspelhoEstoque(IEstoqueExternal estoque, IFeedEstoque feed, boolean habilitado, Duration defasagemMaxima) {
+		this(estoque, feed, habilitado, defasagemMaxima, Clock.systemUTC());
+	}
+
+	public EspelhoEstoque(IEstoqueExternal estoque, IFeedEstoque feed, boolean habilitado, Duration defasagemMaxima,
+			Clock clock) {
+		this.estoque = estoque;
+		this.feed = feed;
+		this.habilitado = habilitado;
+		this.defasagemMaximaMs = defasagemMaxima.toMillis();
+		this.clock = clock;
+		this.consumidor = new Thread(this::consumirFeed, "espelho-estoque");
+		consumidor.setDaemon(true);
+		if (habilitado) {
+			feed.assinar();
+			consumidor.start();
+		}
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		return estoque.darBaixa(produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		if (!habilitado) {
+			return estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+		if (getDefasagemMs() > defasagemMaximaMs) {
+			consultasPorDefasagem.increment();
+			return estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+
+		long[] disponiveis = lerQuantidades(produtosIds);
+		List<Long> indisponiveis = new ArrayList<>();
+		for (int i = 0; i < disponiveis.length; i++) {
+			if (disponiveis[i] == DESCONHECIDO) {
+				consultasPorProdutoDesconhecido.increment();
+				return estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+			}
+			if (disponiveis[i] < produtosQuantidades.get(i)) {
+				indisponiveis.add(produtosIds.get(i));
+			}
+		}
+		respostasLocais.increment();
+		return new DisponibilidadeDTO(indisponiveis.isEmpty(), indisponiveis);
+	}
+
+	/** Há quanto tempo o espelho deixou de acompanhar o feed, em milissegundos. */
+	public long getDefasagemMs() {
+		return Math.max(0, clock.millis() - atualizadoAteMs);
+	}
+
+	public long getRespostasLocais() {
+		return respostasLocais.sum();
+	}
+
+	public long getConsultasPorDefasagem() {
+		return consultasPorDefasagem.sum();
+	}
+
+	public long getConsultasPorProdutoDesconhecido() {
+		return consultasPorProdutoDesconhecido.sum();
+	}
+
+	public long getLacunas() {
+		return lacunas.sum();
+	}
+
+	/** Aplica alterações do feed; normalmente chamado só pela thread consumidora. */
+	public void aplicar(List<AlteracaoEstoque> alteracoes) {
+		if (alteracoes.isEmpty()) {
+			atualizadoAteMs = clock.millis(); // Feed vazio: nada pendente, o espelho está em dia
+			return;
+		}
+		long stamp = trava.writeLock();
+		try {
+			for (AlteracaoEstoque alteracao : alteracoes) {
+				if (ultimaSequencia != 0 && alteracao.sequencia() != ultimaSequencia + 1) {
+					log.warn("Feed de estoque saltou da sequência {} para {}; espelho descartado", ultimaSequencia,
+							alteracao.sequencia());
+					lacunas.increment();
+					quantidades.limpar();
+				}
+				ultimaSequencia = alteracao.sequencia();
+				quantidades.put(alteracao.produtoId(), alteracao.quantidade());
+			}
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+		atualizadoAteMs = alteracoes.get(alteracoes.size() - 1).instanteMs();
+	}
+
+	@Override
+	public void close() {
+		ativo = false;
+		consumidor.interrupt();
+	}
+
+	private long[] lerQuantidades(List<Long> produtosIds) {
+		long stamp = trava.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				long[] disponiveis = ler(produtosIds);
+				if (trava.validate(stamp)) {
+					return disponiveis;
+				}
+			} catch (RuntimeException e) {
+				// Leitura otimista cruzou com um redimensionamento: refaz com a trava de leitura
+			}
+		}
+		stamp = trava.readLock();
+		try {
+			return ler(produtosIds);
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	private long[] ler(List<Long> produtosIds) {
+		long[] disponiveis = new long[produtosIds.size()];
+		for (int i = 0; i < disponiveis.length; i++) {
+			disponiveis[i] = quantidades.get(produtosIds.get(i), DESCONHECIDO);
+		}
+		return disponiveis;
+	}
+
+	private void consumirFeed() {
+		while (ativo) {
+			try {
+				aplicar(feed.aguardar(LOTE_FEED, ESPERA_FEED));
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				log.error("Erro ao consumir o feed de estoque", e);
+				try {
+					Thread.sleep(ESPERA_FEED.toMillis());
+				} catch (InterruptedException interrompido) {
+					return;
+				}
+			}
+		}
+	}
+}
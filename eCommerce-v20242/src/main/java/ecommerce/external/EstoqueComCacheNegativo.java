@@ -0,0 +1,120 @@
+package ecommerce.external;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.context.event.EventListener;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/**
+ * Cache negativo de {@link #verificarDisponibilidade}: produtos que o estoque acabou de declarar indisponíveis são
+ * recusados localmente por um TTL curto, sem chamada remota.
+ *
+ * Guarda a menor quantidade recusada de cada produto; um pedido menor do que ela ainda vai ao estoque. Uma
+ * reposição ({@link EstoqueRepostoEvent}) remove os produtos do cache na hora. Acima de {@code maximoEntradas}
+ * produtos, novas recusas deixam de ser guardadas até as antigas expirarem.
+ */
+public class EstoqueComCacheNegativo implements IEstoqueExternal {
+
+	private final IEstoqueExternal estoque;
+	private final boolean habilitado;
+	private final long ttlMs;
+	private final int maximoEntradas;
+	private final Clock clock;
+
+	private final Map<Long, Recusa> recusas = new ConcurrentHashMap<>();
+	private final LongAdder acertos = new LongAdder();
+	private final LongAdder faltas = new LongAdder();
+
+	public EstoqueComCacheNegativo(IEstoqueExternal estoque, boolean habilitado, Duration ttl, int maximoEntradas) {
+		this(estoque, habilitado, ttl, maximoEntradas, Clock.systemUTC());
+	}
+
+	public EstoqueComCacheNegativo(IEstoqueExternal estoque, boolean habilitado, Duration ttl, int maximoEntradas,
+			Clock clock) {
+		if (ttl.isNegative() || maximoEntradas <= 0) {
+			throw new IllegalArgumentException("TTL e número máximo de entradas do cache negativo devem ser positivos.");
+		}
+		this.estoque = estoque;
+		this.habilitado = habilitado;
+		this.ttlMs = ttl.toMillis();
+		this.maximoEntradas = maximoEntradas;
+		this.clock = clock;
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		return estoque.darBaixa(produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		if (!habilitado) {
+			return estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+		long agora = clock.millis();
+		List<Long> conhecidosIndisponiveis = new ArrayList<>();
+		for (int i = 0; i < produtosIds.size(); i++) {
+			Recusa recusa = recusas.get(produtosIds.get(i));
+			if (recusa != null && recusa.expiraEm > agora && produtosQuantidades.get(i) >= recusa.quantidade) {
+				conhecidosIndisponiveis.add(produtosIds.get(i));
+			}
+		}
+		if (!conhecidosIndisponiveis.isEmpty()) {
+			acertos.increment();
+			return new DisponibilidadeDTO(false, conhecidosIndisponiveis);
+		}
+
+		faltas.increment();
+		DisponibilidadeDTO disponibilidade = estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		if (disponibilidade != null && disponibilidade.idsProdutosIndisponiveis() != null) {
+			for (Long produtoId : disponibilidade.idsProdutosIndisponiveis()) {
+				int indice = produtosIds.indexOf(produtoId);
+				if (indice >= 0) {
+					lembrar(produtoId, produtosQuantidades.get(indice), agora);
+				}
+			}
+		}
+		return disponibilidade;
+	}
+
+	@EventListener
+	public void onEstoqueReposto(EstoqueRepostoEvent evento) {
+		evento.produtosIds().forEach(recusas::remove);
+	}
+
+	public long getAcertos() {
+		return acertos.sum();
+	}
+
+	public long getFaltas() {
+		return faltas.sum();
+	}
+
+	public int getTamanho() {
+		return recusas.size();
+	}
+
+	private void lembrar(Long produtoId, long quantidade, long agora) {
+		if (recusas.size() >= maximoEntradas && !recusas.containsKey(produtoId)) {
+			recusas.values().removeIf(recusa -> recusa.expiraEm <= agora);
+			if (recusas.size() >= maximoEntradas) {
+				return;
+			}
+		}
+		Recusa nova = new Recusa(quantidade, agora + ttlMs);
+		recusas.merge(produtoId, nova, (antiga, atual) -> antiga.expiraEm > agora
+				? new Recusa(Math.min(antiga.quantidade, atual.quantidade), atual.expiraEm)
+				: atual);
+	}
+
+	private record Recusa(long quantidade, long expiraEm) {
+	}
+}
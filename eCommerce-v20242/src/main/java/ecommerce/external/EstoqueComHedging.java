@@ -0,0 +1,233 @@
+package ecommerce.external;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+
+/**
+ * Decorador que faz hedging de {@link #verificarDisponibilidade}: se a primeira chamada não responde dentro do p95
+ * observado, dispara uma segunda, usa a que responder primeiro e cancela (interrompe) a outra.
+ *
+ * As duas chamadas rodam num pool de no máximo {@code threads} threads; a thread da requisição só espera pelas
+ * respostas e nunca é interrompida. Com o pool cheio, o hedge não sai e a primeira chamada é recusada com
+ * {@link FilaFinalizacaoCheiaException}.
+ *
+ * O atraso é o p95 das últimas {@value #JANELA_AMOSTRAS} respostas (nunca abaixo de {@code atrasoMinimoMs}); até
+ * haver {@value #AMOSTRAS_MINIMAS} amostras não há hedging. Um balde de fichas limita as chamadas extras: cada
+ * requisição rende {@code fracaoMaxima} ficha, cada hedge gasta uma, com acúmulo máximo de {@value #RAJADA_MAXIMA}.
+ *
+ * Nenhuma espera passa do {@link Prazo#atual() prazo da requisição}: sem resposta dentro dele, as consultas são
+ * canceladas e a chamada falha com {@link PrazoEsgotadoException}.
+ *
+ * {@link #darBaixa} não é idempotente e vai direto para o estoque.
+ */
+public class EstoqueComHedging implements IEstoqueExternal, AutoCloseable {
+
+	private static final int JANELA_AMOSTRAS = 1024;
+	private static final int AMOSTRAS_MINIMAS = 128;
+	private static final int RECALCULO_A_CADA = 128;
+	private static final int RAJADA_MAXIMA = 10;
+	private static final long MILI_FICHA = 1000;
+	private static final int THREADS_PADRAO = 64;
+
+	private final IEstoqueExternal estoque;
+	private final boolean habilitado;
+	private final long fichasPorRequisicao;
+	private final long atrasoMinimoNanos;
+	private final ThreadPoolExecutor executor;
+
+	private final AtomicLongArray amostras = new AtomicLongArray(JANELA_AMOSTRAS);
+	private final AtomicLong totalAmostras = new AtomicLong();
+	private volatile long atrasoNanos = Long.MAX_VALUE;
+	private final AtomicLong fichas = new AtomicLong();
+
+	private final LongAdder requisicoes = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgesVencedores = new LongAdder();
+
+	public EstoqueComHedging(IEstoqueExternal estoque, boolean habilitado, double fracaoMaxima, long atrasoMinimoMs) {
+		this(estoque, habilitado, fracaoMaxima, atrasoMinimoMs, THREADS_PADRAO);
+	}
+
+	public EstoqueComHedging(IEstoqueExternal estoque, boolean habilitado, double fracaoMaxima, long atrasoMinimoMs,
+			int threads) {
+		if (fracaoMaxima < 0 || fracaoMaxima > 1) {
+			throw new IllegalArgumentException("Fração máxima de hedging deve estar entre 0 e 1.");
+		}
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Quantidade de threads do hedging deve ser positiva.");
+		}
+		this.estoque = estoque;
+		this.habilitado = habilitado;
+		this.fichasPorRequisicao = Math.round(fracaoMaxima * MILI_FICHA);
+		this.atrasoMinimoNanos = TimeUnit.MILLISECONDS.toNanos(atrasoMinimoMs);
+		AtomicInteger contador = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+			Thread thread = new Thread(r, "estoque-hedging-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		return estoque.darBaixa(produtosIds, produtosQuantidades);
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		if (!habilitado) {
+			return estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+		Prazo prazo = Prazo.atual();
+		requisicoes.increment();
+		fichas.getAndUpdate(f -> Math.min(RAJADA_MAXIMA * MILI_FICHA, f + fichasPorRequisicao));
+
+		CompletionService<DisponibilidadeDTO> respostas = new ExecutorCompletionService<>(executor);
+		Future<DisponibilidadeDTO> primeira;
+		try {
+			primeira = respostas.submit(() -> consultar(produtosIds, produtosQuantidades));
+		} catch (RejectedExecutionException e) {
+			throw new FilaFinalizacaoCheiaException("Consultas de estoque demais em andamento; tente novamente.");
+		}
+		Future<DisponibilidadeDTO> segunda = null;
+		try {
+			Future<DisponibilidadeDTO> pronta = respostas.poll(Math.min(atrasoNanos, restanteNanos(prazo)),
+					TimeUnit.NANOSECONDS);
+			if (pronta == null && !prazo.esgotado() && gastarFicha()) {
+				segunda = dispararHedge(respostas, produtosIds, produtosQuantidades);
+			}
+			if (pronta == null) {
+				pronta = aguardar(respostas, prazo);
+			}
+			try {
+				DisponibilidadeDTO resposta = pronta.get();
+				if (pronta == segunda) {
+					hedgesVencedores.increment();
+				}
+				return resposta;
+			} catch (ExecutionException e) {
+				if (segunda == null) {
+					throw desembrulhar(e);
+				}
+				// Uma das duas falhou: vale a outra
+				return aguardar(respostas, prazo).get();
+			}
+		} catch (ExecutionException e) {
+			throw desembrulhar(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Consulta de disponibilidade interrompida.");
+		} finally {
+			primeira.cancel(true);
+			if (segunda != null) {
+				segunda.cancel(true);
+			}
+		}
+	}
+
+	public long getRequisicoes() {
+		return requisicoes.sum();
+	}
+
+	public long getHedges() {
+		return hedges.sum();
+	}
+
+	public long getHedgesVencedores() {
+		return hedgesVencedores.sum();
+	}
+
+	/** Atraso atual antes do hedge, em milissegundos; -1 enquanto não há amostras suficientes. */
+	public long getAtrasoMs() {
+		long atraso = atrasoNanos;
+		return atraso == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(atraso);
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/** Com o pool cheio a requisição segue sem hedge e a ficha volta ao balde. */
+	private Future<DisponibilidadeDTO> dispararHedge(CompletionService<DisponibilidadeDTO> respostas,
+			List<Long> produtosIds, List<Long> produtosQuantidades) {
+		try {
+			Future<DisponibilidadeDTO> segunda = respostas.submit(() -> consultar(produtosIds, produtosQuantidades));
+			hedges.increment();
+			return segunda;
+		} catch (RejectedExecutionException e) {
+			fichas.addAndGet(MILI_FICHA);
+			return null;
+		}
+	}
+
+	private static Future<DisponibilidadeDTO> aguardar(CompletionService<DisponibilidadeDTO> respostas, Prazo prazo)
+			throws InterruptedException {
+		Future<DisponibilidadeDTO> pronta = respostas.poll(restanteNanos(prazo), TimeUnit.NANOSECONDS);
+		if (pronta == null) {
+			throw new PrazoEsgotadoException("Prazo da requisição esgotado aguardando o estoque.");
+		}
+		return pronta;
+	}
+
+	private static long restanteNanos(Prazo prazo) {
+		return prazo.restante().toNanos();
+	}
+
+	private DisponibilidadeDTO consultar(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		long inicio = System.nanoTime();
+		DisponibilidadeDTO resposta = estoque.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		registrarLatencia(System.nanoTime() - inicio);
+		return resposta;
+	}
+
+	private void registrarLatencia(long nanos) {
+		long n = totalAmostras.getAndIncrement();
+		amostras.set((int) (n % JANELA_AMOSTRAS), nanos);
+		if (n + 1 >= AMOSTRAS_MINIMAS && (n + 1) % RECALCULO_A_CADA == 0) {
+			int quantidade = (int) Math.min(n + 1, JANELA_AMOSTRAS);
+			long[] copia = new long[quantidade];
+			for (int i = 0; i < quantidade; i++) {
+				copia[i] = amostras.get(i);
+			}
+			Arrays.sort(copia);
+			atrasoNanos = Math.max(atrasoMinimoNanos, copia[(int) (quantidade * 0.95)]);
+		}
+	}
+
+	private boolean gastarFicha() {
+		long atual;
+		do {
+			atual = fichas.get();
+			if (atual < MILI_FICHA) {
+				return false;
+			}
+		} while (!fichas.compareAndSet(atual, atual - MILI_FICHA));
+		return true;
+	}
+
+	private static RuntimeException desembrulhar(ExecutionException e) {
+		if (e.getCause() instanceof RuntimeException causa) {
+			return causa;
+		}
+		return new IllegalStateException("Falha ao consultar disponibilidade.", e.getCause());
+	}
+}
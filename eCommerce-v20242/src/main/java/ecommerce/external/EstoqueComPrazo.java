@@ -0,0 +1,34 @@
+package ecommerce.external;
+
+import java.util.List;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+
+/**
+ * Limita cada chamada ao estoque ao prazo da requisição (ver {@link ExecutorComPrazo}). Fica logo acima do cliente de
+ * estoque: as consultas do hedging rodam nas threads dele, sem prazo associado, e passam direto.
+ *
+ * Uma baixa abandonada por prazo pode ter sido aplicada do outro lado; quem chama trata como resultado incerto.
+ */
+public class EstoqueComPrazo implements IEstoqueExternal {
+
+	private final IEstoqueExternal estoque;
+	private final ExecutorComPrazo executor;
+
+	public EstoqueComPrazo(IEstoqueExternal estoque, ExecutorComPrazo executor) {
+		this.estoque = estoque;
+		this.executor = executor;
+	}
+
+	@Override
+	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		return executor.executar("dar baixa no estoque", () -> estoque.darBaixa(produtosIds, produtosQuantidades));
+	}
+
+	@Override
+	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		return executor.executar("verificar o estoque",
+				() -> estoque.verificarDisponibilidade(produtosIds, produtosQuantidades));
+	}
+}
@@ -0,0 +1,7 @@
+package ecommerce.external;
+
+import java.util.List;
+
+/** Produtos que voltaram a ter estoque (reposição), publicado pelo cliente ou pelo simulado de estoque. */
+public record EstoqueRepostoEvent(List<Long> produtosIds) {
+}
@@ -0,0 +1,82 @@
+package ecommerce.external;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+
+/**
+ * Executa chamadas remotas sem passar do {@link Prazo#atual() prazo da requisição}: a chamada roda num pool de no
+ * máximo {@code threads} threads e quem chamou espera só o tempo restante. Esgotado o prazo, a chamada é cancelada
+ * (interrompida a thread do pool, nunca a da requisição) e sai {@link PrazoEsgotadoException}; a resposta que chegar
+ * depois é descartada.
+ *
+ * Sem prazo a chamada roda na própria thread. Com o pool cheio ela é recusada com
+ * {@link FilaFinalizacaoCheiaException}.
+ */
+public class ExecutorComPrazo implements AutoCloseable {
+
+	private final ThreadPoolExecutor executor;
+
+	public ExecutorComPrazo(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Quantidade de threads das chamadas externas deve ser positiva.");
+		}
+		AtomicInteger contador = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+			Thread thread = new Thread(r, "chamada-externa-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/** {@code etapa} completa a mensagem de prazo esgotado, por exemplo "autorizar o pagamento". */
+	public <T> T executar(String etapa, Supplier<T> chamada) {
+		Prazo prazo = Prazo.atual();
+		if (prazo.ilimitado()) {
+			return chamada.get();
+		}
+		if (prazo.esgotado()) {
+			throw new PrazoEsgotadoException("Prazo da requisição esgotado antes de " + etapa + ".");
+		}
+
+		Future<T> resultado;
+		try {
+			resultado = executor.submit(chamada::get);
+		} catch (RejectedExecutionException e) {
+			throw new FilaFinalizacaoCheiaException("Chamadas externas demais em andamento; tente novamente.");
+		}
+		try {
+			return resultado.get(prazo.restante().toNanos(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			resultado.cancel(true);
+			throw new PrazoEsgotadoException("Prazo da requisição esgotado ao " + etapa + ".");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException causa) {
+				throw causa;
+			}
+			if (e.getCause() instanceof Error erro) {
+				throw erro;
+			}
+			throw new IllegalStateException("Falha ao " + etapa + ".", e.getCause());
+		} catch (InterruptedException e) {
+			resultado.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrompida a espera para " + etapa + ".");
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,15 @@
+package ecommerce.external;
+
+import java.time.Duration;
+import java.util.List;
+
+public interface IFeedEstoque {
+
+	/** Registra o consumidor; alterações anteriores à assinatura podem não ser entregues. */
+	public default void assinar() {
+	}
+
+	/** Próximas alterações, em ordem de sequência; espera até {@code espera} se não houver nenhuma. */
+	public List<AlteracaoEstoque> aguardar(int maximo, Duration espera) throws InterruptedException;
+
+}
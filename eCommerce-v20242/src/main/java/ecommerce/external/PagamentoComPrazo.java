@@ -0,0 +1,29 @@
+package ecommerce.external;
+
+import ecommerce.dto.PagamentoDTO;
+
+/**
+ * Limita a autorização de pagamento ao prazo da requisição (ver {@link ExecutorComPrazo}).
+ *
+ * {@link #cancelarPagamento} é compensação e costuma rodar justamente com o prazo esgotado: vai direto ao gateway.
+ */
+public class PagamentoComPrazo implements IPagamentoExternal {
+
+	private final IPagamentoExternal pagamento;
+	private final ExecutorComPrazo executor;
+
+	public PagamentoComPrazo(IPagamentoExternal pagamento, ExecutorComPrazo executor) {
+		this.pagamento = pagamento;
+		this.executor = executor;
+	}
+
+	@Override
+	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+		return executor.executar("autorizar o pagamento", () -> pagamento.autorizarPagamento(clienteId, custoTotal));
+	}
+
+	@Override
+	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+		pagamento.cancelarPagamento(clienteId, pagamentoTransacaoId);
+	}
+}
@@ -1,25 +1,129 @@
 package ecommerce.external.fake;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.DisponibilidadeDTO;
 import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.external.EstoqueRepostoEvent;
 import ecommerce.external.IEstoqueExternal;
 
+/**
+ * Estoque em memória. Produtos sem quantidade definida começam com {@code estoque.simulado.quantidade-inicial}.
+ * Aumentar a quantidade de um produto publica {@link EstoqueRepostoEvent}; toda alteração vai para o
+ * {@link FeedEstoqueSimulado}.
+ *
+ * Cada produto tem a sua trava: {@link #darBaixa} trava os produtos do pedido em ordem crescente de id (sem
+ * deadlock entre pedidos com os mesmos produtos em ordens diferentes) e publica no feed ainda com eles travados, para
+ * que as alterações de um mesmo produto saiam na ordem em que aconteceram. Pedidos sem produto em comum não se
+ * esperam; a leitura da quantidade não trava.
+ */
 @Service
 public class EstoqueSimulado implements IEstoqueExternal {
 
+	private final Map<Long, Saldo> saldos = new ConcurrentHashMap<>();
+	private final long quantidadeInicial;
+	private final ApplicationEventPublisher eventPublisher;
+	private final FeedEstoqueSimulado feed;
+
+	public EstoqueSimulado() {
+		this(1_000_000L, null, null);
+	}
+
+	@Autowired
+	public EstoqueSimulado(@Value("${estoque.simulado.quantidade-inicial:1000000}") long quantidadeInicial,
+			ApplicationEventPublisher eventPublisher, FeedEstoqueSimulado feed) {
+		this.quantidadeInicial = quantidadeInicial;
+		this.eventPublisher = eventPublisher;
+		this.feed = feed;
+	}
+
+	public void definirQuantidade(Long produtoId, long quantidade) {
+		Saldo saldo = saldo(produtoId);
+		long anterior;
+		saldo.trava.lock();
+		try {
+			anterior = saldo.quantidade;
+			saldo.quantidade = quantidade;
+			publicarAlteracao(produtoId, quantidade);
+		} finally {
+			saldo.trava.unlock();
+		}
+		if (quantidade > anterior && eventPublisher != null) {
+			eventPublisher.publishEvent(new EstoqueRepostoEvent(List.of(produtoId)));
+		}
+	}
+
+	public long consultarQuantidade(Long produtoId) {
+		return saldo(produtoId).quantidade;
+	}
+
 	@Override
 	public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> produtosQuantidades) {
-		// TODO Auto-generated method stub
-		return null;
+		SortedMap<Long, Saldo> travados = new TreeMap<>();
+		for (Long produtoId : produtosIds) {
+			travados.computeIfAbsent(produtoId, this::saldo);
+		}
+		travados.values().forEach(saldo -> saldo.trava.lock());
+		try {
+			// Tudo ou nada: só baixa se todos os itens ainda estiverem disponíveis
+			if (!indisponiveis(produtosIds, produtosQuantidades).isEmpty()) {
+				return new EstoqueBaixaDTO(false);
+			}
+			for (int i = 0; i < produtosIds.size(); i++) {
+				Saldo saldo = travados.get(produtosIds.get(i));
+				saldo.quantidade -= produtosQuantidades.get(i);
+				publicarAlteracao(produtosIds.get(i), saldo.quantidade);
+			}
+			return new EstoqueBaixaDTO(true);
+		} finally {
+			travados.values().forEach(saldo -> saldo.trava.unlock());
+		}
 	}
 
 	@Override
 	public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
-		// TODO Auto-generated method stub
-		return null;
+		List<Long> indisponiveis = indisponiveis(produtosIds, produtosQuantidades);
+		return new DisponibilidadeDTO(indisponiveis.isEmpty(), indisponiveis);
+	}
+
+	private List<Long> indisponiveis(List<Long> produtosIds, List<Long> produtosQuantidades) {
+		List<Long> indisponiveis = new ArrayList<>();
+		for (int i = 0; i < produtosIds.size(); i++) {
+			if (saldo(produtosIds.get(i)).quantidade < produtosQuantidades.get(i)) {
+				indisponiveis.add(produtosIds.get(i));
+			}
+		}
+		return indisponiveis;
+	}
+
+	private void publicarAlteracao(Long produtoId, long quantidade) {
+		if (feed != null) {
+			feed.publicar(produtoId, quantidade);
+		}
+	}
+
+	private Saldo saldo(Long produtoId) {
+		return saldos.computeIfAbsent(produtoId, id -> new Saldo(quantidadeInicial));
+	}
+
+	/** Quantidade de um produto; só muda com a trava dele. */
+	private static final class Saldo {
+		final ReentrantLock trava = new ReentrantLock();
+		volatile long quantidade;
+
+		Saldo(long quantidade) {
+			this.quantidade = quantidade;
+		}
 	}
 }
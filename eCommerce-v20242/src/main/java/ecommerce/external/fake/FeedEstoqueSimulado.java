@@ -0,0 +1,70 @@
+package ecommerce.external.fake;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ecommerce.external.AlteracaoEstoque;
+import ecommerce.external.IFeedEstoque;
+
+/**
+ * Feed de alterações do estoque simulado: uma fila limitada em memória no lugar do tópico do serviço de estoque.
+ *
+ * Nada é guardado até alguém assinar o feed (com o espelho desligado ninguém assina). Com a fila cheia a alteração
+ * é descartada, mas a sequência avança: o consumidor vê o salto e descarta o que tinha, como faria com o tópico.
+ */
+@Service
+public class FeedEstoqueSimulado implements IFeedEstoque {
+
+	private final BlockingQueue<AlteracaoEstoque> fila;
+	private long sequencia;
+	private volatile boolean assinado;
+
+	public FeedEstoqueSimulado() {
+		this(65536);
+	}
+
+	@Autowired
+	public FeedEstoqueSimulado(@Value("${estoque.feed.capacidade:65536}") int capacidade) {
+		if (capacidade <= 0) {
+			throw new IllegalArgumentException("Capacidade do feed deve ser positiva.");
+		}
+		this.fila = new ArrayBlockingQueue<>(capacidade);
+	}
+
+	/**
+	 * Chamado pelo estoque simulado, com o produto travado. A trava aqui cobre só numerar e enfileirar, para que a
+	 * sequência chegue ao consumidor sem buracos falsos.
+	 */
+	void publicar(long produtoId, long quantidade) {
+		if (!assinado) {
+			return;
+		}
+		synchronized (this) {
+			fila.offer(new AlteracaoEstoque(++sequencia, produtoId, quantidade, System.currentTimeMillis()));
+		}
+	}
+
+	@Override
+	public void assinar() {
+		assinado = true;
+	}
+
+	@Override
+	public List<AlteracaoEstoque> aguardar(int maximo, Duration espera) throws InterruptedException {
+		List<AlteracaoEstoque> alteracoes = new ArrayList<>();
+		AlteracaoEstoque primeira = fila.poll(espera.toNanos(), TimeUnit.NANOSECONDS);
+		if (primeira != null) {
+			alteracoes.add(primeira);
+			fila.drainTo(alteracoes, maximo - 1);
+		}
+		return alteracoes;
+	}
+}
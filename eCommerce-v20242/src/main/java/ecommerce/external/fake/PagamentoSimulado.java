@@ -1,22 +1,36 @@
 package ecommerce.external.fake;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.PagamentoDTO;
 import ecommerce.external.IPagamentoExternal;
 
+/**
+ * Gateway de pagamento em memória: autoriza qualquer valor não negativo com um id de transação sequencial.
+ */
 @Service
 public class PagamentoSimulado implements IPagamentoExternal{
 
+	private final AtomicLong proximaTransacao = new AtomicLong(1);
+	private final LongAdder cancelamentos = new LongAdder();
+
 	@Override
 	public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
-		// TODO Auto-generated method stub
-		return null;
+		if (clienteId == null || custoTotal == null || custoTotal < 0) {
+			return new PagamentoDTO(false, null);
+		}
+		return new PagamentoDTO(true, proximaTransacao.getAndIncrement());
 	}
 
 	@Override
 	public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
-		// TODO Auto-generated method stub
-		
+		cancelamentos.increment();
+	}
+
+	public long totalCancelamentos() {
+		return cancelamentos.sum();
 	}
 }
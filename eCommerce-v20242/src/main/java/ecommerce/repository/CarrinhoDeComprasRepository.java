@@ -1,15 +1,35 @@
 package ecommerce.repository;
 
+import java.time.Instant;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
+import ecommerce.entity.StatusCarrinho;
 
 @Repository
 public interface CarrinhoDeComprasRepository extends JpaRepository<CarrinhoDeCompras, Long> {
 
     Optional<CarrinhoDeCompras> findByIdAndCliente(Long id, Cliente cliente);
+
+    // Compare-and-set do status em um único UPDATE: retorna 0 se o carrinho não estava no status esperado
+    @Modifying
+    @Query("update CarrinhoDeCompras c set c.status = :novo, c.versao = c.versao + 1 where c.id = :id and c.status = :esperado")
+    int mudarStatus(@Param("id") Long id, @Param("esperado") StatusCarrinho esperado, @Param("novo") StatusCarrinho novo);
+
+    // ABERTO -> EM_FINALIZACAO, ou retomada de uma reserva EM_FINALIZACAO iniciada antes de :expirada (finalização
+    // que morreu entre a reserva e o fim); retorna 0 se o carrinho não pôde ser reservado
+    @Modifying
+    @Query("update CarrinhoDeCompras c set c.status = ecommerce.entity.StatusCarrinho.EM_FINALIZACAO, "
+            + "c.inicioFinalizacao = :agora, c.versao = c.versao + 1 "
+            + "where c.id = :id and (c.status = ecommerce.entity.StatusCarrinho.ABERTO "
+            + "or (c.status = ecommerce.entity.StatusCarrinho.EM_FINALIZACAO and c.inicioFinalizacao < :expirada))")
+    int reservarParaFinalizacao(@Param("id") Long id, @Param("agora") Instant agora,
+            @Param("expirada") Instant expirada);
 }
@@ -1,10 +1,50 @@
 package ecommerce.repository;
 
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import ecommerce.dto.ProdutoResumoDTO;
 import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface ProdutoRepository extends JpaRepository<Produto, Long> {
+
+    // Listagem paginada por chave em (tipo, preco, id), a ordem de idx_produto_tipo_preco_id: cada página começa
+    // logo depois da última linha da anterior, sem OFFSET. Só o tamanho da página vem do Pageable (sempre página 0).
+    // Produtos sem tipo ou sem preço ficam de fora. Os limites ">=" redundantes deixam o início da faixa do índice
+    // explícito para o otimizador, e o ORDER BY repete o tipo mesmo quando ele é fixo: com "ORDER BY preco, id" o H2
+    // não percebe que o índice já está nessa ordem e ordena todos os produtos do tipo a cada página.
+
+    String SELECAO_RESUMO = "SELECT new ecommerce.dto.ProdutoResumoDTO(p.id, p.nome, p.preco, p.tipo) FROM Produto p "
+            + "WHERE p.tipo IS NOT NULL AND p.preco IS NOT NULL ";
+
+    @Query(SELECAO_RESUMO + "ORDER BY p.tipo, p.preco, p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    Stream<ProdutoResumoDTO> listarInicio(Pageable pagina);
+
+    @Query(SELECAO_RESUMO + "AND p.tipo >= :tipo AND (p.tipo > :tipo OR p.preco > :preco "
+            + "OR (p.preco = :preco AND p.id > :id)) ORDER BY p.tipo, p.preco, p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    Stream<ProdutoResumoDTO> listarApos(@Param("tipo") TipoProduto tipo, @Param("preco") BigDecimal preco,
+            @Param("id") Long id, Pageable pagina);
+
+    @Query(SELECAO_RESUMO + "AND p.tipo = :tipo ORDER BY p.tipo, p.preco, p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    Stream<ProdutoResumoDTO> listarInicioDoTipo(@Param("tipo") TipoProduto tipo, Pageable pagina);
+
+    @Query(SELECAO_RESUMO + "AND p.tipo = :tipo AND p.preco >= :preco AND (p.preco > :preco OR p.id > :id) "
+            + "ORDER BY p.tipo, p.preco, p.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    Stream<ProdutoResumoDTO> listarAposDoTipo(@Param("tipo") TipoProduto tipo, @Param("preco") BigDecimal preco,
+            @Param("id") Long id, Pageable pagina);
 }
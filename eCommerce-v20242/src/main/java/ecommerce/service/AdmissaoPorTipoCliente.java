@@ -0,0 +1,346 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import ecommerce.entity.TipoCliente;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Admissão das finalizações por {@link TipoCliente}, na frente do executor de {@code compra.execucao.modo}: sob
+ * sobrecarga, OURO não espera atrás de BRONZE.
+ *
+ * No máximo {@code concorrencia} finalizações rodam ao mesmo tempo. Vaga livre serve a qualquer tipo: a fração de
+ * cada tipo só o limita enquanto há pedido de um tipo superior na fila, então com o nó ocioso BRONZE usa todas as
+ * vagas, mas não as segura contra OURO esperando. Quem não acha vaga espera na fila do seu tipo; a cada vaga liberada
+ * as filas são atendidas por stride scheduling, na proporção dos pesos. Com as filas somando {@code capacidadeFila},
+ * quem chega tira da fila o último pedido de um tipo inferior ao seu ou, não havendo, é recusado; quem espera mais que
+ * {@code esperaMaximaMs} desiste. Os dois casos saem como {@link FilaFinalizacaoCheiaException}. A espera também não
+ * passa do {@link Prazo#atual()}: se ele acaba antes, sai {@link PrazoEsgotadoException}.
+ *
+ * O tipo do cliente vem de {@code tipoDoCliente} e fica em cache LRU por {@code ttlTipo}; acima de
+ * {@code maximoTiposEmCache} clientes sai o usado há mais tempo. Cliente desconhecido conta como BRONZE. Publica,
+ * por tipo, o tempo de espera pela vaga, o tamanho da fila, as vagas ocupadas e os descartes.
+ *
+ * Fechar a admissão fecha o executor embrulhado, quando ele é {@link AutoCloseable} (os shards).
+ */
+public class AdmissaoPorTipoCliente implements ExecutorFinalizacao, AutoCloseable {
+
+	private static final int TIPOS = TipoCliente.values().length;
+	private static final long PASSO_BASE = 1L << 20;
+
+	private static final int FILA_CHEIA = 0;
+	private static final int PRETERIDO = 1;
+	private static final int ESPERA = 2;
+	private static final String[] MOTIVOS = { "fila-cheia", "preterido", "espera" };
+
+	private final ExecutorFinalizacao executor;
+	private final Function<Long, TipoCliente> tipoDoCliente;
+	private final boolean habilitado;
+	private final int capacidadeFila;
+	private final long esperaMaximaNanos;
+	private final long ttlTipoMs;
+
+	private final ReentrantLock trava = new ReentrantLock();
+	private final List<ArrayDeque<Pedido>> filas = new ArrayList<>(TIPOS);
+	private final int[] limites = new int[TIPOS];
+	private final long[] passos = new long[TIPOS];
+	private final long[] passagens = new long[TIPOS];
+	private final int[] emExecucao = new int[TIPOS];
+	private int livres;
+	private int naFila;
+	private long passagemAtual;
+
+	private final Map<Long, TipoEmCache> tipos;
+	private final Timer[] esperas = new Timer[TIPOS];
+	private final Counter[][] descartes = new Counter[MOTIVOS.length][TIPOS];
+
+	/**
+	 * {@code pesos} e {@code fracoesConcorrencia} seguem a ordem de {@link TipoCliente} (BRONZE, PRATA, OURO).
+	 */
+	public AdmissaoPorTipoCliente(ExecutorFinalizacao executor, Function<Long, TipoCliente> tipoDoCliente,
+			boolean habilitado, int concorrencia, int[] pesos, double[] fracoesConcorrencia, int capacidadeFila,
+			long esperaMaximaMs, Duration ttlTipo, int maximoTiposEmCache, MeterRegistry registry) {
+		if (concorrencia <= 0 || capacidadeFila < 0 || esperaMaximaMs < 0) {
+			throw new IllegalArgumentException(
+					"Concorrência deve ser positiva; capacidade da fila e espera máxima não podem ser negativas.");
+		}
+		if (pesos.length != TIPOS || fracoesConcorrencia.length != TIPOS) {
+			throw new IllegalArgumentException("Informe um peso e uma fração de concorrência para cada tipo de cliente.");
+		}
+		if (ttlTipo.isNegative() || maximoTiposEmCache <= 0) {
+			throw new IllegalArgumentException("TTL e número máximo de tipos em cache devem ser positivos.");
+		}
+		this.executor = executor;
+		this.tipoDoCliente = tipoDoCliente;
+		this.habilitado = habilitado;
+		this.capacidadeFila = capacidadeFila;
+		this.esperaMaximaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+		this.ttlTipoMs = ttlTipo.toMillis();
+		this.tipos = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, TipoEmCache> maisAntigo) {
+				return size() > maximoTiposEmCache;
+			}
+		};
+		this.livres = concorrencia;
+
+		for (TipoCliente tipo : TipoCliente.values()) {
+			int t = tipo.ordinal();
+			if (pesos[t] <= 0 || !(fracoesConcorrencia[t] > 0 && fracoesConcorrencia[t] <= 1)) {
+				throw new IllegalArgumentException(
+						"Peso de " + tipo + " deve ser positivo e a fração de concorrência estar em (0, 1].");
+			}
+			filas.add(new ArrayDeque<>());
+			limites[t] = Math.max(1, (int) Math.ceil(concorrencia * fracoesConcorrencia[t]));
+			passos[t] = PASSO_BASE / pesos[t];
+
+			String nome = tipo.name();
+			Gauge.builder("compra.admissao.fila", this, admissao -> admissao.naFila(tipo))
+					.description("Finalizações esperando uma vaga")
+					.tag("tipo", nome)
+					.register(registry);
+			Gauge.builder("compra.admissao.em-execucao", this, admissao -> admissao.emExecucao(tipo))
+					.description("Vagas de finalização ocupadas")
+					.tag("tipo", nome)
+					.register(registry);
+			esperas[t] = Timer.builder("compra.admissao.espera")
+					.description("Tempo na fila até conseguir uma vaga de finalização")
+					.tag("tipo", nome)
+					.register(registry);
+			for (int motivo = 0; motivo < MOTIVOS.length; motivo++) {
+				descartes[motivo][t] = Counter.builder("compra.admissao.descartes")
+						.description("Finalizações descartadas por sobrecarga")
+						.tag("tipo", nome)
+						.tag("motivo", MOTIVOS[motivo])
+						.register(registry);
+			}
+		}
+	}
+
+	@Override
+	public <T> T executar(Long clienteId, Supplier<T> acao) {
+		if (!habilitado) {
+			return executor.executar(clienteId, acao);
+		}
+		int tipo = tipo(clienteId).ordinal();
+		long inicio = System.nanoTime();
+		admitir(tipo, inicio);
+		esperas[tipo].record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+		try {
+			return executor.executar(clienteId, acao);
+		} finally {
+			liberar(tipo);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (executor instanceof AutoCloseable fechavel) {
+			try {
+				fechavel.close();
+			} catch (Exception e) {
+				throw new IllegalStateException("Falha ao fechar o executor de finalizações.", e);
+			}
+		}
+	}
+
+	public int naFila(TipoCliente tipo) {
+		trava.lock();
+		try {
+			return filas.get(tipo.ordinal()).size();
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	public int emExecucao(TipoCliente tipo) {
+		trava.lock();
+		try {
+			return emExecucao[tipo.ordinal()];
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	private TipoCliente tipo(Long clienteId) {
+		if (clienteId == null) {
+			return TipoCliente.BRONZE;
+		}
+		long agora = System.currentTimeMillis();
+		TipoEmCache emCache;
+		synchronized (tipos) {
+			emCache = tipos.get(clienteId);
+		}
+		if (emCache != null && emCache.expiraEm > agora) {
+			return emCache.tipo;
+		}
+		// Consulta fora do monitor: misses concorrentes do mesmo cliente podem consultar duas vezes
+		TipoCliente tipo = tipoDoCliente.apply(clienteId);
+		if (tipo == null) {
+			tipo = TipoCliente.BRONZE;
+		}
+		synchronized (tipos) {
+			tipos.put(clienteId, new TipoEmCache(tipo, agora + ttlTipoMs));
+		}
+		return tipo;
+	}
+
+	private void admitir(int tipo, long inicio) {
+		trava.lock();
+		try {
+			// Depois de cada despacho não sobra vaga com pedido elegível esperando: entrar direto não fura fila
+			if (livres > 0 && filas.get(tipo).isEmpty() && elegivel(tipo)) {
+				ocupar(tipo);
+				return;
+			}
+			if (naFila >= capacidadeFila && !preterirAbaixoDe(tipo)) {
+				descartes[FILA_CHEIA][tipo].increment();
+				throw new FilaFinalizacaoCheiaException("Finalizações demais em andamento; tente novamente.");
+			}
+			Pedido pedido = new Pedido(tipo, trava.newCondition());
+			if (filas.get(tipo).isEmpty()) {
+				// Tipo que volta a ter fila não acumula crédito pelo tempo parado
+				passagens[tipo] = Math.max(passagens[tipo], passagemAtual);
+			}
+			filas.get(tipo).addLast(pedido);
+			naFila++;
+
+			Prazo prazo = Prazo.atual();
+			long restante = Math.min(esperaMaximaNanos - (System.nanoTime() - inicio), prazo.restante().toNanos());
+			while (pedido.situacao == Situacao.ESPERANDO) {
+				if (restante <= 0) {
+					retirar(pedido);
+					descartes[ESPERA][tipo].increment();
+					if (prazo.esgotado()) {
+						throw new PrazoEsgotadoException(Prazo.mensagemEsgotado("conseguir uma vaga de finalização"));
+					}
+					throw new FilaFinalizacaoCheiaException("Tempo de espera por uma vaga de finalização esgotado.");
+				}
+				try {
+					restante = pedido.vez.awaitNanos(restante);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					if (pedido.situacao == Situacao.ADMITIDO) {
+						liberar(tipo);
+					} else if (pedido.situacao == Situacao.ESPERANDO) {
+						retirar(pedido);
+					}
+					throw new IllegalStateException("Finalização interrompida aguardando uma vaga.");
+				}
+			}
+			if (pedido.situacao == Situacao.PRETERIDO) {
+				throw new FilaFinalizacaoCheiaException("Finalizações demais em andamento; tente novamente.");
+			}
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	private void liberar(int tipo) {
+		trava.lock();
+		try {
+			emExecucao[tipo]--;
+			livres++;
+			despachar();
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	/** Entrega as vagas livres às filas de menor passagem entre os tipos elegíveis. */
+	private void despachar() {
+		while (livres > 0) {
+			int escolhido = -1;
+			for (int t = TIPOS - 1; t >= 0; t--) { // empate fica com o tipo mais alto
+				if (!filas.get(t).isEmpty() && elegivel(t) && (escolhido < 0 || passagens[t] < passagens[escolhido])) {
+					escolhido = t;
+				}
+			}
+			if (escolhido < 0) {
+				return;
+			}
+			Pedido pedido = filas.get(escolhido).pollFirst();
+			naFila--;
+			passagemAtual = passagens[escolhido];
+			passagens[escolhido] += passos[escolhido];
+			ocupar(escolhido);
+			pedido.situacao = Situacao.ADMITIDO;
+			pedido.vez.signal();
+		}
+	}
+
+	/**
+	 * Cabe na sua fração ou não há pedido de tipo superior na fila. A fila não vazia mais alta é sempre elegível, então
+	 * vaga livre nunca convive com fila: só a liberação de uma vaga precisa despachar.
+	 */
+	private boolean elegivel(int tipo) {
+		if (emExecucao[tipo] < limites[tipo]) {
+			return true;
+		}
+		for (int t = tipo + 1; t < TIPOS; t++) {
+			if (!filas.get(t).isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Descarta o pedido mais recente do tipo mais baixo abaixo de {@code tipo}; false se não há nenhum. */
+	private boolean preterirAbaixoDe(int tipo) {
+		for (int t = 0; t < tipo; t++) {
+			Pedido pedido = filas.get(t).pollLast();
+			if (pedido != null) {
+				naFila--;
+				pedido.situacao = Situacao.PRETERIDO;
+				pedido.vez.signal();
+				descartes[PRETERIDO][t].increment();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void ocupar(int tipo) {
+		livres--;
+		emExecucao[tipo]++;
+	}
+
+	private void retirar(Pedido pedido) {
+		filas.get(pedido.tipo).remove(pedido);
+		naFila--;
+	}
+
+	private enum Situacao {
+		ESPERANDO, ADMITIDO, PRETERIDO
+	}
+
+	/** Estado protegido pela trava; a condição é da mesma trava. */
+	private static final class Pedido {
+		final int tipo;
+		final Condition vez;
+		Situacao situacao = Situacao.ESPERANDO;
+
+		Pedido(int tipo, Condition vez) {
+			this.tipo = tipo;
+			this.vez = vez;
+		}
+	}
+
+	private record TipoEmCache(TipoCliente tipo, long expiraEm) {
+	}
+}
@@ -0,0 +1,182 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ecommerce.dto.VendaProdutoDTO;
+import ecommerce.entity.ItemCompra;
+
+/**
+ * Contadores de vendas por produto, alimentados pelas compras finalizadas, para que o ranking de mais vendidos
+ * não precise de GROUP BY no banco.
+ *
+ * Receita é o valor de tabela dos itens (preço x quantidade, em centavos), antes de descontos e frete.
+ */
+@Service
+public class AnaliseVendasService {
+
+	private static final Logger log = LoggerFactory.getLogger(AnaliseVendasService.class);
+
+	public enum Janela {
+		UM_MINUTO, UMA_HORA, TOTAL
+	}
+
+	public enum Criterio {
+		UNIDADES, RECEITA
+	}
+
+	private final Map<Long, Contadores> totais = new ConcurrentHashMap<>();
+	private final JanelaDeslizante ultimoMinuto;
+	private final JanelaDeslizante ultimaHora;
+	private final Clock clock;
+
+	@Autowired
+	public AnaliseVendasService() {
+		this(Clock.systemUTC());
+	}
+
+	public AnaliseVendasService(Clock clock) {
+		this.clock = clock;
+		this.ultimoMinuto = new JanelaDeslizante(60, Duration.ofSeconds(1));
+		this.ultimaHora = new JanelaDeslizante(60, Duration.ofMinutes(1));
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCompraFinalizada(CompraFinalizadaEvent evento) {
+		long agora = clock.millis();
+		try {
+			for (ItemCompra item : evento.itens()) {
+				long produtoId = item.getProduto().getId();
+				long unidades = item.getQuantidade();
+				long receita = item.getProduto().getPreco().multiply(BigDecimal.valueOf(unidades))
+						.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+
+				totais.computeIfAbsent(produtoId, id -> new Contadores()).adicionar(unidades, receita);
+				ultimoMinuto.adicionar(agora, produtoId, unidades, receita);
+				ultimaHora.adicionar(agora, produtoId, unidades, receita);
+			}
+		} catch (RuntimeException e) {
+			log.error("Falha ao contabilizar as vendas do carrinho {}", evento.carrinhoId(), e);
+		}
+	}
+
+	public VendaProdutoDTO vendasDoProduto(Long produtoId) {
+		Contadores contadores = totais.get(produtoId);
+		if (contadores == null) {
+			return new VendaProdutoDTO(produtoId, 0, 0);
+		}
+		return new VendaProdutoDTO(produtoId, contadores.unidades.sum(), contadores.receitaCentavos.sum());
+	}
+
+	/** Os n produtos mais vendidos na janela, do maior para o menor. */
+	public List<VendaProdutoDTO> maisVendidos(Janela janela, Criterio criterio, int n) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("n deve ser positivo.");
+		}
+		Map<Long, Contadores> base = switch (janela) {
+			case UM_MINUTO -> ultimoMinuto.somar(clock.millis());
+			case UMA_HORA -> ultimaHora.somar(clock.millis());
+			case TOTAL -> totais;
+		};
+
+		Comparator<VendaProdutoDTO> ordem = criterio == Criterio.UNIDADES
+				? Comparator.comparingLong(VendaProdutoDTO::unidades)
+				: Comparator.comparingLong(VendaProdutoDTO::receitaCentavos);
+		ordem = ordem.thenComparing(VendaProdutoDTO::produtoId, Comparator.reverseOrder());
+
+		// Heap mínimo limitado a n: o topo é sempre o pior dos n melhores vistos até agora
+		PriorityQueue<VendaProdutoDTO> heap = new PriorityQueue<>(n + 1, ordem);
+		base.forEach((produtoId, contadores) -> {
+			heap.add(new VendaProdutoDTO(produtoId, contadores.unidades.sum(), contadores.receitaCentavos.sum()));
+			if (heap.size() > n) {
+				heap.poll();
+			}
+		});
+
+		List<VendaProdutoDTO> ranking = new ArrayList<>(heap);
+		ranking.sort(ordem.reversed());
+		return ranking;
+	}
+
+	private static class Contadores {
+		private final LongAdder unidades = new LongAdder();
+		private final LongAdder receitaCentavos = new LongAdder();
+
+		void adicionar(long unidades, long receitaCentavos) {
+			this.unidades.add(unidades);
+			this.receitaCentavos.add(receitaCentavos);
+		}
+	}
+
+	/**
+	 * Janela circular de baldes de largura fixa. Um balde de um período antigo é trocado por um novo na primeira
+	 * escrita do período atual; uma venda registrada exatamente durante a troca pode cair no balde descartado.
+	 */
+	private static class JanelaDeslizante {
+		private final AtomicReferenceArray<Balde> baldes;
+		private final long larguraMs;
+
+		JanelaDeslizante(int quantidadeBaldes, Duration largura) {
+			this.baldes = new AtomicReferenceArray<>(quantidadeBaldes);
+			this.larguraMs = largura.toMillis();
+		}
+
+		void adicionar(long agoraMs, long produtoId, long unidades, long receitaCentavos) {
+			long periodo = agoraMs / larguraMs;
+			int indice = (int) (periodo % baldes.length());
+			Balde balde = baldes.get(indice);
+			while (balde == null || balde.periodo != periodo) {
+				if (balde != null && balde.periodo > periodo) {
+					return; // relógio andou para trás: descarta
+				}
+				Balde novo = new Balde(periodo);
+				if (baldes.compareAndSet(indice, balde, novo)) {
+					balde = novo;
+				} else {
+					balde = baldes.get(indice);
+				}
+			}
+			balde.contadores.computeIfAbsent(produtoId, id -> new Contadores()).adicionar(unidades, receitaCentavos);
+		}
+
+		Map<Long, Contadores> somar(long agoraMs) {
+			long periodoAtual = agoraMs / larguraMs;
+			Map<Long, Contadores> soma = new HashMap<>();
+			for (int i = 0; i < baldes.length(); i++) {
+				Balde balde = baldes.get(i);
+				if (balde == null || balde.periodo <= periodoAtual - baldes.length() || balde.periodo > periodoAtual) {
+					continue;
+				}
+				balde.contadores.forEach((produtoId, contadores) -> soma.computeIfAbsent(produtoId, id -> new Contadores())
+						.adicionar(contadores.unidades.sum(), contadores.receitaCentavos.sum()));
+			}
+			return soma;
+		}
+	}
+
+	private static class Balde {
+		private final long periodo;
+		private final Map<Long, Contadores> contadores = new ConcurrentHashMap<>();
+
+		Balde(long periodo) {
+			this.periodo = periodo;
+		}
+	}
+}
@@ -0,0 +1,398 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.ProdutoResumoDTO;
+import ecommerce.dto.ResultadoBuscaDTO;
+import ecommerce.dto.ResultadoBuscaDTO.FaixaPrecoDTO;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.util.ConjuntoLong;
+import ecommerce.util.MapaLongLong;
+
+/**
+ * Busca de produtos por nome e descrição inteiramente em memória: índice invertido termo -> documentos, sem ida ao
+ * banco na consulta.
+ *
+ * Os textos são quebrados em termos sem acento e em minúsculas ("Pão de Açúcar" -> pao, acucar), e cada termo da
+ * consulta casa com os termos do índice que começam com ele. Os termos da consulta se somam (E). Produtos em que
+ * todos os termos estão no nome vêm antes dos que dependem da descrição.
+ *
+ * Cada produto é um documento de id inteiro sequencial; as listas de documentos de cada termo só crescem, em ordem.
+ * Alterar um produto apaga o documento antigo (bit em {@code vivos}) e cria outro; quando os apagados passam da
+ * metade, o índice é reconstruído. Tipo e faixa de preço de cada documento ficam em {@link BitSet}s, de onde saem
+ * os filtros e as contagens das facetas por interseção.
+ *
+ * Carregado na subida e atualizado pela importação do catálogo e por {@link IndiceBuscaListener}.
+ */
+@Service
+public class BuscaProdutosService {
+
+	private static final Logger log = LoggerFactory.getLogger(BuscaProdutosService.class);
+
+	/** Limites superiores (exclusivos) das faixas de preço; a última faixa não tem limite. */
+	private static final BigDecimal[] LIMITES_FAIXAS = { new BigDecimal("50"), new BigDecimal("100"),
+			new BigDecimal("500"), new BigDecimal("1000") };
+	public static final int FAIXAS = LIMITES_FAIXAS.length + 1;
+	public static final int LIMITE_MAXIMO = 100;
+
+	private static final Set<String> PALAVRAS_VAZIAS = Set.of("a", "o", "as", "os", "de", "da", "do", "das", "dos",
+			"e", "em", "na", "no", "com", "para", "por", "um", "uma");
+	private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+	private static final String SQL_PRODUTOS = "SELECT id, nome, descricao, preco, tipo FROM produto";
+	private static final int PRODUTOS_POR_TRAVA = 1024;
+	private static final int MINIMO_COMPACTACAO = 1024;
+	private static final TipoProduto[] TIPOS = TipoProduto.values();
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final StampedLock trava = new StampedLock();
+	private Indice indice = new Indice();
+	// Produtos alterados durante a carga inicial: a linha lida antes da alteração não pode sobrescrevê-los
+	private ConjuntoLong alteradosNaCarga;
+
+	@Autowired
+	public BuscaProdutosService(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void construir() {
+		long inicio = System.currentTimeMillis();
+		long stamp = trava.writeLock();
+		alteradosNaCarga = new ConjuntoLong();
+		trava.unlockWrite(stamp);
+
+		List<Produto> bloco = new ArrayList<>(PRODUTOS_POR_TRAVA);
+		try {
+			jdbcTemplate.query(SQL_PRODUTOS, (ResultSet rs) -> {
+				String tipo = rs.getString(5);
+				bloco.add(new Produto(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getBigDecimal(4), null,
+						tipo == null ? null : TipoProduto.valueOf(tipo)));
+				if (bloco.size() == PRODUTOS_POR_TRAVA) {
+					indexarCarga(bloco);
+					bloco.clear();
+				}
+			});
+			indexarCarga(bloco);
+		} finally {
+			stamp = trava.writeLock();
+			alteradosNaCarga = null;
+			trava.unlockWrite(stamp);
+		}
+		log.info("Busca de produtos: {} produtos indexados em {} ms", produtos(), System.currentTimeMillis() - inicio);
+	}
+
+	/** Indexa produtos novos ou alterados, substituindo a versão anterior de cada um. */
+	public void indexar(Collection<Produto> produtos) {
+		long stamp = trava.writeLock();
+		try {
+			for (Produto produto : produtos) {
+				if (alteradosNaCarga != null) {
+					alteradosNaCarga.adicionar(produto.getId());
+				}
+				indice.apagar(produto.getId());
+				indice.adicionar(produto);
+			}
+			compactarSeNecessario();
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	public void remover(long produtoId) {
+		long stamp = trava.writeLock();
+		try {
+			if (alteradosNaCarga != null) {
+				alteradosNaCarga.adicionar(produtoId);
+			}
+			indice.apagar(produtoId);
+			compactarSeNecessario();
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Produtos que casam com todos os termos de {@code consulta} (vazia: todos), filtrados por tipo e faixa de preço
+	 * quando informados, até {@code limite}. A contagem de cada faceta aplica só o filtro da outra, para que as
+	 * demais opções continuem visíveis.
+	 */
+	public ResultadoBuscaDTO buscar(String consulta, TipoProduto tipo, Integer faixa, int limite) {
+		if (faixa != null && (faixa < 0 || faixa >= FAIXAS)) {
+			throw new IllegalArgumentException("Faixa de preço inválida: " + faixa);
+		}
+		if (limite < 0 || limite > LIMITE_MAXIMO) {
+			throw new IllegalArgumentException("Limite deve estar entre 0 e " + LIMITE_MAXIMO + ".");
+		}
+		List<String> termos = termos(consulta);
+		long stamp = trava.readLock();
+		try {
+			return indice.buscar(termos, tipo, faixa, limite);
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	public int produtos() {
+		long stamp = trava.readLock();
+		try {
+			return indice.vivos.cardinality();
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	/** Termos indexáveis do texto: sem acentos, em minúsculas, quebrados em tudo que não é letra ou dígito. */
+	public static List<String> termos(String texto) {
+		if (texto == null || texto.isBlank()) {
+			return List.of();
+		}
+		String normalizado = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+		List<String> termos = new ArrayList<>();
+		int inicio = -1;
+		for (int i = 0; i <= normalizado.length(); i++) {
+			boolean letra = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+			if (letra && inicio < 0) {
+				inicio = i;
+			} else if (!letra && inicio >= 0) {
+				String termo = normalizado.substring(inicio, i);
+				if (!PALAVRAS_VAZIAS.contains(termo)) {
+					termos.add(termo);
+				}
+				inicio = -1;
+			}
+		}
+		return termos;
+	}
+
+	static int faixa(BigDecimal preco) {
+		int faixa = 0;
+		while (faixa < LIMITES_FAIXAS.length && preco.compareTo(LIMITES_FAIXAS[faixa]) >= 0) {
+			faixa++;
+		}
+		return faixa;
+	}
+
+	private void indexarCarga(List<Produto> bloco) {
+		long stamp = trava.writeLock();
+		try {
+			for (Produto produto : bloco) {
+				if (!alteradosNaCarga.contem(produto.getId())) {
+					indice.apagar(produto.getId());
+					indice.adicionar(produto);
+				}
+			}
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	private void compactarSeNecessario() {
+		if (indice.documentos >= MINIMO_COMPACTACAO && indice.apagados > indice.documentos / 2) {
+			Indice compacto = new Indice();
+			Indice antigo = indice;
+			antigo.vivos.stream().forEach(doc -> compacto.adicionar(antigo.produtoIds[doc], antigo.nomes[doc],
+					antigo.descricoes[doc], antigo.precos[doc], antigo.tipos[doc]));
+			indice = compacto;
+		}
+	}
+
+	/** Estado do índice; só acessado com a trava do serviço. */
+	private static final class Indice {
+
+		private static final long SEM_DOCUMENTO = -1;
+
+		int documentos;
+		int apagados;
+		long[] produtoIds = new long[1024];
+		String[] nomes = new String[1024];
+		String[] descricoes = new String[1024];
+		BigDecimal[] precos = new BigDecimal[1024];
+		byte[] tipos = new byte[1024];
+		final BitSet vivos = new BitSet();
+		final BitSet[] porTipo = bitSets(TIPOS.length);
+		final BitSet[] porFaixa = bitSets(FAIXAS);
+		final MapaLongLong documentoPorProduto = new MapaLongLong(1024);
+		final TreeMap<String, Postagens> termosNome = new TreeMap<>();
+		final TreeMap<String, Postagens> termosDescricao = new TreeMap<>();
+
+		void adicionar(Produto produto) {
+			adicionar(produto.getId(), produto.getNome(), produto.getDescricao(), produto.getPreco(),
+					produto.getTipo() == null ? -1 : (byte) produto.getTipo().ordinal());
+		}
+
+		void adicionar(long produtoId, String nome, String descricao, BigDecimal preco, byte tipo) {
+			if (documentos == produtoIds.length) {
+				int capacidade = documentos * 2;
+				produtoIds = Arrays.copyOf(produtoIds, capacidade);
+				nomes = Arrays.copyOf(nomes, capacidade);
+				descricoes = Arrays.copyOf(descricoes, capacidade);
+				precos = Arrays.copyOf(precos, capacidade);
+				tipos = Arrays.copyOf(tipos, capacidade);
+			}
+			int doc = documentos++;
+			produtoIds[doc] = produtoId;
+			nomes[doc] = nome;
+			descricoes[doc] = descricao;
+			precos[doc] = preco;
+			tipos[doc] = tipo;
+			vivos.set(doc);
+			if (tipo >= 0) {
+				porTipo[tipo].set(doc);
+			}
+			if (preco != null) {
+				porFaixa[faixa(preco)].set(doc);
+			}
+			documentoPorProduto.put(produtoId, doc);
+			for (String termo : termos(nome)) {
+				termosNome.computeIfAbsent(termo, t -> new Postagens()).adicionar(doc);
+			}
+			for (String termo : termos(descricao)) {
+				termosDescricao.computeIfAbsent(termo, t -> new Postagens()).adicionar(doc);
+			}
+		}
+
+		/** Apaga o documento atual do produto; as listas de termos só perdem a entrada na compactação. */
+		void apagar(long produtoId) {
+			long doc = documentoPorProduto.get(produtoId, SEM_DOCUMENTO);
+			if (doc == SEM_DOCUMENTO) {
+				return;
+			}
+			int d = (int) doc;
+			vivos.clear(d);
+			for (BitSet bits : porTipo) {
+				bits.clear(d);
+			}
+			for (BitSet bits : porFaixa) {
+				bits.clear(d);
+			}
+			documentoPorProduto.put(produtoId, SEM_DOCUMENTO);
+			apagados++;
+		}
+
+		ResultadoBuscaDTO buscar(List<String> termos, TipoProduto tipo, Integer faixa, int limite) {
+			BitSet candidatos = (BitSet) vivos.clone();
+			BitSet todosNoNome = (BitSet) vivos.clone();
+			for (String termo : termos) {
+				BitSet casados = casar(termosNome, termo);
+				todosNoNome.and(casados);
+				casados.or(casar(termosDescricao, termo));
+				candidatos.and(casados);
+				if (candidatos.isEmpty()) {
+					break;
+				}
+			}
+
+			BitSet filtroTipo = tipo == null ? null : porTipo[tipo.ordinal()];
+			BitSet filtroFaixa = faixa == null ? null : porFaixa[faixa];
+
+			Map<TipoProduto, Integer> contagemTipo = new EnumMap<>(TipoProduto.class);
+			BitSet base = filtrar(candidatos, filtroFaixa);
+			for (TipoProduto t : TIPOS) {
+				contagemTipo.put(t, filtrar(base, porTipo[t.ordinal()]).cardinality());
+			}
+			List<FaixaPrecoDTO> contagemFaixa = new ArrayList<>(FAIXAS);
+			base = filtrar(candidatos, filtroTipo);
+			for (int f = 0; f < FAIXAS; f++) {
+				contagemFaixa.add(new FaixaPrecoDTO(f, f == 0 ? BigDecimal.ZERO : LIMITES_FAIXAS[f - 1],
+						f < LIMITES_FAIXAS.length ? LIMITES_FAIXAS[f] : null, filtrar(base, porFaixa[f]).cardinality()));
+			}
+
+			BitSet resultado = filtrar(filtrar(candidatos, filtroTipo), filtroFaixa);
+			List<ProdutoResumoDTO> produtos = new ArrayList<>(Math.min(limite, resultado.cardinality()));
+			todosNoNome.and(resultado);
+			listar(todosNoNome, produtos, limite);
+			resultado.andNot(todosNoNome);
+			listar(resultado, produtos, limite);
+			return new ResultadoBuscaDTO(todosNoNome.cardinality() + resultado.cardinality(), produtos, contagemTipo,
+					contagemFaixa);
+		}
+
+		/** Documentos com algum termo que começa com {@code termo}; termos de uma letra só casam exatamente. */
+		private BitSet casar(TreeMap<String, Postagens> termos, String termo) {
+			BitSet docs = new BitSet(documentos);
+			if (termo.length() == 1) {
+				Postagens postagens = termos.get(termo);
+				if (postagens != null) {
+					postagens.marcar(docs);
+				}
+				return docs;
+			}
+			for (Postagens postagens : termos.subMap(termo, true, termo + Character.MAX_VALUE, false).values()) {
+				postagens.marcar(docs);
+			}
+			return docs;
+		}
+
+		private void listar(BitSet docs, List<ProdutoResumoDTO> produtos, int limite) {
+			for (int doc = docs.nextSetBit(0); doc >= 0 && produtos.size() < limite; doc = docs.nextSetBit(doc + 1)) {
+				produtos.add(new ProdutoResumoDTO(produtoIds[doc], nomes[doc], precos[doc],
+						tipos[doc] < 0 ? null : TIPOS[tipos[doc]]));
+			}
+		}
+
+		private static BitSet filtrar(BitSet docs, BitSet filtro) {
+			BitSet filtrados = (BitSet) docs.clone();
+			if (filtro != null) {
+				filtrados.and(filtro);
+			}
+			return filtrados;
+		}
+
+		private static BitSet[] bitSets(int quantidade) {
+			BitSet[] bitSets = new BitSet[quantidade];
+			for (int i = 0; i < quantidade; i++) {
+				bitSets[i] = new BitSet();
+			}
+			return bitSets;
+		}
+	}
+
+	/** Documentos de um termo, em ordem crescente. */
+	private static final class Postagens {
+
+		private int[] docs = new int[2];
+		private int tamanho;
+
+		void adicionar(int doc) {
+			if (tamanho > 0 && docs[tamanho - 1] == doc) {
+				return; // Termo repetido no mesmo texto
+			}
+			if (tamanho == docs.length) {
+				docs = Arrays.copyOf(docs, tamanho * 2);
+			}
+			docs[tamanho++] = doc;
+		}
+
+		void marcar(BitSet bits) {
+			for (int i = 0; i < tamanho; i++) {
+				bits.set(docs[i]);
+			}
+		}
+	}
+}
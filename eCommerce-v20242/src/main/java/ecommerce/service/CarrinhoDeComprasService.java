@@ -1,22 +1,81 @@
 package ecommerce.service;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
+import ecommerce.entity.StatusCarrinho;
 import ecommerce.repository.CarrinhoDeComprasRepository;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
 
 @Service
 public class CarrinhoDeComprasService {
 	private final CarrinhoDeComprasRepository repository;
+	private final Duration expiracaoReserva;
+	private final Clock clock;
 	
 	@Autowired
-	public CarrinhoDeComprasService(CarrinhoDeComprasRepository repository) {
+	public CarrinhoDeComprasService(CarrinhoDeComprasRepository repository,
+			@Value("${compra.reserva.expiracao-ms:600000}") long expiracaoReservaMs) {
+		this(repository, Duration.ofMillis(expiracaoReservaMs), Clock.systemUTC());
+	}
+
+	public CarrinhoDeComprasService(CarrinhoDeComprasRepository repository, Duration expiracaoReserva, Clock clock) {
+		if (expiracaoReserva.isNegative() || expiracaoReserva.isZero()) {
+			throw new IllegalArgumentException("Expiração da reserva do carrinho deve ser positiva.");
+		}
 		this.repository = repository;
+		this.expiracaoReserva = expiracaoReserva;
+		this.clock = clock;
 	}
 
 	public CarrinhoDeCompras buscarPorCarrinhoIdEClienteId(Long carrinhoId, Cliente cliente) {
 		return repository.findByIdAndCliente(carrinhoId, cliente).orElseThrow(() -> new IllegalArgumentException("Carrinho não encontrado."));
 	}
+
+	/**
+	 * ABERTO -> EM_FINALIZACAO. Roda e faz commit em transação própria, para que uma segunda finalização concorrente
+	 * do mesmo carrinho já veja o novo status e falhe antes de chamar estoque ou pagamento.
+	 *
+	 * Uma reserva EM_FINALIZACAO mais velha que {@code expiracaoReserva} é de uma finalização que morreu antes de
+	 * concluir ou reabrir o carrinho (JVM derrubada, por exemplo) e é retomada. A expiração precisa passar do maior
+	 * prazo de requisição, ou uma finalização lenta, mas viva, perderia o carrinho.
+	 */
+	@Transactional(TxType.REQUIRES_NEW)
+	public void iniciarFinalizacao(Long carrinhoId) {
+		Instant agora = clock.instant();
+		if (repository.reservarParaFinalizacao(carrinhoId, agora, agora.minus(expiracaoReserva)) == 0) {
+			throw new IllegalStateException("Carrinho já finalizado ou em finalização.");
+		}
+	}
+
+	/** Se {@link #iniciarFinalizacao} aceitaria o carrinho agora: aberto ou com a reserva expirada. */
+	public boolean podeIniciarFinalizacao(CarrinhoDeCompras carrinho) {
+		if (carrinho.getStatus() == StatusCarrinho.ABERTO) {
+			return true;
+		}
+		return carrinho.getStatus() == StatusCarrinho.EM_FINALIZACAO && carrinho.getInicioFinalizacao() != null
+				&& carrinho.getInicioFinalizacao().isBefore(clock.instant().minus(expiracaoReserva));
+	}
+
+	/** EM_FINALIZACAO -> FINALIZADO. */
+	@Transactional(TxType.REQUIRES_NEW)
+	public void concluirFinalizacao(Long carrinhoId) {
+		if (repository.mudarStatus(carrinhoId, StatusCarrinho.EM_FINALIZACAO, StatusCarrinho.FINALIZADO) == 0) {
+			throw new IllegalStateException("Carrinho não está em finalização.");
+		}
+	}
+
+	/** EM_FINALIZACAO -> ABERTO, quando a finalização falha. */
+	@Transactional(TxType.REQUIRES_NEW)
+	public void reabrir(Long carrinhoId) {
+		repository.mudarStatus(carrinhoId, StatusCarrinho.EM_FINALIZACAO, StatusCarrinho.ABERTO);
+	}
 }
@@ -0,0 +1,295 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.util.MapaLongLong;
+import ecommerce.util.SlabRegistros;
+
+/**
+ * Carrinhos ativos guardados fora do heap, para milhões de sessões sem um grafo de {@link CarrinhoDeCompras} e
+ * {@link ItemCompra} por carrinho: cada linha ocupa 32 bytes num {@link SlabRegistros} e cada carrinho um cabeçalho
+ * de 24, encontrado pelo id num {@link MapaLongLong}. As linhas de um carrinho formam uma lista encadeada a partir do
+ * cabeçalho; registros de carrinhos e linhas removidos são reaproveitados.
+ *
+ * A linha guarda preço (em centavos) e peso do produto no momento em que entrou, então o total sai direto dos slabs
+ * ({@link #custoTotalMilesimos}, {@link CompraService#calcularCustoTotal(CarrinhosForaDoHeap, long)}).
+ */
+@Service
+public class CarrinhosForaDoHeap {
+
+	// Cabeçalho: id do carrinho, primeira linha, quantidade de linhas, ordinal do tipo do cliente (-1 sem cliente)
+	private static final int TAMANHO_CABECALHO = 24;
+	private static final int CAB_CARRINHO = 0;
+	private static final int CAB_PRIMEIRA = 8;
+	private static final int CAB_LINHAS = 12;
+	private static final int CAB_TIPO = 16;
+
+	// Linha: produto, quantidade, preço em centavos, peso, próxima linha (-1 no fim)
+	private static final int TAMANHO_LINHA = 32;
+	private static final int LIN_PRODUTO = 0;
+	private static final int LIN_QUANTIDADE = 8;
+	private static final int LIN_PRECO = 16;
+	private static final int LIN_PESO = 24;
+	private static final int LIN_PROXIMA = 28;
+
+	private static final int FIM = -1;
+	private static final int SEM_TIPO = -1;
+
+	private final SlabRegistros cabecalhos;
+	private final SlabRegistros linhas;
+	private final MapaLongLong cabecalhoPorCarrinho = new MapaLongLong(1024);
+	private final StampedLock trava = new StampedLock();
+
+	/** Recebe um item de {@link #paraCadaItem}. */
+	public interface VisitanteItem {
+		void item(long produtoId, long quantidade, long precoCentavos, int peso);
+	}
+
+	@Autowired
+	public CarrinhosForaDoHeap(@Value("${carrinhos.fora-do-heap.linhas-por-slab:65536}") int linhasPorSlab) {
+		this.linhas = new SlabRegistros(TAMANHO_LINHA, linhasPorSlab);
+		this.cabecalhos = new SlabRegistros(TAMANHO_CABECALHO, Math.max(1, linhasPorSlab / 4));
+	}
+
+	/** Cria o carrinho vazio; se ele já existir, só atualiza o tipo do cliente. */
+	public void abrir(long carrinhoId, TipoCliente tipoCliente) {
+		long stamp = trava.writeLock();
+		try {
+			abrirSemTrava(carrinhoId, tipoCliente);
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Acrescenta {@code quantidade} do produto ao carrinho. Se o produto já estiver nele, soma a quantidade e passa a
+	 * usar o preço e o peso informados.
+	 */
+	public void adicionar(long carrinhoId, long produtoId, long quantidade, BigDecimal preco, int peso) {
+		if (quantidade <= 0) {
+			throw new IllegalArgumentException("Quantidade deve ser positiva.");
+		}
+		long precoCentavos = centavos(preco);
+		long stamp = trava.writeLock();
+		try {
+			adicionarSemTrava(cabecalho(carrinhoId), produtoId, quantidade, precoCentavos, peso);
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	/** Copia de uma vez um carrinho carregado pelo JPA, substituindo o que houver com o mesmo id. */
+	public void carregar(CarrinhoDeCompras carrinho) {
+		List<ItemCompra> itens = carrinho.getItens();
+		long[] precosCentavos = new long[itens.size()];
+		for (int i = 0; i < itens.size(); i++) {
+			ItemCompra item = itens.get(i);
+			if (item.getProduto() == null || item.getProduto().getPeso() == null || item.getQuantidade() == null
+					|| item.getQuantidade() <= 0) {
+				throw new IllegalArgumentException("Item inválido no carrinho " + carrinho.getId());
+			}
+			precosCentavos[i] = centavos(item.getProduto().getPreco());
+		}
+		long stamp = trava.writeLock();
+		try {
+			removerSemTrava(carrinho.getId());
+			int cabecalho = abrirSemTrava(carrinho.getId(),
+					carrinho.getCliente() == null ? null : carrinho.getCliente().getTipo());
+			for (int i = 0; i < itens.size(); i++) {
+				Produto produto = itens.get(i).getProduto();
+				adicionarSemTrava(cabecalho, produto.getId(), itens.get(i).getQuantidade(), precosCentavos[i],
+						produto.getPeso());
+			}
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	/** Retorna false se o produto não estava no carrinho. */
+	public boolean removerItem(long carrinhoId, long produtoId) {
+		long stamp = trava.writeLock();
+		try {
+			int cabecalho = cabecalho(carrinhoId);
+			int anterior = FIM;
+			int linha = cabecalhos.getInt(cabecalho, CAB_PRIMEIRA);
+			while (linha != FIM && linhas.getLong(linha, LIN_PRODUTO) != produtoId) {
+				anterior = linha;
+				linha = linhas.getInt(linha, LIN_PROXIMA);
+			}
+			if (linha == FIM) {
+				return false;
+			}
+			int proxima = linhas.getInt(linha, LIN_PROXIMA);
+			if (anterior == FIM) {
+				cabecalhos.putInt(cabecalho, CAB_PRIMEIRA, proxima);
+			} else {
+				linhas.putInt(anterior, LIN_PROXIMA, proxima);
+			}
+			linhas.liberar(linha);
+			cabecalhos.putInt(cabecalho, CAB_LINHAS, cabecalhos.getInt(cabecalho, CAB_LINHAS) - 1);
+			return true;
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	/** Retorna false se o carrinho não estava guardado. */
+	public boolean remover(long carrinhoId) {
+		long stamp = trava.writeLock();
+		try {
+			return removerSemTrava(carrinhoId);
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	public boolean contem(long carrinhoId) {
+		long stamp = trava.readLock();
+		try {
+			return cabecalhoPorCarrinho.contem(carrinhoId);
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	/** Itens do carrinho, do último acrescentado para o primeiro. */
+	public void paraCadaItem(long carrinhoId, VisitanteItem visitante) {
+		long stamp = trava.readLock();
+		try {
+			for (int linha = cabecalhos.getInt(cabecalho(carrinhoId), CAB_PRIMEIRA); linha != FIM;
+					linha = linhas.getInt(linha, LIN_PROXIMA)) {
+				visitante.item(linhas.getLong(linha, LIN_PRODUTO), linhas.getLong(linha, LIN_QUANTIDADE),
+						linhas.getLong(linha, LIN_PRECO), linhas.getInt(linha, LIN_PESO));
+			}
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	/** Total do carrinho com desconto e frete, em milésimos de real, pelas regras de {@link CompraService}. */
+	public long custoTotalMilesimos(long carrinhoId) {
+		long stamp = trava.readLock();
+		try {
+			int cabecalho = cabecalho(carrinhoId);
+			if (cabecalhos.getInt(cabecalho, CAB_LINHAS) == 0) {
+				throw new IllegalArgumentException("Carrinho vazio: " + carrinhoId);
+			}
+			long subtotalCentavos = 0;
+			long pesoTotal = 0;
+			for (int linha = cabecalhos.getInt(cabecalho, CAB_PRIMEIRA); linha != FIM;
+					linha = linhas.getInt(linha, LIN_PROXIMA)) {
+				long quantidade = linhas.getLong(linha, LIN_QUANTIDADE);
+				subtotalCentavos += quantidade * linhas.getLong(linha, LIN_PRECO);
+				pesoTotal += quantidade * linhas.getInt(linha, LIN_PESO);
+			}
+			return CompraService.custoTotalMilesimos(subtotalCentavos, pesoTotal,
+					cabecalhos.getInt(cabecalho, CAB_TIPO));
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	public int carrinhos() {
+		long stamp = trava.readLock();
+		try {
+			return cabecalhoPorCarrinho.tamanho();
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	public int linhas() {
+		long stamp = trava.readLock();
+		try {
+			return linhas.emUso();
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	/** Memória direta reservada pelos slabs de cabeçalhos e linhas. */
+	public long bytesReservados() {
+		long stamp = trava.readLock();
+		try {
+			return cabecalhos.bytesReservados() + linhas.bytesReservados();
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	private int abrirSemTrava(long carrinhoId, TipoCliente tipoCliente) {
+		int cabecalho = (int) cabecalhoPorCarrinho.get(carrinhoId, FIM);
+		if (cabecalho == FIM) {
+			cabecalho = cabecalhos.alocar();
+			cabecalhos.putLong(cabecalho, CAB_CARRINHO, carrinhoId);
+			cabecalhos.putInt(cabecalho, CAB_PRIMEIRA, FIM);
+			cabecalhos.putInt(cabecalho, CAB_LINHAS, 0);
+			cabecalhoPorCarrinho.put(carrinhoId, cabecalho);
+		}
+		cabecalhos.putInt(cabecalho, CAB_TIPO, tipoCliente == null ? SEM_TIPO : tipoCliente.ordinal());
+		return cabecalho;
+	}
+
+	private void adicionarSemTrava(int cabecalho, long produtoId, long quantidade, long precoCentavos, int peso) {
+		int linha = cabecalhos.getInt(cabecalho, CAB_PRIMEIRA);
+		while (linha != FIM && linhas.getLong(linha, LIN_PRODUTO) != produtoId) {
+			linha = linhas.getInt(linha, LIN_PROXIMA);
+		}
+		if (linha == FIM) {
+			linha = linhas.alocar();
+			linhas.putLong(linha, LIN_PRODUTO, produtoId);
+			linhas.putLong(linha, LIN_QUANTIDADE, quantidade);
+			linhas.putInt(linha, LIN_PROXIMA, cabecalhos.getInt(cabecalho, CAB_PRIMEIRA));
+			cabecalhos.putInt(cabecalho, CAB_PRIMEIRA, linha);
+			cabecalhos.putInt(cabecalho, CAB_LINHAS, cabecalhos.getInt(cabecalho, CAB_LINHAS) + 1);
+		} else {
+			linhas.putLong(linha, LIN_QUANTIDADE, linhas.getLong(linha, LIN_QUANTIDADE) + quantidade);
+		}
+		linhas.putLong(linha, LIN_PRECO, precoCentavos);
+		linhas.putInt(linha, LIN_PESO, peso);
+	}
+
+	private boolean removerSemTrava(long carrinhoId) {
+		int cabecalho = (int) cabecalhoPorCarrinho.get(carrinhoId, FIM);
+		if (cabecalho == FIM) {
+			return false;
+		}
+		for (int linha = cabecalhos.getInt(cabecalho, CAB_PRIMEIRA); linha != FIM;) {
+			int proxima = linhas.getInt(linha, LIN_PROXIMA);
+			linhas.liberar(linha);
+			linha = proxima;
+		}
+		cabecalhos.liberar(cabecalho);
+		cabecalhoPorCarrinho.remover(carrinhoId);
+		return true;
+	}
+
+	private int cabecalho(long carrinhoId) {
+		int cabecalho = (int) cabecalhoPorCarrinho.get(carrinhoId, FIM);
+		if (cabecalho == FIM) {
+			throw new IllegalArgumentException("Carrinho não está guardado: " + carrinhoId);
+		}
+		return cabecalho;
+	}
+
+	private static long centavos(BigDecimal preco) {
+		if (preco == null) {
+			throw new IllegalArgumentException("Produto sem preço.");
+		}
+		try {
+			return preco.movePointRight(2).longValueExact();
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Preço com mais de duas casas decimais: " + preco, e);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import ecommerce.entity.ItemCompra;
+
+/**
+ * Publicado por {@link CompraService#finalizarCompra} depois que pagamento e baixa no estoque deram certo.
+ * Os listeners rodam na mesma thread, depois do commit da compra ({@code @TransactionalEventListener}; na hora se não
+ * houver transação). A compra já está paga: cada listener registra as próprias falhas em log em vez de propagá-las.
+ */
+public record CompraFinalizadaEvent(Long carrinhoId, Long clienteId, Long transacaoId, BigDecimal custoTotal,
+		List<ItemCompra> itens, Instant instante) {
+}
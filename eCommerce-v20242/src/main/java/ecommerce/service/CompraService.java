@@ -1,10 +1,12 @@
 package ecommerce.service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import ecommerce.dto.CompraDTO;
@@ -17,43 +19,147 @@ import ecommerce.entity.ItemCompra;
 import ecommerce.entity.TipoCliente;
 import ecommerce.external.IEstoqueExternal;
 import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.ResultadoCompra.MotivoRecusa;
+import ecommerce.service.ResultadoCompra.Recusa;
+import ecommerce.service.ResultadoCompra.Sucesso;
 import jakarta.transaction.Transactional;
 
 @Service
 public class CompraService {
 
+	private static final int OURO = TipoCliente.OURO.ordinal();
+	private static final int PRATA = TipoCliente.PRATA.ordinal();
+
 	private final CarrinhoDeComprasService carrinhoService;
 	private final ClienteService clienteService;
 
 	private final IEstoqueExternal estoqueExternal;
 	private final IPagamentoExternal pagamentoExternal;
 
+	private final ApplicationEventPublisher eventPublisher;
+
 	@Autowired
 	public CompraService(CarrinhoDeComprasService carrinhoService, ClienteService clienteService,
-			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal) {
+			IEstoqueExternal estoqueExternal, IPagamentoExternal pagamentoExternal,
+			ApplicationEventPublisher eventPublisher) {
 		this.carrinhoService = carrinhoService;
 		this.clienteService = clienteService;
 
 		this.estoqueExternal = estoqueExternal;
 		this.pagamentoExternal = pagamentoExternal;
+
+		this.eventPublisher = eventPublisher;
 	}
 
 	@Transactional
 	public CompraDTO finalizarCompra(Long carrinhoId, Long clienteId) {
-		// Buscar cliente pelo ID
-		Cliente cliente = clienteService.buscarPorId(clienteId);
+		return finalizarCompra(carrinhoId, clienteId, Prazo.semPrazo());
+	}
 
-		// Buscar carrinho pelo ID e cliente
+	/**
+	 * Adaptador de {@link #tentarFinalizarCompra} para quem trata falhas por exceção: uma {@link Recusa} sai como
+	 * {@link IllegalArgumentException}, {@link PrazoEsgotadoException} ou {@link IllegalStateException}.
+	 */
+	@Transactional
+	public CompraDTO finalizarCompra(Long carrinhoId, Long clienteId, Prazo prazo) {
+		ResultadoCompra resultado = tentarFinalizarCompra(carrinhoId, clienteId, prazo);
+		if (resultado instanceof Recusa recusa) {
+			throw recusa.comoExcecao();
+		}
+		return resultado.paraDTO();
+	}
+
+	/**
+	 * Cada etapa só começa se o prazo ainda não acabou. Os clientes de estoque e pagamento enxergam o prazo em
+	 * {@link Prazo#atual()} e abandonam a chamada quando ele acaba, o que sai como {@link MotivoRecusa#PRAZO_ESGOTADO}.
+	 *
+	 * Falhas de negócio voltam como {@link Recusa}; só erros inesperados saem como exceção.
+	 */
+	@Transactional
+	public ResultadoCompra tentarFinalizarCompra(Long carrinhoId, Long clienteId, Prazo prazo) {
+		return prazo.aplicar(() -> processarCompra(carrinhoId, clienteId, prazo));
+	}
+
+	/**
+	 * Validações baratas de {@link #finalizarCompra}, sem reservar o carrinho nem chamar estoque ou pagamento. Usada
+	 * para recusar na hora um pedido que iria para a fila da finalização assíncrona.
+	 */
+	@Transactional
+	public void validarCompra(Long carrinhoId, Long clienteId) {
+		Cliente cliente = clienteService.buscarPorId(clienteId);
 		CarrinhoDeCompras carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
+		Recusa recusa = validarCarrinho(carrinho);
+		if (recusa != null) {
+			throw recusa.comoExcecao();
+		}
+		if (!carrinhoService.podeIniciarFinalizacao(carrinho)) {
+			throw new IllegalStateException("Carrinho já finalizado ou em finalização.");
+		}
+	}
 
-		// Validar se o carrinho existe, possui itens e está associado a um cliente
+	private static Recusa validarCarrinho(CarrinhoDeCompras carrinho) {
 		if (carrinho == null || carrinho.getItens() == null || carrinho.getItens().isEmpty()) {
-			throw new IllegalStateException("Carrinho vazio ou não encontrado.");
+			return new Recusa(MotivoRecusa.CARRINHO_INVALIDO, "Carrinho vazio ou não encontrado.");
 		}
 		if (carrinho.getCliente() == null) {
-			throw new IllegalStateException("Carrinho não está associado a um cliente válido.");
+			return new Recusa(MotivoRecusa.CARRINHO_INVALIDO, "Carrinho não está associado a um cliente válido.");
+		}
+		return null;
+	}
+
+	private ResultadoCompra processarCompra(Long carrinhoId, Long clienteId, Prazo prazo) {
+		if (prazo.esgotado()) {
+			return prazoEsgotado("buscar o carrinho");
+		}
+
+		// Buscar cliente e carrinho; os serviços sinalizam ausência com exceção, caminho raro
+		Cliente cliente;
+		CarrinhoDeCompras carrinho;
+		try {
+			cliente = clienteService.buscarPorId(clienteId);
+			carrinho = carrinhoService.buscarPorCarrinhoIdEClienteId(carrinhoId, cliente);
+		} catch (IllegalArgumentException e) {
+			return new Recusa(MotivoRecusa.NAO_ENCONTRADO, e.getMessage());
 		}
 
+		// Validar se o carrinho existe, possui itens e está associado a um cliente
+		Recusa carrinhoInvalido = validarCarrinho(carrinho);
+		if (carrinhoInvalido != null) {
+			return carrinhoInvalido;
+		}
+
+		// Reservar o carrinho: uma finalização concorrente do mesmo carrinho falha aqui, antes de estoque e pagamento
+		if (prazo.esgotado()) {
+			return prazoEsgotado("reservar o carrinho");
+		}
+		try {
+			carrinhoService.iniciarFinalizacao(carrinhoId);
+		} catch (IllegalStateException e) {
+			return new Recusa(MotivoRecusa.CARRINHO_EM_FINALIZACAO, e.getMessage());
+		}
+
+		ResultadoCompra resultado;
+		try {
+			resultado = executarEtapas(carrinhoId, carrinho, cliente, prazo);
+		} catch (RuntimeException e) {
+			carrinhoService.reabrir(carrinhoId);
+			throw e;
+		}
+		if (!(resultado instanceof Sucesso sucesso)) {
+			carrinhoService.reabrir(carrinhoId);
+			return resultado;
+		}
+
+		// Notificar interessados (diário de compras, métricas de vendas...); eles recebem depois do commit
+		eventPublisher.publishEvent(new CompraFinalizadaEvent(carrinhoId, cliente.getId(),
+				sucesso.transacaoPagamentoId(), sucesso.custoTotal(), carrinho.getItens(), Instant.now()));
+
+		return sucesso;
+	}
+
+	/** Estoque, pagamento e baixa, com o carrinho já reservado. */
+	private ResultadoCompra executarEtapas(Long carrinhoId, CarrinhoDeCompras carrinho, Cliente cliente,
+			Prazo prazo) {
 		// Extrair IDs e quantidades dos produtos do carrinho
 		List<Long> produtosIds = carrinho.getItens().stream()
 				.map(i -> i.getProduto().getId())
@@ -63,31 +169,71 @@ public class CompraService {
 				.collect(Collectors.toList());
 
 		// Verificar disponibilidade no estoque
-		DisponibilidadeDTO disponibilidade = estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds);
+		if (prazo.esgotado()) {
+			return prazoEsgotado("verificar o estoque");
+		}
+		DisponibilidadeDTO disponibilidade;
+		try {
+			disponibilidade = estoqueExternal.verificarDisponibilidade(produtosIds, produtosQtds);
+		} catch (PrazoEsgotadoException e) {
+			return new Recusa(MotivoRecusa.PRAZO_ESGOTADO, e.getMessage());
+		}
 		if (disponibilidade == null || !disponibilidade.disponivel()) {
-			throw new IllegalStateException("Itens fora de estoque.");
+			return new Recusa(MotivoRecusa.FORA_DE_ESTOQUE, "Itens fora de estoque.");
 		}
 
 		// Calcular custo total do carrinho
 		BigDecimal custoTotal = calcularCustoTotal(carrinho);
 
 		// Autorizar pagamento
-		PagamentoDTO pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+		if (prazo.esgotado()) {
+			return prazoEsgotado("autorizar o pagamento");
+		}
+		// Autorização abandonada por prazo não tem id de transação para cancelar; o gateway a expira sozinho
+		PagamentoDTO pagamento;
+		try {
+			pagamento = pagamentoExternal.autorizarPagamento(cliente.getId(), custoTotal.doubleValue());
+		} catch (PrazoEsgotadoException e) {
+			return new Recusa(MotivoRecusa.PRAZO_ESGOTADO, e.getMessage());
+		}
 		if (pagamento == null || !pagamento.autorizado()) {
-			throw new IllegalStateException("Pagamento não autorizado.");
+			return new Recusa(MotivoRecusa.PAGAMENTO_NAO_AUTORIZADO, "Pagamento não autorizado.");
 		}
 
-		// Dar baixa no estoque
-		EstoqueBaixaDTO baixaDTO = estoqueExternal.darBaixa(produtosIds, produtosQtds);
+		// Sem prazo para a baixa: desfaz a autorização em vez de debitar o estoque de quem já desistiu
+		if (prazo.esgotado()) {
+			if (pagamento.transacaoId() != null) {
+				pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+			}
+			return new Recusa(MotivoRecusa.PRAZO_ESGOTADO,
+					"Prazo da requisição esgotado antes de dar baixa no estoque; pagamento cancelado.");
+		}
+
+		// Dar baixa no estoque; abandonada por prazo, o pagamento é desfeito mesmo que a baixa tenha sido aplicada
+		EstoqueBaixaDTO baixaDTO;
+		try {
+			baixaDTO = estoqueExternal.darBaixa(produtosIds, produtosQtds);
+		} catch (PrazoEsgotadoException e) {
+			if (pagamento.transacaoId() != null) {
+				pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
+			}
+			return new Recusa(MotivoRecusa.PRAZO_ESGOTADO, e.getMessage() + " Pagamento cancelado.");
+		}
 		if (!baixaDTO.sucesso()) {
 			if (pagamento.transacaoId() != null) {
 				pagamentoExternal.cancelarPagamento(cliente.getId(), pagamento.transacaoId());
 			}
-			throw new IllegalStateException("Erro ao dar baixa no estoque.");
+			return new Recusa(MotivoRecusa.FALHA_BAIXA_ESTOQUE, "Erro ao dar baixa no estoque.");
 		}
 
-		// Retornar DTO de sucesso
-		return new CompraDTO(true, pagamento.transacaoId(), "Compra finalizada com sucesso.");
+		// Marcar o carrinho como finalizado
+		carrinhoService.concluirFinalizacao(carrinhoId);
+
+		return new Sucesso(pagamento.transacaoId(), custoTotal);
+	}
+
+	private static Recusa prazoEsgotado(String etapa) {
+		return new Recusa(MotivoRecusa.PRAZO_ESGOTADO, Prazo.mensagemEsgotado(etapa));
 	}
 
 
@@ -143,4 +289,40 @@ public class CompraService {
 
 	    return custoFrete;
 	}
+
+	/**
+	 * Mesmas regras de {@link #calcularCustoTotal(CarrinhoDeCompras)} em milésimos de real, sem BigDecimal. Exato:
+	 * preços têm no máximo duas casas e os descontos de 10% e 20% e a isenção de 50% do frete acrescentam uma.
+	 * {@code tipoCliente} é o ordinal de {@link TipoCliente}, ou negativo para carrinho sem cliente (frete cheio).
+	 */
+	public static long custoTotalMilesimos(long subtotalCentavos, long pesoTotal, int tipoCliente) {
+		// Descontos: 20% a partir de 1000, 10% a partir de 500 (centavos * décimos = milésimos)
+		long produtos;
+		if (subtotalCentavos >= 100_000) {
+			produtos = subtotalCentavos * 8;
+		} else if (subtotalCentavos >= 50_000) {
+			produtos = subtotalCentavos * 9;
+		} else {
+			produtos = subtotalCentavos * 10;
+		}
+
+		long freteReais;
+		if (pesoTotal > 50) {
+			freteReais = 7 * pesoTotal;
+		} else if (pesoTotal >= 10) {
+			freteReais = 4 * pesoTotal;
+		} else if (pesoTotal > 5) {
+			freteReais = 2 * pesoTotal;
+		} else {
+			freteReais = 0;
+		}
+		long frete = tipoCliente == OURO ? 0 : tipoCliente == PRATA ? freteReais * 500 : freteReais * 1000;
+
+		return produtos + frete;
+	}
+
+	/** {@link #calcularCustoTotal(CarrinhoDeCompras)} de um carrinho guardado fora do heap, sem montar entidades. */
+	public BigDecimal calcularCustoTotal(CarrinhosForaDoHeap carrinhos, long carrinhoId) {
+		return BigDecimal.valueOf(carrinhos.custoTotalMilesimos(carrinhoId), 3);
+	}
 }
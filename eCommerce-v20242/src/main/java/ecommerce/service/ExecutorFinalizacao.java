@@ -0,0 +1,22 @@
+package ecommerce.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Como as finalizações de um cliente são executadas: direto na thread da requisição, serializadas por travas
+ * ({@link TravasFinalizacao}) ou em shards de uma thread só ({@link ShardsFinalizacao}).
+ */
+public interface ExecutorFinalizacao {
+
+	public <T> T executar(Long clienteId, Supplier<T> acao);
+
+	/** Executa na thread de quem chama, sem serialização. */
+	public static ExecutorFinalizacao direto() {
+		return new ExecutorFinalizacao() {
+			@Override
+			public <T> T executar(Long clienteId, Supplier<T> acao) {
+				return acao.get();
+			}
+		};
+	}
+}
@@ -0,0 +1,14 @@
+package ecommerce.service;
+
+/**
+ * A fila da finalização assíncrona, a de um shard ou a admissão por tipo de cliente está cheia; o pedido não foi
+ * aceito e pode ser reenviado mais tarde.
+ */
+public class FilaFinalizacaoCheiaException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	public FilaFinalizacaoCheiaException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,186 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.SituacaoCompraDTO;
+import ecommerce.dto.SituacaoCompraDTO.Estado;
+import ecommerce.util.FilaCircular;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Finalização em duas etapas: {@link #enfileirar} valida o pedido, coloca-o numa {@link FilaCircular} limitada e
+ * devolve um ticket na hora; um grupo fixo de consumidores roda {@link CompraService#tentarFinalizarCompra} pelo
+ * {@link ExecutorFinalizacao}, como {@code POST /finalizar} faria.
+ *
+ * Em picos, os pedidos esperam na fila em vez de em conexões HTTP abertas. Com a fila cheia o pedido é recusado com
+ * {@link FilaFinalizacaoCheiaException}. A situação de cada ticket fica disponível em {@link #situacao} até
+ * {@code retencao} depois de terminar; o prazo de cada finalização começa a contar quando um consumidor a retira da
+ * fila. Com {@code maximoTickets} tickets retidos (limite aproximado sob concorrência), novos pedidos também são
+ * recusados até a próxima limpeza dos expirados.
+ */
+public class FinalizacaoAssincrona implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(FinalizacaoAssincrona.class);
+
+	private static final long ESPERA_CONSUMIDOR_MS = 100;
+
+	private final CompraService compraService;
+	private final ExecutorFinalizacao executorFinalizacao;
+	private final long prazoMs;
+	private final long retencaoMs;
+	private final int maximoTickets;
+
+	private final FilaCircular<Pedido> fila;
+	// Uma licença por pedido publicado: consumidores dormem aqui em vez de girar sobre a fila vazia
+	private final Semaphore pedidosNaFila = new Semaphore(0);
+	private final Map<String, Registro> situacoes = new ConcurrentHashMap<>();
+	private final AtomicLong proximaLimpezaMs = new AtomicLong();
+
+	private final Thread[] consumidores;
+	private volatile boolean ativo = true;
+
+	public FinalizacaoAssincrona(CompraService compraService, ExecutorFinalizacao executorFinalizacao, int capacidade,
+			int quantidadeConsumidores, long prazoMs, Duration retencao, int maximoTickets, MeterRegistry registry) {
+		if (quantidadeConsumidores <= 0 || maximoTickets <= 0) {
+			throw new IllegalArgumentException("Quantidade de consumidores e máximo de tickets devem ser positivos.");
+		}
+		this.compraService = compraService;
+		this.executorFinalizacao = executorFinalizacao;
+		this.prazoMs = prazoMs;
+		this.retencaoMs = retencao.toMillis();
+		this.maximoTickets = maximoTickets;
+		this.fila = new FilaCircular<>(capacidade);
+
+		Gauge.builder("compra.async.fila", fila, FilaCircular::tamanho)
+				.description("Finalizações assíncronas aguardando um consumidor")
+				.register(registry);
+		Gauge.builder("compra.async.tickets", situacoes, Map::size)
+				.description("Tickets de finalização assíncrona retidos para consulta")
+				.register(registry);
+
+		this.consumidores = new Thread[quantidadeConsumidores];
+		for (int i = 0; i < quantidadeConsumidores; i++) {
+			consumidores[i] = new Thread(this::consumir, "finalizacao-async-" + i);
+			consumidores[i].setDaemon(true);
+			consumidores[i].start();
+		}
+	}
+
+	/**
+	 * Valida o pedido e o coloca na fila. Erros de validação saem como em {@link CompraService#finalizarCompra};
+	 * fila cheia sai como {@link FilaFinalizacaoCheiaException}.
+	 */
+	public String enfileirar(Long carrinhoId, Long clienteId) {
+		compraService.validarCompra(carrinhoId, clienteId);
+		if (situacoes.size() >= maximoTickets) {
+			descartarExpirados();
+			if (situacoes.size() >= maximoTickets) {
+				throw new FilaFinalizacaoCheiaException("Tickets demais retidos para consulta; tente novamente.");
+			}
+		}
+
+		String ticket = UUID.randomUUID().toString();
+		situacoes.put(ticket, new Registro(new SituacaoCompraDTO(ticket, Estado.NA_FILA, null), Long.MAX_VALUE));
+		if (!fila.oferecer(new Pedido(ticket, carrinhoId, clienteId))) {
+			situacoes.remove(ticket);
+			throw new FilaFinalizacaoCheiaException("Muitas finalizações na fila; tente novamente.");
+		}
+		pedidosNaFila.release();
+		return ticket;
+	}
+
+	public Optional<SituacaoCompraDTO> situacao(String ticket) {
+		Registro registro = situacoes.get(ticket);
+		return registro == null ? Optional.empty() : Optional.of(registro.situacao());
+	}
+
+	public int pedidosNaFila() {
+		return fila.tamanho();
+	}
+
+	@Override
+	public void close() {
+		ativo = false;
+		for (Thread consumidor : consumidores) {
+			consumidor.interrupt();
+		}
+	}
+
+	private void consumir() {
+		while (ativo) {
+			try {
+				if (pedidosNaFila.tryAcquire(ESPERA_CONSUMIDOR_MS, TimeUnit.MILLISECONDS)) {
+					// A licença só é liberada depois da publicação, então há um pedido para este consumidor
+					Pedido pedido = fila.retirar();
+					if (pedido != null) {
+						processar(pedido);
+					}
+				}
+				descartarExpirados();
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void processar(Pedido pedido) {
+		atualizar(pedido.ticket(), Estado.PROCESSANDO, null, Long.MAX_VALUE);
+		Estado estado;
+		CompraDTO resultado;
+		try {
+			Prazo prazo = Prazo.em(Duration.ofMillis(prazoMs));
+			ResultadoCompra desfecho = prazo.aplicar(() -> executorFinalizacao.executar(pedido.clienteId(),
+					() -> compraService.tentarFinalizarCompra(pedido.carrinhoId(), pedido.clienteId(), prazo)));
+			resultado = desfecho.paraDTO();
+			if (desfecho instanceof ResultadoCompra.Recusa recusa) {
+				estado = recusa.motivo() == ResultadoCompra.MotivoRecusa.PRAZO_ESGOTADO ? Estado.ERRO : Estado.RECUSADA;
+			} else {
+				estado = Estado.CONCLUIDA;
+			}
+		} catch (PrazoEsgotadoException e) {
+			estado = Estado.ERRO;
+			resultado = new CompraDTO(false, null, e.getMessage());
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			estado = Estado.RECUSADA;
+			resultado = new CompraDTO(false, null, e.getMessage());
+		} catch (RuntimeException e) {
+			log.error("Erro na finalização assíncrona do carrinho {} (ticket {})", pedido.carrinhoId(),
+					pedido.ticket(), e);
+			estado = Estado.ERRO;
+			resultado = new CompraDTO(false, null, "Erro ao processar compra.");
+		}
+		atualizar(pedido.ticket(), estado, resultado, System.currentTimeMillis() + retencaoMs);
+	}
+
+	private void atualizar(String ticket, Estado estado, CompraDTO resultado, long expiraEmMs) {
+		situacoes.put(ticket, new Registro(new SituacaoCompraDTO(ticket, estado, resultado), expiraEmMs));
+	}
+
+	private void descartarExpirados() {
+		long agora = System.currentTimeMillis();
+		long proxima = proximaLimpezaMs.get();
+		// No máximo uma varredura por segundo, feita por um consumidor só
+		if (agora < proxima || !proximaLimpezaMs.compareAndSet(proxima, agora + 1000)) {
+			return;
+		}
+		situacoes.values().removeIf(registro -> registro.expiraEmMs() <= agora);
+	}
+
+	private record Pedido(String ticket, Long carrinhoId, Long clienteId) {
+	}
+
+	private record Registro(SituacaoCompraDTO situacao, long expiraEmMs) {
+	}
+}
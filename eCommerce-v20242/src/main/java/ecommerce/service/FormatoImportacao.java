@@ -0,0 +1,5 @@
+package ecommerce.service;
+
+public enum FormatoImportacao {
+	CSV, JSON_LINHAS
+}
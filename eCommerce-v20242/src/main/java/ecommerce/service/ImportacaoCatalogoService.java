@@ -0,0 +1,463 @@
+package ecommerce.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.dto.RelatorioImportacaoDTO;
+import ecommerce.dto.RelatorioImportacaoDTO.LinhaRejeitadaDTO;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Carga em massa do catálogo de produtos a partir de CSV (separado por ';', com cabeçalho) ou JSON lines.
+ *
+ * A entrada é lida linha a linha e só existem em memória os lotes em voo (no máximo 2 x paralelismo),
+ * então o consumo de memória não depende do tamanho do arquivo. Cada lote vira um único MERGE em batch
+ * JDBC (upsert por id). Os produtos de cada lote gravado vão em seguida para a {@link BuscaProdutosService}, e os
+ * carrinhos abertos que os contêm são reprecificados pela {@link ReprecificacaoCarrinhosService}. Se o índice
+ * produto -> carrinhos ainda estiver em carga, todos os carrinhos são reprecificados uma vez, no fim.
+ *
+ * Os ids vêm do arquivo, mas outras instâncias podem ter em mãos blocos da sequence de produto (pooled-lo) ainda não
+ * usados. Antes de gravar cada lote a sequence é avançada além do maior id do lote, e um id novo abaixo do ponto em
+ * que a sequence estava é rejeitado: ele pode estar num desses blocos. Ids já existentes são só atualizados. Resta
+ * uma janela estreita entre ler e avançar a sequence em que outra instância pode pegar um bloco que cruza o lote.
+ */
+@Service
+public class ImportacaoCatalogoService {
+
+	private static final Logger log = LoggerFactory.getLogger(ImportacaoCatalogoService.class);
+
+	// atualizado_em marca a linha para o acompanhamento do SnapshotCatalogo
+	private static final String SQL_UPSERT = "MERGE INTO produto (id, nome, descricao, preco, peso, tipo, atualizado_em) "
+			+ "KEY (id) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+	private static final List<String> COLUNAS = List.of("id", "nome", "descricao", "preco", "peso", "tipo");
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ObjectMapper objectMapper;
+	private final BuscaProdutosService busca;
+	private final ReprecificacaoCarrinhosService reprecificacao;
+
+	private final int tamanhoLote;
+	private final int paralelismo;
+	private final int maxRejeicoesReportadas;
+	private final long intervaloProgresso;
+
+	public ImportacaoCatalogoService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, int tamanhoLote,
+			int paralelismo, int maxRejeicoesReportadas, long intervaloProgresso) {
+		this(jdbcTemplate, objectMapper, null, null, tamanhoLote, paralelismo, maxRejeicoesReportadas,
+				intervaloProgresso);
+	}
+
+	@Autowired
+	public ImportacaoCatalogoService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, BuscaProdutosService busca,
+			ReprecificacaoCarrinhosService reprecificacao,
+			@Value("${catalogo.importacao.tamanho-lote:1000}") int tamanhoLote,
+			@Value("${catalogo.importacao.paralelismo:4}") int paralelismo,
+			@Value("${catalogo.importacao.max-rejeicoes-reportadas:1000}") int maxRejeicoesReportadas,
+			@Value("${catalogo.importacao.intervalo-progresso:100000}") long intervaloProgresso) {
+		if (tamanhoLote <= 0 || paralelismo <= 0 || intervaloProgresso <= 0) {
+			throw new IllegalArgumentException(
+					"Tamanho do lote, paralelismo e intervalo de progresso devem ser positivos.");
+		}
+		this.jdbcTemplate = jdbcTemplate;
+		this.objectMapper = objectMapper;
+		this.busca = busca;
+		this.reprecificacao = reprecificacao;
+		this.tamanhoLote = tamanhoLote;
+		this.paralelismo = paralelismo;
+		this.maxRejeicoesReportadas = maxRejeicoesReportadas;
+		this.intervaloProgresso = intervaloProgresso;
+	}
+
+	public RelatorioImportacaoDTO importar(InputStream entrada, FormatoImportacao formato) {
+		long inicio = System.currentTimeMillis();
+		Importacao importacao = new Importacao();
+
+		ExecutorService executor = Executors.newFixedThreadPool(paralelismo);
+		try (BufferedReader leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+			LeitorLinha leitorLinha = formato == FormatoImportacao.CSV ? new LeitorCsv() : new LeitorJsonLinhas();
+
+			List<Object[]> lote = new ArrayList<>(tamanhoLote);
+			List<Long> linhasDoLote = new ArrayList<>(tamanhoLote);
+			long primeiraLinhaDoLote = 1;
+			long numeroLinha = 0;
+			String linha;
+			while ((linha = leitor.readLine()) != null) {
+				numeroLinha++;
+				if (linha.isBlank() || leitorLinha.cabecalho(linha, numeroLinha)) {
+					continue;
+				}
+				importacao.linhasLidas.incrementAndGet();
+				try {
+					lote.add(validar(leitorLinha.ler(linha)));
+					linhasDoLote.add(numeroLinha);
+				} catch (IllegalArgumentException e) {
+					importacao.rejeitar(numeroLinha, e.getMessage());
+				}
+
+				if (lote.size() == tamanhoLote) {
+					importacao.enviar(executor, lote, linhasDoLote, primeiraLinhaDoLote, numeroLinha);
+					lote = new ArrayList<>(tamanhoLote);
+					linhasDoLote = new ArrayList<>(tamanhoLote);
+					primeiraLinhaDoLote = numeroLinha + 1;
+				}
+				if (numeroLinha % intervaloProgresso == 0) {
+					log.info("Importação do catálogo: {} linhas lidas, {} produtos gravados, {} rejeitadas", numeroLinha,
+							importacao.importados.get(), importacao.rejeitadas.get());
+				}
+			}
+			if (!lote.isEmpty()) {
+				importacao.enviar(executor, lote, linhasDoLote, primeiraLinhaDoLote, numeroLinha);
+			}
+			importacao.aguardar();
+			importacao.reprecificarTodosSePendente();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Erro ao ler arquivo de importação.", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Importação interrompida.", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		RelatorioImportacaoDTO relatorio = new RelatorioImportacaoDTO(importacao.linhasLidas.get(),
+				importacao.importados.get(), importacao.rejeitadas.get(), importacao.rejeicoes(),
+				System.currentTimeMillis() - inicio);
+		log.info("Importação do catálogo concluída: {} linhas lidas, {} produtos gravados, {} rejeitadas em {} ms",
+				relatorio.linhasLidas(), relatorio.produtosImportados(), relatorio.linhasRejeitadas(),
+				relatorio.duracaoMs());
+		return relatorio;
+	}
+
+	private Object[] validar(Map<String, String> campos) {
+		Long id = parseLong(campos.get("id"), "id");
+		if (id <= 0) {
+			throw new IllegalArgumentException("id deve ser positivo.");
+		}
+
+		String nome = campos.get("nome");
+		if (nome == null || nome.isBlank()) {
+			throw new IllegalArgumentException("nome obrigatório.");
+		}
+
+		BigDecimal preco;
+		try {
+			preco = new BigDecimal(obrigatorio(campos.get("preco"), "preco"));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("preco inválido: " + campos.get("preco"));
+		}
+		if (preco.signum() < 0) {
+			throw new IllegalArgumentException("preco não pode ser negativo.");
+		}
+		if (preco.stripTrailingZeros().scale() > 2) {
+			throw new IllegalArgumentException("preco com mais de duas casas decimais: " + preco);
+		}
+
+		long peso = parseLong(campos.get("peso"), "peso");
+		if (peso < 0 || peso > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("peso fora do intervalo: " + peso);
+		}
+
+		TipoProduto tipo;
+		try {
+			tipo = TipoProduto.valueOf(obrigatorio(campos.get("tipo"), "tipo").trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("tipo inválido: " + campos.get("tipo"));
+		}
+
+		return new Object[] { id, nome.trim(), campos.get("descricao"), preco, (int) peso, tipo.name() };
+	}
+
+	private static Produto produto(Object[] linha) {
+		return new Produto((Long) linha[0], (String) linha[1], (String) linha[2], (BigDecimal) linha[3],
+				(Integer) linha[4], TipoProduto.valueOf((String) linha[5]));
+	}
+
+	private static String obrigatorio(String valor, String campo) {
+		if (valor == null || valor.isBlank()) {
+			throw new IllegalArgumentException(campo + " obrigatório.");
+		}
+		return valor;
+	}
+
+	private static long parseLong(String valor, String campo) {
+		try {
+			return Long.parseLong(obrigatorio(valor, campo).trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(campo + " inválido: " + valor);
+		}
+	}
+
+	/**
+	 * Estado de uma execução: contadores e lotes em voo. Os lotes são gravados pelo pool enquanto a thread
+	 * chamadora continua lendo; o semáforo impede que a leitura se adiante demais da escrita.
+	 */
+	private class Importacao {
+		private final AtomicLong linhasLidas = new AtomicLong();
+		private final AtomicLong importados = new AtomicLong();
+		private final AtomicLong rejeitadas = new AtomicLong();
+		private final List<LinhaRejeitadaDTO> rejeicoes = new ArrayList<>();
+		private final Semaphore lotesEmVoo = new Semaphore(paralelismo * 2);
+		private final List<Future<?>> pendentes = new ArrayList<>();
+		// Faixas de ids (início -> fim) reservadas na sequence por esta importação
+		private final TreeMap<Long, Long> faixasReservadas = new TreeMap<>();
+		private Long incrementoSequence;
+		private final AtomicBoolean reprecificarTodos = new AtomicBoolean();
+
+		void enviar(ExecutorService executor, List<Object[]> lote, List<Long> linhas, long primeiraLinha,
+				long ultimaLinha) throws InterruptedException {
+			lotesEmVoo.acquire();
+			pendentes.removeIf(Future::isDone);
+			pendentes.add(executor.submit(() -> {
+				try {
+					reservarIds(lote, linhas);
+					if (lote.isEmpty()) {
+						return;
+					}
+					jdbcTemplate.batchUpdate(SQL_UPSERT, lote);
+					importados.addAndGet(lote.size());
+					if (busca != null) {
+						busca.indexar(lote.stream().map(ImportacaoCatalogoService::produto).toList());
+					}
+					reprecificar(lote, primeiraLinha, ultimaLinha);
+				} catch (RuntimeException e) {
+					log.warn("Falha ao gravar lote das linhas {} a {}", primeiraLinha, ultimaLinha, e);
+					rejeitarLote(lote.size(), primeiraLinha, ultimaLinha, e);
+				} finally {
+					lotesEmVoo.release();
+				}
+			}));
+		}
+
+		/** O lote já está gravado: uma falha aqui não o rejeita, só fica no log. */
+		private void reprecificar(List<Object[]> lote, long primeiraLinha, long ultimaLinha) {
+			if (reprecificacao == null) {
+				return;
+			}
+			try {
+				List<Long> ids = lote.stream().map(linha -> (Long) linha[0]).toList();
+				if (reprecificacao.reprecificarProdutosIndexados(ids) == null) {
+					reprecificarTodos.set(true);
+				}
+			} catch (RuntimeException e) {
+				log.warn("Falha ao reprecificar carrinhos do lote das linhas {} a {}", primeiraLinha, ultimaLinha, e);
+			}
+		}
+
+		void reprecificarTodosSePendente() {
+			if (reprecificarTodos.get()) {
+				reprecificacao.reprecificar();
+			}
+		}
+
+		/**
+		 * Avança a sequence além do maior id do lote e tira do lote os ids novos que podem estar em blocos já
+		 * entregues a outras instâncias.
+		 */
+		synchronized void reservarIds(List<Object[]> lote, List<Long> linhas) {
+			if (incrementoSequence == null) {
+				Long incremento = jdbcTemplate.queryForObject(
+						"SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'PRODUTO_SEQ'",
+						Long.class);
+				incrementoSequence = incremento != null && incremento > 0 ? incremento : 1;
+			}
+			Long proximo = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR produto_seq", Long.class);
+			if (proximo == null) {
+				return;
+			}
+			long maiorId = lote.stream().mapToLong(linha -> (Long) linha[0]).max().orElse(0);
+			// O bloco que acabou de sair da sequence é desta importação
+			long fimReservado = proximo + incrementoSequence - 1;
+			if (maiorId > fimReservado) {
+				jdbcTemplate.execute("ALTER SEQUENCE produto_seq RESTART WITH " + (maiorId + 1));
+				fimReservado = maiorId;
+			}
+
+			Set<Long> suspeitos = new HashSet<>();
+			for (Object[] linha : lote) {
+				long id = (Long) linha[0];
+				if (id < proximo && !reservado(id)) {
+					suspeitos.add(id);
+				}
+			}
+			faixasReservadas.put(proximo, fimReservado);
+			if (suspeitos.isEmpty()) {
+				return;
+			}
+			String marcadores = String.join(",", Collections.nCopies(suspeitos.size(), "?"));
+			Set<Long> existentes = new HashSet<>(jdbcTemplate.queryForList(
+					"SELECT id FROM produto WHERE id IN (" + marcadores + ")", Long.class, suspeitos.toArray()));
+			for (int i = lote.size() - 1; i >= 0; i--) {
+				Long id = (Long) lote.get(i)[0];
+				if (suspeitos.contains(id) && !existentes.contains(id)) {
+					rejeitar(linhas.get(i), "id " + id + " novo e abaixo da sequence de produto: pode já ter sido "
+							+ "entregue a outra instância.");
+					lote.remove(i);
+				}
+			}
+		}
+
+		private boolean reservado(long id) {
+			Map.Entry<Long, Long> faixa = faixasReservadas.floorEntry(id);
+			return faixa != null && id <= faixa.getValue();
+		}
+
+		void aguardar() throws InterruptedException {
+			for (Future<?> pendente : pendentes) {
+				try {
+					pendente.get();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Erro inesperado ao gravar lote.", e.getCause());
+				}
+			}
+		}
+
+		synchronized void rejeitar(long linha, String motivo) {
+			rejeitadas.incrementAndGet();
+			if (rejeicoes.size() < maxRejeicoesReportadas) {
+				rejeicoes.add(new LinhaRejeitadaDTO(linha, motivo));
+			}
+		}
+
+		synchronized void rejeitarLote(int tamanho, long primeiraLinha, long ultimaLinha, RuntimeException erro) {
+			rejeitadas.addAndGet(tamanho);
+			if (rejeicoes.size() < maxRejeicoesReportadas) {
+				rejeicoes.add(new LinhaRejeitadaDTO(primeiraLinha,
+						"Lote das linhas " + primeiraLinha + " a " + ultimaLinha + " não gravado: " + erro.getMessage()));
+			}
+		}
+
+		synchronized List<LinhaRejeitadaDTO> rejeicoes() {
+			return List.copyOf(rejeicoes);
+		}
+	}
+
+	private interface LeitorLinha {
+
+		/** Consome a linha se ela for um cabeçalho. */
+		boolean cabecalho(String linha, long numeroLinha);
+
+		Map<String, String> ler(String linha);
+	}
+
+	private static class LeitorCsv implements LeitorLinha {
+		private List<String> colunas;
+
+		@Override
+		public boolean cabecalho(String linha, long numeroLinha) {
+			if (colunas != null) {
+				return false;
+			}
+			List<String> nomes = separar(linha).stream().map(c -> c.trim().toLowerCase()).toList();
+			if (!nomes.containsAll(COLUNAS)) {
+				throw new IllegalArgumentException("Cabeçalho CSV deve conter as colunas " + COLUNAS);
+			}
+			colunas = nomes;
+			return true;
+		}
+
+		@Override
+		public Map<String, String> ler(String linha) {
+			List<String> valores = separar(linha);
+			if (valores.size() != colunas.size()) {
+				throw new IllegalArgumentException(
+						"Esperadas " + colunas.size() + " colunas, encontradas " + valores.size() + ".");
+			}
+			Map<String, String> campos = new HashMap<>();
+			for (int i = 0; i < colunas.size(); i++) {
+				campos.put(colunas.get(i), valores.get(i));
+			}
+			return campos;
+		}
+
+		/** Separa por ';' respeitando campos entre aspas duplas ("" escapa uma aspa). */
+		private static List<String> separar(String linha) {
+			List<String> valores = new ArrayList<>();
+			StringBuilder atual = new StringBuilder();
+			boolean entreAspas = false;
+			for (int i = 0; i < linha.length(); i++) {
+				char c = linha.charAt(i);
+				if (entreAspas) {
+					if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+						atual.append('"');
+						i++;
+					} else if (c == '"') {
+						entreAspas = false;
+					} else {
+						atual.append(c);
+					}
+				} else if (c == '"') {
+					entreAspas = true;
+				} else if (c == ';') {
+					valores.add(atual.toString());
+					atual.setLength(0);
+				} else {
+					atual.append(c);
+				}
+			}
+			if (entreAspas) {
+				throw new IllegalArgumentException("Aspas não fechadas.");
+			}
+			valores.add(atual.toString());
+			return valores;
+		}
+	}
+
+	private class LeitorJsonLinhas implements LeitorLinha {
+
+		@Override
+		public boolean cabecalho(String linha, long numeroLinha) {
+			return false;
+		}
+
+		@Override
+		public Map<String, String> ler(String linha) {
+			JsonNode no;
+			try {
+				no = objectMapper.readTree(linha);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("JSON inválido.");
+			}
+			if (no == null || !no.isObject()) {
+				throw new IllegalArgumentException("Linha não é um objeto JSON.");
+			}
+			Map<String, String> campos = new HashMap<>();
+			for (String coluna : COLUNAS) {
+				JsonNode valor = no.get(coluna);
+				campos.put(coluna, valor == null || valor.isNull() ? null : valor.asText());
+			}
+			return campos;
+		}
+	}
+}
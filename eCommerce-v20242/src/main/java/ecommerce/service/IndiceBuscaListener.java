@@ -0,0 +1,36 @@
+package ecommerce.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+
+import ecommerce.entity.Produto;
+import ecommerce.util.AposCommit;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Leva ao {@link BuscaProdutosService} os produtos gravados pelo JPA, depois do commit; sem o serviço no contexto não
+ * faz nada.
+ */
+public class IndiceBuscaListener {
+
+	private final ObjectProvider<BuscaProdutosService> busca;
+
+	public IndiceBuscaListener(ObjectProvider<BuscaProdutosService> busca) {
+		this.busca = busca;
+	}
+
+	@PostPersist
+	@PostUpdate
+	public void aposGravar(Produto produto) {
+		busca.ifAvailable(b -> AposCommit.executar(() -> b.indexar(List.of(produto))));
+	}
+
+	@PostRemove
+	public void aposRemover(Produto produto) {
+		Long id = produto.getId();
+		busca.ifAvailable(b -> AposCommit.executar(() -> b.remover(id)));
+	}
+}
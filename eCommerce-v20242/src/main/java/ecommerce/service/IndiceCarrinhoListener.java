@@ -0,0 +1,54 @@
+package ecommerce.service;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.util.AposCommit;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Leva ao {@link IndiceProdutoCarrinhos} os carrinhos gravados pelo JPA, depois do commit. Instanciado pelo Hibernate
+ * via container do Spring; sem o índice no contexto (ex.: testes de repositório) não faz nada.
+ *
+ * Mudanças de status pelo update condicional do repositório não passam por aqui; a saída do carrinho do índice
+ * vem do {@link CompraFinalizadaEvent}.
+ */
+public class IndiceCarrinhoListener {
+
+	private final ObjectProvider<IndiceProdutoCarrinhos> indice;
+
+	public IndiceCarrinhoListener(ObjectProvider<IndiceProdutoCarrinhos> indice) {
+		this.indice = indice;
+	}
+
+	@PostPersist
+	@PostUpdate
+	public void aposGravar(CarrinhoDeCompras carrinho) {
+		IndiceProdutoCarrinhos indice = this.indice.getIfAvailable();
+		// Itens não carregados não foram editados: o @Version só muda com a coleção se ela foi alterada
+		if (indice != null && Hibernate.isInitialized(carrinho.getItens())) {
+			Long id = carrinho.getId();
+			List<Long> produtoIds = produtoIds(carrinho); // Itens como estão no flush, não no commit
+			AposCommit.executar(() -> indice.adicionar(id, produtoIds));
+		}
+	}
+
+	@PostRemove
+	public void aposRemover(CarrinhoDeCompras carrinho) {
+		IndiceProdutoCarrinhos indice = this.indice.getIfAvailable();
+		if (indice != null && Hibernate.isInitialized(carrinho.getItens())) {
+			Long id = carrinho.getId();
+			List<Long> produtoIds = produtoIds(carrinho);
+			AposCommit.executar(() -> indice.remover(id, produtoIds));
+		}
+	}
+
+	private static List<Long> produtoIds(CarrinhoDeCompras carrinho) {
+		return carrinho.getItens().stream().map(IndiceProdutoCarrinhos::produtoId).toList();
+	}
+}
@@ -0,0 +1,195 @@
+package ecommerce.service;
+
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ecommerce.entity.ItemCompra;
+import ecommerce.util.ConjuntoLong;
+
+/**
+ * Índice reverso produto -> carrinhos não finalizados que o contêm, para que uma mudança de preço ou peso recalcule
+ * só os carrinhos afetados ({@link ReprecificacaoCarrinhosService#reprecificarProdutos}).
+ *
+ * Construído na subida a partir de {@code item_compra} e mantido por {@link IndiceCarrinhoListener} (carrinhos
+ * gravados) e por {@link CompraFinalizadaEvent} (carrinhos que saem). Os ids de cada produto ficam num
+ * {@link ConjuntoLong}: de 11 a 21 bytes por linha de carrinho, contra ~55 de um {@code HashSet<Long>}.
+ *
+ * Um item removido do carrinho não sai do índice (o listener só vê o estado novo); a entrada sobrando só faz o
+ * carrinho ser recalculado sem necessidade. Nunca falta carrinho: a carga inicial só acrescenta.
+ */
+@Service
+public class IndiceProdutoCarrinhos {
+
+	private static final Logger log = LoggerFactory.getLogger(IndiceProdutoCarrinhos.class);
+
+	private static final String SQL_ITENS_PENDENTES = "SELECT i.produto_id, i.carrinho_id "
+			+ "FROM item_compra i "
+			+ "JOIN carrinho_de_compras c ON c.id = i.carrinho_id "
+			+ "WHERE c.status <> 'FINALIZADO' AND i.produto_id IS NOT NULL";
+	private static final int LINHAS_POR_TRAVA = 4096;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final Map<Long, ConjuntoLong> carrinhosPorProduto = new HashMap<>();
+	private final StampedLock trava = new StampedLock();
+	private long linhas;
+	private volatile boolean pronto;
+
+	@Autowired
+	public IndiceProdutoCarrinhos(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Carga inicial. Edições concorrentes vão direto para o índice; a carga entra em blocos sob a trava de escrita,
+	 * então não bloqueia as gravações de carrinho pelo tempo da varredura inteira.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void construir() {
+		long inicio = System.currentTimeMillis();
+		long[] bloco = new long[2 * LINHAS_POR_TRAVA];
+		int[] preenchidos = new int[1];
+		jdbcTemplate.query(con -> {
+			var ps = con.prepareStatement(SQL_ITENS_PENDENTES);
+			ps.setFetchSize(LINHAS_POR_TRAVA);
+			return ps;
+		}, (ResultSet rs) -> {
+			bloco[preenchidos[0]++] = rs.getLong(1);
+			bloco[preenchidos[0]++] = rs.getLong(2);
+			if (preenchidos[0] == bloco.length) {
+				adicionarPares(bloco, preenchidos[0]);
+				preenchidos[0] = 0;
+			}
+		});
+		adicionarPares(bloco, preenchidos[0]);
+		pronto = true;
+		log.info("Índice produto -> carrinhos: {} linhas, {} produtos em {} ms", linhas(), produtos(),
+				System.currentTimeMillis() - inicio);
+	}
+
+	/** Se a carga inicial terminou; antes disso {@link #carrinhosCom} pode omitir carrinhos. */
+	public boolean pronto() {
+		return pronto;
+	}
+
+	/** Registra que o carrinho contém os produtos; ids repetidos ou já registrados são ignorados. */
+	public void adicionar(long carrinhoId, Collection<Long> produtoIds) {
+		long stamp = trava.writeLock();
+		try {
+			for (Long produtoId : produtoIds) {
+				if (produtoId != null) {
+					adicionar(produtoId, carrinhoId);
+				}
+			}
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	public void remover(long carrinhoId, Collection<Long> produtoIds) {
+		long stamp = trava.writeLock();
+		try {
+			for (Long produtoId : produtoIds) {
+				ConjuntoLong carrinhos = produtoId == null ? null : carrinhosPorProduto.get(produtoId);
+				if (carrinhos != null && carrinhos.remover(carrinhoId)) {
+					linhas--;
+					if (carrinhos.tamanho() == 0) {
+						carrinhosPorProduto.remove(produtoId);
+					}
+				}
+			}
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCompraFinalizada(CompraFinalizadaEvent evento) {
+		try {
+			remover(evento.carrinhoId(), evento.itens().stream().map(IndiceProdutoCarrinhos::produtoId).toList());
+		} catch (RuntimeException e) {
+			// O carrinho fica no índice e só custa um recálculo a mais, que o filtra por status
+			log.error("Falha ao tirar do índice o carrinho finalizado {}", evento.carrinhoId(), e);
+		}
+	}
+
+	/** Carrinhos que contêm ao menos um dos produtos, sem repetição e em ordem qualquer. */
+	public long[] carrinhosCom(Collection<Long> produtoIds) {
+		long stamp = trava.readLock();
+		try {
+			if (produtoIds.size() == 1) {
+				ConjuntoLong carrinhos = carrinhosPorProduto.get(produtoIds.iterator().next());
+				return carrinhos == null ? new long[0] : paraArray(carrinhos);
+			}
+			ConjuntoLong uniao = new ConjuntoLong();
+			for (Long produtoId : produtoIds) {
+				ConjuntoLong carrinhos = carrinhosPorProduto.get(produtoId);
+				if (carrinhos != null) {
+					carrinhos.paraCada(uniao::adicionar);
+				}
+			}
+			return paraArray(uniao);
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	/** Pares (produto, carrinho) no índice. */
+	public long linhas() {
+		long stamp = trava.readLock();
+		try {
+			return linhas;
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	public int produtos() {
+		long stamp = trava.readLock();
+		try {
+			return carrinhosPorProduto.size();
+		} finally {
+			trava.unlockRead(stamp);
+		}
+	}
+
+	static Long produtoId(ItemCompra item) {
+		return item.getProduto() == null ? null : item.getProduto().getId();
+	}
+
+	private void adicionarPares(long[] pares, int tamanho) {
+		long stamp = trava.writeLock();
+		try {
+			for (int i = 0; i < tamanho; i += 2) {
+				adicionar(pares[i], pares[i + 1]);
+			}
+		} finally {
+			trava.unlockWrite(stamp);
+		}
+	}
+
+	private void adicionar(long produtoId, long carrinhoId) {
+		if (carrinhosPorProduto.computeIfAbsent(produtoId, id -> new ConjuntoLong()).adicionar(carrinhoId)) {
+			linhas++;
+		}
+	}
+
+	private static long[] paraArray(ConjuntoLong conjunto) {
+		long[] ids = new long[conjunto.tamanho()];
+		int[] i = new int[1];
+		conjunto.paraCada(id -> ids[i[0]++] = id);
+		return ids;
+	}
+}
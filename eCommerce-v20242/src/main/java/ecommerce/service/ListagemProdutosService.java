@@ -0,0 +1,137 @@
+package ecommerce.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.dto.ProdutoResumoDTO;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Listagem do catálogo em páginas por chave: ordem (tipo, preco, id) e um cursor com a chave da última linha
+ * entregue, então a página 1000 custa o mesmo que a primeira (com OFFSET o banco percorre e descarta todas as
+ * linhas anteriores).
+ *
+ * A página é escrita em JSON à medida que as linhas chegam do banco, sem montar a lista:
+ * {@code {"produtos": [...], "proximo": "<cursor>"}}, com {@code proximo} nulo na última página.
+ */
+@Service
+public class ListagemProdutosService {
+
+	public static final int LIMITE_MAXIMO = 1000;
+
+	private final ProdutoRepository repository;
+	private final TransactionTemplate transacao;
+	private final ObjectMapper objectMapper;
+
+	@Autowired
+	public ListagemProdutosService(ProdutoRepository repository, PlatformTransactionManager transactionManager,
+			ObjectMapper objectMapper) {
+		this.repository = repository;
+		this.transacao = new TransactionTemplate(transactionManager);
+		this.transacao.setReadOnly(true);
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Valida os parâmetros já (erros viram IllegalArgumentException antes de a resposta começar) e devolve o corpo,
+	 * que consulta e escreve quando o MVC o executar.
+	 */
+	public StreamingResponseBody listar(TipoProduto tipo, String cursor, int limite) {
+		if (limite <= 0 || limite > LIMITE_MAXIMO) {
+			throw new IllegalArgumentException("Limite deve estar entre 1 e " + LIMITE_MAXIMO + ".");
+		}
+		Cursor apos = cursor == null || cursor.isBlank() ? null : Cursor.decodificar(cursor);
+		if (apos != null && tipo != null && apos.tipo() != tipo) {
+			throw new IllegalArgumentException("Cursor de outro tipo de produto.");
+		}
+		return saida -> escrever(tipo, apos, limite, saida);
+	}
+
+	private void escrever(TipoProduto tipo, Cursor apos, int limite, OutputStream saida) throws IOException {
+		JsonGenerator json = objectMapper.getFactory().createGenerator(saida)
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		try {
+			transacao.executeWithoutResult(status -> {
+				// Uma linha a mais só para saber se há próxima página
+				try (Stream<ProdutoResumoDTO> linhas = consultar(tipo, apos, PageRequest.ofSize(limite + 1))) {
+					json.writeStartObject();
+					json.writeArrayFieldStart("produtos");
+					ProdutoResumoDTO ultimo = null;
+					int escritos = 0;
+					Iterator<ProdutoResumoDTO> iterador = linhas.iterator();
+					while (iterador.hasNext()) {
+						ProdutoResumoDTO produto = iterador.next();
+						if (escritos == limite) {
+							json.writeEndArray();
+							json.writeStringField("proximo", new Cursor(ultimo.tipo(), ultimo.preco(), ultimo.id())
+									.codificar());
+							json.writeEndObject();
+							return;
+						}
+						json.writeObject(produto);
+						ultimo = produto;
+						escritos++;
+					}
+					json.writeEndArray();
+					json.writeNullField("proximo");
+					json.writeEndObject();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			json.close();
+		}
+	}
+
+	private Stream<ProdutoResumoDTO> consultar(TipoProduto tipo, Cursor apos, Pageable pagina) {
+		if (tipo == null) {
+			return apos == null ? repository.listarInicio(pagina)
+					: repository.listarApos(apos.tipo(), apos.preco(), apos.id(), pagina);
+		}
+		return apos == null ? repository.listarInicioDoTipo(tipo, pagina)
+				: repository.listarAposDoTipo(tipo, apos.preco(), apos.id(), pagina);
+	}
+
+	/** Chave da última linha entregue; vai ao cliente como texto opaco (base64 de "tipo|preco|id"). */
+	public record Cursor(TipoProduto tipo, BigDecimal preco, long id) {
+
+		public String codificar() {
+			String chave = tipo.name() + "|" + preco.toPlainString() + "|" + id;
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(chave.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public static Cursor decodificar(String cursor) {
+			try {
+				String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+						.split("\\|", -1);
+				if (partes.length != 3) {
+					throw new IllegalArgumentException("Cursor inválido.");
+				}
+				return new Cursor(TipoProduto.valueOf(partes[0]), new BigDecimal(partes[1]), Long.parseLong(partes[2]));
+			} catch (IllegalArgumentException e) { // Base64, enum e números inválidos
+				throw new IllegalArgumentException("Cursor inválido.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package ecommerce.service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Instante limite de uma requisição, medido pelo relógio monotônico da JVM.
+ *
+ * Durante {@link #aplicar} o prazo fica disponível em {@link #atual()} para quem está mais abaixo na pilha
+ * (admissão, travas, clientes de estoque e pagamento), que devem esperar no máximo {@link #restante()}.
+ */
+public final class Prazo {
+
+	private static final Prazo SEM_PRAZO = new Prazo(Long.MAX_VALUE);
+	private static final ThreadLocal<Prazo> ATUAL = new ThreadLocal<>();
+
+	private final long limiteNanos;
+
+	private Prazo(long limiteNanos) {
+		this.limiteNanos = limiteNanos;
+	}
+
+	public static Prazo em(Duration duracao) {
+		if (duracao.isNegative() || duracao.isZero()) {
+			throw new IllegalArgumentException("Prazo deve ser positivo.");
+		}
+		return new Prazo(System.nanoTime() + duracao.toNanos());
+	}
+
+	public static Prazo semPrazo() {
+		return SEM_PRAZO;
+	}
+
+	/** Prazo da requisição em andamento nesta thread, ou {@link #semPrazo()}. */
+	public static Prazo atual() {
+		Prazo prazo = ATUAL.get();
+		return prazo == null ? SEM_PRAZO : prazo;
+	}
+
+	public boolean ilimitado() {
+		return this == SEM_PRAZO;
+	}
+
+	public Duration restante() {
+		if (ilimitado()) {
+			return Duration.ofNanos(Long.MAX_VALUE);
+		}
+		return Duration.ofNanos(Math.max(0, limiteNanos - System.nanoTime()));
+	}
+
+	public boolean esgotado() {
+		return !ilimitado() && System.nanoTime() - limiteNanos >= 0;
+	}
+
+	static String mensagemEsgotado(String etapa) {
+		return "Prazo da requisição esgotado antes de " + etapa + ".";
+	}
+
+	public <T> T aplicar(Supplier<T> acao) {
+		Prazo anterior = ATUAL.get();
+		ATUAL.set(this);
+		try {
+			return acao.get();
+		} finally {
+			if (anterior == null) {
+				ATUAL.remove();
+			} else {
+				ATUAL.set(anterior);
+			}
+		}
+	}
+}
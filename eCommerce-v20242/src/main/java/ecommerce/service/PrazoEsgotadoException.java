@@ -0,0 +1,14 @@
+package ecommerce.service;
+
+/**
+ * O prazo da requisição acabou antes de uma etapa da compra, que não foi executada, ou durante uma chamada remota,
+ * que foi abandonada sem resposta.
+ */
+public class PrazoEsgotadoException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	public PrazoEsgotadoException(String message) {
+		super(message);
+	}
+}
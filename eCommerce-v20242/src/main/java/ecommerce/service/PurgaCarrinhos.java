@@ -0,0 +1,205 @@
+package ecommerce.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.dto.RelatorioPurgaDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Apaga carrinhos abandonados: status ABERTO e {@code data} mais antiga que {@code idade}. Carrinhos finalizados são
+ * histórico e ficam. Entra também o carrinho preso EM_FINALIZACAO por uma finalização que morreu, se a reserva
+ * começou antes da data de corte.
+ *
+ * Cada lote é uma transação curta com DELETEs em massa por id (itens, depois carrinhos), sem carregar entidades nem
+ * passar pelo cascade do JPA. Os carrinhos do lote são travados com SELECT ... FOR UPDATE, então uma finalização
+ * que chegue no meio espera o lote terminar e encontra o carrinho já apagado.
+ *
+ * A purga se regula pela latência do banco: o lote cresce de {@code loteMinimo} em {@code loteMinimo} enquanto cada
+ * lote fica abaixo de {@code latenciaAlvo} e cai pela metade quando passa (AIMD).
+ * Entre lotes a purga dorme {@code pausaRelativa} vezes o tempo do último lote, então nunca ocupa o banco mais que
+ * 1 / (1 + pausaRelativa) do tempo.
+ */
+public class PurgaCarrinhos {
+
+	private static final Logger log = LoggerFactory.getLogger(PurgaCarrinhos.class);
+
+	private static final String SQL_LOTE = "SELECT id FROM carrinho_de_compras "
+			+ "WHERE (status = 'ABERTO' OR (status = 'EM_FINALIZACAO' AND inicio_finalizacao < ?)) AND data < ? "
+			+ "FETCH FIRST ? ROWS ONLY FOR UPDATE";
+	private static final String SQL_ITENS = "SELECT carrinho_id, produto_id FROM item_compra WHERE carrinho_id IN (%s)";
+	private static final String SQL_APAGAR_ITENS = "DELETE FROM item_compra WHERE carrinho_id IN (%s)";
+	private static final String SQL_APAGAR_CARRINHOS = "DELETE FROM carrinho_de_compras WHERE id IN (%s)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transacao;
+	private final IndiceProdutoCarrinhos indice;
+	private final BooleanSupplier habilitado;
+	private final Duration idade;
+	private final int loteMinimo;
+	private final int loteMaximo;
+	private final long latenciaAlvoMs;
+	private final double pausaRelativa;
+	private final Clock clock;
+
+	private final AtomicBoolean executando = new AtomicBoolean();
+	private final Counter carrinhosApagados;
+	private final Counter itensApagados;
+	private final Timer latenciaLote;
+
+	public PurgaCarrinhos(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			IndiceProdutoCarrinhos indice, BooleanSupplier habilitado, Duration idade, int loteMinimo, int loteMaximo,
+			Duration latenciaAlvo, double pausaRelativa, Clock clock, MeterRegistry registry) {
+		if (loteMinimo <= 0 || loteMaximo < loteMinimo) {
+			throw new IllegalArgumentException("Lote mínimo deve ser positivo e não maior que o máximo.");
+		}
+		if (pausaRelativa < 0) {
+			throw new IllegalArgumentException("Pausa relativa não pode ser negativa.");
+		}
+		this.jdbcTemplate = jdbcTemplate;
+		this.transacao = new TransactionTemplate(transactionManager);
+		this.indice = indice;
+		this.habilitado = habilitado;
+		this.idade = idade;
+		this.loteMinimo = loteMinimo;
+		this.loteMaximo = loteMaximo;
+		this.latenciaAlvoMs = latenciaAlvo.toMillis();
+		this.pausaRelativa = pausaRelativa;
+		this.clock = clock;
+		this.carrinhosApagados = Counter.builder("carrinhos.purga.carrinhos")
+				.description("Carrinhos abandonados apagados pela purga").register(registry);
+		this.itensApagados = Counter.builder("carrinhos.purga.itens")
+				.description("Itens de carrinhos abandonados apagados pela purga").register(registry);
+		this.latenciaLote = Timer.builder("carrinhos.purga.lote")
+				.description("Duração de cada lote da purga (transação com os DELETEs)").register(registry);
+	}
+
+	/** {@code habilitado} é consultado a cada execução agendada: desligar a purga não exige reiniciar. */
+	@Scheduled(initialDelayString = "${carrinhos.purga.atraso-inicial-ms:300000}",
+			fixedDelayString = "${carrinhos.purga.intervalo-ms:3600000}")
+	public void purgarAgendado() {
+		if (habilitado.getAsBoolean()) {
+			purgar();
+		}
+	}
+
+	/**
+	 * Apaga todos os carrinhos abandonados até a data de corte de agora, lote a lote. Devolve null se outra execução
+	 * já estiver em andamento.
+	 */
+	public RelatorioPurgaDTO purgar() {
+		if (!executando.compareAndSet(false, true)) {
+			log.info("Purga de carrinhos já em execução; ignorando");
+			return null;
+		}
+		try {
+			return executar(LocalDate.now(clock).minusDays(idade.toDays()));
+		} finally {
+			executando.set(false);
+		}
+	}
+
+	/** Próximo tamanho de lote: cresce linearmente abaixo do alvo, cai pela metade acima dele. */
+	public static int ajustarLote(int lote, long latenciaMs, long latenciaAlvoMs, int minimo, int maximo) {
+		if (latenciaMs > latenciaAlvoMs) {
+			return Math.max(minimo, lote / 2);
+		}
+		return Math.min(maximo, lote + minimo);
+	}
+
+	private RelatorioPurgaDTO executar(LocalDate corte) {
+		long inicio = System.nanoTime();
+		int lote = loteMinimo;
+		long carrinhos = 0;
+		long itens = 0;
+		int lotes = 0;
+		long latenciaMaxima = 0;
+		while (true) {
+			int tamanho = lote;
+			long inicioLote = System.nanoTime();
+			LoteApagado apagado = transacao.execute(status -> apagarLote(corte, tamanho));
+			long latencia = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioLote);
+			if (apagado.carrinhos() == 0) {
+				break;
+			}
+			apagado.produtosPorCarrinho().forEach(indice::remover);
+			lotes++;
+			carrinhos += apagado.carrinhos();
+			itens += apagado.itens();
+			latenciaMaxima = Math.max(latenciaMaxima, latencia);
+			latenciaLote.record(latencia, TimeUnit.MILLISECONDS);
+			carrinhosApagados.increment(apagado.carrinhos());
+			itensApagados.increment(apagado.itens());
+			lote = ajustarLote(lote, latencia, latenciaAlvoMs, loteMinimo, loteMaximo);
+			if (!pausar((long) (latencia * pausaRelativa))) {
+				break;
+			}
+		}
+		RelatorioPurgaDTO relatorio = new RelatorioPurgaDTO(corte, carrinhos, itens, lotes, lote, latenciaMaxima,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+		log.info("Purga de carrinhos abandonados antes de {}: {} carrinhos e {} itens em {} lotes, latência máxima "
+				+ "{} ms, lote final {}, {} ms", corte, relatorio.carrinhos(), relatorio.itens(), relatorio.lotes(),
+				relatorio.latenciaMaximaMs(), relatorio.tamanhoLoteFinal(), relatorio.duracaoMs());
+		return relatorio;
+	}
+
+	/** Apaga até {@code tamanho} carrinhos abandonados e seus itens. */
+	private LoteApagado apagarLote(LocalDate corte, int tamanho) {
+		Timestamp inicioCorte = Timestamp.from(corte.atStartOfDay(clock.getZone()).toInstant());
+		List<Long> ids = jdbcTemplate.queryForList(SQL_LOTE, Long.class, inicioCorte, Date.valueOf(corte), tamanho);
+		if (ids.isEmpty()) {
+			return new LoteApagado(0, 0, Map.of());
+		}
+		String marcadores = String.join(",", Collections.nCopies(ids.size(), "?"));
+		Object[] parametros = ids.toArray();
+
+		Map<Long, List<Long>> produtosPorCarrinho = new HashMap<>();
+		jdbcTemplate.query(String.format(SQL_ITENS, marcadores), rs -> {
+			long produtoId = rs.getLong(2);
+			if (!rs.wasNull()) {
+				produtosPorCarrinho.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(produtoId);
+			}
+		}, parametros);
+
+		int itens = jdbcTemplate.update(String.format(SQL_APAGAR_ITENS, marcadores), parametros);
+		int carrinhos = jdbcTemplate.update(String.format(SQL_APAGAR_CARRINHOS, marcadores), parametros);
+		return new LoteApagado(carrinhos, itens, produtosPorCarrinho);
+	}
+
+	private static boolean pausar(long ms) {
+		if (ms <= 0) {
+			return true;
+		}
+		try {
+			Thread.sleep(ms);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/** Produtos de cada carrinho apagado, para tirá-los do {@link IndiceProdutoCarrinhos} depois do commit. */
+	private record LoteApagado(int carrinhos, int itens, Map<Long, List<Long>> produtosPorCarrinho) {
+	}
+}
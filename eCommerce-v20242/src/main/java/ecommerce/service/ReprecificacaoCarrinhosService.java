@@ -0,0 +1,410 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.RelatorioReprecificacaoDTO;
+import ecommerce.entity.TipoCliente;
+import ecommerce.util.MapaLongLong;
+
+/**
+ * Recalcula o total estimado de todos os carrinhos abertos depois de uma mudança de preços no catálogo, com as
+ * mesmas regras de {@link CompraService#calcularCustoTotal}.
+ *
+ * Os carrinhos são lidos por JDBC para arrays primitivos em colunas ({@link Colunas}: itens de cada carrinho em
+ * posições contíguas, produto como índice nas colunas de preço e peso) e calculados em blocos de um
+ * {@link ForkJoinPool}, em milésimos de real ({@link CompraService#custoTotalMilesimos}). Os totais voltam ao banco
+ * em batches JDBC.
+ *
+ * {@link #reprecificarProdutos} faz o mesmo só para os carrinhos que o {@link IndiceProdutoCarrinhos} aponta como
+ * contendo os produtos alterados. É chamado pela importação do catálogo a cada lote gravado e, para produtos
+ * alterados pelo JPA, pelo {@link ReprecificacaoListener} depois do commit.
+ */
+@Service
+public class ReprecificacaoCarrinhosService {
+
+	private static final Logger log = LoggerFactory.getLogger(ReprecificacaoCarrinhosService.class);
+
+	/** Total de um carrinho que não pôde ser calculado (produto sem preço ou peso). */
+	public static final long SEM_TOTAL = Long.MIN_VALUE;
+
+	private static final int CARRINHOS_POR_BLOCO = 4096;
+
+	private static final byte SEM_TIPO = -1;
+	private static final int NAO_CARREGADO = -2;
+
+	private static final String SQL_PRODUTOS = "SELECT id, preco, peso FROM produto";
+	private static final String SQL_ITENS_ABERTOS = "SELECT c.id, cl.tipo, i.produto_id, i.quantidade "
+			+ "FROM carrinho_de_compras c "
+			+ "JOIN item_compra i ON i.carrinho_id = c.id "
+			+ "LEFT JOIN cliente cl ON cl.id = c.cliente_id "
+			+ "WHERE c.status = 'ABERTO' ORDER BY c.id";
+	// Mesmas linhas, só dos carrinhos pedidos, já com preço e peso (poucos produtos distintos por consulta)
+	private static final String SQL_ITENS_CARRINHOS = "SELECT c.id, cl.tipo, i.produto_id, i.quantidade, p.preco, p.peso "
+			+ "FROM carrinho_de_compras c "
+			+ "JOIN item_compra i ON i.carrinho_id = c.id "
+			+ "LEFT JOIN cliente cl ON cl.id = c.cliente_id "
+			+ "LEFT JOIN produto p ON p.id = i.produto_id "
+			+ "WHERE c.status = 'ABERTO' AND c.id IN (%s) ORDER BY c.id";
+	private static final String SQL_ATUALIZAR = "UPDATE carrinho_de_compras SET total_estimado = ? "
+			+ "WHERE id = ? AND status = 'ABERTO'";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final IndiceProdutoCarrinhos indice;
+	private final int paralelismo;
+	private final int tamanhoLote;
+
+	@Autowired
+	public ReprecificacaoCarrinhosService(JdbcTemplate jdbcTemplate, IndiceProdutoCarrinhos indice,
+			@Value("${catalogo.reprecificacao.paralelismo:4}") int paralelismo,
+			@Value("${catalogo.reprecificacao.tamanho-lote:1000}") int tamanhoLote) {
+		if (tamanhoLote <= 0 || paralelismo <= 0) {
+			throw new IllegalArgumentException("Tamanho do lote e paralelismo devem ser positivos.");
+		}
+		this.jdbcTemplate = jdbcTemplate;
+		this.indice = indice;
+		this.paralelismo = paralelismo;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	public RelatorioReprecificacaoDTO reprecificar() {
+		long inicio = System.currentTimeMillis();
+		RelatorioReprecificacaoDTO relatorio = calcularEGravar(carregar(), inicio);
+		log.info("Reprecificação: {} carrinhos abertos ({} itens), {} atualizados, {} ignorados em {} ms",
+				relatorio.carrinhos(), relatorio.itens(), relatorio.atualizados(), relatorio.ignorados(),
+				relatorio.duracaoMs());
+		return relatorio;
+	}
+
+	/**
+	 * Recalcula só os carrinhos abertos que contêm algum dos produtos, depois de mudança de preço ou peso deles.
+	 * Enquanto o índice não terminou a carga inicial, recalcula todos.
+	 */
+	public RelatorioReprecificacaoDTO reprecificarProdutos(Collection<Long> produtoIds) {
+		if (!indice.pronto()) {
+			log.info("Índice produto -> carrinhos ainda em carga; reprecificando todos os carrinhos");
+			return reprecificar();
+		}
+		return reprecificarPeloIndice(produtoIds);
+	}
+
+	/**
+	 * Como {@link #reprecificarProdutos}, mas com o índice ainda em carga não faz nada e devolve null: quem chama em
+	 * lotes (a importação) reprecifica todos uma vez só, no fim.
+	 */
+	public RelatorioReprecificacaoDTO reprecificarProdutosIndexados(Collection<Long> produtoIds) {
+		return indice.pronto() ? reprecificarPeloIndice(produtoIds) : null;
+	}
+
+	private RelatorioReprecificacaoDTO reprecificarPeloIndice(Collection<Long> produtoIds) {
+		long inicio = System.currentTimeMillis();
+		long[] carrinhoIds = indice.carrinhosCom(produtoIds);
+		Arrays.sort(carrinhoIds);
+		RelatorioReprecificacaoDTO relatorio = calcularEGravar(carregar(carrinhoIds), inicio);
+		log.info("Reprecificação de {} produtos: {} carrinhos no índice, {} abertos, {} atualizados em {} ms",
+				produtoIds.size(), carrinhoIds.length, relatorio.carrinhos(), relatorio.atualizados(),
+				relatorio.duracaoMs());
+		return relatorio;
+	}
+
+	private RelatorioReprecificacaoDTO calcularEGravar(Colunas colunas, long inicio) {
+		long[] totais;
+		if (colunas.carrinhos <= CARRINHOS_POR_BLOCO) {
+			totais = new long[colunas.carrinhos];
+			calcular(colunas, totais, 0, colunas.carrinhos); // Um bloco só: não vale subir um pool
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(paralelismo);
+			try {
+				totais = calcularTotais(colunas, pool);
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		long atualizados = 0;
+		long ignorados = 0;
+		List<Object[]> lote = new ArrayList<>(tamanhoLote);
+		for (int c = 0; c < colunas.carrinhos; c++) {
+			if (totais[c] == SEM_TOTAL) {
+				ignorados++;
+				continue;
+			}
+			lote.add(new Object[] { BigDecimal.valueOf(totais[c], 3), colunas.carrinhoIds[c] });
+			if (lote.size() == tamanhoLote) {
+				atualizados += gravar(lote);
+				lote.clear();
+			}
+		}
+		if (!lote.isEmpty()) {
+			atualizados += gravar(lote);
+		}
+		return new RelatorioReprecificacaoDTO(colunas.carrinhos, colunas.itens, atualizados, ignorados,
+				System.currentTimeMillis() - inicio);
+	}
+
+	/**
+	 * Total de cada carrinho de {@code colunas}, em milésimos de real, ou {@link #SEM_TOTAL}. Os blocos de carrinhos
+	 * são independentes e escrevem em posições distintas do resultado.
+	 */
+	public static long[] calcularTotais(Colunas colunas, ForkJoinPool pool) {
+		long[] totais = new long[colunas.carrinhos];
+		pool.invoke(new Bloco(colunas, totais, 0, colunas.carrinhos));
+		return totais;
+	}
+
+	private static void calcular(Colunas colunas, long[] totais, int de, int ate) {
+		int[] inicio = colunas.inicioItens;
+		int[] produto = colunas.produtoItem;
+		long[] quantidade = colunas.quantidadeItem;
+		long[] preco = colunas.precoCentavos;
+		int[] peso = colunas.peso;
+
+		for (int c = de; c < ate; c++) {
+			long subtotalCentavos = 0;
+			long pesoTotal = 0;
+			boolean valido = true;
+			for (int i = inicio[c]; i < inicio[c + 1]; i++) {
+				int p = produto[i];
+				if (p < 0) {
+					valido = false;
+					break;
+				}
+				subtotalCentavos += quantidade[i] * preco[p];
+				pesoTotal += quantidade[i] * peso[p];
+			}
+			if (!valido) {
+				totais[c] = SEM_TOTAL;
+				continue;
+			}
+
+			totais[c] = CompraService.custoTotalMilesimos(subtotalCentavos, pesoTotal, colunas.tipoCliente[c]);
+		}
+	}
+
+	private Colunas carregar() {
+		MapaLongLong indicePorProduto = new MapaLongLong(1024);
+		Colunas.Construtor construtor = new Colunas.Construtor();
+		jdbcTemplate.query(SQL_PRODUTOS, (ResultSet rs) -> {
+			BigDecimal preco = rs.getBigDecimal(2);
+			int peso = rs.getInt(3);
+			boolean pesoNulo = rs.wasNull();
+			int indice = preco == null || pesoNulo ? -1 : construtor.produto(centavos(preco), peso);
+			indicePorProduto.put(rs.getLong(1), indice);
+		});
+
+		CarrinhoAtual atual = new CarrinhoAtual();
+		jdbcTemplate.query(con -> {
+			var ps = con.prepareStatement(SQL_ITENS_ABERTOS);
+			ps.setFetchSize(tamanhoLote);
+			return ps;
+		}, (ResultSet rs) -> {
+			long carrinhoId = rs.getLong(1);
+			if (carrinhoId != atual.id) {
+				atual.id = carrinhoId;
+				construtor.carrinho(carrinhoId, tipo(rs.getString(2)));
+			}
+			long produtoId = rs.getLong(3);
+			int produto = rs.wasNull() ? -1 : (int) indicePorProduto.get(produtoId, -1);
+			construtor.item(produto, rs.getLong(4));
+		});
+		return construtor.construir();
+	}
+
+	/** Carrinhos abertos de {@code carrinhoIds} (ordenados), em consultas de até {@code tamanhoLote} ids. */
+	private Colunas carregar(long[] carrinhoIds) {
+		MapaLongLong indicePorProduto = new MapaLongLong(64);
+		Colunas.Construtor construtor = new Colunas.Construtor();
+		CarrinhoAtual atual = new CarrinhoAtual();
+		for (int de = 0; de < carrinhoIds.length; de += tamanhoLote) {
+			int ate = Math.min(de + tamanhoLote, carrinhoIds.length);
+			Object[] ids = new Object[ate - de];
+			for (int i = de; i < ate; i++) {
+				ids[i - de] = carrinhoIds[i];
+			}
+			String sql = String.format(SQL_ITENS_CARRINHOS, String.join(",", Collections.nCopies(ids.length, "?")));
+			jdbcTemplate.query(sql, (ResultSet rs) -> {
+				long carrinhoId = rs.getLong(1);
+				if (carrinhoId != atual.id) {
+					atual.id = carrinhoId;
+					construtor.carrinho(carrinhoId, tipo(rs.getString(2)));
+				}
+				long produtoId = rs.getLong(3);
+				if (rs.wasNull()) {
+					construtor.item(-1, rs.getLong(4));
+					return;
+				}
+				int produto = (int) indicePorProduto.get(produtoId, NAO_CARREGADO);
+				if (produto == NAO_CARREGADO) {
+					BigDecimal preco = rs.getBigDecimal(5);
+					int peso = rs.getInt(6);
+					produto = preco == null || rs.wasNull() ? -1 : construtor.produto(centavos(preco), peso);
+					indicePorProduto.put(produtoId, produto);
+				}
+				construtor.item(produto, rs.getLong(4));
+			}, ids);
+		}
+		return construtor.construir();
+	}
+
+	private int gravar(List<Object[]> lote) {
+		int atualizados = 0;
+		for (int linhas : jdbcTemplate.batchUpdate(SQL_ATUALIZAR, lote)) {
+			// Drivers podem devolver SUCCESS_NO_INFO (-2) em batches
+			atualizados += linhas == 0 ? 0 : 1;
+		}
+		return atualizados;
+	}
+
+	private static long centavos(BigDecimal preco) {
+		try {
+			return preco.movePointRight(2).longValueExact();
+		} catch (ArithmeticException e) {
+			throw new IllegalStateException("Preço com mais de duas casas decimais: " + preco, e);
+		}
+	}
+
+	private static byte tipo(String tipo) {
+		return tipo == null ? SEM_TIPO : (byte) TipoCliente.valueOf(tipo).ordinal();
+	}
+
+	private static final class CarrinhoAtual {
+		long id = Long.MIN_VALUE;
+	}
+
+	private static final class Bloco extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Colunas colunas;
+		private final long[] totais;
+		private final int de;
+		private final int ate;
+
+		Bloco(Colunas colunas, long[] totais, int de, int ate) {
+			this.colunas = colunas;
+			this.totais = totais;
+			this.de = de;
+			this.ate = ate;
+		}
+
+		@Override
+		protected void compute() {
+			if (ate - de <= CARRINHOS_POR_BLOCO) {
+				calcular(colunas, totais, de, ate);
+				return;
+			}
+			int meio = (de + ate) >>> 1;
+			invokeAll(new Bloco(colunas, totais, de, meio), new Bloco(colunas, totais, meio, ate));
+		}
+	}
+
+	/**
+	 * Carrinhos em colunas: os itens do carrinho {@code c} ocupam as posições {@code inicioItens[c]} até
+	 * {@code inicioItens[c + 1] - 1} de {@code produtoItem} e {@code quantidadeItem}; {@code produtoItem} indexa
+	 * {@code precoCentavos} e {@code peso}, ou vale -1 para produto inválido.
+	 */
+	public static final class Colunas {
+
+		final int carrinhos;
+		final int itens;
+		final long[] carrinhoIds;
+		final byte[] tipoCliente;
+		final int[] inicioItens;
+		final int[] produtoItem;
+		final long[] quantidadeItem;
+		final long[] precoCentavos;
+		final int[] peso;
+
+		private Colunas(Construtor c) {
+			this.carrinhos = c.carrinhos;
+			this.itens = c.itens;
+			this.carrinhoIds = Arrays.copyOf(c.carrinhoIds, c.carrinhos);
+			this.tipoCliente = Arrays.copyOf(c.tipoCliente, c.carrinhos);
+			this.inicioItens = Arrays.copyOf(c.inicioItens, c.carrinhos + 1);
+			this.inicioItens[c.carrinhos] = c.itens;
+			this.produtoItem = c.produtoItem;
+			this.quantidadeItem = c.quantidadeItem;
+			this.precoCentavos = c.precoCentavos;
+			this.peso = c.peso;
+		}
+
+		public int carrinhos() {
+			return carrinhos;
+		}
+
+		public long carrinhoId(int carrinho) {
+			return carrinhoIds[carrinho];
+		}
+
+		/** Monta as colunas carrinho a carrinho, crescendo os arrays conforme necessário. */
+		public static final class Construtor {
+
+			private int carrinhos;
+			private int itens;
+			private int produtos;
+			private long[] carrinhoIds = new long[1024];
+			private byte[] tipoCliente = new byte[1024];
+			private int[] inicioItens = new int[1025];
+			private int[] produtoItem = new int[4096];
+			private long[] quantidadeItem = new long[4096];
+			private long[] precoCentavos = new long[1024];
+			private int[] peso = new int[1024];
+
+			/** Registra um produto e devolve o índice a usar em {@link #item}. */
+			public int produto(long precoCentavos, int peso) {
+				if (produtos == this.precoCentavos.length) {
+					this.precoCentavos = Arrays.copyOf(this.precoCentavos, produtos * 2);
+					this.peso = Arrays.copyOf(this.peso, produtos * 2);
+				}
+				this.precoCentavos[produtos] = precoCentavos;
+				this.peso[produtos] = peso;
+				return produtos++;
+			}
+
+			/** Começa um carrinho; os próximos {@link #item} pertencem a ele. */
+			public void carrinho(long id, TipoCliente tipo) {
+				carrinho(id, tipo == null ? SEM_TIPO : (byte) tipo.ordinal());
+			}
+
+			void carrinho(long id, byte tipo) {
+				if (carrinhos == carrinhoIds.length) {
+					carrinhoIds = Arrays.copyOf(carrinhoIds, carrinhos * 2);
+					tipoCliente = Arrays.copyOf(tipoCliente, carrinhos * 2);
+					inicioItens = Arrays.copyOf(inicioItens, carrinhos * 2 + 1);
+				}
+				carrinhoIds[carrinhos] = id;
+				tipoCliente[carrinhos] = tipo;
+				inicioItens[carrinhos] = itens;
+				carrinhos++;
+			}
+
+			public void item(int produto, long quantidade) {
+				if (itens == produtoItem.length) {
+					produtoItem = Arrays.copyOf(produtoItem, itens * 2);
+					quantidadeItem = Arrays.copyOf(quantidadeItem, itens * 2);
+				}
+				produtoItem[itens] = produto;
+				quantidadeItem[itens] = quantidade;
+				itens++;
+			}
+
+			public Colunas construir() {
+				return new Colunas(this);
+			}
+		}
+	}
+}
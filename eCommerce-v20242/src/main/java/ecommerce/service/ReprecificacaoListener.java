@@ -0,0 +1,53 @@
+package ecommerce.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.Produto;
+import ecommerce.util.AposCommit;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Reprecifica os carrinhos abertos com produtos alterados pelo JPA, depois do commit e uma vez por transação. O
+ * listener não vê o estado anterior, então toda atualização de produto conta como mudança; recalcular um carrinho
+ * cujo total não mudou só regrava o mesmo valor.
+ *
+ * O recálculo roda numa transação nova: no afterCommit a conexão da transação encerrada ainda está ligada à thread e
+ * o que fosse gravado por ela não seria comitado. Uma falha só é registrada no log; a alteração do produto já está
+ * gravada e {@code POST /catalogo/reprecificacao} recalcula depois.
+ */
+public class ReprecificacaoListener {
+
+	private static final Logger log = LoggerFactory.getLogger(ReprecificacaoListener.class);
+
+	private final ObjectProvider<ReprecificacaoCarrinhosService> reprecificacao;
+	private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+	public ReprecificacaoListener(ObjectProvider<ReprecificacaoCarrinhosService> reprecificacao,
+			ObjectProvider<PlatformTransactionManager> transactionManager) {
+		this.reprecificacao = reprecificacao;
+		this.transactionManager = transactionManager;
+	}
+
+	@PostUpdate
+	public void aposAtualizar(Produto produto) {
+		ReprecificacaoCarrinhosService servico = reprecificacao.getIfAvailable();
+		PlatformTransactionManager transacoes = transactionManager.getIfAvailable();
+		if (servico == null || transacoes == null) {
+			return;
+		}
+		AposCommit.juntar(ReprecificacaoListener.class, produto.getId(), produtoIds -> {
+			TransactionTemplate transacao = new TransactionTemplate(transacoes);
+			transacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			try {
+				transacao.executeWithoutResult(status -> servico.reprecificarProdutos(produtoIds));
+			} catch (RuntimeException e) {
+				log.warn("Falha ao reprecificar os carrinhos dos produtos {}", produtoIds, e);
+			}
+		});
+	}
+}
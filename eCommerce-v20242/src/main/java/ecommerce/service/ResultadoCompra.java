@@ -0,0 +1,53 @@
+package ecommerce.service;
+
+import java.math.BigDecimal;
+
+import ecommerce.dto.CompraDTO;
+
+/**
+ * Desfecho de {@link CompraService#tentarFinalizarCompra}: falhas de negócio voltam como {@link Recusa}, sem exceção
+ * (em esgotamentos de estoque a maioria das finalizações falha, e capturar a pilha de cada uma custa CPU).
+ */
+public sealed interface ResultadoCompra {
+
+	CompraDTO paraDTO();
+
+	record Sucesso(Long transacaoPagamentoId, BigDecimal custoTotal) implements ResultadoCompra {
+
+		@Override
+		public CompraDTO paraDTO() {
+			return new CompraDTO(true, transacaoPagamentoId, "Compra finalizada com sucesso.");
+		}
+	}
+
+	record Recusa(MotivoRecusa motivo, String mensagem) implements ResultadoCompra {
+
+		@Override
+		public CompraDTO paraDTO() {
+			return new CompraDTO(false, null, mensagem);
+		}
+
+		/** A exceção que {@link CompraService#finalizarCompra} sempre lançou para este motivo. */
+		public RuntimeException comoExcecao() {
+			return switch (motivo) {
+				case NAO_ENCONTRADO -> new IllegalArgumentException(mensagem);
+				case PRAZO_ESGOTADO -> new PrazoEsgotadoException(mensagem);
+				default -> new IllegalStateException(mensagem);
+			};
+		}
+	}
+
+	enum MotivoRecusa {
+		/** Cliente ou carrinho inexistente. */
+		NAO_ENCONTRADO,
+		/** Carrinho vazio ou sem cliente. */
+		CARRINHO_INVALIDO,
+		/** Outra finalização do mesmo carrinho já começou ou terminou. */
+		CARRINHO_EM_FINALIZACAO,
+		FORA_DE_ESTOQUE,
+		PAGAMENTO_NAO_AUTORIZADO,
+		/** O estoque recusou a baixa depois do pagamento autorizado; o pagamento foi cancelado. */
+		FALHA_BAIXA_ESTOQUE,
+		PRAZO_ESGOTADO
+	}
+}
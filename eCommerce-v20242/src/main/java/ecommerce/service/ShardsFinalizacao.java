@@ -0,0 +1,142 @@
+package ecommerce.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Finalizações roteadas pelo id do cliente para um de N shards, cada um com uma única thread e fila própria
+ * (princípio do escritor único).
+ *
+ * Tudo o que roda dentro de {@link #executar} para um mesmo cliente roda sempre na mesma thread, uma finalização por
+ * vez: estado por cliente pode ficar em estruturas do shard ({@link #shardAtual()} dá o índice) sem trava nenhuma.
+ * Como as chamadas a estoque e pagamento bloqueiam, a vazão de um shard é 1 / latência da finalização; o número de
+ * shards deve cobrir a concorrência esperada, não só o número de núcleos.
+ *
+ * Fila cheia recusa a finalização com {@link FilaFinalizacaoCheiaException}. Quem espera desiste quando acaba o
+ * {@link Prazo#atual() prazo da requisição}, com {@link PrazoEsgotadoException}: a finalização ainda na fila é
+ * cancelada, a que já começou segue no shard com o próprio prazo. Publica, por shard, a profundidade da fila e os
+ * tempos de espera e de execução.
+ */
+public class ShardsFinalizacao implements ExecutorFinalizacao, AutoCloseable {
+
+	private static final ThreadLocal<Integer> SHARD_ATUAL = new ThreadLocal<>();
+
+	private final ThreadPoolExecutor[] shards;
+	private final Timer[] esperas;
+	private final Timer[] execucoes;
+
+	public ShardsFinalizacao(int quantidade, int capacidadeFila, MeterRegistry registry) {
+		if (quantidade <= 0 || capacidadeFila <= 0) {
+			throw new IllegalArgumentException("Quantidade de shards e capacidade da fila devem ser positivas.");
+		}
+		this.shards = new ThreadPoolExecutor[quantidade];
+		this.esperas = new Timer[quantidade];
+		this.execucoes = new Timer[quantidade];
+		for (int i = 0; i < quantidade; i++) {
+			int indice = i;
+			shards[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(capacidadeFila), r -> {
+						Thread thread = new Thread(() -> {
+							SHARD_ATUAL.set(indice);
+							r.run();
+						}, "shard-finalizacao-" + indice);
+						thread.setDaemon(true);
+						return thread;
+					});
+			String shard = Integer.toString(i);
+			Gauge.builder("compra.shards.fila", shards[i], executor -> executor.getQueue().size())
+					.description("Finalizações aguardando na fila do shard")
+					.tag("shard", shard)
+					.register(registry);
+			esperas[i] = Timer.builder("compra.shards.espera")
+					.description("Tempo na fila do shard até começar a finalização")
+					.tag("shard", shard)
+					.register(registry);
+			execucoes[i] = Timer.builder("compra.shards.execucao")
+					.description("Tempo de execução da finalização no shard")
+					.tag("shard", shard)
+					.register(registry);
+		}
+	}
+
+	/** Índice do shard da thread atual, ou -1 fora de um shard. */
+	public static int shardAtual() {
+		Integer shard = SHARD_ATUAL.get();
+		return shard == null ? -1 : shard;
+	}
+
+	@Override
+	public <T> T executar(Long clienteId, Supplier<T> acao) {
+		int indice = shard(clienteId);
+		if (shardAtual() == indice) {
+			return acao.get(); // Já no shard do cliente: enfileirar de novo travaria a própria thread
+		}
+		long enfileirada = System.nanoTime();
+		Future<T> resultado;
+		try {
+			resultado = shards[indice].submit(() -> {
+				long inicio = System.nanoTime();
+				esperas[indice].record(inicio - enfileirada, TimeUnit.NANOSECONDS);
+				try {
+					return acao.get();
+				} finally {
+					execucoes[indice].record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			throw new FilaFinalizacaoCheiaException("Muitas finalizações em andamento; tente novamente.");
+		}
+
+		try {
+			return resultado.get(Prazo.atual().restante().toNanos(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			if (resultado.cancel(false)) {
+				shards[indice].remove((Runnable) resultado);
+				throw new PrazoEsgotadoException(Prazo.mensagemEsgotado("sair da fila do shard do cliente"));
+			}
+			throw new PrazoEsgotadoException(
+					"Prazo da requisição esgotado aguardando a finalização no shard do cliente.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException causa) {
+				throw causa;
+			}
+			if (e.getCause() instanceof Error erro) {
+				throw erro;
+			}
+			throw new IllegalStateException("Falha ao finalizar compra.", e.getCause());
+		} catch (InterruptedException e) {
+			// A finalização já enfileirada segue no shard; quem esperava desiste
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Finalização interrompida aguardando o shard do cliente.");
+		}
+	}
+
+	public int quantidade() {
+		return shards.length;
+	}
+
+	@Override
+	public void close() {
+		for (ThreadPoolExecutor shard : shards) {
+			shard.shutdown();
+		}
+	}
+
+	private int shard(Long clienteId) {
+		if (clienteId == null) {
+			return 0;
+		}
+		long h = clienteId * 0x9E3779B97F4A7C15L;
+		return (int) Long.remainderUnsigned(h ^ (h >>> 32), shards.length);
+	}
+}
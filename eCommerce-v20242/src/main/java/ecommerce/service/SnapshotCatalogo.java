@@ -0,0 +1,416 @@
+package ecommerce.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import ecommerce.dto.PrecoProdutoDTO;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Snapshot do catálogo em arquivo mapeado em memória, para que um nó recém-iniciado responda consultas de preço sem
+ * esperar o banco nem aquecer caches.
+ *
+ * Um nó com {@code catalogo.snapshot.gravacao-habilitada} grava periodicamente id, preço, peso e tipo de todos os
+ * produtos, ordenados por id, em registros de 24 bytes (arquivo temporário e troca atômica). Na subida o arquivo é
+ * mapeado e as consultas fazem busca binária direto nele. Em seguida, e a cada
+ * {@code catalogo.snapshot.intervalo-acompanhamento-ms}, as linhas com {@code atualizado_em} a partir do último
+ * acompanhamento (menos {@code catalogo.snapshot.margem-ms}, para relógios defasados e commits atrasados) entram num
+ * mapa de alterações que tem precedência sobre o snapshot. Um snapshot novo descarta as alterações que ele já cobre;
+ * nós que não gravam conferem o cabeçalho do arquivo a cada acompanhamento e mapeiam o snapshot gravado por outro nó.
+ *
+ * Produtos removidos do banco depois do snapshot continuam sendo encontrados até o próximo; itens de carrinho
+ * referenciam o produto por chave estrangeira, então um produto precificado para um carrinho não some.
+ */
+@Service
+public class SnapshotCatalogo {
+
+	private static final Logger log = LoggerFactory.getLogger(SnapshotCatalogo.class);
+
+	private static final int MAGICO = 0x43415431; // "CAT1"
+	private static final int VERSAO = 1;
+	// Cabeçalho: mágico, versão, quantidade de registros, instante do banco no início da leitura (ms), reservado
+	private static final int TAMANHO_CABECALHO = 32;
+	// Registro: id, preço em centavos, peso, ordinal do tipo
+	private static final int TAMANHO_REGISTRO = 24;
+	private static final int REGISTROS_POR_ESCRITA = 4096;
+	private static final long SEM_PRECO = Long.MIN_VALUE;
+	private static final int SEM_PESO = Integer.MIN_VALUE;
+	private static final int SEM_TIPO = -1;
+	private static final TipoProduto[] TIPOS = TipoProduto.values();
+
+	public static final int LIMITE_IDS = 1000;
+
+	private static final String SQL_AGORA = "SELECT CURRENT_TIMESTAMP";
+	private static final String SQL_PRODUTOS = "SELECT id, preco, peso, tipo FROM produto ORDER BY id";
+	private static final String SQL_ALTERADOS = "SELECT id, preco, peso, tipo, atualizado_em FROM produto "
+			+ "WHERE atualizado_em >= ?";
+	private static final String SQL_POR_ID = "SELECT id, preco, peso, tipo, atualizado_em FROM produto "
+			+ "WHERE id IN (%s)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Path arquivo;
+	private final boolean gravacaoHabilitada;
+	private final Duration margem;
+
+	private volatile Mapeamento mapeamento;
+	private final Map<Long, Alteracao> alteracoes = new ConcurrentHashMap<>();
+	private Instant acompanhadoAte; // Protegido por this
+	private volatile boolean emDia;
+
+	@Autowired
+	public SnapshotCatalogo(JdbcTemplate jdbcTemplate,
+			@Value("${catalogo.snapshot.arquivo:catalogo/catalogo.snap}") Path arquivo,
+			@Value("${catalogo.snapshot.gravacao-habilitada:true}") boolean gravacaoHabilitada,
+			@Value("${catalogo.snapshot.margem-ms:60000}") long margemMs) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.arquivo = arquivo;
+		this.gravacaoHabilitada = gravacaoHabilitada;
+		this.margem = Duration.ofMillis(margemMs);
+
+		if (Files.exists(arquivo)) {
+			try {
+				mapeamento = mapear(arquivo);
+				acompanhadoAte = mapeamento.geradoEm;
+				log.info("Snapshot do catálogo mapeado: {} produtos, gerado em {}", mapeamento.quantidade,
+						mapeamento.geradoEm);
+			} catch (IOException e) {
+				// Sem snapshot as consultas vão ao banco; o próximo snapshot gravado substitui o arquivo
+				log.warn("Snapshot do catálogo ignorado: {}", arquivo, e);
+			}
+		}
+	}
+
+	/** Preço, peso e tipo do produto, ou null se ele não estiver no snapshot nem nas alterações acompanhadas. */
+	public PrecoProdutoDTO buscar(long produtoId) {
+		Alteracao alteracao = alteracoes.get(produtoId);
+		if (alteracao != null) {
+			return alteracao.produto;
+		}
+		Mapeamento atual = mapeamento;
+		return atual == null ? null : atual.buscar(produtoId);
+	}
+
+	/**
+	 * Os produtos pedidos que existem, na ordem pedida. Os que não estão na memória são lidos do banco numa consulta
+	 * só e passam a ser servidos localmente.
+	 */
+	public List<PrecoProdutoDTO> buscar(Collection<Long> produtoIds) {
+		if (produtoIds.size() > LIMITE_IDS) {
+			throw new IllegalArgumentException("No máximo " + LIMITE_IDS + " produtos por consulta.");
+		}
+		List<Long> ausentes = new ArrayList<>();
+		for (Long id : produtoIds) {
+			if (buscar(id) == null) {
+				ausentes.add(id);
+			}
+		}
+		if (!ausentes.isEmpty()) {
+			String sql = String.format(SQL_POR_ID, String.join(",", Collections.nCopies(ausentes.size(), "?")));
+			jdbcTemplate.query(sql, (ResultSet rs) -> {
+				registrar(rs);
+			}, ausentes.toArray());
+		}
+		List<PrecoProdutoDTO> produtos = new ArrayList<>(produtoIds.size());
+		for (Long id : produtoIds) {
+			PrecoProdutoDTO produto = buscar(id);
+			if (produto != null) {
+				produtos.add(produto);
+			}
+		}
+		return produtos;
+	}
+
+	@Scheduled(initialDelayString = "${catalogo.snapshot.atraso-inicial-ms:60000}",
+			fixedDelayString = "${catalogo.snapshot.intervalo-gravacao-ms:600000}")
+	public void gravarAgendado() {
+		if (!gravacaoHabilitada) {
+			return;
+		}
+		try {
+			gravar();
+		} catch (RuntimeException e) {
+			log.error("Falha ao gravar o snapshot do catálogo em {}", arquivo, e);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${catalogo.snapshot.intervalo-acompanhamento-ms:5000}")
+	public void acompanharAgendado() {
+		try {
+			acompanhar();
+		} catch (RuntimeException e) {
+			log.warn("Falha ao acompanhar as alterações do catálogo", e);
+		}
+	}
+
+	/**
+	 * Grava o snapshot a partir do banco, troca o arquivo e passa a servir dele. Retorna a quantidade de produtos
+	 * gravados; produtos com preço de mais de duas casas ficam de fora e são consultados no banco.
+	 */
+	public synchronized int gravar() {
+		long inicio = System.currentTimeMillis();
+		Instant geradoEm = agoraNoBanco();
+		Path temporario = null;
+		try {
+			Path diretorio = arquivo.toAbsolutePath().getParent();
+			Files.createDirectories(diretorio);
+			temporario = Files.createTempFile(diretorio, arquivo.getFileName().toString(), ".tmp");
+			long quantidade;
+			try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+				quantidade = escreverRegistros(canal);
+				ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).putInt(MAGICO).putInt(VERSAO)
+						.putLong(quantidade).putLong(geradoEm.toEpochMilli()).putLong(0).flip();
+				canal.write(cabecalho, 0);
+				canal.force(true);
+			}
+			Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			adotar(mapear(arquivo));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Não foi possível gravar o snapshot do catálogo em " + arquivo, e);
+		} finally {
+			if (temporario != null) {
+				try {
+					Files.deleteIfExists(temporario);
+				} catch (IOException e) {
+					log.warn("Arquivo temporário do snapshot não removido: {}", temporario, e);
+				}
+			}
+		}
+
+		if (acompanhadoAte == null) {
+			acompanhadoAte = geradoEm;
+		}
+		log.info("Snapshot do catálogo gravado: {} produtos em {} ms", mapeamento.quantidade,
+				System.currentTimeMillis() - inicio);
+		return mapeamento.quantidade;
+	}
+
+	/**
+	 * Traz para a memória as linhas alteradas desde o último acompanhamento (ou desde o snapshot mapeado). Sem
+	 * snapshot, o primeiro acompanhamento só marca o instante de partida. Retorna a quantidade de linhas lidas.
+	 */
+	public synchronized int acompanhar() {
+		Instant agora = agoraNoBanco();
+		int linhas = 0;
+		if (acompanhadoAte != null) {
+			linhas = jdbcTemplate.query(SQL_ALTERADOS, (ResultSet rs) -> {
+				int lidas = 0;
+				while (rs.next()) {
+					registrar(rs);
+					lidas++;
+				}
+				return lidas;
+			}, Timestamp.from(acompanhadoAte.minus(margem)));
+		}
+		acompanhadoAte = agora;
+		emDia = true;
+		mapearSeMaisNovo();
+		return linhas;
+	}
+
+	/** O snapshot está mapeado. */
+	public boolean mapeado() {
+		return mapeamento != null;
+	}
+
+	/** Houve ao menos um acompanhamento depois da subida: as consultas refletem o banco, a menos da margem. */
+	public boolean emDia() {
+		return emDia;
+	}
+
+	public int produtosNoSnapshot() {
+		Mapeamento atual = mapeamento;
+		return atual == null ? 0 : atual.quantidade;
+	}
+
+	/** Produtos servidos do mapa de alterações, na frente do snapshot. */
+	public int alteracoes() {
+		return alteracoes.size();
+	}
+
+	/** Passa a servir do snapshot e descarta as alterações que ele já cobre. */
+	private void adotar(Mapeamento novo) {
+		mapeamento = novo;
+		Instant coberto = novo.geradoEm.minus(margem);
+		alteracoes.values().removeIf(a -> a.atualizadoEm.isBefore(coberto));
+	}
+
+	/** Mapeia o arquivo se outro nó gravou um snapshot mais novo que o mapeado; só o cabeçalho é lido antes. */
+	private void mapearSeMaisNovo() {
+		if (!Files.exists(arquivo)) {
+			return;
+		}
+		try {
+			Instant geradoEm;
+			try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+				ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+				while (cabecalho.hasRemaining()) {
+					if (canal.read(cabecalho) < 0) {
+						return; // Arquivo mais curto que o cabeçalho: o de agora continua valendo
+					}
+				}
+				geradoEm = Instant.ofEpochMilli(cabecalho.getLong(16));
+			}
+			Mapeamento atual = mapeamento;
+			if (atual == null || geradoEm.isAfter(atual.geradoEm)) {
+				adotar(mapear(arquivo));
+				log.info("Snapshot do catálogo remapeado: {} produtos, gerado em {}", mapeamento.quantidade,
+						mapeamento.geradoEm);
+			}
+		} catch (IOException e) {
+			log.warn("Snapshot do catálogo mais novo ignorado: {}", arquivo, e);
+		}
+	}
+
+	private long escreverRegistros(FileChannel canal) throws IOException {
+		ByteBuffer bloco = ByteBuffer.allocateDirect(TAMANHO_REGISTRO * REGISTROS_POR_ESCRITA);
+		long[] contagem = new long[2]; // gravados, ignorados
+		canal.position(TAMANHO_CABECALHO);
+		try {
+			jdbcTemplate.query(con -> {
+				var ps = con.prepareStatement(SQL_PRODUTOS);
+				ps.setFetchSize(REGISTROS_POR_ESCRITA);
+				return ps;
+			}, (ResultSet rs) -> {
+				BigDecimal preco = rs.getBigDecimal(2);
+				long precoCentavos = centavos(preco);
+				if (precoCentavos == SEM_PRECO && preco != null) {
+					contagem[1]++;
+					return;
+				}
+				int peso = rs.getInt(3);
+				if (rs.wasNull()) {
+					peso = SEM_PESO;
+				}
+				String tipo = rs.getString(4);
+				bloco.putLong(rs.getLong(1)).putLong(precoCentavos).putInt(peso)
+						.putInt(tipo == null ? SEM_TIPO : TipoProduto.valueOf(tipo).ordinal());
+				contagem[0]++;
+				if (!bloco.hasRemaining()) {
+					escrever(canal, bloco);
+				}
+			});
+			escrever(canal, bloco);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (contagem[1] > 0) {
+			log.warn("{} produtos com preço de mais de duas casas ficaram fora do snapshot", contagem[1]);
+		}
+		return contagem[0];
+	}
+
+	private static void escrever(FileChannel canal, ByteBuffer bloco) {
+		bloco.flip();
+		try {
+			while (bloco.hasRemaining()) {
+				canal.write(bloco);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		bloco.clear();
+	}
+
+	private static Mapeamento mapear(Path arquivo) throws IOException {
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+			long tamanho = canal.size();
+			if (tamanho < TAMANHO_CABECALHO || tamanho > Integer.MAX_VALUE) {
+				throw new IOException("Tamanho de snapshot inválido: " + tamanho);
+			}
+			MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+			if (buffer.getInt(0) != MAGICO || buffer.getInt(4) != VERSAO) {
+				throw new IOException("Arquivo não é um snapshot do catálogo na versão " + VERSAO);
+			}
+			long quantidade = buffer.getLong(8);
+			if (tamanho != TAMANHO_CABECALHO + quantidade * TAMANHO_REGISTRO) {
+				throw new IOException("Snapshot truncado: " + quantidade + " produtos em " + tamanho + " bytes");
+			}
+			return new Mapeamento(buffer, (int) quantidade, Instant.ofEpochMilli(buffer.getLong(16)));
+		}
+	}
+
+	private void registrar(ResultSet rs) throws SQLException {
+		BigDecimal preco = rs.getBigDecimal(2);
+		int peso = rs.getInt(3);
+		Integer pesoOuNulo = rs.wasNull() ? null : peso;
+		String tipo = rs.getString(4);
+		Timestamp atualizadoEm = rs.getTimestamp(5);
+		Alteracao alteracao = new Alteracao(
+				new PrecoProdutoDTO(rs.getLong(1), preco, pesoOuNulo, tipo == null ? null : TipoProduto.valueOf(tipo)),
+				atualizadoEm == null ? Instant.EPOCH : atualizadoEm.toInstant());
+		// Uma leitura mais antiga (consulta por id concorrente com o acompanhamento) não sobrescreve a mais nova
+		alteracoes.merge(alteracao.produto.id(), alteracao,
+				(atual, nova) -> nova.atualizadoEm.isBefore(atual.atualizadoEm) ? atual : nova);
+	}
+
+	private Instant agoraNoBanco() {
+		return jdbcTemplate.queryForObject(SQL_AGORA, Timestamp.class).toInstant();
+	}
+
+	private static long centavos(BigDecimal preco) {
+		if (preco == null) {
+			return SEM_PRECO;
+		}
+		try {
+			return preco.movePointRight(2).longValueExact();
+		} catch (ArithmeticException e) {
+			return SEM_PRECO;
+		}
+	}
+
+	private record Alteracao(PrecoProdutoDTO produto, Instant atualizadoEm) {
+	}
+
+	private record Mapeamento(MappedByteBuffer buffer, int quantidade, Instant geradoEm) {
+
+		PrecoProdutoDTO buscar(long produtoId) {
+			int de = 0;
+			int ate = quantidade - 1;
+			while (de <= ate) {
+				int meio = (de + ate) >>> 1;
+				int posicao = TAMANHO_CABECALHO + meio * TAMANHO_REGISTRO;
+				long id = buffer.getLong(posicao);
+				if (id < produtoId) {
+					de = meio + 1;
+				} else if (id > produtoId) {
+					ate = meio - 1;
+				} else {
+					long precoCentavos = buffer.getLong(posicao + 8);
+					int peso = buffer.getInt(posicao + 16);
+					int tipo = buffer.getInt(posicao + 20);
+					BigDecimal preco = precoCentavos == SEM_PRECO ? null : BigDecimal.valueOf(precoCentavos, 2);
+					return new PrecoProdutoDTO(id, preco, peso == SEM_PESO ? null : peso,
+							tipo == SEM_TIPO ? null : TIPOS[tipo]);
+				}
+			}
+			return null;
+		}
+	}
+}
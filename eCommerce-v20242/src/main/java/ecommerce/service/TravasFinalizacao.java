@@ -0,0 +1,67 @@
+package ecommerce.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializa, dentro do processo, as finalizações de um mesmo cliente sem travar linhas no banco.
+ *
+ * Um número fixo de travas justas (lock striping): o cliente é mapeado para uma faixa pelo id, então a memória não
+ * cresce com o número de clientes. Clientes diferentes podem cair na mesma faixa e, nesse caso, também esperam um
+ * pelo outro. Quem não consegue a trava dentro do tempo de espera recebe {@link IllegalStateException}; a espera
+ * não passa do {@link Prazo#atual()} e, se ele acabar antes, sai {@link PrazoEsgotadoException}.
+ *
+ * Usado com {@code compra.execucao.modo=travas}; só protege instâncias do mesmo processo. Não dispensa a coluna
+ * {@code status} do carrinho: a finalização continua passando pela máquina de estados.
+ */
+public class TravasFinalizacao implements ExecutorFinalizacao {
+
+	private final ReentrantLock[] travas;
+	private final long esperaNanos;
+
+	public TravasFinalizacao(int faixas, long esperaMs) {
+		if (faixas <= 0 || Integer.bitCount(faixas) != 1) {
+			throw new IllegalArgumentException("Número de faixas deve ser uma potência de 2.");
+		}
+		if (esperaMs < 0) {
+			throw new IllegalArgumentException("Tempo de espera não pode ser negativo.");
+		}
+		this.travas = new ReentrantLock[faixas];
+		for (int i = 0; i < faixas; i++) {
+			travas[i] = new ReentrantLock(true); // justa: atende na ordem de chegada
+		}
+		this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMs);
+	}
+
+	/** Executa a ação segurando a trava da faixa do cliente. */
+	@Override
+	public <T> T executar(Long clienteId, Supplier<T> acao) {
+		if (clienteId == null) {
+			return acao.get();
+		}
+		ReentrantLock trava = travas[faixa(clienteId)];
+		Prazo prazo = Prazo.atual();
+		try {
+			if (!trava.tryLock(Math.min(esperaNanos, prazo.restante().toNanos()), TimeUnit.NANOSECONDS)) {
+				if (prazo.esgotado()) {
+					throw new PrazoEsgotadoException(Prazo.mensagemEsgotado("obter a trava do cliente"));
+				}
+				throw new IllegalStateException("Outra finalização do mesmo cliente está em andamento.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Finalização interrompida aguardando outra do mesmo cliente.");
+		}
+		try {
+			return acao.get();
+		} finally {
+			trava.unlock();
+		}
+	}
+
+	private int faixa(long clienteId) {
+		// Multiplicação de Fibonacci: ids sequenciais se espalham pelas faixas
+		return (int) ((clienteId * 0x9E3779B97F4A7C15L) >>> 32) & (travas.length - 1);
+	}
+}
@@ -0,0 +1,61 @@
+package ecommerce.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Adia efeitos em memória (índices, caches) para depois do commit da transação corrente, para que um rollback não
+ * deixe neles o que o banco desfez. Fora de transação executa na hora.
+ */
+public final class AposCommit {
+
+	private AposCommit() {
+	}
+
+	public static void executar(Runnable acao) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			acao.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				acao.run();
+			}
+		});
+	}
+
+	/**
+	 * Junta os itens registrados com a mesma chave na transação corrente e entrega todos de uma vez depois do commit.
+	 * Fora de transação entrega o item sozinho, na hora.
+	 */
+	public static <T> void juntar(Object chave, T item, Consumer<Set<T>> acao) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			acao.accept(Set.of(item));
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		Set<T> itens = (Set<T>) TransactionSynchronizationManager.getResource(chave);
+		if (itens == null) {
+			Set<T> novos = new LinkedHashSet<>();
+			TransactionSynchronizationManager.bindResource(chave, novos);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					acao.accept(novos);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(chave);
+				}
+			});
+			itens = novos;
+		}
+		itens.add(item);
+	}
+}
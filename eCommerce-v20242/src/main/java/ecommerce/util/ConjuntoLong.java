@@ -0,0 +1,123 @@
+package ecommerce.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Conjunto de longs com endereçamento aberto (sondagem linear), sem boxing nem um objeto por elemento.
+ *
+ * Remoção por deslocamento para trás, sem marcas de apagado: a tabela não se degrada com inserções e remoções
+ * alternadas. Não é thread-safe. {@link Long#MIN_VALUE} marca posição vazia e não pode ser elemento.
+ */
+public class ConjuntoLong {
+
+	private static final long VAZIO = Long.MIN_VALUE;
+	private static final float CARGA_MAXIMA = 0.75f;
+
+	private long[] elementos;
+	private int tamanho;
+
+	/** Começa com 4 posições: a maioria dos conjuntos de um índice tem poucos elementos. */
+	public ConjuntoLong() {
+		this(3);
+	}
+
+	/** Cabe {@code capacidadeInicial} elementos sem redimensionar. */
+	public ConjuntoLong(int capacidadeInicial) {
+		int capacidade = Integer.highestOneBit(Math.max(4, (int) Math.ceil(capacidadeInicial / CARGA_MAXIMA)) - 1) << 1;
+		this.elementos = new long[capacidade];
+		Arrays.fill(elementos, VAZIO);
+	}
+
+	/** Retorna false se o elemento já estava no conjunto. */
+	public boolean adicionar(long elemento) {
+		if (elemento == VAZIO) {
+			throw new IllegalArgumentException("Elemento reservado: " + elemento);
+		}
+		if (tamanho + 1 > elementos.length * CARGA_MAXIMA) {
+			redimensionar(elementos.length * 2);
+		}
+		int mascara = elementos.length - 1;
+		for (int i = indice(elemento, mascara);; i = (i + 1) & mascara) {
+			if (elementos[i] == elemento) {
+				return false;
+			}
+			if (elementos[i] == VAZIO) {
+				elementos[i] = elemento;
+				tamanho++;
+				return true;
+			}
+		}
+	}
+
+	public boolean contem(long elemento) {
+		int mascara = elementos.length - 1;
+		for (int i = indice(elemento, mascara);; i = (i + 1) & mascara) {
+			long atual = elementos[i];
+			if (atual == elemento) {
+				return true;
+			}
+			if (atual == VAZIO) {
+				return false;
+			}
+		}
+	}
+
+	/** Retorna false se o elemento não estava no conjunto. */
+	public boolean remover(long elemento) {
+		int mascara = elementos.length - 1;
+		int i = indice(elemento, mascara);
+		while (elementos[i] != elemento) {
+			if (elementos[i] == VAZIO) {
+				return false;
+			}
+			i = (i + 1) & mascara;
+		}
+		// Puxa para o buraco os elementos seguintes da sequência cuja posição ideal não fica entre o buraco e eles
+		int buraco = i;
+		for (int j = (i + 1) & mascara; elementos[j] != VAZIO; j = (j + 1) & mascara) {
+			int ideal = indice(elementos[j], mascara);
+			if (((j - ideal) & mascara) >= ((j - buraco) & mascara)) {
+				elementos[buraco] = elementos[j];
+				buraco = j;
+			}
+		}
+		elementos[buraco] = VAZIO;
+		tamanho--;
+		return true;
+	}
+
+	public void paraCada(LongConsumer acao) {
+		for (long elemento : elementos) {
+			if (elemento != VAZIO) {
+				acao.accept(elemento);
+			}
+		}
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	private void redimensionar(int novaCapacidade) {
+		long[] novos = new long[novaCapacidade];
+		Arrays.fill(novos, VAZIO);
+		int mascara = novaCapacidade - 1;
+		for (long elemento : elementos) {
+			if (elemento == VAZIO) {
+				continue;
+			}
+			int i = indice(elemento, mascara);
+			while (novos[i] != VAZIO) {
+				i = (i + 1) & mascara;
+			}
+			novos[i] = elemento;
+		}
+		this.elementos = novos;
+	}
+
+	private static int indice(long elemento, int mascara) {
+		long h = elemento * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mascara;
+	}
+}
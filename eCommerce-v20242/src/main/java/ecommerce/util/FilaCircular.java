@@ -0,0 +1,90 @@
+package ecommerce.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fila limitada de vários produtores e vários consumidores sobre um anel pré-alocado, sem travas (algoritmo de
+ * Vyukov).
+ *
+ * Cada posição guarda um número de sequência que diz de quem é a vez: igual à posição de escrita, está livre para um
+ * produtor; igual à posição + 1, tem um elemento para um consumidor. Produtores e consumidores disputam só o seu
+ * contador, com compareAndSet. {@link #oferecer} devolve false com a fila cheia, em vez de esperar.
+ */
+public class FilaCircular<T> {
+
+	private final AtomicReferenceArray<T> elementos;
+	private final AtomicLongArray sequencias;
+	private final int mascara;
+	private final AtomicLong escrita = new AtomicLong();
+	private final AtomicLong leitura = new AtomicLong();
+
+	public FilaCircular(int capacidade) {
+		if (capacidade <= 0 || Integer.bitCount(capacidade) != 1) {
+			throw new IllegalArgumentException("Capacidade deve ser uma potência de 2.");
+		}
+		this.elementos = new AtomicReferenceArray<>(capacidade);
+		this.sequencias = new AtomicLongArray(capacidade);
+		for (int i = 0; i < capacidade; i++) {
+			sequencias.set(i, i);
+		}
+		this.mascara = capacidade - 1;
+	}
+
+	/** Coloca o elemento na fila; false se ela estiver cheia. */
+	public boolean oferecer(T elemento) {
+		if (elemento == null) {
+			throw new IllegalArgumentException("Elemento não pode ser nulo.");
+		}
+		long posicao = escrita.get();
+		while (true) {
+			int indice = (int) posicao & mascara;
+			long diferenca = sequencias.get(indice) - posicao;
+			if (diferenca == 0) {
+				if (escrita.compareAndSet(posicao, posicao + 1)) {
+					elementos.lazySet(indice, elemento);
+					sequencias.set(indice, posicao + 1); // publica o elemento para os consumidores
+					return true;
+				}
+				posicao = escrita.get();
+			} else if (diferenca < 0) {
+				return false; // a posição ainda guarda um elemento de uma volta anterior do anel
+			} else {
+				posicao = escrita.get();
+			}
+		}
+	}
+
+	/** Retira o elemento mais antigo, ou null se a fila estiver vazia. */
+	public T retirar() {
+		long posicao = leitura.get();
+		while (true) {
+			int indice = (int) posicao & mascara;
+			long diferenca = sequencias.get(indice) - (posicao + 1);
+			if (diferenca == 0) {
+				if (leitura.compareAndSet(posicao, posicao + 1)) {
+					T elemento = elementos.get(indice);
+					elementos.lazySet(indice, null);
+					sequencias.set(indice, posicao + mascara + 1); // libera a posição para a próxima volta
+					return elemento;
+				}
+				posicao = leitura.get();
+			} else if (diferenca < 0) {
+				return null;
+			} else {
+				posicao = leitura.get();
+			}
+		}
+	}
+
+	/** Elementos na fila; aproximado enquanto houver produtores ou consumidores ativos. */
+	public int tamanho() {
+		long tamanho = escrita.get() - leitura.get();
+		return (int) Math.max(0, Math.min(tamanho, capacidade()));
+	}
+
+	public int capacidade() {
+		return mascara + 1;
+	}
+}
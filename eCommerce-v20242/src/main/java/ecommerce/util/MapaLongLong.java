@@ -0,0 +1,144 @@
+package ecommerce.util;
+
+import java.util.Arrays;
+
+/**
+ * Mapa long -> long com endereçamento aberto (sondagem linear), sem boxing nem um objeto por entrada.
+ *
+ * Não é thread-safe. {@link Long#MIN_VALUE} marca posição vazia e não pode ser usado como chave.
+ */
+public class MapaLongLong {
+
+	private static final long VAZIO = Long.MIN_VALUE;
+	private static final float CARGA_MAXIMA = 0.6f;
+
+	private long[] chaves;
+	private long[] valores;
+	private int tamanho;
+
+	public MapaLongLong() {
+		this(16);
+	}
+
+	public MapaLongLong(int capacidadeInicial) {
+		int capacidade = Integer.highestOneBit(Math.max(4, (int) (capacidadeInicial / CARGA_MAXIMA)) - 1) << 1;
+		this.chaves = new long[capacidade];
+		this.valores = new long[capacidade];
+		Arrays.fill(chaves, VAZIO);
+	}
+
+	/** Valor da chave, ou {@code padrao} se ela não estiver no mapa. */
+	public long get(long chave, long padrao) {
+		long[] chaves = this.chaves;
+		long[] valores = this.valores;
+		int mascara = chaves.length - 1;
+		for (int i = indice(chave, mascara);; i = (i + 1) & mascara) {
+			long atual = chaves[i];
+			if (atual == chave) {
+				return valores[i];
+			}
+			if (atual == VAZIO) {
+				return padrao;
+			}
+		}
+	}
+
+	public boolean contem(long chave) {
+		long[] chaves = this.chaves;
+		int mascara = chaves.length - 1;
+		for (int i = indice(chave, mascara);; i = (i + 1) & mascara) {
+			long atual = chaves[i];
+			if (atual == chave) {
+				return true;
+			}
+			if (atual == VAZIO) {
+				return false;
+			}
+		}
+	}
+
+	public void put(long chave, long valor) {
+		if (chave == VAZIO) {
+			throw new IllegalArgumentException("Chave reservada: " + chave);
+		}
+		if (tamanho + 1 > chaves.length * CARGA_MAXIMA) {
+			redimensionar(chaves.length * 2);
+		}
+		int mascara = chaves.length - 1;
+		for (int i = indice(chave, mascara);; i = (i + 1) & mascara) {
+			if (chaves[i] == chave) {
+				valores[i] = valor;
+				return;
+			}
+			if (chaves[i] == VAZIO) {
+				// Valor antes da chave: uma leitura concorrente que enxergue a chave já enxerga o valor certo
+				valores[i] = valor;
+				chaves[i] = chave;
+				tamanho++;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Retorna false se a chave não estava no mapa. Remove por deslocamento para trás, como {@link ConjuntoLong}: ao
+	 * contrário de {@link #put}, não é seguro com leituras concorrentes.
+	 */
+	public boolean remover(long chave) {
+		int mascara = chaves.length - 1;
+		int i = indice(chave, mascara);
+		while (chaves[i] != chave) {
+			if (chaves[i] == VAZIO) {
+				return false;
+			}
+			i = (i + 1) & mascara;
+		}
+		int buraco = i;
+		for (int j = (i + 1) & mascara; chaves[j] != VAZIO; j = (j + 1) & mascara) {
+			int ideal = indice(chaves[j], mascara);
+			if (((j - ideal) & mascara) >= ((j - buraco) & mascara)) {
+				chaves[buraco] = chaves[j];
+				valores[buraco] = valores[j];
+				buraco = j;
+			}
+		}
+		chaves[buraco] = VAZIO;
+		tamanho--;
+		return true;
+	}
+
+	public void limpar() {
+		Arrays.fill(chaves, VAZIO);
+		tamanho = 0;
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	private void redimensionar(int novaCapacidade) {
+		long[] novasChaves = new long[novaCapacidade];
+		long[] novosValores = new long[novaCapacidade];
+		Arrays.fill(novasChaves, VAZIO);
+		int mascara = novaCapacidade - 1;
+		for (int j = 0; j < chaves.length; j++) {
+			long chave = chaves[j];
+			if (chave == VAZIO) {
+				continue;
+			}
+			int i = indice(chave, mascara);
+			while (novasChaves[i] != VAZIO) {
+				i = (i + 1) & mascara;
+			}
+			novasChaves[i] = chave;
+			novosValores[i] = valores[j];
+		}
+		this.valores = novosValores;
+		this.chaves = novasChaves;
+	}
+
+	private static int indice(long chave, int mascara) {
+		long h = chave * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mascara;
+	}
+}
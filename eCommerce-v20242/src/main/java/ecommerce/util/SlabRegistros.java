@@ -0,0 +1,101 @@
+package ecommerce.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Registros de tamanho fixo fora do heap, em slabs de {@link ByteBuffer} diretos alocados sob demanda. Um registro é
+ * identificado por um int; os campos são lidos e escritos pelo deslocamento em bytes dentro dele.
+ *
+ * Registros liberados entram numa lista de livres encadeada pelo primeiro int de cada um e são reaproveitados antes
+ * de se abrir espaço novo; slabs nunca são devolvidos. Não é thread-safe para escrita; leituras concorrentes entre si
+ * são seguras (acesso absoluto, sem posição no buffer).
+ */
+public class SlabRegistros {
+
+	private static final int NENHUM = -1;
+
+	private final int tamanhoRegistro;
+	private final int bitsPorSlab;
+	private final int mascara;
+
+	private ByteBuffer[] slabs = new ByteBuffer[4];
+	private int quantidadeSlabs;
+	private int proximoNovo;
+	private int livre = NENHUM;
+	private int emUso;
+
+	/** {@code registrosPorSlab} é arredondado para cima até uma potência de 2. */
+	public SlabRegistros(int tamanhoRegistro, int registrosPorSlab) {
+		if (tamanhoRegistro < Integer.BYTES || tamanhoRegistro % Long.BYTES != 0) {
+			throw new IllegalArgumentException("Tamanho do registro deve ser múltiplo de 8: " + tamanhoRegistro);
+		}
+		int bits = 32 - Integer.numberOfLeadingZeros(registrosPorSlab - 1);
+		if (registrosPorSlab <= 0 || ((long) tamanhoRegistro << bits) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Registros por slab fora do intervalo: " + registrosPorSlab);
+		}
+		this.tamanhoRegistro = tamanhoRegistro;
+		this.bitsPorSlab = bits;
+		this.mascara = (1 << bitsPorSlab) - 1;
+	}
+
+	public int alocar() {
+		emUso++;
+		if (livre != NENHUM) {
+			int registro = livre;
+			livre = getInt(registro, 0);
+			return registro;
+		}
+		if (proximoNovo == Integer.MAX_VALUE) {
+			emUso--;
+			throw new IllegalStateException("Limite de registros atingido.");
+		}
+		int registro = proximoNovo++;
+		int slab = registro >>> bitsPorSlab;
+		if (slab == quantidadeSlabs) {
+			if (slab == slabs.length) {
+				slabs = Arrays.copyOf(slabs, slabs.length * 2);
+			}
+			slabs[slab] = ByteBuffer.allocateDirect(tamanhoRegistro << bitsPorSlab).order(ByteOrder.nativeOrder());
+			quantidadeSlabs++;
+		}
+		return registro;
+	}
+
+	/** O chamador garante que o registro está em uso; o conteúdo deixa de valer. */
+	public void liberar(int registro) {
+		putInt(registro, 0, livre);
+		livre = registro;
+		emUso--;
+	}
+
+	public long getLong(int registro, int campo) {
+		return slabs[registro >>> bitsPorSlab].getLong(deslocamento(registro, campo));
+	}
+
+	public void putLong(int registro, int campo, long valor) {
+		slabs[registro >>> bitsPorSlab].putLong(deslocamento(registro, campo), valor);
+	}
+
+	public int getInt(int registro, int campo) {
+		return slabs[registro >>> bitsPorSlab].getInt(deslocamento(registro, campo));
+	}
+
+	public void putInt(int registro, int campo, int valor) {
+		slabs[registro >>> bitsPorSlab].putInt(deslocamento(registro, campo), valor);
+	}
+
+	public int emUso() {
+		return emUso;
+	}
+
+	/** Memória direta já reservada pelos slabs, em uso ou não. */
+	public long bytesReservados() {
+		return (long) quantidadeSlabs * (tamanhoRegistro << bitsPorSlab);
+	}
+
+	private int deslocamento(int registro, int campo) {
+		return (registro & mascara) * tamanhoRegistro + campo;
+	}
+}
@@ -0,0 +1,7 @@
+-- Migração de bases existentes: coluna atualizado_em de produto, lida pelo SnapshotCatalogo para acompanhar as
+-- alterações feitas depois do snapshot, e o índice dessa consulta. Linhas existentes ficam com o instante da
+-- migração.
+-- Pode ser executada com a aplicação no ar.
+
+ALTER TABLE produto ADD COLUMN IF NOT EXISTS atualizado_em TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_produto_atualizado_em ON produto (atualizado_em);
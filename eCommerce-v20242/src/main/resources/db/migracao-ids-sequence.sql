@@ -0,0 +1,19 @@
+-- Migração de bases existentes: colunas IDENTITY -> sequences (pooled-lo, incremento 50).
+-- Cada sequence reinicia logo após o maior id já gravado, então os ids antigos são preservados.
+-- Executar uma única vez, com a aplicação parada, antes de subir a versão que usa sequences.
+
+CREATE SEQUENCE IF NOT EXISTS cliente_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE cliente_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM cliente);
+ALTER TABLE cliente ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS produto_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE produto_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM produto);
+ALTER TABLE produto ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS carrinho_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE carrinho_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM carrinho_de_compras);
+ALTER TABLE carrinho_de_compras ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE IF NOT EXISTS item_compra_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE item_compra_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM item_compra);
+ALTER TABLE item_compra ALTER COLUMN id DROP IDENTITY;
@@ -0,0 +1,5 @@
+-- Migração de bases existentes: índice da listagem paginada por chave (GET /catalogo/produtos), na mesma ordem
+-- da listagem. Sem ele cada página ordena a tabela inteira.
+-- Pode ser executada com a aplicação no ar.
+
+CREATE INDEX IF NOT EXISTS idx_produto_tipo_preco_id ON produto (tipo, preco, id);
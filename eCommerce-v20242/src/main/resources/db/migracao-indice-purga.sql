@@ -0,0 +1,5 @@
+-- Migração de bases existentes: índice usado pela purga de carrinhos abandonados (status ABERTO e data antiga),
+-- para que cada lote não percorra a tabela inteira.
+-- Pode ser executada com a aplicação no ar.
+
+CREATE INDEX IF NOT EXISTS idx_carrinho_status_data ON carrinho_de_compras (status, data);
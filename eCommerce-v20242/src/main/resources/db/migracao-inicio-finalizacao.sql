@@ -0,0 +1,7 @@
+-- Migração de bases existentes: instante em que o carrinho passou a EM_FINALIZACAO.
+-- Carrinhos já presos EM_FINALIZACAO recebem o instante da migração e podem ser retomados depois da expiração.
+-- Executar uma única vez, com a aplicação parada.
+
+ALTER TABLE carrinho_de_compras ADD COLUMN IF NOT EXISTS inicio_finalizacao TIMESTAMP(6) WITH TIME ZONE;
+UPDATE carrinho_de_compras SET inicio_finalizacao = CURRENT_TIMESTAMP
+    WHERE status = 'EM_FINALIZACAO' AND inicio_finalizacao IS NULL;
@@ -0,0 +1,7 @@
+-- Migração de bases existentes: status e versão (lock otimista) do carrinho.
+-- Carrinhos já gravados ficam ABERTOS, com versão 0.
+-- Executar uma única vez, com a aplicação parada, antes de subir a versão que usa o status.
+
+ALTER TABLE carrinho_de_compras ADD COLUMN IF NOT EXISTS status VARCHAR(20) DEFAULT 'ABERTO' NOT NULL;
+ALTER TABLE carrinho_de_compras ADD COLUMN IF NOT EXISTS versao BIGINT DEFAULT 0;
+UPDATE carrinho_de_compras SET versao = 0 WHERE versao IS NULL;
@@ -0,0 +1,5 @@
+-- Migração de bases existentes: total estimado do carrinho, gravado pela reprecificação em massa
+-- (POST /catalogo/reprecificacao). Fica nulo até a primeira execução.
+-- Executar uma única vez, com a aplicação parada.
+
+ALTER TABLE carrinho_de_compras ADD COLUMN IF NOT EXISTS total_estimado DECIMAL(19, 3);
@@ -0,0 +1,309 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.TipoCliente;
+import ecommerce.service.AdmissaoPorTipoCliente;
+import ecommerce.service.ExecutorFinalizacao;
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+import ecommerce.service.ShardsFinalizacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdmissaoPorTipoClienteTest {
+
+	// Clientes 1..99 são BRONZE, 100..199 PRATA e 200 em diante OURO
+	private static final long BRONZE = 1;
+	private static final long PRATA = 100;
+	private static final long OURO = 200;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final AtomicInteger consultasTipo = new AtomicInteger();
+	private final ExecutorService threads = Executors.newCachedThreadPool();
+	private final CountDownLatch liberar = new CountDownLatch(1);
+
+	@AfterEach
+	public void tearDown() {
+		liberar.countDown();
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void testOuroPassaNaFrenteDeBronzeQueEsperava() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(1, 10, 5_000);
+		Future<String> ocupando = ocupar(admissao, BRONZE);
+		List<String> ordem = Collections.synchronizedList(new ArrayList<>());
+
+		List<Future<String>> pedidos = new ArrayList<>();
+		pedidos.add(enfileirar(admissao, BRONZE + 1, "bronze-1", ordem, TipoCliente.BRONZE, 1));
+		pedidos.add(enfileirar(admissao, BRONZE + 2, "bronze-2", ordem, TipoCliente.BRONZE, 2));
+		pedidos.add(enfileirar(admissao, OURO, "ouro", ordem, TipoCliente.OURO, 1));
+
+		liberar.countDown();
+		ocupando.get(5, TimeUnit.SECONDS);
+		for (Future<String> pedido : pedidos) {
+			pedido.get(5, TimeUnit.SECONDS);
+		}
+		assertEquals(List.of("ouro", "bronze-1", "bronze-2"), ordem);
+		assertEquals(1, registry.get("compra.admissao.espera").tag("tipo", "OURO").timer().count());
+		assertEquals(3, registry.get("compra.admissao.espera").tag("tipo", "BRONZE").timer().count());
+	}
+
+	@Test
+	public void testFilasAtendidasNaProporcaoDosPesos() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(1, 20, 5_000);
+		Future<String> ocupando = ocupar(admissao, PRATA);
+		List<String> ordem = Collections.synchronizedList(new ArrayList<>());
+		List<Future<String>> pedidos = new ArrayList<>();
+		for (int i = 1; i <= 7; i++) {
+			pedidos.add(enfileirar(admissao, BRONZE + i, "bronze", ordem, TipoCliente.BRONZE, i));
+			pedidos.add(enfileirar(admissao, OURO + i, "ouro", ordem, TipoCliente.OURO, i));
+		}
+
+		liberar.countDown();
+		ocupando.get(5, TimeUnit.SECONDS);
+		for (Future<String> pedido : pedidos) {
+			pedido.get(5, TimeUnit.SECONDS);
+		}
+		// Pesos 1 e 6: nas primeiras 7 vagas, 6 vão para OURO
+		assertEquals(6, Collections.frequency(ordem.subList(0, 7), "ouro"));
+	}
+
+	@Test
+	public void testNoOciosoAdmiteBronzeAteAConcorrenciaToda() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(4, 10, 5_000);
+		for (int i = 0; i < 4; i++) {
+			ocupar(admissao, BRONZE + i);
+		}
+
+		// A fração de BRONZE é metade das vagas, mas sem ninguém acima na fila ele usa todas
+		assertEquals(4, admissao.emExecucao(TipoCliente.BRONZE));
+		assertEquals(0, admissao.naFila(TipoCliente.BRONZE));
+	}
+
+	@Test
+	public void testBronzeNaoPassaDaSuaFracaoComTipoSuperiorNaFila() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(4, 10, 5_000);
+		CountDownLatch sairPrimeiro = new CountDownLatch(1);
+		CountDownLatch sairSegundo = new CountDownLatch(1);
+		ocupar(admissao, BRONZE, sairPrimeiro);
+		ocupar(admissao, BRONZE + 1, sairSegundo);
+		ocupar(admissao, BRONZE + 2);
+		ocupar(admissao, BRONZE + 3);
+
+		Future<String> bronze = threads.submit(() -> admissao.executar(BRONZE + 4, () -> "bronze"));
+		esperarAte(() -> admissao.naFila(TipoCliente.BRONZE) == 1);
+		List<Future<String>> pratas = new ArrayList<>();
+		for (int i = 1; i <= 2; i++) {
+			pratas.add(threads.submit(() -> admissao.executar(PRATA, () -> {
+				aguardar(liberar);
+				return "prata";
+			})));
+			int naFila = i;
+			esperarAte(() -> admissao.naFila(TipoCliente.PRATA) == naFila);
+		}
+
+		sairPrimeiro.countDown();
+		esperarAte(() -> admissao.emExecucao(TipoCliente.PRATA) == 1);
+		// BRONZE tem a menor passagem, mas com PRATA na fila não passa de 2 das 4 vagas
+		sairSegundo.countDown();
+		esperarAte(() -> admissao.emExecucao(TipoCliente.PRATA) == 2);
+		assertEquals(2, admissao.emExecucao(TipoCliente.BRONZE));
+		assertEquals(1, admissao.naFila(TipoCliente.BRONZE));
+
+		liberar.countDown();
+		assertEquals("bronze", bronze.get(5, TimeUnit.SECONDS));
+		for (Future<String> prata : pratas) {
+			assertEquals("prata", prata.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testFilaCheiaDescartaPrimeiroOsTiposInferiores() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(1, 2, 5_000);
+		Future<String> ocupando = ocupar(admissao, OURO);
+		Future<String> bronze = threads.submit(() -> admissao.executar(BRONZE, () -> "bronze"));
+		esperarAte(() -> admissao.naFila(TipoCliente.BRONZE) == 1);
+		Future<String> prata = threads.submit(() -> admissao.executar(PRATA, () -> "prata"));
+		esperarAte(() -> admissao.naFila(TipoCliente.PRATA) == 1);
+
+		// Fila cheia: OURO entra no lugar de BRONZE
+		Future<String> ouro = threads.submit(() -> admissao.executar(OURO + 1, () -> "ouro"));
+		ExecutionException preterido = assertThrows(ExecutionException.class, () -> bronze.get(5, TimeUnit.SECONDS));
+		assertTrue(preterido.getCause() instanceof FilaFinalizacaoCheiaException);
+
+		// Não há tipo abaixo de BRONZE para descartar: quem chega é recusado
+		assertThrows(FilaFinalizacaoCheiaException.class, () -> admissao.executar(BRONZE + 1, () -> "recusado"));
+
+		liberar.countDown();
+		assertEquals("ocupando", ocupando.get(5, TimeUnit.SECONDS));
+		assertEquals("ouro", ouro.get(5, TimeUnit.SECONDS));
+		assertEquals("prata", prata.get(5, TimeUnit.SECONDS));
+		assertEquals(1, descartes("BRONZE", "preterido"));
+		assertEquals(1, descartes("BRONZE", "fila-cheia"));
+		assertEquals(0, descartes("PRATA", "preterido"));
+	}
+
+	@Test
+	public void testDesisteDepoisDaEsperaMaxima() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(1, 10, 50);
+		ocupar(admissao, OURO);
+
+		assertThrows(FilaFinalizacaoCheiaException.class, () -> admissao.executar(PRATA, () -> "prata"));
+		assertEquals(0, admissao.naFila(TipoCliente.PRATA));
+		assertEquals(1, descartes("PRATA", "espera"));
+	}
+
+	@Test
+	public void testEsperaNaoPassaDoPrazo() throws Exception {
+		AdmissaoPorTipoCliente admissao = admissao(1, 10, 60_000);
+		ocupar(admissao, OURO);
+
+		assertThrows(PrazoEsgotadoException.class,
+				() -> Prazo.em(Duration.ofMillis(50)).aplicar(() -> admissao.executar(PRATA, () -> "prata")));
+		assertEquals(0, admissao.naFila(TipoCliente.PRATA));
+		assertEquals(1, descartes("PRATA", "espera"));
+	}
+
+	@Test
+	public void testTipoEmCacheEDesconhecidoComoBronze() {
+		AdmissaoPorTipoCliente admissao = new AdmissaoPorTipoCliente(ExecutorFinalizacao.direto(), id -> {
+			consultasTipo.incrementAndGet();
+			return null;
+		}, true, 1, new int[] { 1, 3, 6 }, new double[] { 0.5, 0.75, 1.0 }, 10, 1_000, Duration.ofMinutes(5), 100,
+				registry);
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("ok", admissao.executar(42L, () -> "ok"));
+		}
+		assertEquals(1, consultasTipo.get());
+		assertEquals(5, registry.get("compra.admissao.espera").tag("tipo", "BRONZE").timer().count());
+	}
+
+	@Test
+	public void testCacheDeTiposDescartaOUsadoHaMaisTempo() {
+		AdmissaoPorTipoCliente admissao = new AdmissaoPorTipoCliente(ExecutorFinalizacao.direto(), id -> {
+			consultasTipo.incrementAndGet();
+			return TipoCliente.PRATA;
+		}, true, 1, new int[] { 1, 3, 6 }, new double[] { 0.5, 0.75, 1.0 }, 10, 1_000, Duration.ofMinutes(5), 2,
+				registry);
+
+		admissao.executar(1L, () -> "ok");
+		admissao.executar(2L, () -> "ok");
+		admissao.executar(1L, () -> "ok");
+		admissao.executar(3L, () -> "ok"); // sai o 2
+		assertEquals(3, consultasTipo.get());
+
+		admissao.executar(1L, () -> "ok");
+		admissao.executar(2L, () -> "ok");
+		assertEquals(4, consultasTipo.get());
+	}
+
+	@Test
+	public void testDesabilitadaRepassaDireto() {
+		AdmissaoPorTipoCliente admissao = new AdmissaoPorTipoCliente(ExecutorFinalizacao.direto(), id -> {
+			throw new AssertionError("não deveria consultar o tipo");
+		}, false, 1, new int[] { 1, 3, 6 }, new double[] { 0.5, 0.75, 1.0 }, 0, 0, Duration.ZERO, 1, registry);
+
+		assertEquals("ok", admissao.executar(1L, () -> "ok"));
+	}
+
+	@Test
+	public void testFecharFechaOsShards() {
+		ShardsFinalizacao shards = new ShardsFinalizacao(2, 4, registry);
+		AdmissaoPorTipoCliente admissao = new AdmissaoPorTipoCliente(shards, id -> TipoCliente.OURO, true, 1,
+				new int[] { 1, 3, 6 }, new double[] { 0.5, 0.75, 1.0 }, 10, 1_000, Duration.ofMinutes(5), 100, registry);
+		assertEquals("ok", admissao.executar(OURO, () -> "ok"));
+
+		admissao.close();
+
+		assertThrows(IllegalStateException.class, () -> admissao.executar(OURO, () -> "fechado"));
+	}
+
+	@Test
+	public void testConfiguracaoInvalida() {
+		assertThrows(IllegalArgumentException.class, () -> new AdmissaoPorTipoCliente(ExecutorFinalizacao.direto(),
+				id -> null, true, 1, new int[] { 1, 3 }, new double[] { 0.5, 0.75, 1.0 }, 1, 1, Duration.ZERO, 1,
+				registry));
+		assertThrows(IllegalArgumentException.class, () -> new AdmissaoPorTipoCliente(ExecutorFinalizacao.direto(),
+				id -> null, true, 1, new int[] { 1, 3, 6 }, new double[] { 0, 0.75, 1.0 }, 1, 1, Duration.ZERO, 1,
+				registry));
+	}
+
+	private AdmissaoPorTipoCliente admissao(int concorrencia, int capacidadeFila, long esperaMaximaMs) {
+		return new AdmissaoPorTipoCliente(ExecutorFinalizacao.direto(), id -> {
+			consultasTipo.incrementAndGet();
+			return id >= OURO ? TipoCliente.OURO : id >= PRATA ? TipoCliente.PRATA : TipoCliente.BRONZE;
+		}, true, concorrencia, new int[] { 1, 3, 6 }, new double[] { 0.5, 0.75, 1.0 }, capacidadeFila,
+				esperaMaximaMs, Duration.ofMinutes(5), 1_000, registry);
+	}
+
+	/** Ocupa uma vaga até {@link #liberar}. */
+	private Future<String> ocupar(AdmissaoPorTipoCliente admissao, long clienteId) throws InterruptedException {
+		return ocupar(admissao, clienteId, liberar);
+	}
+
+	private Future<String> ocupar(AdmissaoPorTipoCliente admissao, long clienteId, CountDownLatch sair)
+			throws InterruptedException {
+		CountDownLatch dentro = new CountDownLatch(1);
+		Future<String> ocupando = threads.submit(() -> admissao.executar(clienteId, () -> {
+			dentro.countDown();
+			aguardar(sair);
+			return "ocupando";
+		}));
+		assertTrue(dentro.await(5, TimeUnit.SECONDS));
+		return ocupando;
+	}
+
+	/** Coloca um pedido na fila e só volta quando ele já está lá, para fixar a ordem de chegada. */
+	private Future<String> enfileirar(AdmissaoPorTipoCliente admissao, long clienteId, String nome, List<String> ordem,
+			TipoCliente tipo, int tamanhoEsperado) {
+		Future<String> pedido = threads.submit(() -> admissao.executar(clienteId, () -> {
+			ordem.add(nome);
+			return nome;
+		}));
+		esperarAte(() -> admissao.naFila(tipo) == tamanhoEsperado);
+		return pedido;
+	}
+
+	private double descartes(String tipo, String motivo) {
+		return registry.get("compra.admissao.descartes").tag("tipo", tipo).tag("motivo", motivo).counter().count();
+	}
+
+	private static void esperarAte(BooleanSupplier condicao) {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condicao.getAsBoolean()) {
+			if (System.nanoTime() > limite) {
+				throw new AssertionError("condição não atingida");
+			}
+			Thread.yield();
+		}
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
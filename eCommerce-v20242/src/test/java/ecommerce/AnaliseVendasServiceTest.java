@@ -0,0 +1,124 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.VendaProdutoDTO;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.AnaliseVendasService;
+import ecommerce.service.AnaliseVendasService.Criterio;
+import ecommerce.service.AnaliseVendasService.Janela;
+import ecommerce.service.CompraFinalizadaEvent;
+
+public class AnaliseVendasServiceTest {
+
+	private Instant agora;
+	private AnaliseVendasService analiseVendasService;
+
+	@BeforeEach
+	public void setup() {
+		agora = Instant.parse("2026-01-01T10:00:00Z");
+		analiseVendasService = new AnaliseVendasService(new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return ZoneId.of("UTC");
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return agora;
+			}
+		});
+	}
+
+	@Test
+	public void testContadoresPorProduto() {
+		vender(item(1L, "10.00", 2L), item(2L, "5.50", 1L));
+		vender(item(1L, "10.00", 3L));
+
+		assertEquals(new VendaProdutoDTO(1L, 5, 5000), analiseVendasService.vendasDoProduto(1L));
+		assertEquals(new VendaProdutoDTO(2L, 1, 550), analiseVendasService.vendasDoProduto(2L));
+		assertEquals(new VendaProdutoDTO(3L, 0, 0), analiseVendasService.vendasDoProduto(3L));
+	}
+
+	@Test
+	public void testMaisVendidosPorUnidadesEReceita() {
+		vender(item(1L, "100.00", 1L), item(2L, "1.00", 10L), item(3L, "20.00", 3L));
+
+		List<VendaProdutoDTO> porUnidades = analiseVendasService.maisVendidos(Janela.TOTAL, Criterio.UNIDADES, 2);
+		assertEquals(List.of(2L, 3L), porUnidades.stream().map(VendaProdutoDTO::produtoId).toList());
+
+		List<VendaProdutoDTO> porReceita = analiseVendasService.maisVendidos(Janela.TOTAL, Criterio.RECEITA, 3);
+		assertEquals(List.of(1L, 3L, 2L), porReceita.stream().map(VendaProdutoDTO::produtoId).toList());
+	}
+
+	@Test
+	public void testJanelaDeUmMinutoDescartaVendasAntigas() {
+		vender(item(1L, "1.00", 5L));
+		agora = agora.plus(Duration.ofSeconds(30));
+		vender(item(2L, "1.00", 1L));
+		agora = agora.plus(Duration.ofSeconds(45));
+
+		assertEquals(List.of(new VendaProdutoDTO(2L, 1, 100)),
+				analiseVendasService.maisVendidos(Janela.UM_MINUTO, Criterio.UNIDADES, 10));
+		assertEquals(List.of(1L, 2L), analiseVendasService.maisVendidos(Janela.UMA_HORA, Criterio.UNIDADES, 10)
+				.stream().map(VendaProdutoDTO::produtoId).toList());
+
+		agora = agora.plus(Duration.ofHours(1));
+		assertEquals(List.of(), analiseVendasService.maisVendidos(Janela.UMA_HORA, Criterio.UNIDADES, 10));
+		assertEquals(2, analiseVendasService.maisVendidos(Janela.TOTAL, Criterio.UNIDADES, 10).size());
+	}
+
+	@Test
+	public void testBaldeReaproveitadoNaVoltaDaJanela() {
+		vender(item(1L, "1.00", 5L));
+		agora = agora.plus(Duration.ofSeconds(60));
+		vender(item(1L, "1.00", 2L));
+
+		assertEquals(List.of(new VendaProdutoDTO(1L, 2, 200)),
+				analiseVendasService.maisVendidos(Janela.UM_MINUTO, Criterio.UNIDADES, 10));
+	}
+
+	@Test
+	public void testFalhaNoEventoNaoPropaga() {
+		Produto semPreco = new Produto(9L, "p9", null, null, 1, TipoProduto.LIVRO);
+
+		vender(new ItemCompra(null, semPreco, 1L));
+
+		assertEquals(new VendaProdutoDTO(9L, 0, 0), analiseVendasService.vendasDoProduto(9L));
+	}
+
+	@Test
+	public void testMaisVendidos_NInvalido() {
+		assertThrows(IllegalArgumentException.class,
+				() -> analiseVendasService.maisVendidos(Janela.TOTAL, Criterio.UNIDADES, 0));
+	}
+
+	private void vender(ItemCompra... itens) {
+		analiseVendasService.onCompraFinalizada(
+				new CompraFinalizadaEvent(1L, 1L, 1L, BigDecimal.ZERO, List.of(itens), agora));
+	}
+
+	private static ItemCompra item(Long produtoId, String preco, Long quantidade) {
+		Produto produto = new Produto(produtoId, "Produto " + produtoId, "", new BigDecimal(preco), 1,
+				TipoProduto.LIVRO);
+		return new ItemCompra(null, produto, quantidade);
+	}
+}
@@ -0,0 +1,77 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ecommerce.util.AposCommit;
+
+public class AposCommitTest {
+
+	@AfterEach
+	public void limpar() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		TransactionSynchronizationManager.unbindResourceIfPossible("chave");
+	}
+
+	@Test
+	public void testForaDeTransacaoExecutaNaHora() {
+		AtomicInteger execucoes = new AtomicInteger();
+		AposCommit.executar(execucoes::incrementAndGet);
+		assertEquals(1, execucoes.get());
+	}
+
+	@Test
+	public void testEmTransacaoSoExecutaNoCommit() {
+		AtomicInteger execucoes = new AtomicInteger();
+		TransactionSynchronizationManager.initSynchronization();
+
+		AposCommit.executar(execucoes::incrementAndGet);
+		assertEquals(0, execucoes.get());
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		assertEquals(1, execucoes.get());
+	}
+
+	@Test
+	public void testJuntarEntregaOsItensDaTransacaoDeUmaVez() {
+		List<Set<Long>> entregas = new ArrayList<>();
+		TransactionSynchronizationManager.initSynchronization();
+
+		AposCommit.juntar("chave", 1L, entregas::add);
+		AposCommit.juntar("chave", 2L, entregas::add);
+		AposCommit.juntar("chave", 1L, entregas::add);
+		assertTrue(entregas.isEmpty());
+
+		List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+		sincronizacoes.forEach(TransactionSynchronization::afterCommit);
+		sincronizacoes.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+		assertEquals(List.of(Set.of(1L, 2L)), entregas);
+		assertFalse(TransactionSynchronizationManager.hasResource("chave"));
+	}
+
+	@Test
+	public void testRollbackDescarta() {
+		AtomicInteger execucoes = new AtomicInteger();
+		TransactionSynchronizationManager.initSynchronization();
+
+		AposCommit.executar(execucoes::incrementAndGet);
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertEquals(0, execucoes.get());
+	}
+}
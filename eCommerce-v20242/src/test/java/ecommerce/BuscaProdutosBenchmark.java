@@ -0,0 +1,92 @@
+package ecommerce;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.BuscaProdutosService;
+
+/**
+ * Latência de {@link BuscaProdutosService#buscar} sobre um catálogo sintético de {@code benchmark.produtos} (padrão
+ * 100 mil) produtos com nomes e descrições de um vocabulário de 5 mil palavras: consultas de um e dois prefixos, com
+ * e sem filtro de tipo, percentis em microssegundos.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=BuscaProdutosBenchmark
+ */
+public class BuscaProdutosBenchmark {
+
+	private static final int PRODUTOS = Integer.getInteger("benchmark.produtos", 100_000);
+	private static final int CONSULTAS = 20_000;
+
+	@Test
+	void medirLatencia() {
+		Random random = new Random(11);
+		String[] palavras = new String[5_000];
+		for (int i = 0; i < palavras.length; i++) {
+			palavras[i] = palavra(random);
+		}
+		TipoProduto[] tipos = TipoProduto.values();
+
+		BuscaProdutosService busca = new BuscaProdutosService(null);
+		long inicio = System.nanoTime();
+		List<Produto> bloco = new ArrayList<>();
+		for (long id = 1; id <= PRODUTOS; id++) {
+			bloco.add(new Produto(id, frase(random, palavras, 3), frase(random, palavras, 12),
+					BigDecimal.valueOf(100 + random.nextInt(200_000), 2), 1, tipos[random.nextInt(tipos.length)]));
+			if (bloco.size() == 1000) {
+				busca.indexar(bloco);
+				bloco.clear();
+			}
+		}
+		System.out.printf("%n[BuscaProdutosBenchmark] %d produtos indexados em %d ms%n", PRODUTOS,
+				(System.nanoTime() - inicio) / 1_000_000);
+
+		for (int rodada = 0; rodada < 3; rodada++) { // a primeira rodada aquece o JIT
+			medir("1 prefixo", busca, random, palavras, 1, null);
+			medir("2 prefixos", busca, random, palavras, 2, null);
+			medir("1 prefixo + tipo", busca, random, palavras, 1, TipoProduto.LIVRO);
+		}
+	}
+
+	private static void medir(String nome, BuscaProdutosService busca, Random random, String[] palavras, int termos,
+			TipoProduto tipo) {
+		long[] latencias = new long[CONSULTAS];
+		long encontrados = 0;
+		for (int i = 0; i < CONSULTAS; i++) {
+			StringBuilder consulta = new StringBuilder();
+			for (int t = 0; t < termos; t++) {
+				String palavra = palavras[random.nextInt(palavras.length)];
+				consulta.append(palavra, 0, Math.min(palavra.length(), 3 + random.nextInt(3))).append(' ');
+			}
+			long inicio = System.nanoTime();
+			encontrados += busca.buscar(consulta.toString(), tipo, null, 20).total();
+			latencias[i] = System.nanoTime() - inicio;
+		}
+		Arrays.sort(latencias);
+		System.out.printf("[BuscaProdutosBenchmark] %-18s p50 %6.1f us  p99 %7.1f us  max %8.1f us  (%d encontrados/consulta)%n",
+				nome, latencias[CONSULTAS / 2] / 1000.0, latencias[CONSULTAS * 99 / 100] / 1000.0,
+				latencias[CONSULTAS - 1] / 1000.0, encontrados / CONSULTAS);
+	}
+
+	private static String frase(Random random, String[] palavras, int tamanho) {
+		StringBuilder frase = new StringBuilder();
+		for (int i = 0; i < tamanho; i++) {
+			frase.append(palavras[random.nextInt(palavras.length)]).append(' ');
+		}
+		return frase.toString();
+	}
+
+	private static String palavra(Random random) {
+		char[] letras = new char[4 + random.nextInt(6)];
+		for (int i = 0; i < letras.length; i++) {
+			letras[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(letras);
+	}
+}
@@ -0,0 +1,110 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.ProdutoResumoDTO;
+import ecommerce.dto.ResultadoBuscaDTO;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.BuscaProdutosService;
+
+public class BuscaProdutosServiceTest {
+
+	private BuscaProdutosService busca;
+
+	@BeforeEach
+	public void setUp() {
+		busca = new BuscaProdutosService(null);
+		busca.indexar(List.of(
+				produto(1L, "Café Torrado", "Pacote de 500g", "25.90", TipoProduto.ALIMENTO),
+				produto(2L, "Cafeteira Elétrica", "Faz café para 30 xícaras", "189.00", TipoProduto.ELETRONICO),
+				produto(3L, "Pão de Açúcar", "Livro de fotografia do Rio", "120.00", TipoProduto.LIVRO),
+				produto(4L, "Mesa de Jantar", "Madeira maciça, acompanha café da manhã? Não.", "1500.00",
+						TipoProduto.MOVEL)));
+	}
+
+	@Test
+	public void testTermosSemAcentoEMinusculos() {
+		assertEquals(List.of("pao", "acucar", "joao", "12v"), BuscaProdutosService.termos("Pão de AÇÚCAR, joão/12V"));
+		assertEquals(List.of(), BuscaProdutosService.termos("  "));
+	}
+
+	@Test
+	public void testPrefixoSemAcentoENomeAntesDaDescricao() {
+		ResultadoBuscaDTO resultado = busca.buscar("CAFE", null, null, 10);
+
+		// Nome casa com "café" e "cafeteira"; a mesa só tem "café" na descrição
+		assertEquals(3, resultado.total());
+		assertEquals(List.of(1L, 2L, 4L), ids(resultado));
+		assertEquals(List.of(3L), ids(busca.buscar("acucar", null, null, 10)));
+		assertEquals(List.of(2L), ids(busca.buscar("caf eletr", null, null, 10)));
+	}
+
+	@Test
+	public void testFacetasEFiltros() {
+		ResultadoBuscaDTO resultado = busca.buscar("cafe", TipoProduto.ELETRONICO, null, 10);
+
+		assertEquals(List.of(2L), ids(resultado));
+		// A contagem por tipo ignora o próprio filtro de tipo
+		assertEquals(1, resultado.porTipo().get(TipoProduto.ALIMENTO));
+		assertEquals(1, resultado.porTipo().get(TipoProduto.ELETRONICO));
+		assertEquals(1, resultado.porTipo().get(TipoProduto.MOVEL));
+		assertEquals(0, resultado.porTipo().get(TipoProduto.LIVRO));
+		// A contagem por faixa de preço respeita o filtro de tipo: só a cafeteira, de 100 a 500
+		assertEquals(List.of(0, 0, 1, 0, 0), resultado.porFaixaPreco().stream().map(f -> f.produtos()).toList());
+
+		assertEquals(List.of(4L), ids(busca.buscar("cafe", null, 4, 10)));
+		assertEquals(List.of(1L, 2L, 3L, 4L), ids(busca.buscar(null, null, null, 10)));
+		assertEquals(4, busca.buscar("", null, null, 0).total());
+	}
+
+	@Test
+	public void testAlteracaoERemocao() {
+		busca.indexar(List.of(produto(1L, "Chá Mate", "Pacote de 250g", "12.00", TipoProduto.ALIMENTO)));
+		busca.remover(2L);
+
+		assertEquals(List.of(4L), ids(busca.buscar("cafe", null, null, 10)));
+		assertEquals(List.of(1L), ids(busca.buscar("cha", null, null, 10)));
+		assertEquals(0, busca.buscar("cafe", null, null, 10).porFaixaPreco().get(2).produtos());
+		assertEquals(3, busca.produtos());
+	}
+
+	@Test
+	public void testCompactacaoMantemResultados() {
+		for (int rodada = 0; rodada < 3; rodada++) {
+			List<Produto> produtos = new ArrayList<>();
+			for (long id = 100; id < 2100; id++) {
+				produtos.add(produto(id, "Caderno " + id + " rodada" + rodada, null, "10.00", TipoProduto.LIVRO));
+			}
+			busca.indexar(produtos);
+		}
+
+		assertEquals(2004, busca.produtos());
+		assertEquals(2000, busca.buscar("caderno rodada2", null, null, 1).total());
+		assertEquals(0, busca.buscar("rodada0", null, null, 1).total());
+		assertEquals(List.of(2099L), ids(busca.buscar("caderno 2099", null, null, 10)));
+	}
+
+	@Test
+	public void testParametrosInvalidos() {
+		assertThrows(IllegalArgumentException.class, () -> busca.buscar("cafe", null, 5, 10));
+		assertThrows(IllegalArgumentException.class,
+				() -> busca.buscar("cafe", null, null, BuscaProdutosService.LIMITE_MAXIMO + 1));
+	}
+
+	private static Produto produto(Long id, String nome, String descricao, String preco, TipoProduto tipo) {
+		return new Produto(id, nome, descricao, new BigDecimal(preco), 1, tipo);
+	}
+
+	private static List<Long> ids(ResultadoBuscaDTO resultado) {
+		return resultado.produtos().stream().map(ProdutoResumoDTO::id).toList();
+	}
+}
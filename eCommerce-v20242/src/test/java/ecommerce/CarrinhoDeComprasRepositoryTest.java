@@ -0,0 +1,102 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.StatusCarrinho;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Cada update roda e faz commit na própria transação
+public class CarrinhoDeComprasRepositoryTest {
+
+	@Autowired
+	private CarrinhoDeComprasRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	public void testMudarStatus_SoAPrimeiraTransicaoVence() {
+		Long id = repository.save(new CarrinhoDeCompras(null, null, new ArrayList<>(), LocalDate.now())).getId();
+
+		assertEquals(1, mudarStatus(id, StatusCarrinho.ABERTO, StatusCarrinho.EM_FINALIZACAO));
+		assertEquals(0, mudarStatus(id, StatusCarrinho.ABERTO, StatusCarrinho.EM_FINALIZACAO));
+
+		CarrinhoDeCompras carrinho = repository.findById(id).orElseThrow();
+		assertEquals(StatusCarrinho.EM_FINALIZACAO, carrinho.getStatus());
+		assertEquals(1L, carrinho.getVersao());
+	}
+
+	@Test
+	public void testMudarStatus_ConcorrenciaNoMesmoCarrinho() throws Exception {
+		Long id = repository.save(new CarrinhoDeCompras(null, null, new ArrayList<>(), LocalDate.now())).getId();
+
+		int tentativas = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(tentativas);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<Integer>> resultados = new ArrayList<>();
+		for (int i = 0; i < tentativas; i++) {
+			resultados.add(executor.submit(() -> {
+				largada.await();
+				return mudarStatus(id, StatusCarrinho.ABERTO, StatusCarrinho.EM_FINALIZACAO);
+			}));
+		}
+		largada.countDown();
+
+		int vencedores = 0;
+		for (Future<Integer> resultado : resultados) {
+			vencedores += resultado.get();
+		}
+		executor.shutdown();
+
+		assertEquals(1, vencedores);
+	}
+
+	@Test
+	public void testReservaAbandonadaEhRetomadaDepoisDeExpirar() {
+		Long id = repository.save(new CarrinhoDeCompras(null, null, new ArrayList<>(), LocalDate.now())).getId();
+		Instant inicio = Instant.parse("2026-01-01T10:00:00Z");
+		Duration expiracao = Duration.ofMinutes(10);
+
+		// Finalização que reserva o carrinho e morre antes de concluir ou reabrir
+		assertEquals(1, reservar(id, inicio, expiracao));
+
+		assertEquals(0, reservar(id, inicio.plus(Duration.ofMinutes(9)), expiracao));
+		assertEquals(1, reservar(id, inicio.plus(Duration.ofMinutes(11)), expiracao));
+		CarrinhoDeCompras carrinho = repository.findById(id).orElseThrow();
+		assertEquals(StatusCarrinho.EM_FINALIZACAO, carrinho.getStatus());
+		assertEquals(inicio.plus(Duration.ofMinutes(11)), carrinho.getInicioFinalizacao());
+
+		// Finalizado não é retomado, por mais velha que seja a reserva
+		assertEquals(1, mudarStatus(id, StatusCarrinho.EM_FINALIZACAO, StatusCarrinho.FINALIZADO));
+		assertEquals(0, reservar(id, inicio.plus(Duration.ofDays(1)), expiracao));
+	}
+
+	private int reservar(Long id, Instant agora, Duration expiracao) {
+		return new TransactionTemplate(transactionManager)
+				.execute(s -> repository.reservarParaFinalizacao(id, agora, agora.minus(expiracao)));
+	}
+
+	private int mudarStatus(Long id, StatusCarrinho esperado, StatusCarrinho novo) {
+		return new TransactionTemplate(transactionManager).execute(s -> repository.mudarStatus(id, esperado, novo));
+	}
+}
@@ -1,21 +1,29 @@
 package ecommerce;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import ecommerce.entity.CarrinhoDeCompras;
 import ecommerce.entity.Cliente;
+import ecommerce.entity.StatusCarrinho;
 import ecommerce.repository.CarrinhoDeComprasRepository;
 import ecommerce.service.CarrinhoDeComprasService;
 import ecommerce.service.CompraService;
@@ -23,11 +31,18 @@ import ecommerce.service.CompraService;
 @ExtendWith(MockitoExtension.class)
 public class CarrinhoDeComprasServiceTest {
 
+    private static final Instant AGORA = Instant.parse("2026-01-01T10:00:00Z");
+
 	@Mock
     private CarrinhoDeComprasRepository carrinhoDeComprasRepository;
 
-    @InjectMocks
     private CarrinhoDeComprasService carrinhoDeComprasService;
+
+    @BeforeEach
+    void setUp() {
+        carrinhoDeComprasService = new CarrinhoDeComprasService(carrinhoDeComprasRepository, Duration.ofMinutes(10),
+                Clock.fixed(AGORA, ZoneOffset.UTC));
+    }
     
     
     @Test
@@ -83,5 +98,43 @@ public class CarrinhoDeComprasServiceTest {
         });
         assertEquals("Carrinho não encontrado.", exception.getMessage());
     }
-}
 
+    @Test
+    void testIniciarFinalizacao_CarrinhoAberto() {
+        when(carrinhoDeComprasRepository.reservarParaFinalizacao(1L, AGORA, AGORA.minus(Duration.ofMinutes(10))))
+            .thenReturn(1);
+
+        carrinhoDeComprasService.iniciarFinalizacao(1L);
+
+        verify(carrinhoDeComprasRepository).reservarParaFinalizacao(1L, AGORA, AGORA.minus(Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void testIniciarFinalizacao_CarrinhoNaoEstaAberto() {
+        // Outra finalização já mudou o status: o update condicional não altera nenhuma linha
+        when(carrinhoDeComprasRepository.reservarParaFinalizacao(1L, AGORA, AGORA.minus(Duration.ofMinutes(10))))
+            .thenReturn(0);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            carrinhoDeComprasService.iniciarFinalizacao(1L);
+        });
+        assertEquals("Carrinho já finalizado ou em finalização.", exception.getMessage());
+    }
+
+    @Test
+    void testPodeIniciarFinalizacao_SoAbertoOuComReservaExpirada() {
+        CarrinhoDeCompras carrinho = new CarrinhoDeCompras();
+        assertTrue(carrinhoDeComprasService.podeIniciarFinalizacao(carrinho));
+
+        carrinho.setStatus(StatusCarrinho.EM_FINALIZACAO);
+        ReflectionTestUtils.setField(carrinho, "inicioFinalizacao", AGORA.minus(Duration.ofMinutes(5)));
+        assertFalse(carrinhoDeComprasService.podeIniciarFinalizacao(carrinho));
+
+        // Finalização que morreu há mais que a expiração: o carrinho pode ser retomado
+        ReflectionTestUtils.setField(carrinho, "inicioFinalizacao", AGORA.minus(Duration.ofMinutes(11)));
+        assertTrue(carrinhoDeComprasService.podeIniciarFinalizacao(carrinho));
+
+        carrinho.setStatus(StatusCarrinho.FINALIZADO);
+        assertFalse(carrinhoDeComprasService.podeIniciarFinalizacao(carrinho));
+    }
+}
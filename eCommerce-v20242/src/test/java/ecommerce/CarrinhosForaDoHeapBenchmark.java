@@ -0,0 +1,91 @@
+package ecommerce;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.CarrinhosForaDoHeap;
+import ecommerce.service.CompraService;
+
+/**
+ * {@code benchmark.carrinhos} (padrão 500 mil) carrinhos de 5 itens, como grafo de entidades e em
+ * {@link CarrinhosForaDoHeap}: heap ocupado depois de um GC, memória direta reservada e tempo para precificar todos.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=CarrinhosForaDoHeapBenchmark
+ */
+public class CarrinhosForaDoHeapBenchmark {
+
+	private static final int CARRINHOS = Integer.getInteger("benchmark.carrinhos", 500_000);
+	private static final int ITENS = 5;
+
+	private final CompraService compraService = new CompraService(null, null, null, null, null);
+
+	@Test
+	void compararMemoriaETempo() {
+		Random random = new Random(3);
+		List<Produto> produtos = new ArrayList<>();
+		for (long p = 0; p < 10_000; p++) {
+			produtos.add(new Produto(p, "p" + p, null, BigDecimal.valueOf(random.nextInt(50_000), 2),
+					random.nextInt(5), TipoProduto.LIVRO));
+		}
+		Cliente cliente = new Cliente(1L, "c", "e", TipoCliente.PRATA);
+
+		long base = heapOcupado();
+		List<CarrinhoDeCompras> entidades = new ArrayList<>(CARRINHOS);
+		for (long c = 0; c < CARRINHOS; c++) {
+			List<ItemCompra> itens = new ArrayList<>(ITENS);
+			for (int i = 0; i < ITENS; i++) {
+				itens.add(new ItemCompra(c * ITENS + i, produtos.get(random.nextInt(produtos.size())), 1L));
+			}
+			entidades.add(new CarrinhoDeCompras(c, cliente, itens, null));
+		}
+		long heapEntidades = heapOcupado() - base;
+
+		base = heapOcupado();
+		CarrinhosForaDoHeap carrinhos = new CarrinhosForaDoHeap(65536);
+		entidades.forEach(carrinhos::carregar);
+		long heapForaDoHeap = heapOcupado() - base;
+
+		System.out.printf("%n[CarrinhosForaDoHeapBenchmark] %d carrinhos de %d itens%n", CARRINHOS, ITENS);
+		System.out.printf("[CarrinhosForaDoHeapBenchmark] entidades: %6.1f MB de heap%n", heapEntidades / 1e6);
+		System.out.printf("[CarrinhosForaDoHeapBenchmark] fora do heap: %6.1f MB de heap (índice), %6.1f MB diretos%n",
+				heapForaDoHeap / 1e6, carrinhos.bytesReservados() / 1e6);
+
+		for (int rodada = 0; rodada < 3; rodada++) { // a primeira rodada aquece o JIT
+			long inicio = System.nanoTime();
+			BigDecimal soma = BigDecimal.ZERO;
+			for (CarrinhoDeCompras carrinho : entidades) {
+				soma = soma.add(compraService.calcularCustoTotal(carrinho));
+			}
+			long entidadesNs = System.nanoTime() - inicio;
+
+			inicio = System.nanoTime();
+			long somaMilesimos = 0;
+			for (long c = 0; c < CARRINHOS; c++) {
+				somaMilesimos += carrinhos.custoTotalMilesimos(c);
+			}
+			long foraDoHeapNs = System.nanoTime() - inicio;
+
+			System.out.printf("[CarrinhosForaDoHeapBenchmark] precificar todos: entidades %6d ms, fora do heap %6d ms "
+					+ "(totais %s e %s)%n", entidadesNs / 1_000_000, foraDoHeapNs / 1_000_000, soma,
+					BigDecimal.valueOf(somaMilesimos, 3));
+		}
+	}
+
+	private static long heapOcupado() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,109 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.CarrinhosForaDoHeap;
+import ecommerce.service.CompraService;
+
+public class CarrinhosForaDoHeapTest {
+
+	private final CompraService compraService = new CompraService(null, null, null, null, null);
+	private final CarrinhosForaDoHeap carrinhos = new CarrinhosForaDoHeap(64);
+
+	@Test
+	public void testTotaisIguaisAoCalculoDaCompra() {
+		Random random = new Random(42);
+		TipoCliente[] tipos = { TipoCliente.BRONZE, TipoCliente.PRATA, TipoCliente.OURO, null };
+		List<Produto> produtos = new ArrayList<>();
+		for (int p = 0; p < 50; p++) {
+			// Preços perto dos limites de desconto e pesos perto dos limites de frete
+			produtos.add(new Produto((long) p, "p" + p, null, BigDecimal.valueOf(random.nextInt(60_000), 2),
+					random.nextInt(12), TipoProduto.LIVRO));
+		}
+
+		for (long c = 0; c < 5_000; c++) {
+			List<ItemCompra> itens = new ArrayList<>();
+			for (int i = random.nextInt(6); i >= 0; i--) {
+				itens.add(new ItemCompra(null, produtos.get(random.nextInt(produtos.size())), 1L + random.nextInt(5)));
+			}
+			CarrinhoDeCompras carrinho = new CarrinhoDeCompras(c, new Cliente(1L, "c", "e", tipos[(int) c % 4]), itens,
+					null);
+			carrinhos.carregar(carrinho);
+
+			BigDecimal esperado = compraService.calcularCustoTotal(carrinho);
+			BigDecimal calculado = compraService.calcularCustoTotal(carrinhos, c);
+			assertEquals(0, esperado.compareTo(calculado), "carrinho " + c + ": " + esperado + " != " + calculado);
+		}
+		assertEquals(5_000, carrinhos.carrinhos());
+	}
+
+	@Test
+	public void testMesmoProdutoSomaQuantidadeERemoverItem() {
+		carrinhos.abrir(1, TipoCliente.BRONZE);
+		carrinhos.adicionar(1, 10, 2, new BigDecimal("10.00"), 1);
+		carrinhos.adicionar(1, 20, 1, new BigDecimal("5.50"), 1);
+		carrinhos.adicionar(1, 10, 3, new BigDecimal("12.00"), 1);
+
+		Map<Long, Long> quantidades = new HashMap<>();
+		carrinhos.paraCadaItem(1, (produtoId, quantidade, preco, peso) -> quantidades.put(produtoId, quantidade));
+		assertEquals(Map.of(10L, 5L, 20L, 1L), quantidades);
+		assertEquals(2, carrinhos.linhas());
+		// 5 * 12,00 + 5,50, peso 6: frete de 2 por kg
+		assertEquals(65_500 + 12_000, carrinhos.custoTotalMilesimos(1));
+
+		assertTrue(carrinhos.removerItem(1, 10));
+		assertFalse(carrinhos.removerItem(1, 10));
+		assertEquals(5_500, carrinhos.custoTotalMilesimos(1));
+		assertEquals(1, carrinhos.linhas());
+	}
+
+	@Test
+	public void testRegistrosRemovidosSaoReaproveitados() {
+		for (int rodada = 0; rodada < 20; rodada++) {
+			for (long c = 0; c < 1_000; c++) {
+				carrinhos.abrir(c, TipoCliente.PRATA);
+				for (long p = 0; p < 4; p++) {
+					carrinhos.adicionar(c, p, 1, BigDecimal.ONE, 1);
+				}
+			}
+			for (long c = 0; c < 1_000; c++) {
+				assertTrue(carrinhos.remover(c));
+			}
+		}
+
+		assertEquals(0, carrinhos.carrinhos());
+		assertEquals(0, carrinhos.linhas());
+		// 4 mil linhas de 32 bytes e mil cabeçalhos de 24, em slabs de 64 e 16 registros: sem crescer a cada rodada
+		assertEquals(4_032 * 32 + 1_008 * 24, carrinhos.bytesReservados());
+	}
+
+	@Test
+	public void testEntradasInvalidas() {
+		carrinhos.abrir(1, null);
+
+		assertThrows(IllegalArgumentException.class, () -> carrinhos.adicionar(2, 1, 1, BigDecimal.ONE, 1));
+		assertThrows(IllegalArgumentException.class, () -> carrinhos.adicionar(1, 1, 1, new BigDecimal("1.005"), 1));
+		assertThrows(IllegalArgumentException.class, () -> carrinhos.adicionar(1, 1, 0, BigDecimal.ONE, 1));
+		assertThrows(IllegalArgumentException.class, () -> carrinhos.custoTotalMilesimos(1));
+		assertThrows(IllegalArgumentException.class, () -> carrinhos.custoTotalMilesimos(2));
+		assertFalse(carrinhos.remover(2));
+	}
+}
@@ -22,6 +22,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import ecommerce.dto.CompraDTO;
 import ecommerce.entity.CarrinhoDeCompras;
@@ -54,6 +55,9 @@ public class CompraServiceTest {
 	@Mock
 	private IPagamentoExternal pagamentoExternal;
 
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
 	@InjectMocks
 	private CompraService compraService;
 
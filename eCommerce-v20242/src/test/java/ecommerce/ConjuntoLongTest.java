@@ -0,0 +1,63 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.util.ConjuntoLong;
+
+public class ConjuntoLongTest {
+
+	@Test
+	public void testAdicionarContemERemover() {
+		ConjuntoLong conjunto = new ConjuntoLong();
+		assertTrue(conjunto.adicionar(7));
+		assertTrue(conjunto.adicionar(-3));
+		assertFalse(conjunto.adicionar(7));
+
+		assertTrue(conjunto.contem(-3));
+		assertFalse(conjunto.contem(8));
+		assertEquals(2, conjunto.tamanho());
+
+		assertTrue(conjunto.remover(7));
+		assertFalse(conjunto.remover(7));
+		assertFalse(conjunto.contem(7));
+		assertEquals(1, conjunto.tamanho());
+	}
+
+	@Test
+	public void testInsercoesERemocoesAlternadasConferemComHashSet() {
+		// Poucas chaves para forçar colisões e sequências longas no deslocamento da remoção
+		ConjuntoLong conjunto = new ConjuntoLong();
+		Set<Long> referencia = new HashSet<>();
+		Random random = new Random(3);
+		for (int i = 0; i < 200_000; i++) {
+			long elemento = random.nextInt(5_000);
+			if (random.nextBoolean()) {
+				assertEquals(referencia.add(elemento), conjunto.adicionar(elemento));
+			} else {
+				assertEquals(referencia.remove(elemento), conjunto.remover(elemento));
+			}
+		}
+
+		assertEquals(referencia.size(), conjunto.tamanho());
+		for (long elemento = 0; elemento < 5_000; elemento++) {
+			assertEquals(referencia.contains(elemento), conjunto.contem(elemento));
+		}
+		Set<Long> percorridos = new HashSet<>();
+		conjunto.paraCada(percorridos::add);
+		assertEquals(referencia, percorridos);
+	}
+
+	@Test
+	public void testElementoReservado() {
+		assertThrows(IllegalArgumentException.class, () -> new ConjuntoLong().adicionar(Long.MIN_VALUE));
+	}
+}
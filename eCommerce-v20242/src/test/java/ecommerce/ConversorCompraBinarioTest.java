@@ -0,0 +1,89 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import ecommerce.controller.ConversorCompraBinario;
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.LoteCompraDTO;
+import ecommerce.dto.PedidoCompraDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+
+public class ConversorCompraBinarioTest {
+
+	private final ConversorCompraBinario conversor = new ConversorCompraBinario();
+
+	@Test
+	public void testCompraIdaEVolta() throws IOException {
+		CompraDTO sucesso = new CompraDTO(true, 123L, "Compra finalizada com sucesso.");
+		CompraDTO recusa = new CompraDTO(false, null, "Pagamento não autorizado.");
+		CompraDTO semMensagem = new CompraDTO(false, null, null);
+
+		assertEquals(sucesso, idaEVolta(sucesso));
+		assertEquals(recusa, idaEVolta(recusa));
+		assertEquals(semMensagem, idaEVolta(semMensagem));
+	}
+
+	@Test
+	public void testLoteIdaEVolta() throws IOException {
+		LoteCompraDTO lote = new LoteCompraDTO(List.of(new PedidoCompraDTO(1L, 2L), new PedidoCompraDTO(3L, 4L)));
+		ResultadoLoteDTO resultado = new ResultadoLoteDTO(
+				List.of(new CompraDTO(true, 9L, "ok"), new CompraDTO(false, null, "Itens fora de estoque.")));
+
+		assertEquals(lote, idaEVolta(lote));
+		assertEquals(resultado, idaEVolta(resultado));
+	}
+
+	@Test
+	public void testPedidoOcupaDezesseisBytes() throws IOException {
+		MockHttpOutputMessage saida = new MockHttpOutputMessage();
+		conversor.write(new PedidoCompraDTO(1L, 2L), ConversorCompraBinario.TIPO, saida);
+
+		assertEquals(16, saida.getBodyAsBytes().length);
+		assertEquals(16, saida.getHeaders().getContentLength());
+	}
+
+	@Test
+	public void testCorpoTruncadoRecusado() throws IOException {
+		MockHttpOutputMessage saida = new MockHttpOutputMessage();
+		conversor.write(new LoteCompraDTO(List.of(new PedidoCompraDTO(1L, 2L))), ConversorCompraBinario.TIPO, saida);
+		byte[] truncado = Arrays.copyOf(saida.getBodyAsBytes(), saida.getBodyAsBytes().length - 1);
+
+		assertThrows(HttpMessageNotReadableException.class,
+				() -> conversor.read(LoteCompraDTO.class, entrada(truncado)));
+		assertThrows(HttpMessageNotReadableException.class,
+				() -> conversor.read(PedidoCompraDTO.class, entrada(new byte[17])));
+	}
+
+	@Test
+	public void testSoTrataOsDtosDoCheckout() {
+		assertTrue(conversor.canRead(PedidoCompraDTO.class, ConversorCompraBinario.TIPO));
+		assertFalse(conversor.canWrite(String.class, ConversorCompraBinario.TIPO));
+		assertFalse(conversor.canWrite(CompraDTO.class, MediaType.APPLICATION_JSON));
+	}
+
+	private Object idaEVolta(Object valor) throws IOException {
+		MockHttpOutputMessage saida = new MockHttpOutputMessage();
+		conversor.write(valor, ConversorCompraBinario.TIPO, saida);
+		return conversor.read(valor.getClass(), entrada(saida.getBodyAsBytes()));
+	}
+
+	private static MockHttpInputMessage entrada(byte[] corpo) {
+		MockHttpInputMessage entrada = new MockHttpInputMessage(corpo);
+		entrada.getHeaders().setContentType(ConversorCompraBinario.TIPO);
+		entrada.getHeaders().setContentLength(corpo.length);
+		return entrada;
+	}
+}
@@ -0,0 +1,161 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ecommerce.diario.DiarioCompras;
+import ecommerce.diario.LeitorDiarioCompras;
+import ecommerce.diario.RegistroCompra;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.CompraFinalizadaEvent;
+
+public class DiarioComprasTest {
+
+	@TempDir
+	Path diretorio;
+
+	@Test
+	public void testRegistrarELerEmOrdem() throws Exception {
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 100, 0)) {
+			List<CompletableFuture<Void>> gravados = new ArrayList<>();
+			for (long i = 1; i <= 3; i++) {
+				gravados.add(diario.registrar(registro(i, (int) i)));
+			}
+			CompletableFuture.allOf(gravados.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+			List<RegistroCompra> lidos = lerTodos(diario);
+			assertEquals(List.of(registro(1, 1), registro(2, 2), registro(3, 3)), lidos);
+		}
+	}
+
+	@Test
+	public void testRegistroSemTransacao() throws Exception {
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 0)) {
+			RegistroCompra semTransacao = new RegistroCompra(1, 2, null, 0, 10, List.of());
+			diario.registrar(semTransacao).get(5, TimeUnit.SECONDS);
+
+			assertNull(lerTodos(diario).get(0).transacaoId());
+		}
+	}
+
+	@Test
+	public void testRolaSegmentoQuandoRegistroNaoCabe() throws Exception {
+		// Cada registro com 2 itens ocupa 100 bytes: cabem 2 por segmento de 256 bytes
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 256, 0, 0)) {
+			for (long i = 1; i <= 5; i++) {
+				diario.registrar(registro(i, 2)).get(5, TimeUnit.SECONDS);
+			}
+
+			assertEquals(3, segmentos().size());
+			assertEquals(List.of(1L, 2L, 3L, 4L, 5L), lerTodos(diario).stream().map(RegistroCompra::carrinhoId).toList());
+		}
+	}
+
+	@Test
+	public void testRecuperaAposEscritaInterrompida() throws Exception {
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 0)) {
+			diario.registrar(registro(1, 1)).get(5, TimeUnit.SECONDS);
+			diario.registrar(registro(2, 1)).get(5, TimeUnit.SECONDS);
+		}
+
+		// Simula queda no meio da escrita do segundo registro: payload pela metade
+		Path segmento = segmentos().get(0);
+		try (RandomAccessFile arquivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+			int tamanhoRegistro = 8 + 44 + 24;
+			arquivo.seek(8 + tamanhoRegistro + 8 + 30);
+			arquivo.write(new byte[tamanhoRegistro - 38]);
+		}
+
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 0)) {
+			assertEquals(List.of(1L), lerTodos(diario).stream().map(RegistroCompra::carrinhoId).toList());
+
+			diario.registrar(registro(3, 1)).get(5, TimeUnit.SECONDS);
+			assertEquals(List.of(1L, 3L), lerTodos(diario).stream().map(RegistroCompra::carrinhoId).toList());
+		}
+	}
+
+	@Test
+	public void testRecuperaSegmentoRoladoSemCabecalhoGravado() throws Exception {
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 0)) {
+			diario.registrar(registro(1, 1)).get(5, TimeUnit.SECONDS);
+		}
+		// Queda logo depois de uma rolagem: o cabeçalho do novo segmento só iria ao disco com o primeiro registro
+		Files.write(diretorio.resolve("diario-0000000001.seg"), new byte[4096]);
+
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 0)) {
+			diario.registrar(registro(2, 1)).get(5, TimeUnit.SECONDS);
+			assertEquals(List.of(1L, 2L), lerTodos(diario).stream().map(RegistroCompra::carrinhoId).toList());
+		}
+	}
+
+	@Test
+	public void testOnCompraFinalizadaConverteParaCentavos() throws Exception {
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 1000)) {
+			Produto produto = new Produto(7L, "Livro", "Romance", new BigDecimal("39.90"), 1, TipoProduto.LIVRO);
+			diario.onCompraFinalizada(new CompraFinalizadaEvent(10L, 20L, 30L, new BigDecimal("159.6"),
+					List.of(new ItemCompra(1L, produto, 4L)), Instant.ofEpochMilli(1234)));
+
+			RegistroCompra lido = lerTodos(diario).get(0);
+			assertEquals(new RegistroCompra(10, 20, 30L, 15960, 1234, List.of(new RegistroCompra.Item(7, 4, 3990))),
+					lido);
+		}
+	}
+
+	@Test
+	public void testRegistroMaiorQueSegmento() {
+		try (DiarioCompras diario = new DiarioCompras(diretorio, 128, 0, 0)) {
+			assertThrows(IllegalArgumentException.class, () -> diario.registrar(registro(1, 10)));
+		}
+	}
+
+	@Test
+	public void testRegistrarAposFechar() {
+		DiarioCompras diario = new DiarioCompras(diretorio, 4096, 0, 0);
+		diario.close();
+
+		assertThrows(IllegalStateException.class, () -> diario.registrar(registro(1, 1)));
+		assertTrue(Files.exists(diretorio.resolve("diario-0000000000.seg")));
+	}
+
+	private static RegistroCompra registro(long carrinhoId, int quantidadeItens) {
+		List<RegistroCompra.Item> itens = new ArrayList<>();
+		for (int i = 0; i < quantidadeItens; i++) {
+			itens.add(new RegistroCompra.Item(100 + i, i + 1, 999 * (i + 1)));
+		}
+		return new RegistroCompra(carrinhoId, 50 + carrinhoId, 9000 + carrinhoId, 12345 * carrinhoId,
+				1_700_000_000_000L + carrinhoId, itens);
+	}
+
+	private static List<RegistroCompra> lerTodos(DiarioCompras diario) {
+		List<RegistroCompra> registros = new ArrayList<>();
+		try (LeitorDiarioCompras leitor = diario.abrirLeitor()) {
+			leitor.forEachRemaining(registros::add);
+		}
+		return registros;
+	}
+
+	private List<Path> segmentos() throws IOException {
+		try (Stream<Path> arquivos = Files.list(diretorio)) {
+			return arquivos.sorted().toList();
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.external.AlteracaoEstoque;
+import ecommerce.external.EspelhoEstoque;
+import ecommerce.external.IFeedEstoque;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.FeedEstoqueSimulado;
+
+public class EspelhoEstoqueTest {
+
+	private Instant agora;
+	private Clock clock;
+	private EstoqueContado remoto;
+	private EspelhoEstoque espelho;
+
+	@BeforeEach
+	public void setup() {
+		agora = Instant.parse("2026-01-01T10:00:00Z");
+		clock = new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return ZoneId.of("UTC");
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return agora;
+			}
+		};
+		remoto = new EstoqueContado();
+		// Feed que nunca entrega nada: as alterações são aplicadas pelo próprio teste
+		IFeedEstoque feedParado = (maximo, espera) -> {
+			Thread.sleep(Long.MAX_VALUE);
+			return List.of();
+		};
+		espelho = new EspelhoEstoque(remoto, feedParado, true, Duration.ofMillis(500), clock);
+	}
+
+	@AfterEach
+	public void fechar() {
+		espelho.close();
+	}
+
+	@Test
+	public void testRespondeLocalmenteComEspelhoEmDia() {
+		espelho.aplicar(List.of(alteracao(1, 10L, 5), alteracao(2, 20L, 0)));
+
+		assertEquals(new DisponibilidadeDTO(false, List.of(20L)),
+				espelho.verificarDisponibilidade(List.of(10L, 20L), List.of(5L, 1L)));
+		assertEquals(new DisponibilidadeDTO(true, List.of()),
+				espelho.verificarDisponibilidade(List.of(10L), List.of(3L)));
+		assertEquals(0, remoto.consultas.get());
+		assertEquals(2, espelho.getRespostasLocais());
+	}
+
+	@Test
+	public void testProdutoForaDoEspelhoConsultaRemoto() {
+		espelho.aplicar(List.of(alteracao(1, 10L, 5)));
+
+		espelho.verificarDisponibilidade(List.of(10L, 30L), List.of(1L, 1L));
+
+		assertEquals(1, remoto.consultas.get());
+		assertEquals(1, espelho.getConsultasPorProdutoDesconhecido());
+	}
+
+	@Test
+	public void testEspelhoDefasadoConsultaRemoto() {
+		espelho.aplicar(List.of(alteracao(1, 10L, 5)));
+		agora = agora.plusMillis(501);
+
+		espelho.verificarDisponibilidade(List.of(10L), List.of(1L));
+
+		assertEquals(501, espelho.getDefasagemMs());
+		assertEquals(1, remoto.consultas.get());
+		assertEquals(1, espelho.getConsultasPorDefasagem());
+
+		// Feed vazio: nada pendente, o espelho volta a estar em dia
+		espelho.aplicar(List.of());
+		espelho.verificarDisponibilidade(List.of(10L), List.of(1L));
+		assertEquals(1, remoto.consultas.get());
+	}
+
+	@Test
+	public void testSaltoNaSequenciaDescartaEspelho() {
+		espelho.aplicar(List.of(alteracao(1, 10L, 5), alteracao(2, 20L, 5)));
+		espelho.aplicar(List.of(alteracao(5, 30L, 5)));
+
+		espelho.verificarDisponibilidade(List.of(10L), List.of(1L));
+
+		assertEquals(1, espelho.getLacunas());
+		assertEquals(1, remoto.consultas.get());
+	}
+
+	@Test
+	public void testAcompanhaFeedDoEstoqueSimulado() throws Exception {
+		espelho.close();
+		FeedEstoqueSimulado feed = new FeedEstoqueSimulado();
+		EstoqueSimulado estoque = new EstoqueSimulado(100, null, feed);
+		espelho = new EspelhoEstoque(estoque, feed, true, Duration.ofSeconds(5));
+
+		estoque.definirQuantidade(10L, 3);
+		estoque.darBaixa(List.of(10L), List.of(2L));
+
+		// Restou 1 unidade: o espelho deve chegar a essa resposta sem consultar o estoque
+		DisponibilidadeDTO esperada = new DisponibilidadeDTO(false, List.of(10L));
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		long locaisAntes;
+		DisponibilidadeDTO disponibilidade;
+		do {
+			Thread.sleep(10);
+			locaisAntes = espelho.getRespostasLocais();
+			disponibilidade = espelho.verificarDisponibilidade(List.of(10L), List.of(2L));
+		} while ((espelho.getRespostasLocais() == locaisAntes || !esperada.equals(disponibilidade))
+				&& System.nanoTime() < limite);
+
+		assertEquals(esperada, disponibilidade);
+		assertTrue(espelho.getRespostasLocais() > locaisAntes);
+	}
+
+	@Test
+	public void testFeedSemAssinanteNaoGuardaECheioDescartaComSalto() throws Exception {
+		FeedEstoqueSimulado feed = new FeedEstoqueSimulado(2);
+		EstoqueSimulado estoque = new EstoqueSimulado(100, null, feed);
+		for (long produto = 0; produto < 1_000; produto++) {
+			estoque.definirQuantidade(produto, 1);
+		}
+		assertTrue(feed.aguardar(10, Duration.ZERO).isEmpty());
+
+		feed.assinar();
+		for (long produto = 0; produto < 3; produto++) {
+			estoque.definirQuantidade(produto, 5);
+		}
+		assertEquals(List.of(1L, 2L), feed.aguardar(10, Duration.ZERO).stream().map(AlteracaoEstoque::sequencia)
+				.toList());
+
+		// A terceira foi descartada com a fila cheia; a próxima chega com a sequência saltada
+		estoque.definirQuantidade(10L, 5);
+		assertEquals(4, feed.aguardar(10, Duration.ZERO).get(0).sequencia());
+	}
+
+	private AlteracaoEstoque alteracao(long sequencia, Long produtoId, long quantidade) {
+		return new AlteracaoEstoque(sequencia, produtoId, quantidade, clock.millis());
+	}
+
+	private static class EstoqueContado extends EstoqueSimulado {
+		final AtomicInteger consultas = new AtomicInteger();
+
+		@Override
+		public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			consultas.incrementAndGet();
+			return super.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+	}
+}
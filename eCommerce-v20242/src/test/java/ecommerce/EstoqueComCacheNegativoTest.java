@@ -0,0 +1,112 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.external.EstoqueComCacheNegativo;
+import ecommerce.external.EstoqueRepostoEvent;
+import ecommerce.external.fake.EstoqueSimulado;
+
+public class EstoqueComCacheNegativoTest {
+
+	private Instant agora;
+	private EstoqueContado estoque;
+	private EstoqueComCacheNegativo cache;
+
+	@BeforeEach
+	public void setup() {
+		agora = Instant.parse("2026-01-01T10:00:00Z");
+		estoque = new EstoqueContado();
+		estoque.definirQuantidade(1L, 3);
+		cache = new EstoqueComCacheNegativo(estoque, true, Duration.ofSeconds(2), 100, new Clock() {
+			@Override
+			public ZoneId getZone() {
+				return ZoneId.of("UTC");
+			}
+
+			@Override
+			public Clock withZone(ZoneId zone) {
+				return this;
+			}
+
+			@Override
+			public Instant instant() {
+				return agora;
+			}
+		});
+	}
+
+	@Test
+	public void testProdutoIndisponivelRecusadoSemChamarEstoque() {
+		assertFalse(cache.verificarDisponibilidade(List.of(1L, 2L), List.of(5L, 1L)).disponivel());
+
+		DisponibilidadeDTO resposta = cache.verificarDisponibilidade(List.of(2L, 1L), List.of(1L, 5L));
+
+		assertEquals(new DisponibilidadeDTO(false, List.of(1L)), resposta);
+		assertEquals(1, estoque.consultas.get());
+		assertEquals(1, cache.getAcertos());
+		assertEquals(1, cache.getFaltas());
+	}
+
+	@Test
+	public void testQuantidadeMenorQueARecusadaVaiAoEstoque() {
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+
+		assertTrue(cache.verificarDisponibilidade(List.of(1L), List.of(2L)).disponivel());
+		assertEquals(2, estoque.consultas.get());
+	}
+
+	@Test
+	public void testRecusaExpiraAposTtl() {
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+
+		agora = agora.plusMillis(2001);
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+
+		assertEquals(2, estoque.consultas.get());
+		assertEquals(0, cache.getAcertos());
+	}
+
+	@Test
+	public void testReposicaoInvalidaRecusa() {
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+		estoque.definirQuantidade(1L, 10);
+		cache.onEstoqueReposto(new EstoqueRepostoEvent(List.of(1L)));
+
+		assertTrue(cache.verificarDisponibilidade(List.of(1L), List.of(5L)).disponivel());
+		assertEquals(2, estoque.consultas.get());
+		assertEquals(0, cache.getTamanho());
+	}
+
+	@Test
+	public void testDesabilitadoRepassaTudo() {
+		cache = new EstoqueComCacheNegativo(estoque, false, Duration.ofSeconds(2), 100);
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+		cache.verificarDisponibilidade(List.of(1L), List.of(5L));
+
+		assertEquals(2, estoque.consultas.get());
+		assertEquals(0, cache.getFaltas());
+	}
+
+	private static class EstoqueContado extends EstoqueSimulado {
+		final AtomicInteger consultas = new AtomicInteger();
+
+		@Override
+		public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			consultas.incrementAndGet();
+			return super.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+	}
+}
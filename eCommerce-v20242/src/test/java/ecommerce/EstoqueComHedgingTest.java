@@ -0,0 +1,180 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.external.EstoqueComHedging;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+
+public class EstoqueComHedgingTest {
+
+	private final EstoqueLento estoque = new EstoqueLento();
+	private EstoqueComHedging hedging;
+
+	@AfterEach
+	public void fechar() {
+		hedging.close();
+	}
+
+	@Test
+	public void testRespostaLentaEhContornadaPeloHedge() {
+		// Atraso mínimo folgado para que pausas da máquina no aquecimento não disparem hedges
+		hedging = new EstoqueComHedging(estoque, true, 0.05, 100);
+		aquecer(200);
+
+		estoque.proximaLenta.set(true);
+		long inicio = System.nanoTime();
+		DisponibilidadeDTO resposta = hedging.verificarDisponibilidade(List.of(1L), List.of(1L));
+		long decorridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+		assertTrue(resposta.disponivel());
+		assertTrue(decorridoMs < 1000, "demorou " + decorridoMs + " ms");
+		assertEquals(1, hedging.getHedges());
+		assertEquals(1, hedging.getHedgesVencedores());
+		assertTrue(esperarInterrupcao(), "a chamada lenta deveria ser cancelada");
+		assertFalse(Thread.currentThread().isInterrupted(), "a interrupção não pode vazar para quem chamou");
+	}
+
+	@Test
+	public void testConsultasRodamForaDaThreadDaRequisicao() {
+		hedging = new EstoqueComHedging(estoque, true, 0.05, 100);
+		aquecer(10);
+
+		assertFalse(estoque.threads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void testPoolCheioRecusaConsulta() throws Exception {
+		hedging = new EstoqueComHedging(estoque, true, 0.05, 1, 1);
+		estoque.proximaLenta.set(true);
+		Thread ocupante = new Thread(() -> {
+			try {
+				Prazo.em(Duration.ofMillis(500))
+						.aplicar(() -> hedging.verificarDisponibilidade(List.of(1L), List.of(1L)));
+			} catch (PrazoEsgotadoException e) {
+				// esperado: a consulta lenta só libera o pool quando é cancelada
+			}
+		});
+		ocupante.start();
+		while (estoque.chamadas.get() == 0) {
+			Thread.onSpinWait();
+		}
+
+		assertThrows(FilaFinalizacaoCheiaException.class,
+				() -> hedging.verificarDisponibilidade(List.of(1L), List.of(1L)));
+		ocupante.join();
+	}
+
+	@Test
+	public void testOrcamentoLimitaHedges() {
+		hedging = new EstoqueComHedging(estoque, true, 0.05, 1);
+		aquecer(200);
+
+		estoque.todasLentasMs = 20;
+		for (int i = 0; i < 100; i++) {
+			hedging.verificarDisponibilidade(List.of(1L), List.of(1L));
+		}
+
+		// 5% de 300 requisições, mais o acúmulo máximo de 10 fichas
+		assertTrue(hedging.getHedges() > 0);
+		assertTrue(hedging.getHedges() <= 15 + 10, "hedges: " + hedging.getHedges());
+	}
+
+	@Test
+	public void testSemHedgeAntesDeTerAmostras() {
+		hedging = new EstoqueComHedging(estoque, true, 1.0, 1);
+		estoque.todasLentasMs = 20;
+		hedging.verificarDisponibilidade(List.of(1L), List.of(1L));
+
+		assertEquals(-1, hedging.getAtrasoMs());
+		assertEquals(0, hedging.getHedges());
+	}
+
+	@Test
+	public void testNaoEsperaAlemDoPrazo() {
+		hedging = new EstoqueComHedging(estoque, true, 0.05, 1);
+		estoque.proximaLenta.set(true);
+
+		long inicio = System.nanoTime();
+		assertThrows(PrazoEsgotadoException.class, () -> Prazo.em(Duration.ofMillis(100))
+				.aplicar(() -> hedging.verificarDisponibilidade(List.of(1L), List.of(1L))));
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 5000);
+		assertTrue(esperarInterrupcao(), "a consulta deveria ser cancelada");
+	}
+
+	@Test
+	public void testDesabilitadoChamaDireto() {
+		hedging = new EstoqueComHedging(estoque, false, 0.05, 1);
+		aquecer(10);
+
+		assertEquals(10, estoque.chamadas.get());
+		assertEquals(0, hedging.getRequisicoes());
+	}
+
+	@Test
+	public void testFracaoInvalida() {
+		hedging = new EstoqueComHedging(estoque, true, 0.05, 1);
+		assertThrows(IllegalArgumentException.class, () -> new EstoqueComHedging(estoque, true, 1.5, 1));
+	}
+
+	private void aquecer(int chamadas) {
+		for (int i = 0; i < chamadas; i++) {
+			hedging.verificarDisponibilidade(List.of(1L), List.of(1L));
+		}
+	}
+
+	private boolean esperarInterrupcao() {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < limite) {
+			if (estoque.interrompidas.get() > 0) {
+				return true;
+			}
+			Thread.onSpinWait();
+		}
+		return false;
+	}
+
+	/** Estoque simulado com latência injetada. */
+	private static class EstoqueLento extends EstoqueSimulado {
+		final AtomicBoolean proximaLenta = new AtomicBoolean();
+		final AtomicInteger chamadas = new AtomicInteger();
+		final AtomicInteger interrompidas = new AtomicInteger();
+		final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		volatile long todasLentasMs;
+
+		@Override
+		public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> produtosQuantidades) {
+			chamadas.incrementAndGet();
+			threads.add(Thread.currentThread());
+			long atrasoMs = proximaLenta.getAndSet(false) ? 10_000 : todasLentasMs;
+			if (atrasoMs > 0) {
+				try {
+					Thread.sleep(atrasoMs);
+				} catch (InterruptedException e) {
+					interrompidas.incrementAndGet();
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("interrompida");
+				}
+			}
+			return super.verificarDisponibilidade(produtosIds, produtosQuantidades);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.external.AlteracaoEstoque;
+import ecommerce.external.fake.EstoqueSimulado;
+import ecommerce.external.fake.FeedEstoqueSimulado;
+
+public class EstoqueSimuladoTest {
+
+	@Test
+	public void testBaixaTudoOuNada() {
+		EstoqueSimulado estoque = new EstoqueSimulado(10, null, null);
+
+		assertFalse(estoque.darBaixa(List.of(1L, 2L), List.of(5L, 11L)).sucesso());
+		assertEquals(10, estoque.consultarQuantidade(1L));
+
+		assertTrue(estoque.darBaixa(List.of(1L, 2L), List.of(5L, 10L)).sucesso());
+		assertEquals(5, estoque.consultarQuantidade(1L));
+		assertEquals(0, estoque.consultarQuantidade(2L));
+	}
+
+	@Test
+	public void testBaixasConcorrentesEmOrdensOpostasNaoVendemAMais() throws Exception {
+		FeedEstoqueSimulado feed = new FeedEstoqueSimulado(65536);
+		feed.assinar();
+		EstoqueSimulado estoque = new EstoqueSimulado(1_000, null, feed);
+		AtomicInteger sucessos = new AtomicInteger();
+
+		// Metade dos pedidos trava 1 e 2, a outra metade 2 e 1: sem ordem fixa das travas isso pararia
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			List<Long> ids = t % 2 == 0 ? List.of(1L, 2L) : List.of(2L, 1L);
+			pool.execute(() -> {
+				for (int i = 0; i < 400; i++) {
+					if (estoque.darBaixa(ids, List.of(1L, 1L)).sucesso()) {
+						sucessos.incrementAndGet();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+		assertEquals(1_000, sucessos.get());
+		assertEquals(0, estoque.consultarQuantidade(1L));
+		assertEquals(0, estoque.consultarQuantidade(2L));
+
+		// O feed tem a sequência sem buracos e, por produto, quantidades sempre decrescentes
+		List<AlteracaoEstoque> alteracoes = feed.aguardar(10_000, Duration.ZERO);
+		assertEquals(2_000, alteracoes.size());
+		Map<Long, Long> ultima = new HashMap<>();
+		for (int i = 0; i < alteracoes.size(); i++) {
+			AlteracaoEstoque alteracao = alteracoes.get(i);
+			assertEquals(i + 1, alteracao.sequencia());
+			Long anterior = ultima.put(alteracao.produtoId(), alteracao.quantidade());
+			assertTrue(anterior == null || alteracao.quantidade() < anterior);
+		}
+	}
+}
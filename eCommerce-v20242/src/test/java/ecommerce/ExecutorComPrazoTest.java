@@ -0,0 +1,129 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.external.ExecutorComPrazo;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.external.PagamentoComPrazo;
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+
+public class ExecutorComPrazoTest {
+
+	private final ExecutorComPrazo executor = new ExecutorComPrazo(1);
+	private final GatewayLento gateway = new GatewayLento();
+
+	@AfterEach
+	public void fechar() {
+		executor.close();
+	}
+
+	@Test
+	public void testChamadaLentaEhAbandonadaNoPrazo() throws InterruptedException {
+		PagamentoComPrazo pagamento = new PagamentoComPrazo(gateway, executor);
+
+		long inicio = System.nanoTime();
+		PrazoEsgotadoException exception = assertThrows(PrazoEsgotadoException.class, () -> Prazo
+				.em(Duration.ofMillis(100)).aplicar(() -> pagamento.autorizarPagamento(1L, 10.0)));
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) < 5000);
+		assertEquals("Prazo da requisição esgotado ao autorizar o pagamento.", exception.getMessage());
+		assertTrue(gateway.interrompida.await(5, TimeUnit.SECONDS), "a chamada no pool deveria ser cancelada");
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	@Test
+	public void testSemPrazoRodaNaPropriaThread() {
+		gateway.atrasoMs = 0;
+		PagamentoComPrazo pagamento = new PagamentoComPrazo(gateway, executor);
+
+		assertTrue(pagamento.autorizarPagamento(1L, 10.0).autorizado());
+		assertEquals(Thread.currentThread(), gateway.thread.get());
+	}
+
+	@Test
+	public void testComPrazoRodaNoPoolERespondeAntes() {
+		gateway.atrasoMs = 0;
+		PagamentoComPrazo pagamento = new PagamentoComPrazo(gateway, executor);
+
+		assertTrue(Prazo.em(Duration.ofSeconds(5)).aplicar(() -> pagamento.autorizarPagamento(1L, 10.0)).autorizado());
+		assertFalse(gateway.thread.get() == Thread.currentThread());
+	}
+
+	@Test
+	public void testPoolCheioRecusa() throws Exception {
+		Thread ocupante = new Thread(() -> {
+			try {
+				Prazo.em(Duration.ofMillis(500)).aplicar(() -> executor.executar("ocupar o pool", () -> {
+					gateway.autorizarPagamento(1L, 1.0);
+					return null;
+				}));
+			} catch (PrazoEsgotadoException e) {
+				// esperado
+			}
+		});
+		ocupante.start();
+		assertTrue(gateway.iniciada.await(5, TimeUnit.SECONDS));
+
+		assertThrows(FilaFinalizacaoCheiaException.class, () -> Prazo.em(Duration.ofSeconds(1))
+				.aplicar(() -> executor.executar("autorizar o pagamento", () -> "nunca")));
+		ocupante.join();
+	}
+
+	@Test
+	public void testCancelamentoIgnoraOPrazo() {
+		PagamentoComPrazo pagamento = new PagamentoComPrazo(gateway, executor);
+		Prazo prazo = Prazo.em(Duration.ofNanos(1));
+		while (!prazo.esgotado()) {
+			Thread.onSpinWait();
+		}
+
+		prazo.aplicar(() -> {
+			pagamento.cancelarPagamento(1L, 7L);
+			return null;
+		});
+
+		assertEquals(1, gateway.cancelamentos);
+	}
+
+	/** Gateway que demora {@code atrasoMs} para autorizar e registra se foi interrompido. */
+	private static class GatewayLento implements IPagamentoExternal {
+		volatile long atrasoMs = 10_000;
+		final CountDownLatch iniciada = new CountDownLatch(1);
+		final CountDownLatch interrompida = new CountDownLatch(1);
+		final AtomicReference<Thread> thread = new AtomicReference<>();
+		int cancelamentos;
+
+		@Override
+		public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+			thread.set(Thread.currentThread());
+			iniciada.countDown();
+			try {
+				Thread.sleep(atrasoMs);
+			} catch (InterruptedException e) {
+				interrompida.countDown();
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrompida");
+			}
+			return new PagamentoDTO(true, 1L);
+		}
+
+		@Override
+		public void cancelarPagamento(Long clienteId, Long pagamentoTransacaoId) {
+			cancelamentos++;
+		}
+	}
+}
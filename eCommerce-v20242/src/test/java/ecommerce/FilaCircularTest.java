@@ -0,0 +1,82 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.util.FilaCircular;
+
+public class FilaCircularTest {
+
+	@Test
+	public void testOrdemERecusaComFilaCheia() {
+		FilaCircular<Integer> fila = new FilaCircular<>(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(fila.oferecer(i));
+		}
+
+		assertFalse(fila.oferecer(4));
+		assertEquals(4, fila.tamanho());
+		assertEquals(0, fila.retirar());
+		assertTrue(fila.oferecer(4));
+		for (int i = 1; i <= 4; i++) {
+			assertEquals(i, fila.retirar());
+		}
+		assertNull(fila.retirar());
+	}
+
+	@Test
+	public void testCapacidadeDeveSerPotenciaDeDois() {
+		assertThrows(IllegalArgumentException.class, () -> new FilaCircular<>(6));
+	}
+
+	@Test
+	public void testVariosProdutoresEConsumidoresEntregamCadaElementoUmaVez() throws InterruptedException {
+		int produtores = 4;
+		// Com poucos núcleos as threads giram no lugar de quem produziria ou retiraria: yield e volume pequeno
+		int porProdutor = 5_000;
+		FilaCircular<Integer> fila = new FilaCircular<>(64);
+		AtomicIntegerArray entregues = new AtomicIntegerArray(produtores * porProdutor);
+		AtomicLong retirados = new AtomicLong();
+
+		ExecutorService executor = Executors.newFixedThreadPool(produtores * 2);
+		for (int p = 0; p < produtores; p++) {
+			int base = p * porProdutor;
+			executor.execute(() -> {
+				for (int i = 0; i < porProdutor; i++) {
+					while (!fila.oferecer(base + i)) {
+						Thread.yield();
+					}
+				}
+			});
+			executor.execute(() -> {
+				while (retirados.get() < (long) produtores * porProdutor) {
+					Integer elemento = fila.retirar();
+					if (elemento == null) {
+						Thread.yield();
+						continue;
+					}
+					entregues.incrementAndGet(elemento);
+					retirados.incrementAndGet();
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+		for (int i = 0; i < entregues.length(); i++) {
+			assertEquals(1, entregues.get(i), "elemento " + i);
+		}
+		assertNull(fila.retirar());
+	}
+}
@@ -0,0 +1,133 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.SituacaoCompraDTO;
+import ecommerce.dto.SituacaoCompraDTO.Estado;
+import ecommerce.service.CompraService;
+import ecommerce.service.ExecutorFinalizacao;
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.FinalizacaoAssincrona;
+import ecommerce.service.Prazo;
+import ecommerce.service.ResultadoCompra.MotivoRecusa;
+import ecommerce.service.ResultadoCompra.Recusa;
+import ecommerce.service.ResultadoCompra.Sucesso;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class FinalizacaoAssincronaTest {
+
+	private final CompraService compraService = mock(CompraService.class);
+	private FinalizacaoAssincrona finalizacao;
+
+	@AfterEach
+	public void fechar() {
+		finalizacao.close();
+	}
+
+	@Test
+	public void testTicketTerminaComOResultadoDaCompra() {
+		finalizacao = criar(16, 2);
+		when(compraService.tentarFinalizarCompra(eq(1L), eq(2L), any(Prazo.class)))
+				.thenReturn(new Sucesso(99L, BigDecimal.TEN));
+
+		String ticket = finalizacao.enfileirar(1L, 2L);
+		SituacaoCompraDTO situacao = aguardarFim(ticket);
+
+		assertEquals(Estado.CONCLUIDA, situacao.estado());
+		assertEquals(99L, situacao.resultado().transacaoPagamentoId());
+	}
+
+	@Test
+	public void testFalhaDaFinalizacaoFicaNoTicket() {
+		finalizacao = criar(16, 1);
+		when(compraService.tentarFinalizarCompra(eq(1L), eq(2L), any(Prazo.class)))
+				.thenReturn(new Recusa(MotivoRecusa.FORA_DE_ESTOQUE, "Itens fora de estoque."));
+
+		SituacaoCompraDTO situacao = aguardarFim(finalizacao.enfileirar(1L, 2L));
+
+		assertEquals(Estado.RECUSADA, situacao.estado());
+		assertFalse(situacao.resultado().sucesso());
+		assertEquals("Itens fora de estoque.", situacao.resultado().mensagem());
+	}
+
+	@Test
+	public void testPedidoInvalidoNaoEntraNaFila() {
+		finalizacao = criar(16, 1);
+		doThrow(new IllegalArgumentException("Cliente não encontrado")).when(compraService).validarCompra(1L, 2L);
+
+		assertThrows(IllegalArgumentException.class, () -> finalizacao.enfileirar(1L, 2L));
+		verify(compraService, never()).tentarFinalizarCompra(any(), any(), any(Prazo.class));
+	}
+
+	@Test
+	public void testFilaCheiaRecusa() throws InterruptedException {
+		finalizacao = criar(2, 1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch processando = new CountDownLatch(1);
+		when(compraService.tentarFinalizarCompra(any(), any(), any(Prazo.class))).thenAnswer(invocacao -> {
+			processando.countDown();
+			liberar.await(5, TimeUnit.SECONDS);
+			return new Sucesso(1L, BigDecimal.TEN);
+		});
+
+		String primeiro = finalizacao.enfileirar(1L, 1L);
+		assertTrue(processando.await(5, TimeUnit.SECONDS));
+		finalizacao.enfileirar(2L, 2L);
+		finalizacao.enfileirar(3L, 3L);
+
+		assertThrows(FilaFinalizacaoCheiaException.class, () -> finalizacao.enfileirar(4L, 4L));
+		assertEquals(Estado.PROCESSANDO, finalizacao.situacao(primeiro).orElseThrow().estado());
+
+		liberar.countDown();
+		assertEquals(Estado.CONCLUIDA, aguardarFim(primeiro).estado());
+	}
+
+	@Test
+	public void testTicketsRetidosDemaisRecusam() {
+		finalizacao = new FinalizacaoAssincrona(compraService, ExecutorFinalizacao.direto(), 16, 1, 10_000,
+				Duration.ofMinutes(1), 2, new SimpleMeterRegistry());
+		when(compraService.tentarFinalizarCompra(any(), any(), any(Prazo.class)))
+				.thenReturn(new Sucesso(99L, BigDecimal.TEN));
+
+		aguardarFim(finalizacao.enfileirar(1L, 1L));
+		aguardarFim(finalizacao.enfileirar(2L, 2L));
+
+		// Os dois ainda estão na retenção: a limpeza não abre espaço
+		assertThrows(FilaFinalizacaoCheiaException.class, () -> finalizacao.enfileirar(3L, 3L));
+	}
+
+	private FinalizacaoAssincrona criar(int capacidade, int consumidores) {
+		return new FinalizacaoAssincrona(compraService, ExecutorFinalizacao.direto(), capacidade, consumidores, 10_000,
+				Duration.ofMinutes(1), 1_000, new SimpleMeterRegistry());
+	}
+
+	private SituacaoCompraDTO aguardarFim(String ticket) {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (System.nanoTime() < limite) {
+			SituacaoCompraDTO situacao = finalizacao.situacao(ticket).orElseThrow();
+			if (situacao.estado() != Estado.NA_FILA && situacao.estado() != Estado.PROCESSANDO) {
+				return situacao;
+			}
+			Thread.onSpinWait();
+		}
+		throw new AssertionError("Ticket " + ticket + " não terminou");
+	}
+}
@@ -0,0 +1,124 @@
+package ecommerce;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import ecommerce.controller.ConversorCompraBinario;
+import ecommerce.dto.CompraDTO;
+import ecommerce.dto.LoteCompraDTO;
+import ecommerce.dto.PedidoCompraDTO;
+import ecommerce.dto.ResultadoLoteDTO;
+
+/**
+ * Bytes trafegados e CPU de codificação por checkout: JSON (pedido na query string, resposta pelo conversor Jackson
+ * do MVC) contra {@link ConversorCompraBinario}, para uma finalização e para um lote de
+ * {@code benchmark.tamanho-lote} (padrão 100). Só conta o trabalho de (de)serialização do servidor: ler o pedido e
+ * escrever a resposta.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=FormatoCompraBenchmark
+ */
+public class FormatoCompraBenchmark {
+
+	private static final int ITERACOES = Integer.getInteger("benchmark.iteracoes", 200_000);
+	private static final int TAMANHO_LOTE = Integer.getInteger("benchmark.tamanho-lote", 100);
+
+	private static final CompraDTO RESPOSTA = new CompraDTO(true, 1_234_567L, "Compra finalizada com sucesso.");
+
+	private final MappingJackson2HttpMessageConverter json = new MappingJackson2HttpMessageConverter();
+	private final ConversorCompraBinario binario = new ConversorCompraBinario();
+
+	@Test
+	void compararFormatos() throws IOException {
+		String query = "/finalizar?carrinhoId=98765&clienteId=43210";
+		byte[] pedidoBinario = corpo(binario, new PedidoCompraDTO(98_765L, 43_210L), ConversorCompraBinario.TIPO);
+
+		List<PedidoCompraDTO> pedidos = new ArrayList<>();
+		List<CompraDTO> respostas = new ArrayList<>();
+		for (int i = 0; i < TAMANHO_LOTE; i++) {
+			pedidos.add(new PedidoCompraDTO(98_765L + i, 43_210L + i));
+			respostas.add(i % 4 == 0 ? RESPOSTA : new CompraDTO(false, null, "Itens fora de estoque."));
+		}
+		LoteCompraDTO lote = new LoteCompraDTO(pedidos);
+		ResultadoLoteDTO resultado = new ResultadoLoteDTO(respostas);
+		byte[] loteJson = corpo(json, lote, MediaType.APPLICATION_JSON);
+		byte[] loteBinario = corpo(binario, lote, ConversorCompraBinario.TIPO);
+
+		for (int rodada = 0; rodada < 3; rodada++) { // a primeira rodada aquece o JIT
+			medir("JSON", ITERACOES, () -> {
+				MultiValueMap<String, String> parametros = UriComponentsBuilder.fromUriString(query).build()
+						.getQueryParams();
+				Long.valueOf(parametros.getFirst("carrinhoId"));
+				Long.valueOf(parametros.getFirst("clienteId"));
+				return query.length() + escrever(json, RESPOSTA, MediaType.APPLICATION_JSON);
+			});
+			medir("binário", ITERACOES, () -> {
+				ler(binario, PedidoCompraDTO.class, pedidoBinario, ConversorCompraBinario.TIPO);
+				return pedidoBinario.length + escrever(binario, RESPOSTA, ConversorCompraBinario.TIPO);
+			});
+			medir("lote JSON", ITERACOES / TAMANHO_LOTE, () -> {
+				ler(json, LoteCompraDTO.class, loteJson, MediaType.APPLICATION_JSON);
+				return loteJson.length + escrever(json, resultado, MediaType.APPLICATION_JSON);
+			});
+			medir("lote binário", ITERACOES / TAMANHO_LOTE, () -> {
+				ler(binario, LoteCompraDTO.class, loteBinario, ConversorCompraBinario.TIPO);
+				return loteBinario.length + escrever(binario, resultado, ConversorCompraBinario.TIPO);
+			});
+		}
+	}
+
+	private static void medir(String nome, int iteracoes, Requisicao requisicao) throws IOException {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		long cpuInicio = threads.getCurrentThreadCpuTime();
+		long alocadosInicio = threads.getThreadAllocatedBytes(id);
+		long bytes = 0;
+		for (int i = 0; i < iteracoes; i++) {
+			bytes = requisicao.executar();
+		}
+		double cpu = threads.getCurrentThreadCpuTime() - cpuInicio;
+		double alocados = threads.getThreadAllocatedBytes(id) - alocadosInicio;
+		System.out.printf("[FormatoCompraBenchmark] %-13s %6d bytes na rede/requisição  %8.0f ns de CPU/requisição  "
+				+ "%7.0f bytes alocados/requisição%n", nome, bytes, cpu / iteracoes, alocados / iteracoes);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int escrever(HttpMessageConverter<?> conversor, Object valor, MediaType tipo) throws IOException {
+		MockHttpOutputMessage saida = new MockHttpOutputMessage();
+		((HttpMessageConverter<Object>) conversor).write(valor, tipo, saida);
+		return saida.getBodyAsBytes().length;
+	}
+
+	private static Object ler(HttpMessageConverter<?> conversor, Class<?> tipo, byte[] corpo, MediaType mediaType)
+			throws IOException {
+		MockHttpInputMessage entrada = new MockHttpInputMessage(corpo);
+		entrada.getHeaders().setContentType(mediaType);
+		entrada.getHeaders().setContentLength(corpo.length);
+		@SuppressWarnings("unchecked")
+		HttpMessageConverter<Object> c = (HttpMessageConverter<Object>) conversor;
+		return c.read(tipo, entrada);
+	}
+
+	private static byte[] corpo(HttpMessageConverter<?> conversor, Object valor, MediaType tipo) throws IOException {
+		MockHttpOutputMessage saida = new MockHttpOutputMessage();
+		@SuppressWarnings("unchecked")
+		HttpMessageConverter<Object> c = (HttpMessageConverter<Object>) conversor;
+		c.write(valor, tipo, saida);
+		return saida.getBodyAsBytes();
+	}
+
+	@FunctionalInterface
+	private interface Requisicao {
+		long executar() throws IOException;
+	}
+}
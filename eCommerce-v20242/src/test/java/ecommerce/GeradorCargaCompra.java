@@ -0,0 +1,232 @@
+package ecommerce;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CompraService;
+
+/**
+ * Gerador de carga em malha aberta para encontrar o ponto de saturação de um nó.
+ *
+ * Para cada taxa de {@code carga.taxas} (requisições/s) o gerador agenda as compras em instantes fixos, sem esperar
+ * as anteriores terminarem. A latência é medida a partir do instante agendado, não do início efetivo, então o tempo
+ * parado em fila quando o nó não acompanha a taxa entra no histograma (correção de coordinated omission). O tempo de
+ * serviço (início efetivo até a resposta) é registrado à parte.
+ *
+ * Usa o H2 em memória e os simulados de estoque e pagamento; cada requisição finaliza um carrinho diferente.
+ *
+ * Rodar com: mvn test -Pcarga -Dcarga.taxas=100,200,400,800 -Dcarga.duracao-s=30 [-Dcarga.alvo=http]
+ * Relatório em target/carga/relatorio-carga.txt.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "compras.diario.diretorio=target/carga/diario")
+public class GeradorCargaCompra {
+
+	private static final long[] TAXAS = Arrays.stream(System.getProperty("carga.taxas", "50,100,200,400").split(","))
+			.mapToLong(t -> Long.parseLong(t.trim())).toArray();
+	private static final int DURACAO_S = Integer.getInteger("carga.duracao-s", 20);
+	private static final int AQUECIMENTO_S = Integer.getInteger("carga.aquecimento-s", 5);
+	private static final int THREADS = Integer.getInteger("carga.threads", 64);
+	private static final boolean VIA_HTTP = "http".equalsIgnoreCase(System.getProperty("carga.alvo", "servico"));
+	private static final int CLIENTES_POR_TIPO = Integer.getInteger("carga.clientes-por-tipo", 100);
+	private static final int PRODUTOS_POR_TIPO = Integer.getInteger("carga.produtos-por-tipo", 200);
+	private static final int MAX_ITENS_POR_CARRINHO = Integer.getInteger("carga.max-itens", 5);
+	private static final Path RELATORIO = Path.of("target", "carga", "relatorio-carga.txt");
+
+	private static final long LATENCIA_MAXIMA_US = TimeUnit.MINUTES.toMicros(5);
+
+	@Autowired
+	private CompraService compraService;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@LocalServerPort
+	private int porta;
+
+	private final Random random = new Random(42);
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	@Test
+	void executar() throws Exception {
+		List<Cliente> clientes = criarClientes();
+		List<Produto> produtos = criarProdutos();
+
+		Files.createDirectories(RELATORIO.getParent());
+		try (PrintStream relatorio = new PrintStream(Files.newOutputStream(RELATORIO), true, "UTF-8")) {
+			relatorio.printf("Carga de /finalizar (%s) em %s: %d threads, %d s de aquecimento + %d s medidos por etapa%n%n",
+					VIA_HTTP ? "HTTP" : "CompraService", LocalDateTime.now(), THREADS, AQUECIMENTO_S, DURACAO_S);
+			for (long taxa : TAXAS) {
+				List<CarrinhoDeCompras> carrinhos = criarCarrinhos((int) (taxa * (AQUECIMENTO_S + DURACAO_S)),
+						clientes, produtos);
+				Etapa etapa = rodar(taxa, carrinhos);
+				etapa.escrever(relatorio);
+				etapa.escrever(System.out);
+			}
+		}
+	}
+
+	private Etapa rodar(long taxa, List<CarrinhoDeCompras> carrinhos) throws InterruptedException {
+		Etapa etapa = new Etapa(taxa);
+		long intervaloNanos = TimeUnit.SECONDS.toNanos(1) / taxa;
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		long inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		long inicioMedicao = inicio + TimeUnit.SECONDS.toNanos(AQUECIMENTO_S);
+		for (int i = 0; i < carrinhos.size(); i++) {
+			long agendado = inicio + i * intervaloNanos;
+			long espera;
+			while ((espera = agendado - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(espera);
+			}
+			CarrinhoDeCompras carrinho = carrinhos.get(i);
+			executor.execute(() -> {
+				long inicioServico = System.nanoTime();
+				boolean sucesso = finalizar(carrinho.getId(), carrinho.getCliente().getId());
+				long fim = System.nanoTime();
+				if (agendado >= inicioMedicao) {
+					etapa.registrar(agendado, inicioServico, fim, sucesso);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.MINUTES);
+		return etapa;
+	}
+
+	private boolean finalizar(Long carrinhoId, Long clienteId) {
+		try {
+			if (!VIA_HTTP) {
+				CompraDTO compra = compraService.finalizarCompra(carrinhoId, clienteId);
+				return Boolean.TRUE.equals(compra.sucesso());
+			}
+			HttpRequest requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta
+					+ "/finalizar?carrinhoId=" + carrinhoId + "&clienteId=" + clienteId))
+					.POST(HttpRequest.BodyPublishers.noBody()).build();
+			return httpClient.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+		} catch (IOException | RuntimeException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private List<Cliente> criarClientes() {
+		List<Cliente> clientes = new ArrayList<>();
+		for (TipoCliente tipo : TipoCliente.values()) {
+			for (int i = 0; i < CLIENTES_POR_TIPO; i++) {
+				clientes.add(new Cliente(null, "Cliente " + tipo + " " + i, "Rua " + i, tipo));
+			}
+		}
+		return clienteRepository.saveAll(clientes);
+	}
+
+	private List<Produto> criarProdutos() {
+		List<Produto> produtos = new ArrayList<>();
+		for (TipoProduto tipo : TipoProduto.values()) {
+			for (int i = 0; i < PRODUTOS_POR_TIPO; i++) {
+				// Preços de 1 a 600 e pesos de 0 a 14 cobrem todas as faixas de desconto e de frete
+				BigDecimal preco = BigDecimal.valueOf(100 + random.nextInt(60_000), 2);
+				produtos.add(new Produto(null, tipo + " " + i, "Produto sintético", preco, random.nextInt(15), tipo));
+			}
+		}
+		return produtoRepository.saveAll(produtos);
+	}
+
+	private List<CarrinhoDeCompras> criarCarrinhos(int quantidade, List<Cliente> clientes, List<Produto> produtos) {
+		List<CarrinhoDeCompras> carrinhos = new ArrayList<>(quantidade);
+		for (int c = 0; c < quantidade; c++) {
+			int quantidadeItens = 1 + random.nextInt(MAX_ITENS_POR_CARRINHO);
+			List<ItemCompra> itens = new ArrayList<>(quantidadeItens);
+			for (int i = 0; i < quantidadeItens; i++) {
+				itens.add(new ItemCompra(null, produtos.get(random.nextInt(produtos.size())), 1L + random.nextInt(3)));
+			}
+			carrinhos.add(new CarrinhoDeCompras(null, clientes.get(random.nextInt(clientes.size())), itens,
+					LocalDate.now()));
+		}
+		return carrinhoRepository.saveAll(carrinhos);
+	}
+
+	private static class Etapa {
+		private final long taxa;
+		private final Histogram latencia = new ConcurrentHistogram(LATENCIA_MAXIMA_US, 3);
+		private final Histogram servico = new ConcurrentHistogram(LATENCIA_MAXIMA_US, 3);
+		private final LongAdder sucessos = new LongAdder();
+		private final LongAdder falhas = new LongAdder();
+		private volatile long primeiroAgendado = Long.MAX_VALUE;
+		private volatile long ultimoFim = Long.MIN_VALUE;
+
+		Etapa(long taxa) {
+			this.taxa = taxa;
+		}
+
+		synchronized void registrar(long agendado, long inicioServico, long fim, boolean sucesso) {
+			latencia.recordValue(Math.min(LATENCIA_MAXIMA_US, (fim - agendado) / 1000));
+			servico.recordValue(Math.min(LATENCIA_MAXIMA_US, (fim - inicioServico) / 1000));
+			(sucesso ? sucessos : falhas).increment();
+			primeiroAgendado = Math.min(primeiroAgendado, agendado);
+			ultimoFim = Math.max(ultimoFim, fim);
+		}
+
+		void escrever(PrintStream saida) {
+			long total = sucessos.sum() + falhas.sum();
+			double segundos = Math.max(1, ultimoFim - primeiroAgendado) / 1e9;
+			saida.printf("=== Taxa alvo %d req/s ===%n", taxa);
+			saida.printf("requisições medidas: %d (sucesso %d, falha %d), vazão obtida %.1f req/s%n", total,
+					sucessos.sum(), falhas.sum(), total / segundos);
+			saida.printf("latência corrigida (ms): p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  máx %.2f%n",
+					ms(latencia, 50), ms(latencia, 90), ms(latencia, 99), ms(latencia, 99.9), latencia.getMaxValue() / 1000.0);
+			saida.printf("tempo de serviço (ms): p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  máx %.2f%n",
+					ms(servico, 50), ms(servico, 90), ms(servico, 99), ms(servico, 99.9), servico.getMaxValue() / 1000.0);
+			saida.println("distribuição da latência corrigida (ms):");
+			latencia.outputPercentileDistribution(saida, 5, 1000.0);
+			saida.println();
+		}
+
+		private static double ms(Histogram histograma, double percentil) {
+			return histograma.getValueAtPercentile(percentil) / 1000.0;
+		}
+	}
+}
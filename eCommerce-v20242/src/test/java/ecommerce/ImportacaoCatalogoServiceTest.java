@@ -0,0 +1,192 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.dto.RelatorioImportacaoDTO;
+import ecommerce.dto.RelatorioReprecificacaoDTO;
+import ecommerce.service.FormatoImportacao;
+import ecommerce.service.ImportacaoCatalogoService;
+import ecommerce.service.ReprecificacaoCarrinhosService;
+
+@ExtendWith(MockitoExtension.class)
+public class ImportacaoCatalogoServiceTest {
+
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+
+	@Mock
+	private ReprecificacaoCarrinhosService reprecificacao;
+
+	private ImportacaoCatalogoService importacaoService;
+
+	private final List<Object[]> linhasGravadas = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeEach
+	public void setup() {
+		importacaoService = new ImportacaoCatalogoService(jdbcTemplate, new ObjectMapper(), 2, 2, 10, 1000);
+		lenient().when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+			List<Object[]> lote = invocation.getArgument(1);
+			linhasGravadas.addAll(lote);
+			return new int[lote.size()];
+		});
+	}
+
+	@Test
+	public void testImportarCsv_GravaValidasEmLotesERejeitaInvalidas() {
+		String csv = """
+				id;nome;descricao;preco;peso;tipo
+				1;Notebook;"Tela 14""; 8GB";3500.00;2;ELETRONICO
+				2;Camisa;Algodão;59.90;1;roupa
+				3;Arroz;5kg;-1;5;ALIMENTO
+				4;Livro;Romance;39.9;1;BRINQUEDO
+				5;Sofá;3 lugares;1999.999;40;MOVEL
+				6;Mesa;Madeira;899;25;MOVEL
+				""";
+
+		RelatorioImportacaoDTO relatorio = importacaoService.importar(entrada(csv), FormatoImportacao.CSV);
+
+		assertEquals(6, relatorio.linhasLidas());
+		assertEquals(3, relatorio.produtosImportados());
+		assertEquals(3, relatorio.linhasRejeitadas());
+		assertEquals(List.of(4L, 5L, 6L), relatorio.rejeicoes().stream().map(r -> r.linha()).toList());
+		assertTrue(relatorio.rejeicoes().get(1).motivo().contains("tipo inválido"));
+
+		// Lotes de 2 linhas válidas: [1, 2] e [6]
+		verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+		Object[] notebook = linhasGravadas.stream().filter(l -> l[0].equals(1L)).findFirst().orElseThrow();
+		assertEquals("Tela 14\"; 8GB", notebook[2]);
+		assertEquals(new BigDecimal("3500.00"), notebook[3]);
+		Object[] camisa = linhasGravadas.stream().filter(l -> l[0].equals(2L)).findFirst().orElseThrow();
+		assertEquals("ROUPA", camisa[5]);
+	}
+
+	@Test
+	public void testImportarJsonLinhas() {
+		String jsonLinhas = """
+				{"id": 10, "nome": "Geladeira", "descricao": "Frost free", "preco": 2999.9, "peso": 60, "tipo": "ELETRONICO"}
+				{"id": 11, "nome": "", "preco": 10, "peso": 1, "tipo": "LIVRO"}
+				não é json
+				""";
+
+		RelatorioImportacaoDTO relatorio = importacaoService.importar(entrada(jsonLinhas),
+				FormatoImportacao.JSON_LINHAS);
+
+		assertEquals(3, relatorio.linhasLidas());
+		assertEquals(1, relatorio.produtosImportados());
+		assertEquals(2, relatorio.linhasRejeitadas());
+		assertEquals(10L, linhasGravadas.get(0)[0]);
+		assertEquals(new BigDecimal("2999.9"), linhasGravadas.get(0)[3]);
+	}
+
+	@Test
+	public void testImportar_AvancaSequenceAlemDoMaiorIdDoLote() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(
+				invocation -> invocation.getArgument(0, String.class).contains("INCREMENT") ? 50L : 51L);
+
+		importacaoService.importar(entrada("id;nome;descricao;preco;peso;tipo\n500;Caneta;Azul;2.50;0;LIVRO\n"),
+				FormatoImportacao.CSV);
+
+		// Avançada antes de gravar: nenhuma instância recebe depois um bloco com o id 500
+		InOrder ordem = inOrder(jdbcTemplate);
+		ordem.verify(jdbcTemplate).execute("ALTER SEQUENCE produto_seq RESTART WITH 501");
+		ordem.verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+	}
+
+	@Test
+	public void testImportar_RejeitaIdNovoAbaixoDaSequence() {
+		when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(
+				invocation -> invocation.getArgument(0, String.class).contains("INCREMENT") ? 50L : 1000L);
+		// Os dois ids estão abaixo da sequence: a existência deles é consultada
+		when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenReturn(List.of(10L));
+
+		RelatorioImportacaoDTO relatorio = importacaoService.importar(
+				entrada("id;nome;descricao;preco;peso;tipo\n10;A;;1;1;LIVRO\n20;B;;1;1;LIVRO\n"),
+				FormatoImportacao.CSV);
+
+		// 10 já existe e é atualizado; 20 pode estar num bloco de outra instância
+		assertEquals(1, relatorio.produtosImportados());
+		assertEquals(List.of(3L), relatorio.rejeicoes().stream().map(r -> r.linha()).toList());
+		assertEquals(List.of(10L), linhasGravadas.stream().map(l -> l[0]).toList());
+		verify(jdbcTemplate, never()).execute(anyString());
+	}
+
+	@Test
+	public void testIntervaloDeProgressoInvalido() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new ImportacaoCatalogoService(jdbcTemplate, new ObjectMapper(), 2, 2, 10, 0));
+	}
+
+	@Test
+	public void testImportar_FalhaNoLoteRejeitaTodasAsLinhasDoLote() {
+		when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("timeout"));
+
+		RelatorioImportacaoDTO relatorio = importacaoService.importar(
+				entrada("id;nome;descricao;preco;peso;tipo\n1;A;;1;1;LIVRO\n2;B;;1;1;LIVRO\n"), FormatoImportacao.CSV);
+
+		assertEquals(0, relatorio.produtosImportados());
+		assertEquals(2, relatorio.linhasRejeitadas());
+		verify(jdbcTemplate, never()).execute(anyString());
+	}
+
+	@Test
+	public void testImportar_ReprecificaCarrinhosDosProdutosDeCadaLote() {
+		when(reprecificacao.reprecificarProdutosIndexados(anyList()))
+				.thenReturn(new RelatorioReprecificacaoDTO(0, 0, 0, 0, 0));
+		ImportacaoCatalogoService importacao = new ImportacaoCatalogoService(jdbcTemplate, new ObjectMapper(), null,
+				reprecificacao, 2, 1, 10, 1000);
+
+		importacao.importar(entrada("id;nome;descricao;preco;peso;tipo\n1;A;;1;1;LIVRO\n2;B;;1;1;LIVRO\n"
+				+ "3;C;;1;1;LIVRO\n"), FormatoImportacao.CSV);
+
+		verify(reprecificacao).reprecificarProdutosIndexados(List.of(1L, 2L));
+		verify(reprecificacao).reprecificarProdutosIndexados(List.of(3L));
+		verify(reprecificacao, never()).reprecificar();
+	}
+
+	@Test
+	public void testImportar_ComIndiceEmCargaReprecificaTodosUmaVezNoFim() {
+		ImportacaoCatalogoService importacao = new ImportacaoCatalogoService(jdbcTemplate, new ObjectMapper(), null,
+				reprecificacao, 2, 1, 10, 1000);
+
+		importacao.importar(entrada("id;nome;descricao;preco;peso;tipo\n1;A;;1;1;LIVRO\n2;B;;1;1;LIVRO\n"
+				+ "3;C;;1;1;LIVRO\n"), FormatoImportacao.CSV);
+
+		verify(reprecificacao, times(2)).reprecificarProdutosIndexados(anyList());
+		verify(reprecificacao).reprecificar();
+	}
+
+	@Test
+	public void testImportarCsv_CabecalhoInvalido() {
+		assertThrows(IllegalArgumentException.class,
+				() -> importacaoService.importar(entrada("codigo;nome\n1;A\n"), FormatoImportacao.CSV));
+	}
+
+	private static InputStream entrada(String conteudo) {
+		return new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8));
+	}
+}
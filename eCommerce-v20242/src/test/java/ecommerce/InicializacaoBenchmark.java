@@ -0,0 +1,179 @@
+package ecommerce;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+
+/**
+ * Tempo entre o lançamento da JVM e a primeira resposta 200 de {@code POST /finalizar}, em cada modo de inicialização.
+ *
+ * Cada execução sobe a aplicação em um processo separado, contra uma cópia nova de um banco H2 em arquivo que já tem
+ * esquema, um cliente e um carrinho (preparado uma vez, no próprio processo do teste).
+ *
+ * Os modos com AOT e AppCDS só rodam se os artefatos existirem:
+ *
+ * <pre>
+ * mvn clean package -Prapido -DskipTests
+ * ./scripts/inicializacao-rapida.sh treinar
+ * mvn test -Pbenchmark -Dtest=InicializacaoBenchmark
+ * </pre>
+ */
+public class InicializacaoBenchmark {
+
+	private static final int REPETICOES = Integer.getInteger("benchmark.repeticoes", 3);
+	private static final Duration LIMITE = Duration.ofMinutes(3);
+
+	private static final Path DIRETORIO = Path.of("target", "benchmark-inicializacao").toAbsolutePath();
+	private static final Path ARQUIVO_CDS = Path.of("target", "compra-cds.jsa").toAbsolutePath();
+	private static final Path CLASSES_AOT = Path.of("target", "classes", "ecommerce",
+			"CompraApplication__ApplicationContextInitializer.class");
+
+	private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+	@Test
+	void medirTempoAtePrimeiraCompra() throws Exception {
+		Files.createDirectories(DIRETORIO);
+		long[] ids = prepararBancoModelo();
+		String dependencias = Files.readString(Path.of("target", "classpath-execucao.txt")).trim();
+		String classpathClasses = Path.of("target", "classes").toAbsolutePath() + java.io.File.pathSeparator + dependencias;
+
+		medir("padrão", classpathClasses, List.of(), List.of(), ids);
+		medir("rapido", classpathClasses, List.of(), List.of("--spring.profiles.active=rapido"), ids);
+
+		if (Files.exists(CLASSES_AOT)) {
+			medir("rapido + AOT", classpathClasses, List.of("-Dspring.aot.enabled=true"),
+					List.of("--spring.profiles.active=rapido"), ids);
+		} else {
+			System.out.println("[InicializacaoBenchmark] sem código AOT em target/classes: rode mvn package -Prapido");
+		}
+
+		Path jarFino = jarFino();
+		if (Files.exists(ARQUIVO_CDS) && jarFino != null) {
+			medir("rapido + AOT + AppCDS", jarFino + java.io.File.pathSeparator + dependencias,
+					List.of("-Dspring.aot.enabled=true", "-XX:TieredStopAtLevel=1", "-XX:SharedArchiveFile=" + ARQUIVO_CDS,
+							"-Xshare:auto"),
+					List.of("--spring.profiles.active=rapido"), ids);
+		} else {
+			System.out.println("[InicializacaoBenchmark] sem " + ARQUIVO_CDS
+					+ ": rode ./scripts/inicializacao-rapida.sh treinar");
+		}
+	}
+
+	private void medir(String modo, String classpath, List<String> opcoesJvm, List<String> argumentos, long[] ids)
+			throws Exception {
+		long[] tempos = new long[REPETICOES];
+		for (int i = 0; i < REPETICOES; i++) {
+			tempos[i] = tempoAtePrimeiraCompra(classpath, opcoesJvm, argumentos, ids, i);
+		}
+		Arrays.sort(tempos);
+		System.out.printf("[InicializacaoBenchmark] %-24s mínimo %5d ms  mediana %5d ms  (%d execuções)%n", modo,
+				tempos[0], tempos[REPETICOES / 2], REPETICOES);
+	}
+
+	private long tempoAtePrimeiraCompra(String classpath, List<String> opcoesJvm, List<String> argumentos, long[] ids,
+			int execucao) throws Exception {
+		Path execucaoDir = Files.createTempDirectory(DIRETORIO, "execucao-");
+		Files.copy(DIRETORIO.resolve("modelo.mv.db"), execucaoDir.resolve("banco.mv.db"), StandardCopyOption.REPLACE_EXISTING);
+		int porta = portaLivre();
+
+		List<String> comando = new ArrayList<>();
+		comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		comando.addAll(opcoesJvm);
+		comando.addAll(List.of("-cp", classpath, "ecommerce.CompraApplication", "--server.port=" + porta,
+				"--spring.datasource.url=jdbc:h2:file:" + execucaoDir.resolve("banco"),
+				"--spring.jpa.hibernate.ddl-auto=none", "--compras.diario.diretorio=" + execucaoDir.resolve("diario")));
+		comando.addAll(argumentos);
+
+		HttpRequest compra = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + "/finalizar?carrinhoId="
+				+ ids[1] + "&clienteId=" + ids[0])).timeout(Duration.ofSeconds(30))
+				.POST(HttpRequest.BodyPublishers.noBody()).build();
+
+		long inicio = System.nanoTime();
+		Process processo = new ProcessBuilder(comando).redirectErrorStream(true)
+				.redirectOutput(execucaoDir.resolve("saida.log").toFile()).start();
+		try {
+			while (System.nanoTime() - inicio < LIMITE.toNanos()) {
+				if (!processo.isAlive()) {
+					throw new IllegalStateException("Aplicação encerrou; ver " + execucaoDir.resolve("saida.log"));
+				}
+				try {
+					HttpResponse<String> resposta = httpClient.send(compra, HttpResponse.BodyHandlers.ofString());
+					if (resposta.statusCode() == 200) {
+						return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+					}
+					throw new IllegalStateException("Execução " + execucao + ": /finalizar respondeu "
+							+ resposta.statusCode() + " " + resposta.body());
+				} catch (IOException e) {
+					Thread.sleep(5); // ainda não está ouvindo na porta
+				}
+			}
+			throw new IllegalStateException("Aplicação não respondeu em " + LIMITE);
+		} finally {
+			processo.destroy();
+			processo.waitFor(30, TimeUnit.SECONDS);
+		}
+	}
+
+	/** Cria o banco modelo (esquema gerado pelo Hibernate + dados) e devolve {clienteId, carrinhoId}. */
+	private static long[] prepararBancoModelo() throws IOException {
+		try (Stream<Path> antigos = Files.list(DIRETORIO)) {
+			for (Path antigo : antigos.filter(p -> p.getFileName().toString().startsWith("modelo")).toList()) {
+				Files.delete(antigo);
+			}
+		}
+		try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(CompraApplication.class)
+				.web(WebApplicationType.NONE)
+				.run("--spring.datasource.url=jdbc:h2:file:" + DIRETORIO.resolve("modelo"),
+						"--spring.jpa.hibernate.ddl-auto=create", "--compras.diario.habilitado=false")) {
+			Cliente cliente = contexto.getBean(ClienteRepository.class)
+					.save(new Cliente(null, "Cliente", "Endereço", TipoCliente.PRATA));
+			Produto produto = contexto.getBean(ProdutoRepository.class)
+					.save(new Produto(null, "Produto", "Descrição", BigDecimal.valueOf(99.9), 2, TipoProduto.LIVRO));
+			CarrinhoDeCompras carrinho = contexto.getBean(CarrinhoDeComprasRepository.class).save(
+					new CarrinhoDeCompras(null, cliente, List.of(new ItemCompra(null, produto, 1L)), LocalDate.now()));
+			return new long[] { cliente.getId(), carrinho.getId() };
+		}
+	}
+
+	private static Path jarFino() throws IOException {
+		try (Stream<Path> jars = Files.list(Path.of("target"))) {
+			return jars.filter(p -> p.toString().endsWith(".jar") && !p.toString().endsWith("-exec.jar"))
+					.map(Path::toAbsolutePath).findFirst().orElse(null);
+		}
+	}
+
+	private static int portaLivre() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
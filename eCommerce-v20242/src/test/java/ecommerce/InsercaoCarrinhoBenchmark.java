@@ -0,0 +1,173 @@
+package ecommerce;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Vazão de inserção de carrinhos com 100 itens.
+ *
+ * "Antes" roda com batch_size=1, o que reproduz uma ida ao banco por linha como acontecia com
+ * GenerationType.IDENTITY. "Depois" usa a configuração da aplicação (sequences pooled-lo, batch de 50,
+ * inserts/updates ordenados). O H2 em memória não tem rede, então o DataSource é embrulhado para somar
+ * uma latência fixa (-Dbenchmark.latencia-rede-us, padrão 200 µs) a cada execução enviada ao banco:
+ * um executeBatch paga uma ida e volta, assim como contra um banco remoto.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=InsercaoCarrinhoBenchmark
+ */
+public class InsercaoCarrinhoBenchmark {
+
+	private static final int ITENS_POR_CARRINHO = 100;
+	private static final int CARRINHOS_AQUECIMENTO = 100;
+	private static final int CARRINHOS_MEDICAO = 300;
+
+	private static final long LATENCIA_REDE_NANOS = TimeUnit.MICROSECONDS
+			.toNanos(Long.getLong("benchmark.latencia-rede-us", 200));
+
+	@Nested
+	@Import(LatenciaDeRede.class)
+	@DataJpaTest(properties = { "spring.jpa.properties.hibernate.jdbc.batch_size=1",
+			"spring.jpa.properties.hibernate.generate_statistics=true" })
+	class Antes extends Cenario {
+		@Test
+		void medirInsercao() {
+			medir("antes (uma ida ao banco por linha)");
+		}
+	}
+
+	@Nested
+	@Import(LatenciaDeRede.class)
+	@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+	class Depois extends Cenario {
+		@Test
+		void medirInsercao() {
+			medir("depois (sequence pooled-lo + batch JDBC)");
+		}
+	}
+
+	/**
+	 * Soma LATENCIA_REDE_NANOS a cada execute/executeUpdate/executeQuery/executeBatch.
+	 */
+	@TestConfiguration
+	static class LatenciaDeRede implements BeanPostProcessor {
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			if (bean instanceof DataSource dataSource) {
+				return new DelegatingDataSource(dataSource) {
+					@Override
+					public Connection getConnection() throws SQLException {
+						return comLatencia(Connection.class, super.getConnection());
+					}
+				};
+			}
+			return bean;
+		}
+
+		private static <T> T comLatencia(Class<T> tipo, T alvo) {
+			InvocationHandler handler = (proxy, metodo, args) -> {
+				if (metodo.getName().startsWith("execute")) {
+					long fim = System.nanoTime() + LATENCIA_REDE_NANOS;
+					while (System.nanoTime() < fim) {
+						Thread.onSpinWait();
+					}
+				}
+				Object retorno;
+				try {
+					retorno = metodo.invoke(alvo, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+				if (retorno instanceof PreparedStatement statement) {
+					return comLatencia(PreparedStatement.class, statement);
+				}
+				if (retorno instanceof Statement statement) {
+					return comLatencia(Statement.class, statement);
+				}
+				return retorno;
+			};
+			return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo }, handler));
+		}
+	}
+
+	abstract static class Cenario {
+
+		@Autowired
+		private TestEntityManager entityManager;
+
+		private Cliente cliente;
+		private List<Produto> produtos;
+
+		@BeforeEach
+		void setup() {
+			cliente = entityManager.persist(new Cliente(null, "Cliente", "Endereço", TipoCliente.BRONZE));
+			produtos = new ArrayList<>();
+			for (int i = 0; i < ITENS_POR_CARRINHO; i++) {
+				produtos.add(entityManager.persist(new Produto(null, "Produto " + i, "Descrição " + i,
+						BigDecimal.valueOf(10 + i), 1, TipoProduto.values()[i % TipoProduto.values().length])));
+			}
+			entityManager.flush();
+		}
+
+		void medir(String cenario) {
+			inserir(CARRINHOS_AQUECIMENTO);
+
+			Statistics estatisticas = entityManager.getEntityManager().getEntityManagerFactory()
+					.unwrap(SessionFactory.class).getStatistics();
+			estatisticas.clear();
+
+			long inicio = System.nanoTime();
+			inserir(CARRINHOS_MEDICAO);
+			long duracaoNanos = System.nanoTime() - inicio;
+
+			double segundos = duracaoNanos / 1_000_000_000.0;
+			long linhas = (long) CARRINHOS_MEDICAO * (ITENS_POR_CARRINHO + 1);
+			System.out.printf("[InsercaoCarrinhoBenchmark] %s: %d carrinhos de %d itens em %.3f s -> %.1f carrinhos/s, "
+					+ "%.0f linhas/s, %d statements preparados%n", cenario, CARRINHOS_MEDICAO, ITENS_POR_CARRINHO,
+					segundos, CARRINHOS_MEDICAO / segundos, linhas / segundos, estatisticas.getPrepareStatementCount());
+		}
+
+		private void inserir(int quantidadeCarrinhos) {
+			for (int c = 0; c < quantidadeCarrinhos; c++) {
+				List<ItemCompra> itens = new ArrayList<>(ITENS_POR_CARRINHO);
+				for (Produto produto : produtos) {
+					itens.add(new ItemCompra(null, produto, 1L));
+				}
+				entityManager.persist(new CarrinhoDeCompras(null, cliente, itens, LocalDate.now()));
+				entityManager.flush();
+				entityManager.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package ecommerce;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import ecommerce.entity.TipoProduto;
+
+/**
+ * Tempo de uma página de 50 produtos do tipo LIVRO em profundidades crescentes da listagem, num H2 em memória com
+ * {@code benchmark.produtos} (padrão 500 mil) produtos e o índice (tipo, preco, id): OFFSET contra a consulta por
+ * chave de {@code ProdutoRepository.listarAposDoTipo}, ambos com o ORDER BY completo do índice. Mede só o banco, sem
+ * JPA nem serialização.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=ListagemProdutosBenchmark
+ */
+public class ListagemProdutosBenchmark {
+
+	private static final int PRODUTOS = Integer.getInteger("benchmark.produtos", 500_000);
+	private static final int PAGINA = 50;
+	private static final int REPETICOES = 20;
+
+	private static final String SQL_OFFSET = "SELECT id, nome, preco, tipo FROM produto WHERE tipo = ? "
+			+ "ORDER BY tipo, preco, id OFFSET ? ROWS FETCH FIRST ? ROWS ONLY";
+	private static final String SQL_CHAVE = "SELECT id, nome, preco, tipo FROM produto WHERE tipo = ? AND preco >= ? "
+			+ "AND (preco > ? OR id > ?) ORDER BY tipo, preco, id FETCH FIRST ? ROWS ONLY";
+	private static final String SQL_CHAVE_NA_PROFUNDIDADE = "SELECT preco, id FROM produto WHERE tipo = ? "
+			+ "ORDER BY preco, id OFFSET ? ROWS FETCH FIRST 1 ROWS ONLY";
+
+	@Test
+	void compararPaginacao() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:listagem;DB_CLOSE_DELAY=-1", "sa",
+				"");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("CREATE TABLE produto (id BIGINT PRIMARY KEY, nome VARCHAR(255), preco NUMERIC(38, 2), "
+				+ "tipo VARCHAR(255))");
+		jdbc.execute("CREATE INDEX idx_produto_tipo_preco_id ON produto (tipo, preco, id)");
+		Random random = new Random(9);
+		TipoProduto[] tipos = TipoProduto.values();
+		List<Object[]> lote = new ArrayList<>();
+		for (long id = 1; id <= PRODUTOS; id++) {
+			lote.add(new Object[] { id, "produto " + id, BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+					tipos[random.nextInt(tipos.length)].name() });
+			if (lote.size() == 10_000) {
+				jdbc.batchUpdate("INSERT INTO produto VALUES (?, ?, ?, ?)", lote);
+				lote.clear();
+			}
+		}
+		int livros = jdbc.queryForObject("SELECT COUNT(*) FROM produto WHERE tipo = 'LIVRO'", Integer.class);
+		System.out.printf("%n[ListagemProdutosBenchmark] %d produtos, %d livros, páginas de %d%n", PRODUTOS, livros,
+				PAGINA);
+
+		for (int rodada = 0; rodada < 2; rodada++) { // a primeira rodada aquece o JIT e o H2
+			for (int profundidade : new int[] { 0, 1_000, 10_000, livros / 2, livros - PAGINA }) {
+				Object[] chave = jdbc.queryForObject(SQL_CHAVE_NA_PROFUNDIDADE,
+						(rs, i) -> new Object[] { rs.getBigDecimal(1), rs.getLong(2) }, "LIVRO",
+						Math.max(0, profundidade - 1));
+
+				long inicio = System.nanoTime();
+				for (int r = 0; r < REPETICOES; r++) {
+					jdbc.queryForList(SQL_OFFSET, "LIVRO", profundidade, PAGINA);
+				}
+				double offset = (System.nanoTime() - inicio) / 1e6 / REPETICOES;
+
+				inicio = System.nanoTime();
+				for (int r = 0; r < REPETICOES; r++) {
+					jdbc.queryForList(SQL_CHAVE, "LIVRO", chave[0], chave[0], chave[1], PAGINA);
+				}
+				double porChave = (System.nanoTime() - inicio) / 1e6 / REPETICOES;
+
+				System.out.printf("[ListagemProdutosBenchmark] profundidade %7d  OFFSET %8.3f ms  chave %8.3f ms%n",
+						profundidade, offset, porChave);
+			}
+		}
+		jdbc.execute("DROP ALL OBJECTS");
+	}
+}
@@ -0,0 +1,117 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.ListagemProdutosService;
+
+@DataJpaTest
+public class ListagemProdutosServiceTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Autowired
+	private ProdutoRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	private ListagemProdutosService listagem;
+	private final List<Produto> produtos = new ArrayList<>();
+
+	@BeforeEach
+	public void setUp() {
+		listagem = new ListagemProdutosService(repository, transactionManager, objectMapper);
+		// Poucos preços distintos: muitos empates em (tipo, preco), desempatados pelo id
+		Random random = new Random(5);
+		TipoProduto[] tipos = TipoProduto.values();
+		for (int i = 0; i < 60; i++) {
+			produtos.add(entityManager.persist(new Produto(null, "p" + i, null,
+					BigDecimal.valueOf(random.nextInt(4) * 250, 2), 1, tipos[random.nextInt(tipos.length)])));
+		}
+		entityManager.persist(new Produto(null, "sem preço", null, null, 1, TipoProduto.LIVRO));
+		entityManager.flush();
+	}
+
+	@Test
+	public void testPaginasPercorremTudoNaOrdemDaChave() throws IOException {
+		List<Long> esperados = produtos.stream()
+				.sorted(Comparator.comparing((Produto p) -> p.getTipo().name()).thenComparing(Produto::getPreco)
+						.thenComparing(Produto::getId))
+				.map(Produto::getId).toList();
+
+		assertEquals(esperados, percorrer(null, 7));
+	}
+
+	@Test
+	public void testPaginasDeUmTipo() throws IOException {
+		List<Long> esperados = produtos.stream().filter(p -> p.getTipo() == TipoProduto.ROUPA)
+				.sorted(Comparator.comparing(Produto::getPreco).thenComparing(Produto::getId)).map(Produto::getId)
+				.toList();
+
+		assertTrue(esperados.size() > 3);
+		assertEquals(esperados, percorrer(TipoProduto.ROUPA, 3));
+	}
+
+	@Test
+	public void testUltimaPaginaSemProximo() throws IOException {
+		JsonNode pagina = pagina(null, null, 1000);
+
+		assertEquals(60, pagina.get("produtos").size());
+		assertTrue(pagina.get("proximo").isNull());
+	}
+
+	@Test
+	public void testParametrosInvalidos() {
+		String cursorLivro = new ListagemProdutosService.Cursor(TipoProduto.LIVRO, BigDecimal.ONE, 1).codificar();
+
+		assertThrows(IllegalArgumentException.class, () -> listagem.listar(null, "nao-e-cursor", 10));
+		assertThrows(IllegalArgumentException.class, () -> listagem.listar(TipoProduto.ROUPA, cursorLivro, 10));
+		assertThrows(IllegalArgumentException.class, () -> listagem.listar(null, null, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> listagem.listar(null, null, ListagemProdutosService.LIMITE_MAXIMO + 1));
+	}
+
+	private List<Long> percorrer(TipoProduto tipo, int limite) throws IOException {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			JsonNode pagina = pagina(tipo, cursor, limite);
+			assertTrue(pagina.get("produtos").size() <= limite);
+			pagina.get("produtos").forEach(p -> ids.add(p.get("id").asLong()));
+			cursor = pagina.get("proximo").isNull() ? null : pagina.get("proximo").asText();
+		} while (cursor != null);
+		return ids;
+	}
+
+	private JsonNode pagina(TipoProduto tipo, String cursor, int limite) throws IOException {
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		listagem.listar(tipo, cursor, limite).writeTo(saida);
+		return objectMapper.readTree(saida.toByteArray());
+	}
+}
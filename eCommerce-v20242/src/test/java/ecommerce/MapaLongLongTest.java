@@ -0,0 +1,84 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.util.MapaLongLong;
+
+public class MapaLongLongTest {
+
+	@Test
+	public void testPutGetESobrescrita() {
+		MapaLongLong mapa = new MapaLongLong();
+		mapa.put(7, 70);
+		mapa.put(-3, 30);
+		mapa.put(7, 71);
+
+		assertEquals(71, mapa.get(7, -1));
+		assertEquals(30, mapa.get(-3, -1));
+		assertEquals(-1, mapa.get(8, -1));
+		assertTrue(mapa.contem(-3));
+		assertFalse(mapa.contem(8));
+		assertEquals(2, mapa.tamanho());
+	}
+
+	@Test
+	public void testCresceEConfereComHashMap() {
+		MapaLongLong mapa = new MapaLongLong(4);
+		Map<Long, Long> referencia = new HashMap<>();
+		Random random = new Random(1);
+		for (int i = 0; i < 50_000; i++) {
+			long chave = random.nextInt(20_000);
+			long valor = random.nextLong();
+			mapa.put(chave, valor);
+			referencia.put(chave, valor);
+		}
+
+		assertEquals(referencia.size(), mapa.tamanho());
+		referencia.forEach((chave, valor) -> assertEquals(valor, mapa.get(chave, 0)));
+	}
+
+	@Test
+	public void testRemoverConfereComHashMap() {
+		MapaLongLong mapa = new MapaLongLong(4);
+		Map<Long, Long> referencia = new HashMap<>();
+		Random random = new Random(2);
+		for (int i = 0; i < 100_000; i++) {
+			long chave = random.nextInt(2_000);
+			if (random.nextBoolean()) {
+				mapa.put(chave, i);
+				referencia.put(chave, (long) i);
+			} else {
+				assertEquals(referencia.remove(chave) != null, mapa.remover(chave));
+			}
+		}
+
+		assertEquals(referencia.size(), mapa.tamanho());
+		for (long chave = 0; chave < 2_000; chave++) {
+			assertEquals(referencia.getOrDefault(chave, -1L), mapa.get(chave, -1));
+		}
+	}
+
+	@Test
+	public void testLimpar() {
+		MapaLongLong mapa = new MapaLongLong();
+		mapa.put(1, 1);
+		mapa.limpar();
+
+		assertEquals(0, mapa.tamanho());
+		assertFalse(mapa.contem(1));
+	}
+
+	@Test
+	public void testChaveReservada() {
+		assertThrows(IllegalArgumentException.class, () -> new MapaLongLong().put(Long.MIN_VALUE, 1));
+	}
+}
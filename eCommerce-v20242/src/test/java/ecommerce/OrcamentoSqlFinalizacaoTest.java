@@ -0,0 +1,233 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import ecommerce.dto.CompraDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.repository.CarrinhoDeComprasRepository;
+import ecommerce.repository.ClienteRepository;
+import ecommerce.repository.ProdutoRepository;
+import ecommerce.service.CompraService;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Orçamento de SQL de uma chamada a {@link CompraService#finalizarCompra} contra o H2 real, com os simulados de
+ * estoque e pagamento. O {@link DataSource} é embrulhado por um proxy JDBC que conta conexões obtidas, comandos
+ * executados e linhas lidas; as estatísticas do Hibernate dizem quantas entidades e coleções foram buscadas uma a uma.
+ *
+ * Os limites não dependem do tamanho do carrinho: um N+1 em {@code ItemCompra -> Produto} estoura o caso de 100 itens.
+ */
+@SpringBootTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"compras.diario.diretorio=target/orcamento-sql/diario", "carrinhos.purga.habilitado=false",
+		"catalogo.snapshot.arquivo=target/orcamento-sql/catalogo.snap" })
+public class OrcamentoSqlFinalizacaoTest {
+
+	// Cliente, carrinho, itens (com os produtos) e os dois updates de status
+	private static final long COMANDOS_MAXIMOS = 5;
+	// A transação da compra e as duas REQUIRES_NEW de iniciarFinalizacao e concluirFinalizacao
+	private static final long CONEXOES_MAXIMAS = 3;
+
+	@Autowired
+	private CompraService compraService;
+
+	@Autowired
+	private ClienteRepository clienteRepository;
+
+	@Autowired
+	private ProdutoRepository produtoRepository;
+
+	@Autowired
+	private CarrinhoDeComprasRepository carrinhoRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ContadorJdbc contador;
+
+	private Statistics estatisticas;
+
+	@BeforeEach
+	public void setUp() {
+		estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 10, 100 })
+	public void testFinalizarCompraDentroDoOrcamento(int quantidadeItens) {
+		CarrinhoDeCompras carrinho = criarCarrinho(quantidadeItens);
+		Long clienteId = carrinho.getCliente().getId();
+
+		contador.zerar();
+		estatisticas.clear();
+		CompraDTO compra = compraService.finalizarCompra(carrinho.getId(), clienteId);
+		String resumo = contador + ", " + estatisticas;
+
+		assertTrue(compra.sucesso(), resumo);
+		assertTrue(contador.comandos.get() <= COMANDOS_MAXIMOS, resumo);
+		assertTrue(contador.conexoes.get() <= CONEXOES_MAXIMAS, resumo);
+		// Cliente, carrinho, os itens e um produto distinto por item; nada além disso
+		assertTrue(contador.linhas.get() <= 2 + quantidadeItens, resumo);
+		assertEquals(0, estatisticas.getEntityFetchCount(), resumo);
+		assertTrue(estatisticas.getCollectionFetchCount() <= 1, resumo);
+	}
+
+	private CarrinhoDeCompras criarCarrinho(int quantidadeItens) {
+		Cliente cliente = clienteRepository.save(new Cliente(null, "Cliente", "Rua 1", TipoCliente.OURO));
+		List<Produto> produtos = new ArrayList<>();
+		for (int i = 0; i < quantidadeItens; i++) {
+			produtos.add(new Produto(null, "Produto " + i, "Descrição", BigDecimal.valueOf(10 + i), 1,
+					TipoProduto.ELETRONICO));
+		}
+		List<ItemCompra> itens = new ArrayList<>();
+		for (Produto produto : produtoRepository.saveAll(produtos)) {
+			itens.add(new ItemCompra(null, produto, 1L));
+		}
+		return carrinhoRepository.save(new CarrinhoDeCompras(null, cliente, itens, LocalDate.now()));
+	}
+
+	/**
+	 * Proxy JDBC mínimo: conta só o que o orçamento verifica, e só na thread que chamou {@link #zerar}, para que
+	 * tarefas agendadas em segundo plano não entrem na conta.
+	 */
+	static class ContadorJdbc {
+
+		final AtomicLong conexoes = new AtomicLong();
+		final AtomicLong comandos = new AtomicLong();
+		final AtomicLong linhas = new AtomicLong();
+		private volatile Thread medida;
+
+		void zerar() {
+			medida = Thread.currentThread();
+			conexoes.set(0);
+			comandos.set(0);
+			linhas.set(0);
+		}
+
+		DataSource embrulhar(DataSource dataSource) {
+			return proxy(DataSource.class, dataSource, (alvo, metodo, resultado) -> {
+				if (metodo.getName().equals("getConnection")) {
+					contar(conexoes);
+					return proxy(Connection.class, resultado, this::aoUsarConexao);
+				}
+				return resultado;
+			});
+		}
+
+		private void contar(AtomicLong contador) {
+			if (Thread.currentThread() == medida) {
+				contador.incrementAndGet();
+			}
+		}
+
+		private Object aoUsarConexao(Object alvo, Method metodo, Object resultado) {
+			if (resultado instanceof Statement) {
+				return proxy(interfaceDoComando(resultado), resultado, this::aoUsarComando);
+			}
+			return resultado;
+		}
+
+		private Object aoUsarComando(Object alvo, Method metodo, Object resultado) {
+			String nome = metodo.getName();
+			if (nome.startsWith("execute")) {
+				contar(comandos);
+			}
+			if (resultado instanceof ResultSet) {
+				return proxy(ResultSet.class, resultado, (rs, m, r) -> {
+					if (m.getName().equals("next") && Boolean.TRUE.equals(r)) {
+						contar(linhas);
+					}
+					return r;
+				});
+			}
+			return resultado;
+		}
+
+		private static Class<?> interfaceDoComando(Object comando) {
+			if (comando instanceof CallableStatement) {
+				return CallableStatement.class;
+			}
+			if (comando instanceof PreparedStatement) {
+				return PreparedStatement.class;
+			}
+			return Statement.class;
+		}
+
+		private interface AposChamada {
+			Object apos(Object alvo, Method metodo, Object resultado) throws Exception;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <T> T proxy(Class<T> tipo, Object alvo, AposChamada apos) {
+			InvocationHandler handler = (p, metodo, args) -> {
+				Object resultado;
+				try {
+					resultado = metodo.invoke(alvo, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+				return apos.apos(alvo, metodo, resultado);
+			};
+			return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo }, handler);
+		}
+
+		@Override
+		public String toString() {
+			return "conexoes=" + conexoes + ", comandos=" + comandos + ", linhas=" + linhas;
+		}
+	}
+
+	@TestConfiguration
+	static class ContadorJdbcConfig {
+
+		@Bean
+		ContadorJdbc contadorJdbc() {
+			return new ContadorJdbc();
+		}
+
+		@Bean
+		static BeanPostProcessor embrulharDataSource(ObjectProvider<ContadorJdbc> contador) {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String nome) {
+					return bean instanceof DataSource dataSource ? contador.getObject().embrulhar(dataSource) : bean;
+				}
+			};
+		}
+	}
+}
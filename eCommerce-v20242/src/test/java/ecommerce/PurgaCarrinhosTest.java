@@ -0,0 +1,160 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ecommerce.dto.RelatorioPurgaDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.StatusCarrinho;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.IndiceProdutoCarrinhos;
+import ecommerce.service.PurgaCarrinhos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+public class PurgaCarrinhosTest {
+
+	private static final LocalDate HOJE = LocalDate.of(2024, 6, 30);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	private IndiceProdutoCarrinhos indice;
+	private SimpleMeterRegistry registry;
+	private PurgaCarrinhos purga;
+
+	private Cliente cliente;
+	private Produto produto;
+
+	@BeforeEach
+	public void setUp() {
+		indice = new IndiceProdutoCarrinhos(jdbcTemplate);
+		registry = new SimpleMeterRegistry();
+		// Lote mínimo 2 e máximo 3 para forçar vários lotes com poucos carrinhos
+		purga = new PurgaCarrinhos(jdbcTemplate, transactionManager, indice, () -> true, Duration.ofDays(30), 2, 3,
+				Duration.ofSeconds(10), 0, Clock.fixed(HOJE.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC),
+				registry);
+		cliente = entityManager.persist(new Cliente(null, "Ana", "Rua", TipoCliente.BRONZE));
+		produto = entityManager.persist(new Produto(null, "Livro", null, BigDecimal.TEN, 1, TipoProduto.LIVRO));
+	}
+
+	@Test
+	public void testApagaSoAbertosAntigosComItens() {
+		List<Long> abandonados = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			abandonados.add(carrinho(HOJE.minusDays(31 + i), StatusCarrinho.ABERTO, 2).getId());
+		}
+		CarrinhoDeCompras recente = carrinho(HOJE.minusDays(30), StatusCarrinho.ABERTO, 1);
+		CarrinhoDeCompras finalizadoAntigo = carrinho(HOJE.minusDays(400), StatusCarrinho.FINALIZADO, 1);
+		CarrinhoDeCompras semData = carrinho(null, StatusCarrinho.ABERTO, 1);
+		entityManager.flush();
+		indice.construir();
+
+		RelatorioPurgaDTO relatorio = purga.purgar();
+
+		assertEquals(HOJE.minusDays(30), relatorio.corte());
+		assertEquals(7, relatorio.carrinhos());
+		assertEquals(14, relatorio.itens());
+		assertEquals(3, relatorio.lotes()); // 2, 3 e os 2 restantes
+		for (Long id : abandonados) {
+			assertEquals(0, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE id = ?", id));
+			assertEquals(0, contar("SELECT COUNT(*) FROM item_compra WHERE carrinho_id = ?", id));
+		}
+		assertEquals(3, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE cliente_id = ?", cliente.getId()));
+		assertEquals(3, contar("SELECT COUNT(*) FROM item_compra WHERE produto_id = ?", produto.getId()));
+		// Finalizados não estão no índice; os abandonados saíram dele
+		assertArrayEquals(new long[] { recente.getId(), semData.getId() },
+				Arrays.stream(indice.carrinhosCom(List.of(produto.getId()))).sorted().toArray());
+		assertEquals(7.0, registry.get("carrinhos.purga.carrinhos").counter().count());
+		assertEquals(1, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE id = ?", finalizadoAntigo.getId()));
+
+		assertEquals(0, purga.purgar().carrinhos());
+	}
+
+	@Test
+	public void testAgendadaConsultaHabilitadoACadaExecucao() {
+		AtomicBoolean habilitado = new AtomicBoolean(false);
+		PurgaCarrinhos agendada = new PurgaCarrinhos(jdbcTemplate, transactionManager, indice, habilitado::get,
+				Duration.ofDays(30), 2, 3, Duration.ofSeconds(10), 0,
+				Clock.fixed(HOJE.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC), new SimpleMeterRegistry());
+		Long abandonado = carrinho(HOJE.minusDays(31), StatusCarrinho.ABERTO, 1).getId();
+		entityManager.flush();
+
+		agendada.purgarAgendado();
+		assertEquals(1, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE id = ?", abandonado));
+
+		habilitado.set(true);
+		agendada.purgarAgendado();
+		assertEquals(0, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE id = ?", abandonado));
+	}
+
+	@Test
+	public void testApagaCarrinhoPresoEmFinalizacaoDesdeAntesDoCorte() {
+		Long preso = carrinho(HOJE.minusDays(40), StatusCarrinho.EM_FINALIZACAO, 1).getId();
+		Long emAndamento = carrinho(HOJE.minusDays(40), StatusCarrinho.EM_FINALIZACAO, 1).getId();
+		entityManager.flush();
+		reservarEm(preso, HOJE.minusDays(31).atStartOfDay().toInstant(ZoneOffset.UTC));
+		reservarEm(emAndamento, HOJE.atStartOfDay().toInstant(ZoneOffset.UTC));
+
+		assertEquals(1, purga.purgar().carrinhos());
+		assertEquals(0, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE id = ?", preso));
+		assertEquals(1, contar("SELECT COUNT(*) FROM carrinho_de_compras WHERE id = ?", emAndamento));
+	}
+
+	@Test
+	public void testAjusteDoLote() {
+		assertEquals(150, PurgaCarrinhos.ajustarLote(100, 20, 100, 50, 1000));
+		assertEquals(1000, PurgaCarrinhos.ajustarLote(980, 20, 100, 50, 1000));
+		assertEquals(50, PurgaCarrinhos.ajustarLote(100, 250, 100, 50, 1000));
+		assertEquals(50, PurgaCarrinhos.ajustarLote(60, 250, 100, 50, 1000));
+	}
+
+	private CarrinhoDeCompras carrinho(LocalDate data, StatusCarrinho status, int itens) {
+		List<ItemCompra> lista = new ArrayList<>();
+		for (int i = 0; i < itens; i++) {
+			lista.add(new ItemCompra(null, produto, 1L));
+		}
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras(null, cliente, lista, data);
+		carrinho.setStatus(status);
+		return entityManager.persist(carrinho);
+	}
+
+	private void reservarEm(Long id, Instant instante) {
+		jdbcTemplate.update("UPDATE carrinho_de_compras SET inicio_finalizacao = ? WHERE id = ?",
+				Timestamp.from(instante), id);
+	}
+
+	private int contar(String sql, Long id) {
+		return jdbcTemplate.queryForObject(sql, Integer.class, id);
+	}
+}
@@ -0,0 +1,106 @@
+package ecommerce;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.CompraService;
+import ecommerce.service.ReprecificacaoCarrinhosService;
+import ecommerce.service.ReprecificacaoCarrinhosService.Colunas;
+
+/**
+ * Cálculo dos totais de {@code benchmark.carrinhos} (padrão 500 mil) carrinhos abertos com até 6 itens:
+ * {@link CompraService#calcularCustoTotal} carrinho a carrinho sobre as entidades (BigDecimal) contra o cálculo em
+ * colunas de {@link ReprecificacaoCarrinhosService}, com uma thread e com o ForkJoinPool comum. Mede só o cálculo,
+ * sem a leitura e a gravação no banco.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=ReprecificacaoBenchmark
+ */
+public class ReprecificacaoBenchmark {
+
+	private static final int CARRINHOS = Integer.getInteger("benchmark.carrinhos", 500_000);
+	private static final int PRODUTOS = 10_000;
+
+	@Test
+	void compararCalculos() {
+		Random random = new Random(7);
+		TipoCliente[] tipos = TipoCliente.values();
+		List<Cliente> clientes = new ArrayList<>();
+		for (TipoCliente tipo : tipos) {
+			clientes.add(new Cliente((long) tipo.ordinal(), "c", "e", tipo));
+		}
+
+		Colunas.Construtor construtor = new Colunas.Construtor();
+		List<Produto> produtos = new ArrayList<>(PRODUTOS);
+		for (int p = 0; p < PRODUTOS; p++) {
+			BigDecimal preco = BigDecimal.valueOf(100 + random.nextInt(100_000), 2);
+			int peso = 1 + random.nextInt(15);
+			produtos.add(new Produto((long) p, "p", null, preco, peso, TipoProduto.ELETRONICO));
+			construtor.produto(preco.movePointRight(2).longValueExact(), peso);
+		}
+
+		List<CarrinhoDeCompras> carrinhos = new ArrayList<>(CARRINHOS);
+		long itens = 0;
+		for (int c = 0; c < CARRINHOS; c++) {
+			Cliente cliente = clientes.get(c % clientes.size());
+			construtor.carrinho(c, cliente.getTipo());
+			int quantidadeItens = 1 + random.nextInt(6);
+			List<ItemCompra> itensCarrinho = new ArrayList<>(quantidadeItens);
+			for (int i = 0; i < quantidadeItens; i++) {
+				int produto = random.nextInt(PRODUTOS);
+				long quantidade = 1 + random.nextInt(3);
+				construtor.item(produto, quantidade);
+				itensCarrinho.add(new ItemCompra(null, produtos.get(produto), quantidade));
+			}
+			itens += quantidadeItens;
+			carrinhos.add(new CarrinhoDeCompras((long) c, cliente, itensCarrinho, null));
+		}
+		Colunas colunas = construtor.construir();
+		CompraService compraService = new CompraService(null, null, null, null, null);
+		ForkJoinPool umaThread = new ForkJoinPool(1);
+
+		System.out.printf("%n[ReprecificacaoBenchmark] %d carrinhos, %d itens, %d núcleos%n", CARRINHOS, itens,
+				Runtime.getRuntime().availableProcessors());
+		for (int rodada = 0; rodada < 3; rodada++) { // a primeira rodada aquece o JIT
+			long inicio = System.nanoTime();
+			BigDecimal soma = BigDecimal.ZERO;
+			for (CarrinhoDeCompras carrinho : carrinhos) {
+				soma = soma.add(compraService.calcularCustoTotal(carrinho));
+			}
+			imprimir("BigDecimal por carrinho", inicio, soma);
+
+			inicio = System.nanoTime();
+			imprimir("colunas, 1 thread", inicio, somar(ReprecificacaoCarrinhosService.calcularTotais(colunas, umaThread)));
+
+			inicio = System.nanoTime();
+			imprimir("colunas, fork-join", inicio,
+					somar(ReprecificacaoCarrinhosService.calcularTotais(colunas, ForkJoinPool.commonPool())));
+		}
+		umaThread.shutdown();
+	}
+
+	private static BigDecimal somar(long[] totais) {
+		long soma = 0;
+		for (long total : totais) {
+			soma += total;
+		}
+		return BigDecimal.valueOf(soma, 3);
+	}
+
+	private static void imprimir(String nome, long inicio, BigDecimal soma) {
+		double ms = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio) / 1000.0;
+		System.out.printf("[ReprecificacaoBenchmark] %-24s %9.1f ms  %8.1f milhões de carrinhos/s  (soma %s)%n", nome,
+				ms, CARRINHOS / ms / 1000, soma);
+	}
+}
@@ -0,0 +1,269 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import ecommerce.dto.RelatorioReprecificacaoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.StatusCarrinho;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.CompraFinalizadaEvent;
+import ecommerce.service.CompraService;
+import ecommerce.service.IndiceProdutoCarrinhos;
+import ecommerce.service.ReprecificacaoCarrinhosService;
+import ecommerce.service.ReprecificacaoCarrinhosService.Colunas;
+
+@DataJpaTest
+@Import({ ReprecificacaoCarrinhosService.class, IndiceProdutoCarrinhos.class })
+public class ReprecificacaoCarrinhosServiceTest {
+
+	private final CompraService compraService = new CompraService(null, null, null, null, null);
+
+	@Autowired
+	private ReprecificacaoCarrinhosService reprecificacaoService;
+
+	@Autowired
+	private IndiceProdutoCarrinhos indice;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Test
+	public void testTotaisIguaisAoCalculoDaCompra() {
+		Random random = new Random(42);
+		TipoCliente[] tipos = { TipoCliente.BRONZE, TipoCliente.PRATA, TipoCliente.OURO, null };
+		List<Produto> produtos = new ArrayList<>();
+		Colunas.Construtor construtor = new Colunas.Construtor();
+		for (int p = 0; p < 50; p++) {
+			// Preços perto dos limites de desconto e pesos perto dos limites de frete
+			BigDecimal preco = BigDecimal.valueOf(random.nextInt(60_000), 2);
+			int peso = random.nextInt(12);
+			produtos.add(new Produto((long) p, "p" + p, null, preco, peso, TipoProduto.LIVRO));
+			assertEquals(p, construtor.produto(preco.movePointRight(2).longValueExact(), peso));
+		}
+
+		List<CarrinhoDeCompras> carrinhos = new ArrayList<>();
+		for (int c = 0; c < 20_000; c++) {
+			TipoCliente tipo = tipos[c % tipos.length];
+			construtor.carrinho(c, tipo);
+			List<ItemCompra> itens = new ArrayList<>();
+			for (int i = random.nextInt(6); i >= 0; i--) {
+				int produto = random.nextInt(produtos.size());
+				long quantidade = 1 + random.nextInt(5);
+				construtor.item(produto, quantidade);
+				itens.add(new ItemCompra(null, produtos.get(produto), quantidade));
+			}
+			carrinhos.add(new CarrinhoDeCompras((long) c, new Cliente(1L, "c", "e", tipo), itens, null));
+		}
+
+		long[] totais = ReprecificacaoCarrinhosService.calcularTotais(construtor.construir(), ForkJoinPool.commonPool());
+
+		for (int c = 0; c < carrinhos.size(); c++) {
+			BigDecimal esperado = compraService.calcularCustoTotal(carrinhos.get(c));
+			assertEquals(0, esperado.compareTo(BigDecimal.valueOf(totais[c], 3)),
+					"carrinho " + c + ": esperado " + esperado + ", calculado " + BigDecimal.valueOf(totais[c], 3));
+		}
+	}
+
+	@Test
+	public void testProdutoInvalidoDeixaCarrinhoSemTotal() {
+		Colunas.Construtor construtor = new Colunas.Construtor();
+		int produto = construtor.produto(1000, 1);
+		construtor.carrinho(1L, TipoCliente.BRONZE);
+		construtor.item(produto, 1);
+		construtor.carrinho(2L, TipoCliente.BRONZE);
+		construtor.item(produto, 1);
+		construtor.item(-1, 1);
+
+		long[] totais = ReprecificacaoCarrinhosService.calcularTotais(construtor.construir(), ForkJoinPool.commonPool());
+
+		assertEquals(10_000, totais[0]);
+		assertEquals(ReprecificacaoCarrinhosService.SEM_TOTAL, totais[1]);
+	}
+
+	@Test
+	public void testReprecificarGravaSoCarrinhosAbertos() {
+		Cliente prata = entityManager.persist(new Cliente(null, "Maria", "Rua", TipoCliente.PRATA));
+		Produto livro = entityManager.persist(
+				new Produto(null, "Livro", null, new BigDecimal("120.50"), 3, TipoProduto.LIVRO));
+		Produto movel = entityManager.persist(
+				new Produto(null, "Mesa", null, new BigDecimal("399.99"), 40, TipoProduto.MOVEL));
+		CarrinhoDeCompras aberto = entityManager.persist(new CarrinhoDeCompras(null, prata,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 2L), new ItemCompra(null, movel, 1L))),
+				LocalDate.now()));
+		CarrinhoDeCompras finalizado = new CarrinhoDeCompras(null, prata,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 1L))), LocalDate.now());
+		finalizado.setStatus(StatusCarrinho.FINALIZADO);
+		finalizado = entityManager.persist(finalizado);
+		entityManager.flush();
+
+		RelatorioReprecificacaoDTO relatorio = reprecificacaoService.reprecificar();
+
+		assertEquals(1, relatorio.carrinhos());
+		assertEquals(2, relatorio.itens());
+		assertEquals(1, relatorio.atualizados());
+		entityManager.clear();
+		CarrinhoDeCompras recarregado = entityManager.find(CarrinhoDeCompras.class, aberto.getId());
+		// (2 * 120.50 + 399.99) * 0.9 + 46 * 4 * 0.5
+		assertEquals(0, new BigDecimal("668.891").compareTo(recarregado.getTotalEstimado()));
+		assertEquals(0, compraService.calcularCustoTotal(recarregado).compareTo(recarregado.getTotalEstimado()));
+		assertNull(entityManager.find(CarrinhoDeCompras.class, finalizado.getId()).getTotalEstimado());
+	}
+
+	@Test
+	public void testIndiceAcompanhaCarrinhosGravadosEFinalizados() {
+		Cliente cliente = entityManager.persist(new Cliente(null, "Ana", "Rua", TipoCliente.BRONZE));
+		Produto livro = entityManager.persist(
+				new Produto(null, "Livro", null, new BigDecimal("10.00"), 1, TipoProduto.LIVRO));
+		Produto mesa = entityManager.persist(
+				new Produto(null, "Mesa", null, new BigDecimal("300.00"), 20, TipoProduto.MOVEL));
+		CarrinhoDeCompras soLivro = entityManager.persist(new CarrinhoDeCompras(null, cliente,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 1L))), LocalDate.now()));
+		CarrinhoDeCompras comMesa = entityManager.persist(new CarrinhoDeCompras(null, cliente,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 2L))), LocalDate.now()));
+		entityManager.flush();
+
+		// Item novo num carrinho já gravado: @PostUpdate
+		comMesa.getItens().add(new ItemCompra(null, mesa, 1L));
+		entityManager.flush();
+		// O índice só muda no commit
+		assertArrayEquals(new long[0], indice.carrinhosCom(List.of(livro.getId())));
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		try {
+			assertArrayEquals(new long[] { soLivro.getId(), comMesa.getId() },
+					ordenados(indice.carrinhosCom(List.of(livro.getId()))));
+			assertArrayEquals(new long[] { comMesa.getId() }, indice.carrinhosCom(List.of(mesa.getId())));
+			assertArrayEquals(new long[] { soLivro.getId(), comMesa.getId() },
+					ordenados(indice.carrinhosCom(List.of(livro.getId(), mesa.getId()))));
+
+			// O evento da compra só chega ao índice depois do commit
+			TestTransaction.start();
+			eventPublisher.publishEvent(new CompraFinalizadaEvent(comMesa.getId(), cliente.getId(), 1L,
+					BigDecimal.ONE, comMesa.getItens(), Instant.now()));
+			assertArrayEquals(new long[] { comMesa.getId() }, indice.carrinhosCom(List.of(mesa.getId())));
+			TestTransaction.flagForCommit();
+			TestTransaction.end();
+
+			assertArrayEquals(new long[0], indice.carrinhosCom(List.of(mesa.getId())));
+			assertArrayEquals(new long[] { soLivro.getId() }, indice.carrinhosCom(List.of(livro.getId())));
+		} finally {
+			apagar(CarrinhoDeCompras.class, soLivro.getId(), comMesa.getId());
+			apagar(Produto.class, livro.getId(), mesa.getId());
+			apagar(Cliente.class, cliente.getId());
+		}
+	}
+
+	@Test
+	public void testIndiceIgnoraCarrinhoDesfeitoPorRollback() {
+		Cliente cliente = entityManager.persist(new Cliente(null, "Ana", "Rua", TipoCliente.BRONZE));
+		Produto livro = entityManager.persist(
+				new Produto(null, "Livro", null, new BigDecimal("10.00"), 1, TipoProduto.LIVRO));
+		entityManager.persist(new CarrinhoDeCompras(null, cliente,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 1L))), LocalDate.now()));
+		entityManager.flush();
+
+		TestTransaction.end();
+
+		assertArrayEquals(new long[0], indice.carrinhosCom(List.of(livro.getId())));
+	}
+
+	@Test
+	public void testReprecificarProdutosSoTocaCarrinhosDoProduto() {
+		Cliente cliente = entityManager.persist(new Cliente(null, "Ana", "Rua", TipoCliente.BRONZE));
+		Produto livro = entityManager.persist(
+				new Produto(null, "Livro", null, new BigDecimal("10.00"), 1, TipoProduto.LIVRO));
+		Produto caneta = entityManager.persist(
+				new Produto(null, "Caneta", null, new BigDecimal("2.00"), 1, TipoProduto.LIVRO));
+		CarrinhoDeCompras comLivro = entityManager.persist(new CarrinhoDeCompras(null, cliente,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 3L), new ItemCompra(null, caneta, 1L))),
+				LocalDate.now()));
+		CarrinhoDeCompras soCaneta = entityManager.persist(new CarrinhoDeCompras(null, cliente,
+				new ArrayList<>(List.of(new ItemCompra(null, caneta, 1L))), LocalDate.now()));
+		entityManager.flush();
+		indice.construir(); // No contexto de teste a carga da subida pode ter rodado antes; é idempotente
+
+		livro.setPreco(new BigDecimal("12.50"));
+		entityManager.flush();
+		RelatorioReprecificacaoDTO relatorio = reprecificacaoService.reprecificarProdutos(List.of(livro.getId()));
+
+		assertEquals(1, relatorio.carrinhos());
+		assertEquals(2, relatorio.itens());
+		assertEquals(1, relatorio.atualizados());
+		entityManager.clear();
+		assertEquals(0, new BigDecimal("39.500")
+				.compareTo(entityManager.find(CarrinhoDeCompras.class, comLivro.getId()).getTotalEstimado()));
+		assertNull(entityManager.find(CarrinhoDeCompras.class, soCaneta.getId()).getTotalEstimado());
+	}
+
+	@Test
+	public void testProdutoAlteradoPeloJpaReprecificaCarrinhosDepoisDoCommit() {
+		Cliente cliente = entityManager.persist(new Cliente(null, "Ana", "Rua", TipoCliente.BRONZE));
+		Produto livro = entityManager.persist(
+				new Produto(null, "Livro", null, new BigDecimal("10.00"), 1, TipoProduto.LIVRO));
+		CarrinhoDeCompras carrinho = entityManager.persist(new CarrinhoDeCompras(null, cliente,
+				new ArrayList<>(List.of(new ItemCompra(null, livro, 3L))), LocalDate.now()));
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+
+		try {
+			TestTransaction.start();
+			entityManager.find(Produto.class, livro.getId()).setPreco(new BigDecimal("12.50"));
+			TestTransaction.flagForCommit();
+			TestTransaction.end();
+
+			TestTransaction.start();
+			BigDecimal total = entityManager.find(CarrinhoDeCompras.class, carrinho.getId()).getTotalEstimado();
+			TestTransaction.end();
+			assertEquals(0, new BigDecimal("37.500").compareTo(total));
+		} finally {
+			apagar(CarrinhoDeCompras.class, carrinho.getId());
+			apagar(Produto.class, livro.getId());
+			apagar(Cliente.class, cliente.getId());
+		}
+	}
+
+	/** Apaga numa transação própria o que o teste comitou, para não vazar para os outros testes do contexto. */
+	private void apagar(Class<?> entidade, Long... ids) {
+		if (TestTransaction.isActive()) {
+			TestTransaction.end();
+		}
+		TestTransaction.start();
+		for (Long id : ids) {
+			entityManager.remove(entityManager.find(entidade, id));
+		}
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+	}
+
+	private static long[] ordenados(long[] ids) {
+		Arrays.sort(ids);
+		return ids;
+	}
+}
@@ -0,0 +1,144 @@
+package ecommerce;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.dto.DisponibilidadeDTO;
+import ecommerce.dto.EstoqueBaixaDTO;
+import ecommerce.dto.PagamentoDTO;
+import ecommerce.entity.CarrinhoDeCompras;
+import ecommerce.entity.Cliente;
+import ecommerce.entity.ItemCompra;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoCliente;
+import ecommerce.entity.TipoProduto;
+import ecommerce.external.IEstoqueExternal;
+import ecommerce.external.IPagamentoExternal;
+import ecommerce.service.CarrinhoDeComprasService;
+import ecommerce.service.ClienteService;
+import ecommerce.service.CompraService;
+import ecommerce.service.Prazo;
+import ecommerce.service.ResultadoCompra;
+
+/**
+ * CPU por finalização recusada ("Itens fora de estoque.") pela API com exceção ({@code finalizarCompra}) e pela API
+ * com resultado ({@code tentarFinalizarCompra}), como num esgotamento em que quase toda finalização falha.
+ *
+ * Estoque, pagamento e serviços são stubs em memória, então a diferença é o custo da exceção. Cada chamada é feita
+ * {@code benchmark.profundidade-pilha} (padrão 120) quadros abaixo do teste, perto da pilha de uma requisição que
+ * passa por Tomcat, filtros, Spring MVC e proxies transacionais: capturar a pilha custa mais quanto mais funda ela é.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=ResultadoCompraBenchmark
+ */
+public class ResultadoCompraBenchmark {
+
+	private static final int ITERACOES = Integer.getInteger("benchmark.iteracoes", 200_000);
+	private static final int PROFUNDIDADE = Integer.getInteger("benchmark.profundidade-pilha", 120);
+
+	private final CompraService compraService = criarCompraService();
+
+	@Test
+	void compararApis() {
+		for (int rodada = 0; rodada < 3; rodada++) { // a primeira rodada aquece o JIT
+			medir("exceção", () -> naProfundidade(PROFUNDIDADE, this::finalizarComExcecao));
+			medir("resultado", () -> naProfundidade(PROFUNDIDADE, this::finalizarComResultado));
+		}
+	}
+
+	private long finalizarComExcecao() {
+		long recusadas = 0;
+		for (int i = 0; i < ITERACOES; i++) {
+			try {
+				compraService.finalizarCompra(1L, 1L, Prazo.semPrazo());
+			} catch (IllegalStateException e) {
+				recusadas++;
+			}
+		}
+		return recusadas;
+	}
+
+	private long finalizarComResultado() {
+		long recusadas = 0;
+		for (int i = 0; i < ITERACOES; i++) {
+			if (compraService.tentarFinalizarCompra(1L, 1L, Prazo.semPrazo()) instanceof ResultadoCompra.Recusa) {
+				recusadas++;
+			}
+		}
+		return recusadas;
+	}
+
+	private static long naProfundidade(int profundidade, LongSupplier acao) {
+		return profundidade <= 0 ? acao.getAsLong() : naProfundidade(profundidade - 1, acao);
+	}
+
+	private static void medir(String nome, LongSupplier execucao) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		long cpuInicio = threads.getCurrentThreadCpuTime();
+		long bytesInicio = threads.getThreadAllocatedBytes(id);
+
+		long recusadas = execucao.getAsLong();
+
+		double cpuNanos = threads.getCurrentThreadCpuTime() - cpuInicio;
+		double bytes = threads.getThreadAllocatedBytes(id) - bytesInicio;
+		System.out.printf("[ResultadoCompraBenchmark] %-10s %8.0f ns de CPU/recusa  %8.0f bytes/recusa  (%d recusas, "
+				+ "pilha %d)%n", nome, cpuNanos / ITERACOES, bytes / ITERACOES, recusadas, PROFUNDIDADE);
+	}
+
+	private static CompraService criarCompraService() {
+		Cliente cliente = new Cliente(1L, "Cliente", "Endereço", TipoCliente.BRONZE);
+		Produto produto = new Produto(1L, "Produto", "Descrição", BigDecimal.TEN, 1, TipoProduto.ELETRONICO);
+		CarrinhoDeCompras carrinho = new CarrinhoDeCompras(1L, cliente, List.of(new ItemCompra(1L, produto, 1L)),
+				LocalDate.now());
+
+		ClienteService clienteService = new ClienteService(null) {
+			@Override
+			public Cliente buscarPorId(Long clienteId) {
+				return cliente;
+			}
+		};
+		CarrinhoDeComprasService carrinhoService = new CarrinhoDeComprasService(null, 600_000) {
+			@Override
+			public CarrinhoDeCompras buscarPorCarrinhoIdEClienteId(Long carrinhoId, Cliente c) {
+				return carrinho;
+			}
+
+			@Override
+			public void iniciarFinalizacao(Long carrinhoId) {
+			}
+
+			@Override
+			public void reabrir(Long carrinhoId) {
+			}
+		};
+		DisponibilidadeDTO esgotado = new DisponibilidadeDTO(false, List.of(1L));
+		IEstoqueExternal estoque = new IEstoqueExternal() {
+			@Override
+			public DisponibilidadeDTO verificarDisponibilidade(List<Long> produtosIds, List<Long> quantidades) {
+				return esgotado;
+			}
+
+			@Override
+			public EstoqueBaixaDTO darBaixa(List<Long> produtosIds, List<Long> quantidades) {
+				throw new AssertionError("Sem estoque não há baixa");
+			}
+		};
+		IPagamentoExternal pagamento = new IPagamentoExternal() {
+			@Override
+			public PagamentoDTO autorizarPagamento(Long clienteId, Double custoTotal) {
+				throw new AssertionError("Sem estoque não há pagamento");
+			}
+
+			@Override
+			public void cancelarPagamento(Long clienteId, Long transacaoId) {
+			}
+		};
+		return new CompraService(carrinhoService, clienteService, estoque, pagamento, evento -> {
+		});
+	}
+}
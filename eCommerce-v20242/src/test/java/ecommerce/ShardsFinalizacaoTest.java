@@ -0,0 +1,131 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.service.FilaFinalizacaoCheiaException;
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+import ecommerce.service.ShardsFinalizacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ShardsFinalizacaoTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private ShardsFinalizacao shards;
+
+	@AfterEach
+	public void fechar() {
+		shards.close();
+	}
+
+	@Test
+	public void testMesmoClienteSempreNoMesmoShard() {
+		shards = new ShardsFinalizacao(8, 16, registry);
+		Set<String> threadsDoCliente = new HashSet<>();
+		Set<Integer> shardsUsados = new HashSet<>();
+		for (long cliente = 0; cliente < 100; cliente++) {
+			shardsUsados.add(shards.executar(cliente, ShardsFinalizacao::shardAtual));
+		}
+		for (int i = 0; i < 10; i++) {
+			threadsDoCliente.add(shards.executar(42L, () -> Thread.currentThread().getName()));
+		}
+
+		assertEquals(1, threadsDoCliente.size());
+		assertEquals(8, shardsUsados.size());
+		assertEquals(-1, ShardsFinalizacao.shardAtual());
+	}
+
+	@Test
+	public void testExcecaoDaFinalizacaoChegaAQuemChamou() {
+		shards = new ShardsFinalizacao(2, 16, registry);
+
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> shards.executar(1L, () -> {
+					throw new IllegalArgumentException("Cliente não encontrado");
+				}));
+		assertEquals("Cliente não encontrado", exception.getMessage());
+	}
+
+	@Test
+	public void testFilaCheiaRecusa() throws Exception {
+		shards = new ShardsFinalizacao(1, 1, registry);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch executando = new CountDownLatch(1);
+		CompletableFuture<Object> ocupando = CompletableFuture.supplyAsync(() -> shards.executar(1L, () -> {
+			executando.countDown();
+			aguardar(liberar);
+			return null;
+		}));
+		executando.await(5, TimeUnit.SECONDS);
+		CompletableFuture<Object> naFila = CompletableFuture.supplyAsync(() -> shards.executar(2L, () -> null));
+		esperarFila(1);
+
+		assertThrows(FilaFinalizacaoCheiaException.class, () -> shards.executar(3L, () -> null));
+
+		liberar.countDown();
+		ocupando.get(5, TimeUnit.SECONDS);
+		naFila.get(5, TimeUnit.SECONDS);
+		assertEquals(2, registry.get("compra.shards.execucao").timer().count());
+	}
+
+	@Test
+	public void testPrazoEsgotadoNaFilaCancelaAFinalizacao() throws Exception {
+		shards = new ShardsFinalizacao(1, 4, registry);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CountDownLatch executando = new CountDownLatch(1);
+		CompletableFuture<Object> ocupando = CompletableFuture.supplyAsync(() -> shards.executar(1L, () -> {
+			executando.countDown();
+			aguardar(liberar);
+			return null;
+		}));
+		executando.await(5, TimeUnit.SECONDS);
+		AtomicBoolean executou = new AtomicBoolean();
+
+		PrazoEsgotadoException exception = assertThrows(PrazoEsgotadoException.class, () -> Prazo
+				.em(Duration.ofMillis(100)).aplicar(() -> shards.executar(2L, () -> executou.getAndSet(true))));
+
+		assertEquals("Prazo da requisição esgotado antes de sair da fila do shard do cliente.",
+				exception.getMessage());
+		assertEquals(0, registry.get("compra.shards.fila").gauge().value());
+		liberar.countDown();
+		ocupando.get(5, TimeUnit.SECONDS);
+		assertFalse(executou.get());
+	}
+
+	@Test
+	public void testChamadaDeDentroDoShardNaoEnfileira() {
+		shards = new ShardsFinalizacao(1, 1, registry);
+
+		assertEquals("aninhada", shards.executar(1L, () -> shards.executar(1L, () -> "aninhada")));
+	}
+
+	private void esperarFila(int profundidade) {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (registry.get("compra.shards.fila").gauge().value() < profundidade && System.nanoTime() < limite) {
+			Thread.onSpinWait();
+		}
+		assertTrue(registry.get("compra.shards.fila").gauge().value() >= profundidade);
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ecommerce.dto.PrecoProdutoDTO;
+import ecommerce.entity.Produto;
+import ecommerce.entity.TipoProduto;
+import ecommerce.service.SnapshotCatalogo;
+
+@DataJpaTest
+public class SnapshotCatalogoTest {
+
+	private static final long MARGEM_MS = 60_000;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@TempDir
+	private Path diretorio;
+
+	private Path arquivo;
+	private Produto livro;
+	private Produto mesa;
+
+	@BeforeEach
+	public void setUp() {
+		arquivo = diretorio.resolve("catalogo.snap");
+		livro = entityManager.persist(new Produto(null, "Livro", null, new BigDecimal("39.90"), 1, TipoProduto.LIVRO));
+		mesa = entityManager.persist(new Produto(null, "Mesa", null, new BigDecimal("400.00"), 30, TipoProduto.MOVEL));
+		entityManager.persist(new Produto(null, "Sem preço", null, null, null, null));
+		entityManager.flush();
+	}
+
+	@Test
+	public void testNovoNoServeDoSnapshotSemBanco() {
+		assertEquals(3, new SnapshotCatalogo(jdbcTemplate, arquivo, true, MARGEM_MS).gravar());
+
+		// Sem JdbcTemplate: qualquer ida ao banco falharia
+		SnapshotCatalogo novoNo = new SnapshotCatalogo(null, arquivo, false, MARGEM_MS);
+
+		assertTrue(novoNo.mapeado());
+		assertEquals(new PrecoProdutoDTO(livro.getId(), new BigDecimal("39.90"), 1, TipoProduto.LIVRO),
+				novoNo.buscar(livro.getId()));
+		assertEquals(new PrecoProdutoDTO(mesa.getId(), new BigDecimal("400.00"), 30, TipoProduto.MOVEL),
+				novoNo.buscar(mesa.getId()));
+		assertEquals(3, novoNo.produtosNoSnapshot());
+		assertNull(novoNo.buscar(mesa.getId() + 1000));
+	}
+
+	@Test
+	public void testAcompanhaAlteracoesFeitasDepoisDoSnapshot() {
+		new SnapshotCatalogo(jdbcTemplate, arquivo, true, MARGEM_MS).gravar();
+		livro.setPreco(new BigDecimal("29.90"));
+		Produto novo = entityManager.persist(new Produto(null, "Cadeira", null, BigDecimal.TEN, 5, TipoProduto.MOVEL));
+		entityManager.flush();
+
+		SnapshotCatalogo novoNo = new SnapshotCatalogo(jdbcTemplate, arquivo, false, MARGEM_MS);
+		assertEquals(new BigDecimal("39.90"), novoNo.buscar(livro.getId()).preco());
+		assertNull(novoNo.buscar(novo.getId()));
+		assertFalse(novoNo.emDia());
+
+		assertTrue(novoNo.acompanhar() >= 2);
+
+		assertTrue(novoNo.emDia());
+		assertEquals(new BigDecimal("29.90"), novoNo.buscar(livro.getId()).preco());
+		assertEquals(TipoProduto.MOVEL, novoNo.buscar(novo.getId()).tipo());
+
+		// O próximo snapshot cobre as alterações, que deixam de ser guardadas à parte
+		assertEquals(4, new SnapshotCatalogo(jdbcTemplate, arquivo, true, 0).gravar());
+		SnapshotCatalogo outroNo = new SnapshotCatalogo(null, arquivo, false, MARGEM_MS);
+		assertEquals(new BigDecimal("29.90"), outroNo.buscar(livro.getId()).preco());
+		assertEquals(0, outroNo.alteracoes());
+	}
+
+	@Test
+	public void testNoQueNaoGravaMapeiaSnapshotMaisNovoEDescartaAlteracoes() throws IOException {
+		SnapshotCatalogo gravador = new SnapshotCatalogo(jdbcTemplate, arquivo, true, 0);
+		gravador.gravar();
+		SnapshotCatalogo leitor = new SnapshotCatalogo(jdbcTemplate, arquivo, false, 0);
+		livro.setPreco(new BigDecimal("29.90"));
+		Produto novo = entityManager.persist(new Produto(null, "Cadeira", null, BigDecimal.TEN, 5, TipoProduto.MOVEL));
+		entityManager.flush();
+		leitor.acompanhar();
+		assertTrue(leitor.alteracoes() >= 2);
+
+		gravador.gravar();
+		// Dentro da transação do teste o banco devolve sempre o mesmo instante: adianta o do snapshot novo
+		try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+			canal.write(ByteBuffer.allocate(8).putLong(System.currentTimeMillis() + 3_600_000).flip(), 16);
+		}
+		leitor.acompanhar();
+
+		assertEquals(4, leitor.produtosNoSnapshot());
+		assertEquals(0, leitor.alteracoes());
+		assertEquals(new BigDecimal("29.90"), leitor.buscar(livro.getId()).preco());
+		assertEquals(TipoProduto.MOVEL, leitor.buscar(novo.getId()).tipo());
+	}
+
+	@Test
+	public void testSemSnapshotBuscaNoBancoEPassaASerLocal() {
+		SnapshotCatalogo catalogo = new SnapshotCatalogo(jdbcTemplate, arquivo, false, MARGEM_MS);
+		assertFalse(catalogo.mapeado());
+		assertNull(catalogo.buscar(livro.getId()));
+
+		List<PrecoProdutoDTO> precos = catalogo.buscar(List.of(mesa.getId(), -1L, livro.getId()));
+
+		assertEquals(List.of(mesa.getId(), livro.getId()), precos.stream().map(PrecoProdutoDTO::id).toList());
+		assertEquals(2, catalogo.alteracoes());
+		assertEquals(new BigDecimal("39.90"), catalogo.buscar(livro.getId()).preco());
+	}
+
+	@Test
+	public void testArquivoInvalidoEIgnorado() throws IOException {
+		Files.write(arquivo, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21,
+				22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32 });
+
+		assertFalse(new SnapshotCatalogo(jdbcTemplate, arquivo, false, MARGEM_MS).mapeado());
+	}
+
+	@Test
+	public void testLimiteDeIds() {
+		SnapshotCatalogo catalogo = new SnapshotCatalogo(jdbcTemplate, arquivo, false, MARGEM_MS);
+		List<Long> ids = new ArrayList<>(Collections.nCopies(SnapshotCatalogo.LIMITE_IDS + 1, 1L));
+
+		assertThrows(IllegalArgumentException.class, () -> catalogo.buscar(ids));
+	}
+}
@@ -0,0 +1,102 @@
+package ecommerce;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import ecommerce.service.ExecutorFinalizacao;
+import ecommerce.service.ShardsFinalizacao;
+import ecommerce.service.TravasFinalizacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Contenção das estratégias de serialização de finalizações por cliente.
+ *
+ * Cada "finalização" fica parada {@code benchmark.servico-us} (padrão 1000 µs), como se esperasse estoque e
+ * pagamento. Compara nenhuma trava, um único bloco synchronized, {@link TravasFinalizacao} e {@link ShardsFinalizacao}
+ * (um shard por thread geradora), com muitos clientes (pouca colisão) e com poucos clientes (muita colisão).
+ * "Sobreposições" conta finalizações do mesmo cliente que rodaram ao mesmo tempo, o que a serialização deveria
+ * impedir.
+ *
+ * Rodar com: mvn test -Pbenchmark -Dtest=TravaCompraBenchmark
+ */
+public class TravaCompraBenchmark {
+
+	private static final int THREADS = Integer.getInteger("benchmark.threads", 32);
+	private static final int DURACAO_S = Integer.getInteger("benchmark.duracao-s", 5);
+	private static final long SERVICO_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("benchmark.servico-us", 1000));
+
+	@Test
+	void compararEstrategias() throws InterruptedException {
+		for (int clientes : new int[] { 10_000, 8 }) {
+			System.out.printf("%n[TravaCompraBenchmark] %d threads, %d clientes, %d µs por finalização%n", THREADS,
+					clientes, TimeUnit.NANOSECONDS.toMicros(SERVICO_NANOS));
+
+			medir("sem trava", clientes, ExecutorFinalizacao.direto());
+
+			Object monitor = new Object();
+			medir("synchronized único", clientes, new ExecutorFinalizacao() {
+				public <T> T executar(Long clienteId, Supplier<T> acao) {
+					synchronized (monitor) {
+						return acao.get();
+					}
+				}
+			});
+
+			medir("travas em faixas", clientes, new TravasFinalizacao(256, 2000));
+
+			try (ShardsFinalizacao shards = new ShardsFinalizacao(THREADS, 1024, new SimpleMeterRegistry())) {
+				medir("shards", clientes, shards);
+			}
+		}
+	}
+
+	private void medir(String nome, int clientes, ExecutorFinalizacao estrategia) throws InterruptedException {
+		AtomicIntegerArray emAndamento = new AtomicIntegerArray(clientes);
+		Histogram latencia = new ConcurrentHistogram(TimeUnit.SECONDS.toMicros(60), 3);
+		LongAdder concluidas = new LongAdder();
+		LongAdder sobreposicoes = new LongAdder();
+		LongAdder recusadas = new LongAdder();
+
+		long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURACAO_S);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			executor.execute(() -> {
+				while (System.nanoTime() < fim) {
+					int cliente = ThreadLocalRandom.current().nextInt(clientes);
+					long inicio = System.nanoTime();
+					try {
+						estrategia.executar((long) cliente, () -> {
+							if (emAndamento.incrementAndGet(cliente) > 1) {
+								sobreposicoes.increment();
+							}
+							LockSupport.parkNanos(SERVICO_NANOS);
+							emAndamento.decrementAndGet(cliente);
+							return null;
+						});
+						concluidas.increment();
+					} catch (IllegalStateException e) {
+						recusadas.increment();
+					}
+					latencia.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio));
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(DURACAO_S + 60L, TimeUnit.SECONDS);
+
+		System.out.printf("[TravaCompraBenchmark] %-20s %8.0f finalizações/s  p50 %7.2f ms  p99 %7.2f ms  "
+				+ "sobreposições %6d  recusadas %d%n", nome, concluidas.sum() / (double) DURACAO_S,
+				latencia.getValueAtPercentile(50) / 1000.0, latencia.getValueAtPercentile(99) / 1000.0,
+				sobreposicoes.sum(), recusadas.sum());
+	}
+}
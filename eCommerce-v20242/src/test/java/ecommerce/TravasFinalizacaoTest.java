@@ -0,0 +1,77 @@
+package ecommerce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ecommerce.service.Prazo;
+import ecommerce.service.PrazoEsgotadoException;
+import ecommerce.service.TravasFinalizacao;
+
+public class TravasFinalizacaoTest {
+
+	@Test
+	public void testMesmoClienteEsperaEDesisteNoTimeout() throws Exception {
+		TravasFinalizacao travas = new TravasFinalizacao(64, 50);
+		CountDownLatch segurando = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CompletableFuture<String> primeira = CompletableFuture.supplyAsync(() -> travas.executar(1L, () -> {
+			segurando.countDown();
+			aguardar(liberar);
+			return "primeira";
+		}));
+		segurando.await(5, TimeUnit.SECONDS);
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				() -> travas.executar(1L, () -> "segunda"));
+		assertEquals("Outra finalização do mesmo cliente está em andamento.", exception.getMessage());
+
+		// Outro cliente, em outra faixa, não espera
+		assertEquals("outro cliente", travas.executar(2L, () -> "outro cliente"));
+
+		liberar.countDown();
+		assertEquals("primeira", primeira.get(5, TimeUnit.SECONDS));
+		assertEquals("depois", travas.executar(1L, () -> "depois"));
+	}
+
+	@Test
+	public void testEsperaNaoPassaDoPrazo() throws Exception {
+		TravasFinalizacao travas = new TravasFinalizacao(64, 60_000);
+		CountDownLatch segurando = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CompletableFuture<String> primeira = CompletableFuture.supplyAsync(() -> travas.executar(1L, () -> {
+			segurando.countDown();
+			aguardar(liberar);
+			return "primeira";
+		}));
+		segurando.await(5, TimeUnit.SECONDS);
+
+		long inicio = System.nanoTime();
+		assertThrows(PrazoEsgotadoException.class,
+				() -> Prazo.em(Duration.ofMillis(50)).aplicar(() -> travas.executar(1L, () -> "segunda")));
+		assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(5));
+
+		liberar.countDown();
+		assertEquals("primeira", primeira.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testFaixasDevemSerPotenciaDeDois() {
+		assertThrows(IllegalArgumentException.class, () -> new TravasFinalizacao(100, 10));
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}